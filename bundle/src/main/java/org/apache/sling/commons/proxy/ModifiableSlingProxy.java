@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import org.apache.sling.api.resource.PersistenceException;
+
+/**
+ * A Sling Proxy whose properties are written through JavaBean setters. A
+ * setter writes the property read by the getter with the same bean name, or
+ * the property specified by its own <code>@SlingProperty</code> annotation:
+ * 
+ * <code><br/>
+ * &#64;SlingProperty(path = "jcr:content", name = "jcr:title")<br/>
+ * String getTitle();<br/>
+ * <br/>
+ * void setTitle(String title);<br/>
+ * </code>
+ * 
+ * The values set are pending until they are committed, the getters of the
+ * proxies of the same resource resolver return the pending values.
+ */
+public interface ModifiableSlingProxy extends SlingProxy {
+
+	/**
+	 * Writes the values set through the setters of all proxies of the
+	 * resource resolver of this proxy, see
+	 * {@link SlingProxyService#commit(org.apache.sling.api.resource.ResourceResolver)}.
+	 * 
+	 * @throws PersistenceException
+	 *             if a modified resource is missing, is not modifiable or
+	 *             cannot be saved
+	 */
+	void commit() throws PersistenceException;
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import java.util.Iterator;
+
+/**
+ * An Iterator over a page of the children of a resource, returned by the
+ * methods annotated with <code>@SlingChildren</code>. Methods may declare this
+ * type as their return type to page through the children with continuation
+ * tokens:
+ * 
+ * <code><br/>
+ * &#64;SlingChildren(returnType = IPageProxy.class)<br/>
+ * PagedIterator&lt;IPageProxy&gt; getPages(String continuationToken, int limit);<br/>
+ * </code>
+ * 
+ * @param <E>
+ *            the type of the elements
+ */
+public interface PagedIterator<E> extends Iterator<E> {
+
+	/**
+	 * Gets the opaque token which resumes the iteration after the last
+	 * element returned by {@link #next()}, to be passed to the next call of
+	 * the children method.
+	 * 
+	 * @return the continuation token or null if there are no more children
+	 */
+	String getContinuationToken();
+}
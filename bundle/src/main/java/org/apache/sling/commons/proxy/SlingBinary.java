@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A binary property, returned by the methods annotated with
+ * <code>@SlingProperty</code> which declare this type as their return type.
+ * The content is not read until it is opened, and every call opens the
+ * content again, so ranges of large binaries can be read without reading the
+ * whole binary:
+ * 
+ * <code><br/>
+ * &#64;SlingProperty(path = "jcr:content", name = "jcr:data")<br/>
+ * SlingBinary getData();<br/>
+ * </code>
+ * 
+ * The binary reads from the resource resolver of the proxy and can only be
+ * opened while the resource resolver is open.
+ */
+public interface SlingBinary {
+
+	/**
+	 * Gets the size of the binary in bytes, if it is known without reading
+	 * the content. The size of byte arrays and local files is read directly,
+	 * other binaries are opened and closed again on every call to tell their
+	 * size, so callers needing it repeatedly should keep it.
+	 * 
+	 * @return the size or -1 if it is not known
+	 */
+	long getSize();
+
+	/**
+	 * Opens the content as a stream, which the caller must close.
+	 * 
+	 * @return the stream
+	 * @throws IOException
+	 *             if the content cannot be opened
+	 */
+	InputStream openStream() throws IOException;
+
+	/**
+	 * Opens a range of the content as a stream, which the caller must close.
+	 * 
+	 * @param position
+	 *            the position of the first byte to read
+	 * @param length
+	 *            the maximum number of bytes to read
+	 * @return the stream
+	 * @throws IOException
+	 *             if the content cannot be opened
+	 * @throws IllegalArgumentException
+	 *             if the position or the length is negative
+	 */
+	InputStream openStream(long position, long length) throws IOException;
+
+	/**
+	 * Opens the content as a channel, which the caller must close. The
+	 * channel reads from the file directly when the binary is a local file.
+	 * 
+	 * @return the channel
+	 * @throws IOException
+	 *             if the content cannot be opened
+	 */
+	ReadableByteChannel openChannel() throws IOException;
+
+	/**
+	 * Opens a range of the content as a channel, which the caller must close.
+	 * 
+	 * @param position
+	 *            the position of the first byte to read
+	 * @param length
+	 *            the maximum number of bytes to read
+	 * @return the channel
+	 * @throws IOException
+	 *             if the content cannot be opened
+	 * @throws IllegalArgumentException
+	 *             if the position or the length is negative
+	 */
+	ReadableByteChannel openChannel(long position, long length)
+			throws IOException;
+
+	/**
+	 * Gets the content as a read-only buffer. The file is memory-mapped when
+	 * the binary is a local file of at least a megabyte, otherwise the content
+	 * is read into memory. A mapping is only released when its buffer is
+	 * garbage collected, and keeps the file locked on some platforms until
+	 * then.
+	 * 
+	 * @return the buffer
+	 * @throws IOException
+	 *             if the content cannot be read or is larger than
+	 *             Integer.MAX_VALUE bytes, the largest buffer
+	 */
+	ByteBuffer getBuffer() throws IOException;
+
+	/**
+	 * Gets a range of the content as a read-only buffer, memory-mapped when
+	 * the binary is a local file and the range is at least a megabyte.
+	 * 
+	 * @param position
+	 *            the position of the first byte
+	 * @param length
+	 *            the maximum number of bytes
+	 * @return the buffer
+	 * @throws IOException
+	 *             if the content cannot be read or the range is larger than
+	 *             Integer.MAX_VALUE bytes, the largest buffer
+	 * @throws IllegalArgumentException
+	 *             if the position or the length is negative
+	 */
+	ByteBuffer getBuffer(long position, long length) throws IOException;
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Service for retrieving ISlingProxy instances from Sling Resources.
+ */
+public interface SlingProxyService {
+
+	/**
+	 * Creates new ISlingProxy instances of the provided type <code>type</code>
+	 * using the <code>resource</code> as the backing Sling Resource for the
+	 * JavaBean accessor methods on <code>type</code>
+	 * 
+	 * The following criteria must be met when invoking this method:
+	 * <ol>
+	 * <li><code>resource</code> must not be null</li>
+	 * <li><code>type</code> must not be null</li>
+	 * <li><code>type</code> must be an Interface</li>
+	 * <li>Interface <code>type</code> must have at least one
+	 * <code>@SlingProperty</code>, <code>@SlingReference</code> or <code>@SlingChildren</code> Annotation</li>
+	 * </ol>
+	 * 
+	 * @param <AdapterType>
+	 *            extends SlingProxy
+	 * @param resource
+	 *            Resource - the backing Resource
+	 * @param type
+	 *            Class - the interface that extends SlingProxy that is the
+	 *            Interface we are to create a new Proxy instance of
+	 * @return the new proxy instance of type <code>type</code>
+	 */
+	<AdapterType> AdapterType getProxy(Resource resource,
+			Class<AdapterType> type);
+
+	/**
+	 * Creates new ISlingProxy instances of the provided type <code>type</code>
+	 * backed by the resource at the specified <code>path</code>, which is not
+	 * resolved until one of the properties, the children or the backing
+	 * resource of the proxy are first accessed. Comparing the proxy, calculating
+	 * its hash code and reading its path do not access the repository.
+	 * 
+	 * The proxy is created even if there is no resource at the path, accessing
+	 * the resource then throws a
+	 * {@link org.apache.sling.api.resource.ResourceNotFoundException}.
+	 * 
+	 * The same criteria as for {@link #getProxy(Resource, Class)} must be met,
+	 * and <code>resolver</code> must not be null and <code>path</code> must be
+	 * an absolute path.
+	 * 
+	 * @param <AdapterType>
+	 *            extends SlingProxy
+	 * @param resolver
+	 *            ResourceResolver - the resolver used to resolve the backing
+	 *            Resource
+	 * @param path
+	 *            String - the absolute path of the backing Resource
+	 * @param type
+	 *            Class - the interface that extends SlingProxy that is the
+	 *            Interface we are to create a new Proxy instance of
+	 * @return the new proxy instance of type <code>type</code>
+	 */
+	<AdapterType> AdapterType getProxy(ResourceResolver resolver,
+			String path, Class<AdapterType> type);
+
+	/**
+	 * Writes the values set through the setters of the proxies of the
+	 * <code>resolver</code> to their resources. Setters do not write to the
+	 * resources, the values are pending until they are committed, which is
+	 * meant to be done once at the end of the request. Only the last value
+	 * set for a property is written, and every modified resource is saved
+	 * once.
+	 * 
+	 * All modified resources are resolved and adapted to PersistableValueMaps
+	 * and all values are put before the first resource is saved, so missing
+	 * or unmodifiable resources fail the commit before anything is written.
+	 * The resources are then saved one at a time: if saving a resource fails,
+	 * the resources saved before it stay saved, while its values and the
+	 * values of the resources which have not been saved yet stay pending, so
+	 * the commit may be retried.
+	 * 
+	 * Pending values must be committed before the resolver is released;
+	 * values which are never committed are discarded with the resolver. This
+	 * is logged as an error once the resolver has been garbage collected,
+	 * and the next commit of any resolver then throws an
+	 * IllegalStateException naming the resources whose values were lost.
+	 * 
+	 * @param resolver
+	 *            ResourceResolver - the resolver of the proxies
+	 * @throws PersistenceException
+	 *             if a modified resource is missing, is not modifiable or
+	 *             cannot be saved
+	 * @throws IllegalStateException
+	 *             if uncommitted values of released resolvers have been
+	 *             discarded since the previous commit, after the values of
+	 *             <code>resolver</code> have been committed
+	 */
+	void commit(ResourceResolver resolver) throws PersistenceException;
+}
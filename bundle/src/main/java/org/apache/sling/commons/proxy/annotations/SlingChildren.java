@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * Annotation used to mark a Method as retrieving the children of a resource.
+ * The path is not required. If you do not specify a path the children of the
+ * proxied resource will be retrieved. Paths starting with '/' are absolute
+ * references, and do not have to be contained beneath the current Resource.
+ * Paths not starting with '/' are assumed to be relative to the current
+ * Resource.
+ * 
+ * The child Resources at the path will be returned as an Iterator, a
+ * Spliterator, a Stream, a List, a Collection, an Iterable or an array,
+ * depending on the return type of the method, of either a resource or the
+ * type specified in the returnType property, according to the following
+ * rules (in order), which are applied once for all of the children:
+ * 
+ * <ol>
+ * <li>If the return type is Resource, the child resources will be returned</li>
+ * <li>If the return type is a proxy interface, proxies of the child resources
+ * will be returned</li>
+ * <li>Otherwise the child resources will be adapted into the return class;
+ * once a child resource cannot be adapted, null will be returned for all of
+ * the child resources of the same resource type</li>
+ * </ol>
+ * 
+ * Lists, Collections, Iterables and arrays are read once for the lifetime of
+ * the proxy when the method has no arguments, and their size never converts
+ * the child resources. Methods returning an int or a long return the number
+ * of child resources without converting them.
+ * 
+ * Here are 4 examples, showing valid usages:
+ * 
+ * <code><br/>
+ * &#64;SlingChildren(path = "jcr:content")<br/>
+ * Iterator&lt;Resource&gt; getChildren();<br/><br/>
+ * 
+ * &#64;SlingReference(returnType = ValueMap.class)<br/>
+ * Iterator&lt;ValueMap&gt; getSubnodeProperties();<br/><br/>
+ * 
+ * &#64;SlingReference(path = "/content/page", returnType=IPageProxy.class)<br/>
+ * Iterator&lt;IPageProxy&gt; getSubPageProxes();<br/><br/>
+ * 
+ * &#64;SlingChildren(returnType = IPageProxy.class)<br/>
+ * Stream&lt;IPageProxy&gt; getSubPageStream();<br/><br/>
+ * </code>
+ * 
+ * The children may be retrieved a page at a time, either with a fixed offset
+ * and limit in the annotation or with the arguments of the method. Methods
+ * with the arguments <code>(int offset, int limit)</code> page by offset,
+ * methods with the arguments <code>(String continuationToken, int limit)</code>
+ * resume after the last child of the previous page, using the token returned
+ * by {@link org.apache.sling.commons.proxy.PagedIterator}. A null token starts
+ * at the first child. The children before the page are skipped without being
+ * converted:
+ * 
+ * <code><br/>
+ * &#64;SlingChildren(returnType = IPageProxy.class, limit = 10)<br/>
+ * Iterator&lt;IPageProxy&gt; getFirstPages();<br/><br/>
+ * 
+ * &#64;SlingChildren(returnType = IPageProxy.class)<br/>
+ * PagedIterator&lt;IPageProxy&gt; getPages(String continuationToken, int limit);<br/><br/>
+ * </code>
+ * 
+ * The children may be filtered by their resource type and name. The filters
+ * are applied before the children are converted and before the page is
+ * taken, so the offset, limit and continuation tokens only count the children
+ * which are accepted:
+ * 
+ * <code><br/>
+ * &#64;SlingChildren(resourceTypes = "myapp/components/image", name = "image*")<br/>
+ * Iterator&lt;Resource&gt; getImages();<br/><br/>
+ * </code>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD })
+@Documented
+public @interface SlingChildren {
+
+	/**
+	 * The path of the child resources to retrieve.
+	 */
+	String path() default "";
+
+	/**
+	 * The type to be returned as the generic type in the iterator.
+	 */
+	Class<?> returnType() default Resource.class;
+
+	/**
+	 * The number of child resources to skip, for methods without arguments.
+	 */
+	int offset() default 0;
+
+	/**
+	 * The maximum number of child resources to return, for methods without
+	 * arguments. Negative values return all of the child resources.
+	 */
+	int limit() default -1;
+
+	/**
+	 * The resource types of the child resources to return. If empty, the
+	 * child resources of all resource types are returned. The resource types
+	 * are compared exactly, super types are not considered.
+	 */
+	String[] resourceTypes() default {};
+
+	/**
+	 * The resource types of the child resources not to return.
+	 */
+	String[] excludedResourceTypes() default {};
+
+	/**
+	 * A glob the names of the child resources to return must match, where '*'
+	 * matches any number of characters and '?' matches a single character.
+	 * If empty, the child resources of all names are returned.
+	 */
+	String name() default "";
+
+}
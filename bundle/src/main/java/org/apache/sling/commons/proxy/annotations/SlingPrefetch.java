@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used to mark a proxy interface as reading all of its properties
+ * at once. By default every property is read when its method is first
+ * invoked; the proxies of an interface annotated with SlingPrefetch read the
+ * values of all of the methods annotated with &#64;SlingProperty when the
+ * first of them is invoked, reading the resource of each distinct path only
+ * once. Properties returning an InputStream are never prefetched.
+ * 
+ * Prefetching pays off for interfaces of which most properties are read,
+ * like the proxies rendered by a template. The annotation applies to the
+ * interfaces extending the annotated interface.
+ * 
+ * <code><br/>
+ * &#64;SlingPrefetch<br/>
+ * public interface IPageProxy extends SlingProxy {<br/>
+ * ...<br/>
+ * }<br/>
+ * </code>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+@Documented
+public @interface SlingPrefetch {
+
+}
@@ -137,6 +137,16 @@ public @interface SlingProperty {
 	 */
 	String path() default "";
 
+	/**
+	 * Whether or not the resource at the path must exist. If true, reading the
+	 * property of a missing resource throws a ResourceNotFoundException,
+	 * otherwise the property is read as if the resource had no properties,
+	 * returning null or the default value without building an exception.
+	 * 
+	 * @return the required flag
+	 */
+	boolean required() default true;
+
 	/**
 	 * Use a default value instead of just casting.
 	 * 
@@ -43,6 +43,9 @@ import java.lang.annotation.Target;
  * <li>Otherwise, null will be returned</li>
  * </ol> 
  * 
+ * The returned object, including null, is kept for the lifetime of the proxy,
+ * so every call returns the same object.
+ * 
  * Here are 3 examples, showing valid return types:
  * 
  * <code><br/>
@@ -55,6 +58,10 @@ import java.lang.annotation.Target;
  * &#64;SlingReference(path = "/content/page")
  * IPageProxy getPageProxy();
  * </code>
+ * 
+ * References to proxy interfaces may be lazy, in which case a proxy for the
+ * path is returned without resolving the referenced resource, see
+ * {@link #lazy()}.
  *
  */
 @Retention(RetentionPolicy.RUNTIME)
@@ -70,4 +77,17 @@ public @interface SlingReference {
 	 * @return the path to the resource being referenced
 	 */
 	String path();
+
+	/**
+	 * Whether or not to defer resolving the referenced resource. If true and
+	 * the return type is a proxy interface, a proxy for the path is returned
+	 * which only resolves the resource when one of its properties, children
+	 * or its backing resource are first accessed, so comparing the proxy or
+	 * reading its path does not access the repository. The proxy is returned
+	 * even if there is no resource at the path, accessing its properties then
+	 * throws a ResourceNotFoundException.
+	 * 
+	 * @return the lazy flag
+	 */
+	boolean lazy() default false;
 }
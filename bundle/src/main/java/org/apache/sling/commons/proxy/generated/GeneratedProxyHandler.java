@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.generated;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+/**
+ * The invocation handler of generated proxies. Besides the generic
+ * {@link #invoke(Object, Method, Object[])} of Java Dynamic Proxies it
+ * provides entry points for the methods the generated classes know the kind
+ * and slot of, so that reading a property neither boxes arguments nor looks
+ * up or switches on the invoked method.
+ * 
+ * This interface is implemented by the proxy service and is not intended to
+ * be implemented by clients.
+ */
+public interface GeneratedProxyHandler extends InvocationHandler {
+
+	/**
+	 * Invokes the method in the specified slot of the proxy interface
+	 * metadata.
+	 * 
+	 * @param proxy
+	 *            the proxy instance the method was invoked on
+	 * @param slot
+	 *            the slot of the invoked method
+	 * @param args
+	 *            the method arguments or null if the method has none
+	 * @return the result of the invocation
+	 * @throws Throwable
+	 */
+	Object invoke(Object proxy, int slot, Object[] args) throws Throwable;
+
+	/**
+	 * Reads the property returned by the <code>@SlingProperty</code> getter
+	 * in the specified slot.
+	 * 
+	 * @param slot
+	 *            the slot of the getter
+	 * @return the property value, or null if the property is missing and the
+	 *         getter was generated at compile time, as those getters return
+	 *         the default value themselves
+	 * @throws Throwable
+	 */
+	Object getProperty(int slot) throws Throwable;
+
+	/**
+	 * Gets the object returned by the <code>@SlingReference</code> getter in
+	 * the specified slot.
+	 * 
+	 * @param slot
+	 *            the slot of the getter
+	 * @return the referenced object
+	 */
+	Object getReference(int slot);
+
+	/**
+	 * Gets the method of the proxy interface in the specified slot.
+	 * 
+	 * @param slot
+	 *            the slot of the method
+	 * @return the method
+	 */
+	Method getInvokedMethod(int slot);
+}
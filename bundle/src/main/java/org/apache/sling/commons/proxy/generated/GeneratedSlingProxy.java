@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.generated;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import org.apache.sling.commons.proxy.SlingBinary;
+import org.apache.sling.commons.proxy.impl.to.PropertyConverter;
+
+/**
+ * The super class of all generated proxy classes. The generated classes
+ * implement the property and reference getters of the proxy interface by
+ * calling {@link #invokeProperty(int)} and {@link #invokeReference(int)}, and
+ * all other methods by calling {@link #invokeSlot(int, Object[])}, with the
+ * slot of the method in the proxy interface metadata. The getters of the
+ * classes generated at compile time by the annotation processor also unbox
+ * the property and return its default value themselves.
+ * 
+ * This class is a support class for generated code and is not intended to be
+ * extended directly.
+ * 
+ * The Object methods are handled here, through the same invocation handler
+ * used for Java Dynamic Proxies, so both kinds of proxies share the same
+ * equals, hashCode and toString semantics.
+ */
+public abstract class GeneratedSlingProxy {
+
+	/**
+	 * The Object equals method.
+	 */
+	private static final Method EQUALS;
+
+	/**
+	 * The Object hashCode method.
+	 */
+	private static final Method HASH_CODE;
+
+	/**
+	 * The Object toString method.
+	 */
+	private static final Method TO_STRING;
+	static {
+		try {
+			EQUALS = Object.class.getMethod("equals", Object.class);
+			HASH_CODE = Object.class.getMethod("hashCode");
+			TO_STRING = Object.class.getMethod("toString");
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The invocation handler all method calls are dispatched to.
+	 */
+	private final GeneratedProxyHandler handler;
+
+	/**
+	 * Constructs a new generated proxy.
+	 * 
+	 * @param handler
+	 *            the invocation handler, a {@link GeneratedProxyHandler}
+	 */
+	protected GeneratedSlingProxy(final InvocationHandler handler) {
+		this.handler = (GeneratedProxyHandler) handler;
+	}
+
+	/**
+	 * Returns the invocation handler of the specified generated proxy.
+	 * 
+	 * @param proxy
+	 *            the generated proxy
+	 * @return the invocation handler
+	 */
+	public static InvocationHandler getInvocationHandler(
+			final GeneratedSlingProxy proxy) {
+		return proxy.handler;
+	}
+
+	/**
+	 * Checks to see if the specified class is a generated proxy class.
+	 * 
+	 * @param c
+	 *            the class to check
+	 * @return whether or not the class is a generated proxy class
+	 */
+	public static boolean isGeneratedProxyClass(final Class<?> c) {
+		return GeneratedSlingProxy.class.isAssignableFrom(c);
+	}
+
+	/**
+	 * Invokes the method in the specified slot, called by the generated
+	 * methods.
+	 * 
+	 * @param slot
+	 *            the slot of the invoked method
+	 * @param args
+	 *            the method arguments or null if the method has none
+	 * @return the result of the invocation
+	 */
+	protected final Object invokeSlot(final int slot, final Object[] args) {
+		try {
+			return this.handler.invoke(this, slot, args);
+		} catch (final RuntimeException e) {
+			throw e;
+		} catch (final Error e) {
+			throw e;
+		} catch (final Throwable t) {
+			throw undeclared(this.handler.getInvokedMethod(slot), t);
+		}
+	}
+
+	/**
+	 * Reads the property of the getter in the specified slot, called by the
+	 * generated property getters.
+	 * 
+	 * @param slot
+	 *            the slot of the getter
+	 * @return the property value
+	 */
+	protected final Object invokeProperty(final int slot) {
+		try {
+			return this.handler.getProperty(slot);
+		} catch (final RuntimeException e) {
+			throw e;
+		} catch (final Error e) {
+			throw e;
+		} catch (final Throwable t) {
+			throw undeclared(this.handler.getInvokedMethod(slot), t);
+		}
+	}
+
+	/**
+	 * Gets the referenced object of the getter in the specified slot, called
+	 * by the generated reference getters.
+	 * 
+	 * @param slot
+	 *            the slot of the getter
+	 * @return the referenced object
+	 */
+	protected final Object invokeReference(final int slot) {
+		return this.handler.getReference(slot);
+	}
+
+	/**
+	 * Invokes one of the Object methods.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @param args
+	 *            the method arguments or null if the method has none
+	 * @return the result of the invocation
+	 */
+	private Object invokeMethod(final Method method, final Object[] args) {
+		try {
+			return this.handler.invoke(this, method, args);
+		} catch (final RuntimeException e) {
+			throw e;
+		} catch (final Error e) {
+			throw e;
+		} catch (final Throwable t) {
+			throw undeclared(method, t);
+		}
+	}
+
+	/**
+	 * Wraps a checked exception in an UndeclaredThrowableException, unless the
+	 * invoked method declares it, in which case it is rethrown as it is, as
+	 * Java Dynamic Proxies do.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @param t
+	 *            the checked exception
+	 * @return the exception to throw
+	 */
+	private static RuntimeException undeclared(final Method method,
+			final Throwable t) {
+		for (final Class<?> c : method.getExceptionTypes()) {
+			if (c.isInstance(t)) {
+				GeneratedSlingProxy.<RuntimeException> throwUnchecked(t);
+			}
+		}
+		return new UndeclaredThrowableException(t);
+	}
+
+	/**
+	 * Throws a checked exception without declaring it.
+	 * 
+	 * @param t
+	 *            the exception
+	 * @throws T
+	 *             always
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Throwable> void throwUnchecked(final Throwable t)
+			throws T {
+		throw (T) t;
+	}
+
+	/**
+	 * Creates a binary of the specified bytes, used by the generated getters
+	 * returning a {@link SlingBinary} to build their default value.
+	 * 
+	 * @param bytes
+	 *            the bytes, which are not copied
+	 * @return the binary
+	 */
+	protected static SlingBinary toBinary(final byte[] bytes) {
+		return PropertyConverter.toBinary(bytes);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public final boolean equals(final Object obj) {
+		return ((Boolean) this.invokeMethod(EQUALS, new Object[] { obj }))
+				.booleanValue();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public final int hashCode() {
+		return ((Integer) this.invokeMethod(HASH_CODE, null))
+				.intValue();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public final String toString() {
+		return (String) this.invokeMethod(TO_STRING, null);
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts the child resources to the return type of a children method.
+ * 
+ * How the resources are converted is decided once: the resources themselves
+ * are returned if the return type is Resource, proxies are created if the
+ * return type is a proxy interface, and otherwise the resources are adapted to
+ * the return type. Whether the resources can be adapted is decided once per
+ * resource type, by adapting the first resource of each type, so every
+ * element is converted at most once.
+ * 
+ * Converters may be used by several threads at once, for parallel streams of
+ * children.
+ * 
+ * @param <E>
+ *            the return type
+ */
+final class ChildrenConverter<E> {
+
+	/**
+	 * The ways of converting the resources to the return type.
+	 */
+	private enum Strategy {
+		/** Returns the resources themselves. */
+		Identity,
+		/** Returns proxies of the resources. */
+		Proxy,
+		/** Returns the resources adapted to the return type. */
+		Adapt
+	}
+
+	/**
+	 * The SLF4j Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(ChildrenConverter.class);
+
+	/**
+	 * They type to be returned.
+	 */
+	private final Class<E> returnType;
+
+	/**
+	 * A reference to the Sling Proxy service, used to load items which are
+	 * SlingProxies
+	 */
+	private final DefaultSlingProxyServiceImpl slingProxyService;
+
+	/**
+	 * How the resources are converted to the return type.
+	 */
+	private final Strategy strategy;
+
+	/**
+	 * Whether or not the resources of each resource type can be adapted to
+	 * the return type, by resource type. Only used to adapt resources.
+	 */
+	private final Map<String, Boolean> adaptable;
+
+	/**
+	 * Constructs a new children converter.
+	 * 
+	 * @param returnType
+	 *            the type to convert the resources to
+	 * @param slingProxyService
+	 *            a reference to the Sling Proxy service
+	 */
+	ChildrenConverter(final Class<E> returnType,
+			final DefaultSlingProxyServiceImpl slingProxyService) {
+		this.returnType = returnType;
+		this.slingProxyService = slingProxyService;
+		if (Resource.class.equals(returnType)) {
+			this.strategy = Strategy.Identity;
+		} else if (slingProxyService.isProxyable(returnType)) {
+			this.strategy = Strategy.Proxy;
+		} else {
+			this.strategy = Strategy.Adapt;
+		}
+		if (this.strategy == Strategy.Adapt) {
+			this.adaptable = new java.util.concurrent.ConcurrentHashMap<String, Boolean>();
+		} else {
+			this.adaptable = null;
+		}
+		log.debug("Converting children to {} by {}", returnType.getName(),
+				this.strategy);
+	}
+
+	/**
+	 * Checks whether or not the converted elements are never null, which is
+	 * only the case when the resources themselves are returned.
+	 * 
+	 * @return true if non-null resources are never converted to null
+	 */
+	boolean isNonNull() {
+		return this.strategy == Strategy.Identity;
+	}
+
+	/**
+	 * Converts a child resource to the return type.
+	 * 
+	 * @param resource
+	 *            the resource or null
+	 * @return the converted object or null
+	 */
+	E convert(final Resource resource) {
+		if (resource == null) {
+			log.debug("Referenced resource is null");
+			return null;
+		}
+
+		switch (this.strategy) {
+		case Identity:
+			return this.returnType.cast(resource);
+		case Proxy:
+			return this.slingProxyService.getProxyOrNull(resource,
+					this.returnType);
+		default:
+			return this.adapt(resource);
+		}
+	}
+
+	/**
+	 * Adapts a resource to the return type, unless a resource of the same
+	 * resource type could not be adapted.
+	 * 
+	 * @param resource
+	 *            the resource
+	 * @return the adapted object or null
+	 */
+	private E adapt(final Resource resource) {
+		final String resourceType = resource.getResourceType();
+		final Boolean known = (resourceType != null ? this.adaptable
+				.get(resourceType) : null);
+		if (Boolean.FALSE.equals(known)) {
+			return null;
+		}
+		final E adapted = resource.adaptTo(this.returnType);
+		if ((known == null) && (resourceType != null)) {
+			log.debug("Resources of type {} are {}adaptable to {}",
+					new Object[] { resourceType, adapted != null ? "" : "not ",
+							this.returnType.getName() });
+			this.adaptable.put(resourceType, Boolean.valueOf(adapted != null));
+		}
+		return adapted;
+	}
+}
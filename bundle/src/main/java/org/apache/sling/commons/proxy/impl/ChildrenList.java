@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * An unmodifiable List of the children of a resource, returned by the
+ * children methods returning a List, a Collection, an Iterable or an array.
+ * 
+ * The child resources are listed once, when the size or an element is first
+ * requested, into an array of the exact size. Each element is converted to the
+ * return type when it is first read and the converted element replaces the
+ * resource, so the size of the list and whether it is empty never convert a
+ * child, and {@link #isEmpty()} only lists the first child.
+ * 
+ * As the list is cached by the proxy and filled lazily, its methods are
+ * synchronized so that it may be read by several threads.
+ * 
+ * @param <E>
+ *            the return type
+ */
+final class ChildrenList<E> extends AbstractList<E> implements RandomAccess {
+
+	/**
+	 * The page of child resources, or null once it has been listed.
+	 */
+	private ChildrenPage page;
+
+	/**
+	 * Converts the resources to the return type.
+	 */
+	private final ChildrenConverter<E> converter;
+
+	/**
+	 * The resources which have not been converted yet, by index, null once
+	 * the resource at an index has been converted.
+	 */
+	private Resource[] resources;
+
+	/**
+	 * The converted elements, by index. Only allocated when the first element
+	 * is read.
+	 */
+	private Object[] elements;
+
+	/**
+	 * Constructs a new children list.
+	 * 
+	 * @param page
+	 *            the page of child resources
+	 * @param converter
+	 *            converts the resources to the return type
+	 */
+	ChildrenList(final ChildrenPage page, final ChildrenConverter<E> converter) {
+		this.page = page;
+		this.converter = converter;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized E get(final int index) {
+		final Resource[] resources = this.list();
+		if ((index < 0) || (index >= resources.length)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ resources.length);
+		}
+		if (this.elements == null) {
+			this.elements = new Object[resources.length];
+		}
+		if (resources[index] != null) {
+			this.elements[index] = this.converter.convert(resources[index]);
+			resources[index] = null;
+		}
+		return (E) this.elements[index];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public synchronized int size() {
+		return this.list().length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractCollection#isEmpty()
+	 */
+	@Override
+	public synchronized boolean isEmpty() {
+		if (this.resources == null) {
+			return !this.page.hasNext();
+		}
+		return this.resources.length == 0;
+	}
+
+	/**
+	 * Lists the child resources, if they have not already been listed.
+	 * 
+	 * @return the resources which have not been converted yet
+	 */
+	private Resource[] list() {
+		if (this.resources == null) {
+			Resource[] resources = new Resource[8];
+			int size = 0;
+			while (this.page.hasNext()) {
+				if (size == resources.length) {
+					final Resource[] grown = new Resource[size * 2];
+					System.arraycopy(resources, 0, grown, 0, size);
+					resources = grown;
+				}
+				resources[size++] = this.page.next();
+			}
+			if (size < resources.length) {
+				final Resource[] trimmed = new Resource[size];
+				System.arraycopy(resources, 0, trimmed, 0, size);
+				resources = trimmed;
+			}
+			this.resources = resources;
+			this.page = null;
+		}
+		return this.resources;
+	}
+}
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.proxy.impl.to.ChildrenFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An Iterator over a page of the children of a resource. The children before
+ * the page are skipped without being converted, either by their number or up
+ * to the child named in a continuation token.
+ * 
+ * Children which are rejected by the filter of the method are skipped before
+ * the page is taken, so they are neither counted nor converted.
+ * 
+ * A continuation token encodes the index and the name of the last child
+ * returned. The iteration resumes after the child with that name, or at the
+ * index if the child has been removed in the meantime.
+ */
+final class ChildrenPage implements Iterator<Resource> {
+
+	/**
+	 * The SLF4j Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(ChildrenPage.class);
+
+	/**
+	 * The hexadecimal digits of the continuation tokens.
+	 */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The resolver listing the children.
+	 */
+	private final ResourceResolver resolver;
+
+	/**
+	 * The parent resource or null if it does not exist.
+	 */
+	private final Resource parent;
+
+	/**
+	 * The children of the parent resource.
+	 */
+	private Iterator<Resource> children;
+
+	/**
+	 * The filter of the children or null.
+	 */
+	private final ChildrenFilter filter;
+
+	/**
+	 * The number of children to skip.
+	 */
+	private final int offset;
+
+	/**
+	 * The maximum number of children to return, negative for all children.
+	 */
+	private final int limit;
+
+	/**
+	 * The name of the child to resume after or null.
+	 */
+	private final String resumeName;
+
+	/**
+	 * Whether or not the skipped children have been skipped.
+	 */
+	private boolean positioned;
+
+	/**
+	 * The index of the next child among all of the children.
+	 */
+	private int index;
+
+	/**
+	 * The number of children returned.
+	 */
+	private int returned;
+
+	/**
+	 * The last child returned, whose name is only read for continuation
+	 * tokens.
+	 */
+	private Resource last;
+
+	/**
+	 * The next child, read ahead by {@link #hasNext()}.
+	 */
+	private Resource next;
+
+	/**
+	 * Constructs a new page of children.
+	 * 
+	 * @param resolver
+	 *            the resolver listing the children
+	 * @param parent
+	 *            the parent resource or null for an empty page
+	 * @param filter
+	 *            the filter of the children or null
+	 * @param offset
+	 *            the number of children to skip, ignored if a token is
+	 *            specified
+	 * @param limit
+	 *            the maximum number of children, negative for all children
+	 * @param token
+	 *            the continuation token or null
+	 * @throws IllegalArgumentException
+	 *             if the offset is negative or the token is invalid
+	 */
+	ChildrenPage(final ResourceResolver resolver, final Resource parent,
+			final ChildrenFilter filter, final int offset, final int limit,
+			final String token) {
+		if (offset < 0) {
+			throw new IllegalArgumentException("Invalid children offset: "
+					+ offset);
+		}
+		this.resolver = resolver;
+		this.parent = parent;
+		this.filter = filter;
+		this.limit = limit;
+		if (token != null) {
+			final String decoded = decode(token);
+			final int separator = decoded.indexOf(':');
+			try {
+				this.offset = Integer.parseInt(decoded.substring(0,
+						separator));
+			} catch (final RuntimeException e) {
+				throw new IllegalArgumentException(
+						"Invalid continuation token: " + token);
+			}
+			this.resumeName = (separator < decoded.length() - 1 ? decoded
+					.substring(separator + 1) : null);
+		} else {
+			this.offset = offset;
+			this.resumeName = null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext() {
+		if ((this.limit >= 0) && (this.returned >= this.limit)) {
+			return false;
+		}
+		return this.peek() != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Iterator#next()
+	 */
+	public Resource next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final Resource child = this.next;
+		this.next = null;
+		this.index++;
+		this.returned++;
+		this.last = child;
+		return child;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Iterator#remove()
+	 */
+	public void remove() {
+		if ((this.last == null) || (this.next != null)) {
+			throw new IllegalStateException(
+					"remove() must directly follow next()");
+		}
+		this.children.remove();
+		this.index--;
+	}
+
+	/**
+	 * Estimates the number of children which remain to be returned, which is
+	 * the remaining limit if there is one.
+	 * 
+	 * @return the estimated size, or Long.MAX_VALUE if unknown
+	 */
+	long estimateSize() {
+		if (this.parent == null) {
+			return 0;
+		} else if (this.limit >= 0) {
+			return this.limit - this.returned;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Checks whether or not {@link #estimateSize()} is exact, which is only
+	 * known for pages of missing resources.
+	 * 
+	 * @return true if the size is exact
+	 */
+	boolean isSized() {
+		return this.parent == null;
+	}
+
+	/**
+	 * Gets the continuation token resuming after the last child returned.
+	 * 
+	 * @return the token or null if there are no more children
+	 */
+	String getContinuationToken() {
+		if (this.peek() == null) {
+			return null;
+		}
+		return encode(this.index + ":"
+				+ (this.last != null ? ResourceUtil.getName(this.last) : ""));
+	}
+
+	/**
+	 * Reads the next child ahead, skipping the children before the page
+	 * first.
+	 * 
+	 * @return the next child or null if there are no more children
+	 */
+	private Resource peek() {
+		if (!this.positioned) {
+			this.position();
+		}
+		if (this.next == null) {
+			this.next = this.nextChild();
+		}
+		return this.next;
+	}
+
+	/**
+	 * Gets the next child accepted by the filter from the listing.
+	 * 
+	 * @return the child or null if there are no more children
+	 */
+	private Resource nextChild() {
+		while (this.children.hasNext()) {
+			final Resource child = this.children.next();
+			if ((child != null)
+					&& ((this.filter == null) || this.filter.accept(child))) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Skips the children before the page.
+	 */
+	private void position() {
+		this.positioned = true;
+		this.children = this.listChildren();
+		if (this.resumeName != null) {
+			int i = 0;
+			Resource child;
+			while ((child = this.nextChild()) != null) {
+				i++;
+				if (this.resumeName.equals(ResourceUtil.getName(child))) {
+					this.index = i;
+					return;
+				}
+			}
+			log.debug("Child {} removed, resuming at {}", this.resumeName,
+					this.offset);
+			this.children = this.listChildren();
+		}
+		while ((this.index < this.offset) && (this.nextChild() != null)) {
+			this.index++;
+		}
+	}
+
+	/**
+	 * Lists the children of the parent resource.
+	 * 
+	 * @return the children
+	 */
+	@SuppressWarnings("unchecked")
+	private Iterator<Resource> listChildren() {
+		if (this.parent == null) {
+			return Collections.EMPTY_LIST.iterator();
+		}
+		return this.resolver.listChildren(this.parent);
+	}
+
+	/**
+	 * Encodes a continuation token as the hexadecimal UTF-8 bytes.
+	 * 
+	 * @param s
+	 *            the token
+	 * @return the encoded token
+	 */
+	private static String encode(final String s) {
+		try {
+			final byte[] bytes = s.getBytes("UTF-8");
+			final char[] chars = new char[bytes.length * 2];
+			for (int i = 0; i < bytes.length; i++) {
+				chars[2 * i] = HEX[(bytes[i] >> 4) & 15];
+				chars[2 * i + 1] = HEX[bytes[i] & 15];
+			}
+			return new String(chars);
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Decodes a continuation token.
+	 * 
+	 * @param token
+	 *            the encoded token
+	 * @return the token
+	 * @throws IllegalArgumentException
+	 *             if the token is invalid
+	 */
+	private static String decode(final String token) {
+		if ((token.length() % 2) != 0) {
+			throw new IllegalArgumentException("Invalid continuation token: "
+					+ token);
+		}
+		final byte[] bytes = new byte[token.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			final int hi = Character.digit(token.charAt(2 * i), 16);
+			final int lo = Character.digit(token.charAt(2 * i + 1), 16);
+			if ((hi < 0) || (lo < 0)) {
+				throw new IllegalArgumentException(
+						"Invalid continuation token: " + token);
+			}
+			bytes[i] = (byte) ((hi << 4) | lo);
+		}
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
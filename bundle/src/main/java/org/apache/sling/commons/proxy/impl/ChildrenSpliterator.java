@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * A Spliterator over a page of the children of a resource, backing the
+ * children methods returning a Stream or a Spliterator.
+ * 
+ * The child resources can only be listed sequentially, so splitting takes a
+ * batch of resources from the listing, with batches growing by
+ * {@link #BATCH_UNIT} resources for every split like the Spliterators of
+ * Iterators in the JDK. The resources are converted to the return type by the
+ * batches themselves, so creating proxies and adapting resources runs on the
+ * threads of the fork-join pool of parallel streams.
+ * 
+ * @param <E>
+ *            the return type
+ */
+final class ChildrenSpliterator<E> implements Spliterator<E> {
+
+	/**
+	 * The number of resources added to each batch. Converting a resource costs
+	 * far more than listing it, so the batches are smaller than the ones of
+	 * the JDK.
+	 */
+	static final int BATCH_UNIT = 64;
+
+	/**
+	 * The maximum number of resources in a batch.
+	 */
+	static final int MAX_BATCH = 1 << 16;
+
+	/**
+	 * The page of child resources.
+	 */
+	private final ChildrenPage page;
+
+	/**
+	 * Converts the resources to the return type.
+	 */
+	private final ChildrenConverter<E> converter;
+
+	/**
+	 * The size of the last batch.
+	 */
+	private int batch;
+
+	/**
+	 * Constructs a new children spliterator.
+	 * 
+	 * @param page
+	 *            the page of child resources
+	 * @param converter
+	 *            converts the resources to the return type
+	 */
+	ChildrenSpliterator(final ChildrenPage page,
+			final ChildrenConverter<E> converter) {
+		this.page = page;
+		this.converter = converter;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+	 */
+	public boolean tryAdvance(final Consumer<? super E> action) {
+		if (action == null) {
+			throw new NullPointerException();
+		}
+		if (!this.page.hasNext()) {
+			return false;
+		}
+		action.accept(this.converter.convert(this.page.next()));
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Spliterator#forEachRemaining(java.util.function.Consumer)
+	 */
+	public void forEachRemaining(final Consumer<? super E> action) {
+		if (action == null) {
+			throw new NullPointerException();
+		}
+		while (this.page.hasNext()) {
+			action.accept(this.converter.convert(this.page.next()));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Spliterator#trySplit()
+	 */
+	public Spliterator<E> trySplit() {
+		if (!this.page.hasNext()) {
+			return null;
+		}
+		final long size = this.page.estimateSize();
+		final int n = (int) Math.min(Math.min(this.batch + BATCH_UNIT,
+				MAX_BATCH), size);
+		final Resource[] resources = new Resource[n];
+		int i = 0;
+		while ((i < n) && this.page.hasNext()) {
+			resources[i++] = this.page.next();
+		}
+		this.batch = i;
+		return new Batch<E>(resources, 0, i, this.converter);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Spliterator#estimateSize()
+	 */
+	public long estimateSize() {
+		return this.page.estimateSize();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	public int characteristics() {
+		int characteristics = ORDERED;
+		if (this.page.isSized()) {
+			characteristics |= SIZED | SUBSIZED;
+		}
+		if (this.converter.isNonNull()) {
+			characteristics |= NONNULL;
+		}
+		return characteristics;
+	}
+
+	/**
+	 * A batch of child resources split from the listing, which are converted
+	 * when they are traversed.
+	 * 
+	 * @param <E>
+	 *            the return type
+	 */
+	private static final class Batch<E> implements Spliterator<E> {
+
+		/**
+		 * The resources of the batch.
+		 */
+		private final Resource[] resources;
+
+		/**
+		 * The index of the next resource.
+		 */
+		private int index;
+
+		/**
+		 * The index after the last resource.
+		 */
+		private final int fence;
+
+		/**
+		 * Converts the resources to the return type.
+		 */
+		private final ChildrenConverter<E> converter;
+
+		/**
+		 * Constructs a new batch.
+		 * 
+		 * @param resources
+		 *            the resources
+		 * @param index
+		 *            the index of the first resource
+		 * @param fence
+		 *            the index after the last resource
+		 * @param converter
+		 *            converts the resources to the return type
+		 */
+		Batch(final Resource[] resources, final int index, final int fence,
+				final ChildrenConverter<E> converter) {
+			this.resources = resources;
+			this.index = index;
+			this.fence = fence;
+			this.converter = converter;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+		 */
+		public boolean tryAdvance(final Consumer<? super E> action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			if (this.index >= this.fence) {
+				return false;
+			}
+			action.accept(this.converter.convert(this.resources[this.index++]));
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * java.util.Spliterator#forEachRemaining(java.util.function.Consumer)
+		 */
+		public void forEachRemaining(final Consumer<? super E> action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			while (this.index < this.fence) {
+				action.accept(this.converter
+						.convert(this.resources[this.index++]));
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Spliterator#trySplit()
+		 */
+		public Spliterator<E> trySplit() {
+			final int mid = (this.index + this.fence) >>> 1;
+			if (mid <= this.index) {
+				return null;
+			}
+			final Batch<E> prefix = new Batch<E>(this.resources, this.index,
+					mid, this.converter);
+			this.index = mid;
+			return prefix;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Spliterator#estimateSize()
+		 */
+		public long estimateSize() {
+			return this.fence - this.index;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Spliterator#characteristics()
+		 */
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED
+					| (this.converter.isNonNull() ? NONNULL : 0);
+		}
+	}
+}
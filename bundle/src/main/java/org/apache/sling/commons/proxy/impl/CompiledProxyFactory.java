@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.sling.commons.proxy.annotations.SlingChildren;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+import org.apache.sling.commons.proxy.annotations.SlingReference;
+import org.apache.sling.commons.proxy.generated.GeneratedSlingProxy;
+import org.apache.sling.commons.proxy.impl.reflection.Annotations;
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the proxy classes generated at compile time by the Sling Proxy
+ * annotation processor. The annotation processor lists the classes it
+ * generates in a registry resource next to the classes, together with the
+ * methods of each class and their annotation values, the registries are read
+ * once per class loader. Interfaces without a generated class are proxied by
+ * the fallback factory.
+ */
+final class CompiledProxyFactory implements ProxyFactory {
+
+	/**
+	 * The SLF4J Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(CompiledProxyFactory.class);
+
+	/**
+	 * The name of the registry resource written by the annotation processor,
+	 * mapping the binary name of each proxy interface to the binary name of
+	 * the generated class.
+	 */
+	private static final String REGISTRY = "META-INF/org.apache.sling.commons.proxy/proxies.properties";
+
+	/**
+	 * The registry entries, by class loader.
+	 */
+	private final Map<ClassLoader, Properties> registries = new java.util.WeakHashMap<ClassLoader, Properties>();
+
+	/**
+	 * The factory used for interfaces without a compiled class.
+	 */
+	private final ProxyFactory fallback;
+
+	/**
+	 * Constructs a new compiled proxy factory.
+	 * 
+	 * @param fallback
+	 *            the factory used for interfaces without a compiled class
+	 */
+	CompiledProxyFactory(final ProxyFactory fallback) {
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Creates the metadata of the specified interface. The metadata of an
+	 * interface with a generated class is read from the registry, in the
+	 * order of the slots the generated methods pass to the invocation
+	 * handler, the metadata of other interfaces from their annotations.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @return the metadata or null if the interface has no method with a
+	 *         Sling Proxy annotation
+	 */
+	ProxyMetadata getMetadata(final Class<?> type) {
+		final Class<?> compiled = this.lookup(type);
+		if (compiled != null) {
+			try {
+				return ProxyMetadata.newInstance(type, compiled, this
+						.getRegistry(type.getClassLoader()));
+			} catch (final RuntimeException e) {
+				log.warn("Ignoring compiled proxy class " + compiled.getName()
+						+ " for " + type.getName(), e);
+			}
+		}
+		if (!Annotations.hasMethodAnnotation(type, SlingProperty.class)
+				&& !Annotations.hasMethodAnnotation(type, SlingChildren.class)
+				&& !Annotations.hasMethodAnnotation(type, SlingReference.class)) {
+			return null;
+		}
+		return ProxyMetadata.newInstance(type);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.impl.ProxyFactory#getConstructor(org.
+	 * apache.sling.commons.proxy.impl.to.ProxyMetadata)
+	 */
+	public Constructor<?> getConstructor(final ProxyMetadata metadata) {
+		final Class<?> compiled = metadata.getCompiledClass();
+		if (compiled == null) {
+			return this.fallback.getConstructor(metadata);
+		}
+		try {
+			return compiled.getConstructor(InvocationHandler.class);
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalStateException("Invalid compiled proxy class "
+					+ compiled.getName(), e);
+		}
+	}
+
+	/**
+	 * Looks up the class generated for the proxy interface in the registry of
+	 * the class loader of the interface.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @return the generated class or null if there is none
+	 */
+	private Class<?> lookup(final Class<?> type) {
+		final ClassLoader cl = type.getClassLoader();
+		if (cl == null) {
+			return null;
+		}
+		final String name = this.getRegistry(cl).getProperty(type.getName());
+		if (name == null) {
+			return null;
+		}
+		try {
+			final Class<?> c = cl.loadClass(name);
+			if (!type.isAssignableFrom(c)
+					|| !GeneratedSlingProxy.isGeneratedProxyClass(c)) {
+				log.warn("Ignoring compiled proxy class {} for {}", name,
+						type.getName());
+				return null;
+			}
+			log.debug("Using compiled proxy class {}", name);
+			return c;
+		} catch (final Exception e) {
+			log.warn("Unable to load compiled proxy class " + name + " for "
+					+ type.getName(), e);
+		} catch (final LinkageError e) {
+			log.warn("Unable to load compiled proxy class " + name + " for "
+					+ type.getName(), e);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the registry entries visible to the specified class loader, reading
+	 * them if they have not already been read.
+	 * 
+	 * @param cl
+	 *            the class loader
+	 * @return the registry entries
+	 */
+	private synchronized Properties getRegistry(final ClassLoader cl) {
+		Properties registry = this.registries.get(cl);
+		if (registry == null) {
+			registry = new Properties();
+			try {
+				final Enumeration<URL> urls = cl.getResources(REGISTRY);
+				while (urls.hasMoreElements()) {
+					final URL url = urls.nextElement();
+					final InputStream is = url.openStream();
+					try {
+						registry.load(is);
+					} finally {
+						is.close();
+					}
+				}
+			} catch (final IOException e) {
+				log.warn("Unable to read the compiled proxy registry", e);
+			}
+			this.registries.put(cl, registry);
+		}
+		return registry;
+	}
+}
@@ -0,0 +1,877 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Dictionary;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyOption;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.proxy.SlingProxyService;
+import org.apache.sling.commons.proxy.impl.cache.DefaultAccessFingerprint;
+import org.apache.sling.commons.proxy.impl.cache.SharedPropertyCache;
+import org.apache.sling.commons.proxy.impl.reflection.ClassCache;
+import org.apache.sling.commons.proxy.impl.to.PropertyUsage;
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default implementation of the {@link org.apache.sling.commons.proxy.SlingProxyService}
+ */
+@Service(value = SlingProxyService.class)
+@Component(description = "Creates ISlingProxy instances", immediate = true, metatype = true)
+public final class DefaultSlingProxyServiceImpl implements SlingProxyService {
+
+	/**
+	 * The SLF4J Logger.
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(DefaultSlingProxyServiceImpl.class);
+
+	/**
+	 * The name of the property used to select the engine which creates the
+	 * proxy instances.
+	 */
+	@Property(value = "jdp", label = "Proxy Engine", description = "The engine used to create proxy instances", options = {
+			@PropertyOption(name = "jdp", value = "Java Dynamic Proxies"),
+			@PropertyOption(name = "generated", value = "Generated Classes") })
+	public static final String PROXY_ENGINE = "proxy.engine";
+
+	/**
+	 * The name of the property enabling the property cache shared by all
+	 * proxies.
+	 */
+	@Property(boolValue = false, label = "Shared Cache", description = "Share the property values read by proxies across requests, partitioned by the user of the resource resolver")
+	public static final String SHARED_CACHE_ENABLED = "shared.cache.enabled";
+
+	/**
+	 * The name of the property setting the maximum number of values in the
+	 * shared property cache.
+	 */
+	@Property(intValue = 10000, label = "Shared Cache Size", description = "The maximum number of values in the shared cache")
+	public static final String SHARED_CACHE_SIZE = "shared.cache.size";
+
+	/**
+	 * The name of the property setting the maximum estimated weight of the
+	 * values in the shared property cache.
+	 */
+	@Property(longValue = 16777216, label = "Shared Cache Weight", description = "The maximum estimated size of the values in the shared cache, in bytes")
+	public static final String SHARED_CACHE_WEIGHT = "shared.cache.weight";
+
+	/**
+	 * The name of the property setting the time to live of the values in the
+	 * shared property cache.
+	 */
+	@Property(longValue = 300, label = "Shared Cache Time to Live", description = "The number of seconds a value is kept in the shared cache, 0 to keep values until they are changed")
+	public static final String SHARED_CACHE_TTL = "shared.cache.ttl";
+
+	/**
+	 * The name of the property enabling the identity map, which returns the
+	 * same proxy for the same path and interface within a resource resolver.
+	 */
+	@Property(boolValue = false, label = "Identity Map", description = "Return the same proxy for the same path and interface within a resource resolver, so the proxies of a request share their caches, even if they are requested with another Resource instance of the path")
+	public static final String IDENTITY_MAP_ENABLED = "identity.map.enabled";
+
+	/**
+	 * The name of the property enabling the counting of the properties read
+	 * by the proxies of each interface.
+	 */
+	@Property(boolValue = false, label = "Property Usage", description = "Count how many of the properties of each interface its proxies read, to tell which interfaces benefit from prefetching")
+	public static final String PROPERTY_USAGE_ENABLED = "property.usage.enabled";
+
+	/**
+	 * The engine used to create the proxy instances.
+	 */
+	private volatile ProxyEngine engine;
+
+	/**
+	 * The factory for the proxy classes, depends on the configured engine.
+	 */
+	private volatile CompiledProxyFactory proxyFactory;
+
+	/**
+	 * The validation verdicts for the proxied types, including the proxy
+	 * class constructor of the valid types, by type.
+	 */
+	private final ClassCache<Verdict> verdicts = new ClassCache<Verdict>();
+
+	/**
+	 * The property cache shared by all proxies or null if it is disabled.
+	 */
+	private volatile SharedPropertyCache sharedCache;
+
+	/**
+	 * The proxies by resource resolver, path and interface, or null if the
+	 * identity map is disabled.
+	 */
+	private volatile ProxyIdentityMap identityMap;
+
+	/**
+	 * Whether or not the proxies count the properties they read.
+	 */
+	private volatile boolean propertyUsageEnabled;
+
+	/**
+	 * The values written by the setters of the proxies, by resource resolver.
+	 * The pending writes do not reference their resource resolver, so they
+	 * are released with it if they are never committed. Guarded by itself.
+	 */
+	private final Map<ResourceResolver, PendingWrites> pendingWrites = new java.util.WeakHashMap<ResourceResolver, PendingWrites>();
+
+	/**
+	 * The number of resource resolvers whose proxies have written values,
+	 * which tells the proxies when to look up their pending writes again.
+	 */
+	private volatile int pendingWritesCreated;
+
+	/**
+	 * The references to the resource resolvers with pending writes, which
+	 * are enqueued when they are released. Guarded by the pending writes.
+	 */
+	private final Set<PendingWritesReference> pendingWritesReferences = new java.util.HashSet<PendingWritesReference>();
+
+	/**
+	 * The queue of the references to the released resource resolvers.
+	 */
+	private final ReferenceQueue<ResourceResolver> releasedResolvers = new ReferenceQueue<ResourceResolver>();
+
+	/**
+	 * The paths of the resources whose uncommitted values were discarded with
+	 * their released resource resolvers, reported by the next commit. Guarded
+	 * by the pending writes.
+	 */
+	private final Set<String> discardedPaths = new java.util.LinkedHashSet<String>();
+
+	/**
+	 * The registration of the event handler invalidating the shared property
+	 * cache.
+	 */
+	private ServiceRegistration invalidatorRegistration;
+
+	/**
+	 * Clears the cached verdicts and proxy classes when a bundle is
+	 * unresolved, as the classes of the bundle may not be used any more.
+	 */
+	private final SynchronousBundleListener bundleListener = new SynchronousBundleListener() {
+		public void bundleChanged(BundleEvent event) {
+			if (event.getType() == BundleEvent.UNRESOLVED) {
+				log.debug("Bundle {} unresolved, clearing caches", event
+						.getBundle().getSymbolicName());
+				clearCaches();
+			}
+		}
+	};
+
+	/**
+	 * Creates a new proxy service using Java Dynamic Proxies.
+	 */
+	public DefaultSlingProxyServiceImpl() {
+		this(ProxyEngine.JavaDynamicProxy);
+	}
+
+	/**
+	 * Creates a new proxy service using the specified proxy engine.
+	 * 
+	 * @param engine
+	 *            the engine used to create the proxy instances
+	 */
+	public DefaultSlingProxyServiceImpl(ProxyEngine engine) {
+		setEngine(engine);
+	}
+
+	/**
+	 * Creates a new proxy service using the specified proxy engine, with or
+	 * without the identity map.
+	 * 
+	 * @param engine
+	 *            the engine used to create the proxy instances
+	 * @param identityMap
+	 *            whether or not to return the same proxy for the same path
+	 *            and interface within a resource resolver
+	 */
+	public DefaultSlingProxyServiceImpl(ProxyEngine engine, boolean identityMap) {
+		this(engine);
+		if (identityMap) {
+			this.identityMap = new ProxyIdentityMap();
+		}
+	}
+
+	/**
+	 * Activates the service, selecting the configured proxy engine.
+	 * 
+	 * @param context
+	 *            the component context
+	 */
+	@Activate
+	protected void activate(ComponentContext context) {
+		Object engine = context.getProperties().get(PROXY_ENGINE);
+		setEngine(ProxyEngine.fromName(engine != null ? engine.toString()
+				: null));
+		context.getBundleContext().addBundleListener(bundleListener);
+
+		Dictionary<?, ?> props = context.getProperties();
+		if (Boolean.valueOf(String.valueOf(props.get(IDENTITY_MAP_ENABLED)))) {
+			log.info("Using the identity map");
+			if (identityMap == null) {
+				identityMap = new ProxyIdentityMap();
+			}
+		} else {
+			identityMap = null;
+		}
+		setPropertyUsageEnabled(Boolean.valueOf(String.valueOf(props
+				.get(PROPERTY_USAGE_ENABLED))));
+		if (Boolean.valueOf(String.valueOf(props.get(SHARED_CACHE_ENABLED)))) {
+			int size = (int) toLong(props.get(SHARED_CACHE_SIZE), 10000);
+			long weight = toLong(props.get(SHARED_CACHE_WEIGHT), 16777216);
+			long ttl = toLong(props.get(SHARED_CACHE_TTL), 300);
+			log.info("Using a shared cache of {} values", size);
+			sharedCache = new SharedPropertyCache(
+					new DefaultAccessFingerprint(), Math.max(size, 2), weight,
+					ttl * 1000);
+			Dictionary<String, Object> handlerProps = new java.util.Hashtable<String, Object>();
+			handlerProps.put(EventConstants.EVENT_TOPIC, new String[] {
+					SlingConstants.TOPIC_RESOURCE_ADDED,
+					SlingConstants.TOPIC_RESOURCE_CHANGED,
+					SlingConstants.TOPIC_RESOURCE_REMOVED });
+			invalidatorRegistration = context.getBundleContext()
+					.registerService(EventHandler.class.getName(),
+							new SharedCacheInvalidator(sharedCache),
+							handlerProps);
+		}
+	}
+
+	/**
+	 * Deactivates the service.
+	 * 
+	 * @param context
+	 *            the component context
+	 */
+	@Deactivate
+	protected void deactivate(ComponentContext context) {
+		context.getBundleContext().removeBundleListener(bundleListener);
+		if (invalidatorRegistration != null) {
+			invalidatorRegistration.unregister();
+			invalidatorRegistration = null;
+		}
+		sharedCache = null;
+		clearCaches();
+	}
+
+	/**
+	 * Converts a configuration property to a long.
+	 * 
+	 * @param value
+	 *            the property value
+	 * @param defaultValue
+	 *            the value used if the property is missing or invalid
+	 * @return the long value
+	 */
+	private static long toLong(Object value, long defaultValue) {
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value != null) {
+			try {
+				return Long.parseLong(value.toString().trim());
+			} catch (NumberFormatException e) {
+				log.warn("Invalid number {}, using {}", value, defaultValue);
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Sets the engine used to create the proxy instances. Classes generated
+	 * at compile time are always preferred, the engine is used for proxy
+	 * interfaces without one.
+	 * 
+	 * @param engine
+	 *            the proxy engine
+	 */
+	private void setEngine(ProxyEngine engine) {
+		log.info("Using proxy engine {}", engine.getName());
+		this.engine = engine;
+		clearCaches();
+	}
+
+	/**
+	 * Creates the factory for the proxy classes. Classes generated at
+	 * compile time are always preferred, the engine is used for the proxy
+	 * interfaces without one.
+	 * 
+	 * @param engine
+	 *            the proxy engine
+	 * @return the proxy factory
+	 */
+	private static CompiledProxyFactory createProxyFactory(ProxyEngine engine) {
+		if (engine == ProxyEngine.GeneratedClass) {
+			return new CompiledProxyFactory(new GeneratedProxyFactory());
+		}
+		return new CompiledProxyFactory(new JDPProxyFactory());
+	}
+
+	/**
+	 * Clears the cached verdicts and proxy classes.
+	 */
+	private void clearCaches() {
+		proxyFactory = createProxyFactory(engine);
+		verdicts.clear();
+		ProxyIdentityMap map = identityMap;
+		if (map != null) {
+			map.clear();
+		}
+	}
+
+	/**
+	 * Checks to see if an instance of the specified <code>type</code> can be
+	 * instantiated. The verdict for the type is only determined once and
+	 * cached.
+	 * 
+	 * @param type
+	 *            the type to check
+	 * @return the verdict for the type
+	 */
+	private <T> Verdict validateIsInstantiable(Class<T> type) {
+		if (type == null) {
+			String msg = "The provided ISlingProxy Interface cannot be NULL.";
+			throw new NullPointerException(msg);
+		}
+		Verdict verdict = getVerdict(type);
+		if (verdict.failure != null) {
+			throw new UnsupportedOperationException(verdict.failure);
+		}
+		return verdict;
+	}
+
+	/**
+	 * Gets the cached verdict for the specified type, validating the type if
+	 * it has not been validated yet. Each type is validated once, concurrent
+	 * first calls wait for the validation.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return the verdict for the type
+	 */
+	private Verdict getVerdict(Class<?> type) {
+		Verdict verdict = verdicts.get(type);
+		if (verdict == null) {
+			final CompiledProxyFactory factory = proxyFactory;
+			verdict = verdicts.computeIfAbsent(type,
+					new Function<Class<?>, Verdict>() {
+						public Verdict apply(Class<?> t) {
+							return Verdict.newInstance(t, factory);
+						}
+					});
+		}
+		return verdict;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.SlingProxyService#getProxy(org.apache
+	 * .sling.api.resource.Resource, java.lang.Class)
+	 */
+	public <AdapterType> AdapterType getProxy(Resource resource,
+			Class<AdapterType> type) {
+		if (resource == null) {
+			String msg = "The backing Resource cannot be NULL.";
+			throw new NullPointerException(msg);
+		}
+		Verdict verdict = validateIsInstantiable(type);
+		return getProxy(type, verdict, resource.getResourceResolver(),
+				resource.getPath(), resource);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.SlingProxyService#getProxy(org.apache
+	 * .sling.api.resource.ResourceResolver, java.lang.String,
+	 * java.lang.Class)
+	 */
+	public <AdapterType> AdapterType getProxy(ResourceResolver resolver,
+			String path, Class<AdapterType> type) {
+		if (resolver == null) {
+			String msg = "The ResourceResolver cannot be NULL.";
+			throw new NullPointerException(msg);
+		}
+		if (path == null) {
+			String msg = "The backing Resource path cannot be NULL.";
+			throw new NullPointerException(msg);
+		}
+		String normalized = ResourceUtil.normalize(path);
+		if (normalized == null || !normalized.startsWith("/")) {
+			String msg = "The backing Resource path must be absolute: " + path;
+			throw new IllegalArgumentException(msg);
+		}
+		Verdict verdict = validateIsInstantiable(type);
+		return getProxy(type, verdict, resolver, normalized, null);
+	}
+
+	/**
+	 * Checks whether the specified type can be proxied, without building an
+	 * exception if it cannot.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return true if proxies of the type can be created
+	 */
+	boolean isProxyable(Class<?> type) {
+		return getVerdict(type).failure == null;
+	}
+
+	/**
+	 * Creates a proxy of the specified type for references and children, or
+	 * returns null if the type cannot be proxied. Unlike
+	 * {@link #getProxy(Resource, Class)} no exception is built for types which
+	 * cannot be proxied, as the types of references and children commonly
+	 * are not proxy interfaces.
+	 * 
+	 * @param resource
+	 *            the backing resource
+	 * @param type
+	 *            the proxy interface
+	 * @return the proxy instance or null
+	 */
+	<AdapterType> AdapterType getProxyOrNull(Resource resource,
+			Class<AdapterType> type) {
+		Verdict verdict = getVerdict(type);
+		if (verdict.failure != null) {
+			log.debug("Not proxying {}: {}", type.getName(), verdict.failure);
+			return null;
+		}
+		return getProxy(type, verdict, resource.getResourceResolver(),
+				resource.getPath(), resource);
+	}
+
+	/**
+	 * Creates a proxy of the specified type for the resource at a normalized
+	 * absolute path, or returns null if the type cannot be proxied.
+	 * 
+	 * @param resolver
+	 *            the resolver used to resolve the backing resource
+	 * @param path
+	 *            the normalized absolute path of the backing resource
+	 * @param type
+	 *            the proxy interface
+	 * @return the proxy instance or null
+	 */
+	<AdapterType> AdapterType getProxyOrNull(ResourceResolver resolver,
+			String path, Class<AdapterType> type) {
+		Verdict verdict = getVerdict(type);
+		if (verdict.failure != null) {
+			log.debug("Not proxying {}: {}", type.getName(), verdict.failure);
+			return null;
+		}
+		return getProxy(type, verdict, resolver, path, null);
+	}
+
+	/**
+	 * Gets the proxy of the specified interface for the resource at the
+	 * specified path from the identity map, creating it if the resource
+	 * resolver has none.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @param verdict
+	 *            the verdict for the proxy interface
+	 * @param resolver
+	 *            the resource resolver
+	 * @param path
+	 *            the normalized absolute path of the resource
+	 * @param resource
+	 *            the resource or null to resolve it when it is first used
+	 * @return the proxy instance
+	 */
+	private <AdapterType> AdapterType getProxy(Class<AdapterType> type,
+			Verdict verdict, ResourceResolver resolver, String path,
+			Resource resource) {
+		ProxyIdentityMap map = (resolver != null && path != null ? identityMap
+				: null);
+		if (map != null) {
+			Object proxy = map.get(resolver, path, type);
+			if (proxy != null) {
+				return type.cast(proxy);
+			}
+		}
+		SlingInvocationHandler ih = (resource != null ? new SlingInvocationHandler(
+				resource, verdict.metadata, this, sharedCache)
+				: new SlingInvocationHandler(resolver, path, verdict.metadata,
+						this, sharedCache));
+		AdapterType proxy = newProxy(type, verdict, ih);
+		if (map != null) {
+			map.put(resolver, path, type, proxy);
+		}
+		return proxy;
+	}
+
+	/**
+	 * Creates a new proxy instance.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @param verdict
+	 *            the verdict for the proxy interface
+	 * @param ih
+	 *            the invocation handler of the proxy
+	 * @return the new proxy instance
+	 */
+	private static <AdapterType> AdapterType newProxy(Class<AdapterType> type,
+			Verdict verdict, SlingInvocationHandler ih) {
+		try {
+			return type.cast(verdict.constructor.newInstance(ih));
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		} catch (InstantiationException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.SlingProxyService#commit(org.apache.sling
+	 * .api.resource.ResourceResolver)
+	 */
+	public void commit(ResourceResolver resolver) throws PersistenceException {
+		PendingWrites writes = findPendingWrites(resolver);
+		if (writes != null && !writes.isEmpty()) {
+			writes.commit(resolver, sharedCache);
+		}
+		String discarded = null;
+		synchronized (pendingWrites) {
+			collectDiscardedWrites();
+			if (!discardedPaths.isEmpty()) {
+				discarded = discardedPaths.toString();
+				discardedPaths.clear();
+			}
+		}
+		if (discarded != null) {
+			throw new IllegalStateException("The uncommitted values written "
+					+ "by the proxies of released resource resolvers to "
+					+ discarded + " were discarded");
+		}
+	}
+
+	/**
+	 * Gets the values written by the setters of the proxies of a resource
+	 * resolver, which are pending until they are committed, creating them
+	 * for the first setter invoked.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 * @return the pending writes
+	 */
+	PendingWrites getPendingWrites(ResourceResolver resolver) {
+		synchronized (pendingWrites) {
+			PendingWrites writes = pendingWrites.get(resolver);
+			if (writes == null) {
+				collectDiscardedWrites();
+				writes = new PendingWrites();
+				pendingWrites.put(resolver, writes);
+				pendingWritesReferences.add(new PendingWritesReference(
+						resolver, writes, releasedResolvers));
+				pendingWritesCreated++;
+			}
+			return writes;
+		}
+	}
+
+	/**
+	 * Finds the values written by the setters of the proxies of a resource
+	 * resolver, without creating them.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 * @return the pending writes or null if no setter has been invoked
+	 */
+	PendingWrites findPendingWrites(ResourceResolver resolver) {
+		if (pendingWritesCreated == 0) {
+			return null;
+		}
+		synchronized (pendingWrites) {
+			return pendingWrites.get(resolver);
+		}
+	}
+
+	/**
+	 * Gets the number of resource resolvers whose proxies have written
+	 * values. The proxies which have not found pending writes for their
+	 * resource resolver only look them up again when the number changes.
+	 * 
+	 * @return the number of resource resolvers with pending writes
+	 */
+	int getPendingWritesCreated() {
+		return pendingWritesCreated;
+	}
+
+	/**
+	 * Collects the paths of the values which were never committed of the
+	 * released resource resolvers, which are discarded, to report them as an
+	 * error on the next commit. Must be called while holding the lock of the
+	 * pending writes.
+	 */
+	private void collectDiscardedWrites() {
+		Reference<? extends ResourceResolver> ref;
+		while ((ref = releasedResolvers.poll()) != null) {
+			pendingWritesReferences.remove(ref);
+			PendingWrites writes = ((PendingWritesReference) ref).writes;
+			if (!writes.isEmpty()) {
+				log.error("Discarding the uncommitted values of {} resources "
+						+ "written by the proxies of a released resource "
+						+ "resolver: {}", Integer.valueOf(writes.size()),
+						writes.getPaths());
+				discardedPaths.addAll(writes.getPaths());
+			}
+		}
+	}
+
+	/**
+	 * A reference to a resource resolver with pending writes, which tells
+	 * when the resource resolver has been released with uncommitted values.
+	 */
+	private static final class PendingWritesReference extends
+			WeakReference<ResourceResolver> {
+
+		/**
+		 * The pending writes of the resource resolver.
+		 */
+		private final PendingWrites writes;
+
+		/**
+		 * Constructs a new reference.
+		 * 
+		 * @param resolver
+		 *            the resource resolver
+		 * @param writes
+		 *            the pending writes of the resource resolver
+		 * @param queue
+		 *            the queue the reference is enqueued in when the
+		 *            resource resolver is released
+		 */
+		private PendingWritesReference(ResourceResolver resolver,
+				PendingWrites writes, ReferenceQueue<ResourceResolver> queue) {
+			super(resolver, queue);
+			this.writes = writes;
+		}
+	}
+
+	/**
+	 * Enables or disables the counting of the properties read by the proxies
+	 * of each interface. Only proxies which read their first property while
+	 * counting is enabled are counted.
+	 * 
+	 * @param enabled
+	 *            whether or not to count the properties read
+	 */
+	public void setPropertyUsageEnabled(boolean enabled) {
+		propertyUsageEnabled = enabled;
+	}
+
+	/**
+	 * Checks whether the proxies count the properties they read.
+	 * 
+	 * @return true if the property usage is counted
+	 */
+	boolean isPropertyUsageEnabled() {
+		return propertyUsageEnabled;
+	}
+
+	/**
+	 * Gets the counts of how many of the properties of a proxy interface are
+	 * read by its proxies, which tell whether prefetching the properties of
+	 * the interface pays off. The properties are only counted while the
+	 * property usage is enabled, see {@link #PROPERTY_USAGE_ENABLED}.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @return the property usage or null if no proxy of the interface has
+	 *         been created since the caches were last cleared
+	 */
+	public PropertyUsage getPropertyUsage(Class<?> type) {
+		Verdict verdict = verdicts.get(type);
+		if (verdict == null || verdict.metadata == null) {
+			return null;
+		}
+		return verdict.metadata.getPropertyUsage();
+	}
+
+	/**
+	 * Invalidates the values read from a resource and its descendants in the
+	 * shared property cache when the resource is added, changed or removed.
+	 */
+	private static final class SharedCacheInvalidator implements EventHandler {
+
+		/**
+		 * The shared property cache.
+		 */
+		private final SharedPropertyCache sharedCache;
+
+		/**
+		 * Constructs a new invalidator.
+		 * 
+		 * @param sharedCache
+		 *            the shared property cache
+		 */
+		private SharedCacheInvalidator(SharedPropertyCache sharedCache) {
+			this.sharedCache = sharedCache;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.
+		 * event.Event)
+		 */
+		public void handleEvent(Event event) {
+			Object path = event.getProperty(SlingConstants.PROPERTY_PATH);
+			String normalized = (path != null ? ResourceUtil.normalize(path
+					.toString()) : null);
+			if (normalized != null) {
+				log.debug("Invalidating shared cache below {}", normalized);
+				sharedCache.invalidate(normalized);
+			} else {
+				sharedCache.clear();
+			}
+		}
+	}
+
+	/**
+	 * The result of validating a type, either the metadata and proxy class
+	 * constructor of a valid proxy interface or the reason the type cannot be
+	 * proxied.
+	 */
+	private static final class Verdict {
+
+		/**
+		 * The metadata of the proxy interface or null if the type is invalid.
+		 */
+		private final ProxyMetadata metadata;
+
+		/**
+		 * The constructor of the proxy class or null if the type is invalid.
+		 */
+		private final Constructor<?> constructor;
+
+		/**
+		 * The reason the type cannot be proxied or null if the type is valid.
+		 */
+		private final String failure;
+
+		/**
+		 * Constructs a new verdict.
+		 * 
+		 * @param metadata
+		 *            the metadata or null
+		 * @param constructor
+		 *            the proxy class constructor or null
+		 * @param failure
+		 *            the failure reason or null
+		 */
+		private Verdict(ProxyMetadata metadata, Constructor<?> constructor,
+				String failure) {
+			this.metadata = metadata;
+			this.constructor = constructor;
+			this.failure = failure;
+		}
+
+		/**
+		 * Validates the specified type, resolving the proxy class of valid
+		 * types. Types for which the metadata or the proxy class cannot be
+		 * created get a failure verdict, so they are not validated again.
+		 * 
+		 * @param type
+		 *            the type to validate
+		 * @param proxyFactory
+		 *            the factory for the metadata and the proxy class
+		 * @return the verdict
+		 */
+		private static Verdict newInstance(Class<?> type,
+				CompiledProxyFactory proxyFactory) {
+			if (!type.isInterface()) {
+				String msg = "Proxy class " + type.getName()
+						+ " must be an Interface.";
+				return new Verdict(null, null, msg);
+			}
+			try {
+				ProxyMetadata metadata = proxyFactory.getMetadata(type);
+				if (metadata == null) {
+					String msg = "Proxy interface "
+							+ type.getName()
+							+ " must have at least "
+							+ "one Method with a @SlingProperty, @SlingReference or @SlingChildren annotation.";
+					return new Verdict(null, null, msg);
+				}
+				return new Verdict(metadata, proxyFactory
+						.getConstructor(metadata), null);
+			} catch (RuntimeException e) {
+				return failure(type, e);
+			} catch (LinkageError e) {
+				return failure(type, e);
+			}
+		}
+
+		/**
+		 * Creates the verdict for a type which could not be validated.
+		 * 
+		 * @param type
+		 *            the type
+		 * @param e
+		 *            the error validating the type
+		 * @return the failure verdict
+		 */
+		private static Verdict failure(Class<?> type, Throwable e) {
+			log.warn("Unable to proxy " + type.getName(), e);
+			String msg = "Proxy interface " + type.getName()
+					+ " cannot be proxied: " + e;
+			return new Verdict(null, null, msg);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import org.apache.sling.commons.proxy.PagedIterator;
+
+/**
+ * An iterator which defers the loading of the elements from a backing of
+ * Iterator of resources. Each resource is converted to the return type by the
+ * {@link ChildrenConverter} when it is returned. The resources before the page
+ * are skipped by the backing page without being converted.
+ * 
+ * @param <E>
+ *            the object type for the interator contents, set in the
+ *            SlingChildren annotation
+ */
+final class DeferredIterator<E> implements PagedIterator<E> {
+
+	/**
+	 * The page of Resources which backs this deferred iterator
+	 */
+	private final ChildrenPage backingResources;
+
+	/**
+	 * Converts the resources to the return type.
+	 */
+	private final ChildrenConverter<E> converter;
+
+	/**
+	 * Instantiates a Deferred Iterator.
+	 * 
+	 * @param backingResources
+	 *            the page of resources with which to back this iterator
+	 * @param converter
+	 *            converts the resources to the return type
+	 */
+	public DeferredIterator(final ChildrenPage backingResources,
+			final ChildrenConverter<E> converter) {
+		this.backingResources = backingResources;
+		this.converter = converter;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext() {
+		return this.backingResources.hasNext();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Iterator#next()
+	 */
+	public E next() {
+		return this.converter.convert(this.backingResources.next());
+	}
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Iterator#remove()
+	 */
+	public void remove() {
+		this.backingResources.remove();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.PagedIterator#getContinuationToken()
+	 */
+	public String getContinuationToken() {
+		return this.backingResources.getContinuationToken();
+	}
+
+}
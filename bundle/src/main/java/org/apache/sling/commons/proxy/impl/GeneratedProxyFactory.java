@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Modifier;
+
+import org.apache.sling.commons.proxy.impl.generator.ProxyClassGenerator;
+import org.apache.sling.commons.proxy.impl.generator.ProxyClassLoader;
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides proxy classes generated at runtime for each proxy interface.
+ * Interfaces for which no class can be generated, such as non public
+ * interfaces, are proxied with Java Dynamic Proxies instead.
+ */
+final class GeneratedProxyFactory implements ProxyFactory {
+
+	/**
+	 * The SLF4J Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(GeneratedProxyFactory.class);
+
+	/**
+	 * The suffix appended to the interface name to name the generated class.
+	 */
+	private static final String CLASS_NAME_SUFFIX = "$$SlingProxy";
+
+	/**
+	 * The factory used for interfaces for which no class can be generated.
+	 */
+	private final ProxyFactory fallback = new JDPProxyFactory();
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.impl.ProxyFactory#getConstructor(org.
+	 * apache.sling.commons.proxy.impl.to.ProxyMetadata)
+	 */
+	public Constructor<?> getConstructor(final ProxyMetadata metadata) {
+		final Constructor<?> constructor = this.generate(metadata);
+		if (constructor == null) {
+			return this.fallback.getConstructor(metadata);
+		}
+		return constructor;
+	}
+
+	/**
+	 * Generates and defines the proxy class for the proxy interface.
+	 * 
+	 * @param metadata
+	 *            the metadata of the proxy interface
+	 * @return the constructor of the generated class or null if no class could
+	 *         be generated
+	 */
+	private Constructor<?> generate(final ProxyMetadata metadata) {
+		final Class<?> type = metadata.getType();
+		if (!Modifier.isPublic(type.getModifiers())) {
+			log.debug("Not generating a proxy class for non public interface {}",
+					type.getName());
+			return null;
+		}
+		try {
+			final String name = type.getName() + CLASS_NAME_SUFFIX;
+			final byte[] b = ProxyClassGenerator.generate(name, metadata);
+			final Class<?> c = new ProxyClassLoader(type.getClassLoader())
+					.defineProxyClass(name, b);
+			log.debug("Generated proxy class {}", name);
+			return c.getConstructor(InvocationHandler.class);
+		} catch (final Exception e) {
+			log.warn("Unable to generate proxy class for " + type.getName()
+					+ ", falling back to Java Dynamic Proxies", e);
+		} catch (final LinkageError e) {
+			log.warn("Unable to generate proxy class for " + type.getName()
+					+ ", falling back to Java Dynamic Proxies", e);
+		}
+		return null;
+	}
+}
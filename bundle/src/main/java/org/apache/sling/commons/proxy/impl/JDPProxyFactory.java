@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+
+/**
+ * Provides Java Dynamic Proxy classes.
+ */
+final class JDPProxyFactory implements ProxyFactory {
+
+	/**
+	 * The handler of the proxy instance created to obtain the proxy class,
+	 * the instance is never invoked.
+	 */
+	private static final InvocationHandler UNUSED = new InvocationHandler() {
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			throw new UnsupportedOperationException();
+		}
+	};
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.impl.ProxyFactory#getConstructor(org.
+	 * apache.sling.commons.proxy.impl.to.ProxyMetadata)
+	 */
+	public Constructor<?> getConstructor(final ProxyMetadata metadata) {
+		final Class<?> type = metadata.getType();
+		try {
+			final Constructor<?> constructor = Proxy
+					.newProxyInstance(type.getClassLoader(),
+							new Class<?>[] { type }, UNUSED).getClass()
+					.getConstructor(InvocationHandler.class);
+			// the proxy classes of non public interfaces are not public
+			constructor.setAccessible(true);
+			return constructor;
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
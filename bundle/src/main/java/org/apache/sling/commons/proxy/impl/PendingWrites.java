@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.api.resource.PersistableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.proxy.impl.cache.SharedPropertyCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The values written by the setters of the proxies of a resource resolver,
+ * which are not written to the resources until they are committed. Writing a
+ * property again replaces the pending value, so only the last value is
+ * written, and all pending values of a resource are saved at once.
+ * 
+ * Like the resource resolver, the pending writes are not thread safe.
+ */
+final class PendingWrites {
+
+	/**
+	 * The SLF4J Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(PendingWrites.class);
+
+	/**
+	 * The pending values, null for removed properties, by property name and
+	 * absolute resource path.
+	 */
+	private final Map<String, Map<String, Object>> writes = new java.util.LinkedHashMap<String, Map<String, Object>>();
+
+	/**
+	 * Counts the commits which saved resources, so the proxies can tell when
+	 * the values they have cached may have been replaced.
+	 */
+	private int version;
+
+	/**
+	 * Writes a property, replacing the pending value of the property if there
+	 * is one.
+	 * 
+	 * @param path
+	 *            the absolute path of the resource
+	 * @param name
+	 *            the name of the property
+	 * @param value
+	 *            the value, null to remove the property
+	 */
+	void put(final String path, final String name, final Object value) {
+		Map<String, Object> values = this.writes.get(path);
+		if (values == null) {
+			values = new java.util.LinkedHashMap<String, Object>();
+			this.writes.put(path, values);
+		}
+		values.put(name, value);
+	}
+
+	/**
+	 * Gets the pending values of a resource.
+	 * 
+	 * @param path
+	 *            the absolute path of the resource
+	 * @return the values, null for removed properties, by property name, or
+	 *         null if there are none
+	 */
+	Map<String, Object> get(final String path) {
+		return this.writes.get(path);
+	}
+
+	/**
+	 * Checks whether there are no pending values.
+	 * 
+	 * @return true if nothing is pending
+	 */
+	boolean isEmpty() {
+		return this.writes.isEmpty();
+	}
+
+	/**
+	 * Gets the number of resources with pending values.
+	 * 
+	 * @return the number of resources
+	 */
+	int size() {
+		return this.writes.size();
+	}
+
+	/**
+	 * Gets the absolute paths of the resources with pending values.
+	 * 
+	 * @return the paths
+	 */
+	Set<String> getPaths() {
+		return this.writes.keySet();
+	}
+
+	/**
+	 * Gets the number of commits which saved resources so far.
+	 * 
+	 * @return the version
+	 */
+	int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Writes the pending values to their resources, saving each resource
+	 * once. Every modified resource is resolved and adapted to a
+	 * PersistableValueMap, and all values are put, before the first resource
+	 * is saved, so missing or unmodifiable resources and rejected values fail
+	 * the commit before anything is written. The values of resources which
+	 * have been saved are no longer pending; if saving a resource fails, the
+	 * resources saved before it stay saved, and its values and the values of
+	 * the resources not saved yet are reset and stay pending.
+	 * 
+	 * @param resolver
+	 *            the resource resolver of the proxies
+	 * @param sharedCache
+	 *            the cache shared by all proxies, invalidated for the saved
+	 *            resources, or null
+	 * @throws PersistenceException
+	 *             if a resource is missing, is not modifiable or cannot be
+	 *             saved
+	 */
+	void commit(final ResourceResolver resolver,
+			final SharedPropertyCache sharedCache) throws PersistenceException {
+		final PersistableValueMap[] maps = new PersistableValueMap[this.writes
+				.size()];
+		int i = 0;
+		for (final String path : this.writes.keySet()) {
+			final Resource resource = resolver.getResource(path);
+			if (resource == null) {
+				throw new PersistenceException(
+						"Unable to write to missing resource at path: " + path);
+			}
+			maps[i] = resource.adaptTo(PersistableValueMap.class);
+			if (maps[i] == null) {
+				throw new PersistenceException("Resource at path " + path
+						+ " is not modifiable");
+			}
+			i++;
+		}
+		int saved = 0;
+		try {
+			i = 0;
+			for (final Map<String, Object> values : this.writes.values()) {
+				final PersistableValueMap vm = maps[i++];
+				for (final Map.Entry<String, Object> value : values.entrySet()) {
+					if (value.getValue() == null) {
+						vm.remove(value.getKey());
+					} else if (value.getValue() instanceof byte[]) {
+						vm.put(value.getKey(), new ByteArrayInputStream(
+								(byte[]) value.getValue()));
+					} else {
+						vm.put(value.getKey(), value.getValue());
+					}
+				}
+			}
+			for (final Iterator<String> it = this.writes.keySet().iterator(); it
+					.hasNext();) {
+				final String path = it.next();
+				maps[saved].save();
+				saved++;
+				it.remove();
+				if (sharedCache != null) {
+					sharedCache.invalidate(path);
+				}
+			}
+		} finally {
+			for (i = saved; i < maps.length; i++) {
+				maps[i].reset();
+			}
+			if (saved > 0) {
+				this.version++;
+			}
+		}
+		log.debug("Saved {} resources", Integer.valueOf(saved));
+	}
+}
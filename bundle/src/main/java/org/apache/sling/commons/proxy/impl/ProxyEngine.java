@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+/**
+ * The engines available for creating proxy instances.
+ */
+public enum ProxyEngine {
+
+	/**
+	 * Java Dynamic Proxies, created with java.lang.reflect.Proxy.
+	 */
+	JavaDynamicProxy("jdp"),
+
+	/**
+	 * Classes generated at runtime for each proxy interface, which dispatch
+	 * each method directly to its slot in the invocation handler.
+	 */
+	GeneratedClass("generated");
+
+	/**
+	 * The name of the engine, used in the service configuration.
+	 */
+	private final String name;
+
+	ProxyEngine(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the name of the engine, used in the service configuration.
+	 * 
+	 * @return the engine name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the engine with the specified name.
+	 * 
+	 * @param name
+	 *            the engine name
+	 * @return the engine, or JavaDynamicProxy if there is no engine with that
+	 *         name
+	 */
+	public static ProxyEngine fromName(String name) {
+		for (ProxyEngine engine : values()) {
+			if (engine.name.equals(name)) {
+				return engine;
+			}
+		}
+		return JavaDynamicProxy;
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.reflect.Constructor;
+
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+
+/**
+ * Provides the proxy classes for the proxy interfaces. The classes are
+ * resolved once per interface, creating a proxy instance is then only a call
+ * to the constructor of the class.
+ */
+interface ProxyFactory {
+
+	/**
+	 * Gets the constructor of the proxy class for the interface described by
+	 * the <code>metadata</code>. The constructor takes the
+	 * {@link java.lang.reflect.InvocationHandler} all method calls are
+	 * dispatched to.
+	 * 
+	 * @param metadata
+	 *            the metadata of the proxy interface
+	 * @return the constructor of the proxy class
+	 */
+	Constructor<?> getConstructor(ProxyMetadata metadata);
+}
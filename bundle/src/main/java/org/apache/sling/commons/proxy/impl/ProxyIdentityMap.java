@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps the path and the interface of proxies to the proxy instances, per
+ * resource resolver, so all of the components of a request which proxy the
+ * same resource share one proxy and its caches.
+ * 
+ * The proxies are only referenced weakly, as each proxy references its
+ * resource resolver, which would otherwise never be released by the map. A
+ * proxy therefore stays in the map as long as a component or another proxy
+ * still uses it, and the entries of a resource resolver are released with the
+ * resource resolver. Resource resolvers which tell whether they are still
+ * live, which older Sling APIs do not, have their entries cleared as soon as
+ * they are closed.
+ * 
+ * The proxies are mapped by path rather than by resource, so a proxy
+ * requested with a Resource may be bound to another Resource instance of the
+ * same path, obtained earlier from the same resource resolver.
+ */
+final class ProxyIdentityMap {
+
+	/**
+	 * The SLF4J Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(ProxyIdentityMap.class);
+
+	/**
+	 * The name of the method telling whether a resource resolver is still
+	 * open.
+	 */
+	private static final String IS_LIVE = "isLive";
+
+	/**
+	 * The minimum number of entries of a resource resolver before the entries
+	 * of released proxies are removed.
+	 */
+	private static final int MIN_SWEEP = 64;
+
+	/**
+	 * The proxies, by resource resolver.
+	 */
+	private final Map<ResourceResolver, Scope> scopes = new java.util.WeakHashMap<ResourceResolver, Scope>();
+
+	/**
+	 * The type of the handles telling whether a resource resolver is live.
+	 */
+	private static final MethodType LIVE_TYPE = MethodType.methodType(
+			boolean.class, ResourceResolver.class);
+
+	/**
+	 * The handle of the resource resolvers which do not tell whether they are
+	 * live, always returning true.
+	 */
+	private static final MethodHandle ALWAYS_LIVE = MethodHandles
+			.dropArguments(MethodHandles.constant(boolean.class, true), 0,
+					ResourceResolver.class);
+
+	/**
+	 * The handles of the isLive methods of the resource resolver classes,
+	 * looked up once per class.
+	 */
+	private static final ClassValue<MethodHandle> LIVE_METHODS = new ClassValue<MethodHandle>() {
+		@Override
+		protected MethodHandle computeValue(final Class<?> type) {
+			try {
+				final Method m = type.getMethod(IS_LIVE);
+				if (!boolean.class.equals(m.getReturnType())) {
+					return ALWAYS_LIVE;
+				}
+				m.setAccessible(true);
+				return MethodHandles.lookup().unreflect(m).asType(LIVE_TYPE);
+			} catch (final NoSuchMethodException e) {
+				return ALWAYS_LIVE;
+			} catch (final Exception e) {
+				log.debug("Unable to look up the isLive method", e);
+				return ALWAYS_LIVE;
+			} catch (final LinkageError e) {
+				// methods referencing classes of a newer Sling API
+				log.debug("Unable to look up the isLive method", e);
+				return ALWAYS_LIVE;
+			}
+		}
+	};
+
+	/**
+	 * Gets the proxy of the specified interface for the resource at the
+	 * specified path.
+	 * 
+	 * @param resolver
+	 *            the resource resolver of the proxy
+	 * @param path
+	 *            the absolute path of the resource
+	 * @param type
+	 *            the proxy interface
+	 * @return the proxy or null if there is none
+	 */
+	Object get(final ResourceResolver resolver, final String path,
+			final Class<?> type) {
+		final Key key = new Key(path, type);
+		final Object proxy;
+		synchronized (this.scopes) {
+			final Scope scope = this.scopes.get(resolver);
+			proxy = (scope != null ? scope.get(key) : null);
+		}
+		if ((proxy != null) && !isLive(resolver)) {
+			log.debug("Resource resolver closed, releasing its proxies");
+			this.clear(resolver);
+			return null;
+		}
+		return proxy;
+	}
+
+	/**
+	 * Maps the proxy of the specified interface for the resource at the
+	 * specified path.
+	 * 
+	 * @param resolver
+	 *            the resource resolver of the proxy
+	 * @param path
+	 *            the absolute path of the resource
+	 * @param type
+	 *            the proxy interface
+	 * @param proxy
+	 *            the proxy
+	 */
+	void put(final ResourceResolver resolver, final String path,
+			final Class<?> type, final Object proxy) {
+		final Key key = new Key(path, type);
+		synchronized (this.scopes) {
+			Scope scope = this.scopes.get(resolver);
+			if (scope == null) {
+				scope = new Scope();
+				this.scopes.put(resolver, scope);
+			}
+			scope.put(key, proxy);
+		}
+	}
+
+	/**
+	 * Releases the proxies of the specified resource resolver.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 */
+	void clear(final ResourceResolver resolver) {
+		synchronized (this.scopes) {
+			this.scopes.remove(resolver);
+		}
+	}
+
+	/**
+	 * Releases all of the proxies.
+	 */
+	void clear() {
+		synchronized (this.scopes) {
+			this.scopes.clear();
+		}
+	}
+
+	/**
+	 * Checks whether the resource resolver is still open, if it tells.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 * @return false if the resource resolver has been closed
+	 */
+	private static boolean isLive(final ResourceResolver resolver) {
+		try {
+			return (boolean) LIVE_METHODS.get(resolver.getClass()).invokeExact(
+					resolver);
+		} catch (final Error e) {
+			throw e;
+		} catch (final Throwable t) {
+			log.debug("Unable to check whether the resource resolver is live",
+					t);
+			return true;
+		}
+	}
+
+	/**
+	 * The proxies of a resource resolver, guarded by the map of the scopes.
+	 */
+	private static final class Scope {
+
+		/**
+		 * The proxies, by path and interface.
+		 */
+		private final Map<Key, WeakReference<Object>> proxies = new java.util.HashMap<Key, WeakReference<Object>>();
+
+		/**
+		 * The number of entries at which the entries of released proxies are
+		 * removed.
+		 */
+		private int sweepAt = MIN_SWEEP;
+
+		/**
+		 * Gets a proxy.
+		 * 
+		 * @param key
+		 *            the path and interface
+		 * @return the proxy or null if there is none
+		 */
+		Object get(final Key key) {
+			final WeakReference<Object> ref = this.proxies.get(key);
+			return (ref != null ? ref.get() : null);
+		}
+
+		/**
+		 * Maps a proxy, removing the entries of released proxies when the
+		 * number of entries has doubled since they were last removed.
+		 * 
+		 * @param key
+		 *            the path and interface
+		 * @param proxy
+		 *            the proxy
+		 */
+		void put(final Key key, final Object proxy) {
+			this.proxies.put(key, new WeakReference<Object>(proxy));
+			if (this.proxies.size() >= this.sweepAt) {
+				for (final Iterator<WeakReference<Object>> it = this.proxies
+						.values().iterator(); it.hasNext();) {
+					if (it.next().get() == null) {
+						it.remove();
+					}
+				}
+				this.sweepAt = Math.max(MIN_SWEEP, this.proxies.size() * 2);
+			}
+		}
+	}
+
+	/**
+	 * The path and interface of a proxy.
+	 */
+	private static final class Key {
+
+		/**
+		 * The absolute path of the resource.
+		 */
+		private final String path;
+
+		/**
+		 * The proxy interface.
+		 */
+		private final Class<?> type;
+
+		/**
+		 * Constructs a new key.
+		 * 
+		 * @param path
+		 *            the absolute path of the resource
+		 * @param type
+		 *            the proxy interface
+		 */
+		private Key(final String path, final Class<?> type) {
+			this.path = path;
+			this.type = type;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return this.path.hashCode() * 31 + this.type.hashCode();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return (this.type == other.type) && this.path.equals(other.path);
+		}
+	}
+}
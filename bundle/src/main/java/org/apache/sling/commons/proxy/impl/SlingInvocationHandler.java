@@ -0,0 +1,1054 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.StreamSupport;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceNotFoundException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.commons.proxy.generated.GeneratedProxyHandler;
+import org.apache.sling.commons.proxy.impl.cache.CacheKey;
+import org.apache.sling.commons.proxy.impl.cache.SharedPropertyCache;
+import org.apache.sling.commons.proxy.impl.lang.GetMethodToStringImpl;
+import org.apache.sling.commons.proxy.impl.lang.JDPEqualsImpl;
+import org.apache.sling.commons.proxy.impl.lang.JDPHashCodeImpl;
+import org.apache.sling.commons.proxy.impl.lang.PrimeNumbers;
+import org.apache.sling.commons.proxy.impl.to.InvokedChildrenTO;
+import org.apache.sling.commons.proxy.impl.to.InvokedChildrenTO.Container;
+import org.apache.sling.commons.proxy.impl.to.InvokedPropertyTO;
+import org.apache.sling.commons.proxy.impl.to.InvokedReferenceTO;
+import org.apache.sling.commons.proxy.impl.to.InvokedSetterTO;
+import org.apache.sling.commons.proxy.impl.to.InvokedTO;
+import org.apache.sling.commons.proxy.impl.to.PropertyConverter;
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invocation handler for proxies backed by a Sling Resource.
+ */
+public class SlingInvocationHandler implements GeneratedProxyHandler {
+
+	/**
+	 * SLF4J Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(SlingInvocationHandler.class);
+
+	/**
+	 * The resource resolver of the backing Sling Resource
+	 */
+	private final ResourceResolver resolver;
+
+	/**
+	 * The absolute path of the backing Sling Resource
+	 */
+	private final String path;
+
+	/**
+	 * The hash code of the proxies of this handler, computed and boxed once as
+	 * it only depends on the proxy interface and the path.
+	 */
+	private final Integer proxyHashCode;
+
+	/**
+	 * The backing Sling Resource, null until it is resolved
+	 */
+	private Resource r;
+
+	/**
+	 * Marks a property cached with a null value in the property cache.
+	 */
+	private static final Object NULL = new Object();
+
+	/**
+	 * Marks a property without a pending write.
+	 */
+	private static final Object UNWRITTEN = new Object();
+
+	/**
+	 * The descriptor of the entries in the shared property cache which mark a
+	 * resource as missing.
+	 */
+	private static final String MISSING = "@missing";
+
+	/**
+	 * Compares the proxies, which is stateless and shared by all handlers.
+	 */
+	private static final JDPEqualsImpl EQUALS = new JDPEqualsImpl();
+
+	/**
+	 * This caches all 'get' or 'is' method's return values, by the cache slot
+	 * of the property. Only allocated when the first property is read.
+	 */
+	private Object[] cache;
+
+	/**
+	 * Whether or not each property has been read through this handler, by
+	 * cache slot, to count the properties used by the proxies of the
+	 * interface. Allocated together with the property cache, only if the
+	 * property usage is enabled.
+	 */
+	private boolean[] used;
+
+	/**
+	 * The resources resolved for the paths of the properties, children and
+	 * references, by the path slot, {@link #NULL} for paths without a
+	 * resource. Only allocated when the first path is resolved.
+	 */
+	private Object[] resources;
+
+	/**
+	 * The value maps of the resources resolved for the paths of the
+	 * properties, by the path slot. Only allocated when the first value map is
+	 * read.
+	 */
+	private ValueMap[] valueMaps;
+
+	/**
+	 * The lists and counts of the children methods without arguments, by the
+	 * children slot of the method. Only allocated when the first children are
+	 * cached.
+	 */
+	private Object[] childrenCache;
+
+	/**
+	 * The values returned by the reference methods, by the reference slot of
+	 * the method, {@link #NULL} for null values. Only allocated when the first
+	 * reference is read.
+	 */
+	private Object[] referenceCache;
+
+	/**
+	 * The metadata of the proxy interface, used to look up how to handle each
+	 * invoked method.
+	 */
+	private final ProxyMetadata metadata;
+
+	/**
+	 * The SlingProxyService instance, used to retrieve references and children.
+	 */
+	private final DefaultSlingProxyServiceImpl slingProxyService;
+
+	/**
+	 * The cache shared by all proxies, or null if values are not shared.
+	 */
+	private final SharedPropertyCache sharedCache;
+
+	/**
+	 * The access control fingerprint of the resource resolver of the backing
+	 * resource, {@link #NULL} if values must not be shared or null if it has
+	 * not been determined yet.
+	 */
+	private Object fingerprint;
+
+	/**
+	 * The invalidation generation of the shared cache when this handler was
+	 * created. The handler keeps the resources and value maps it reads, so
+	 * its values are only shared if nothing was invalidated since.
+	 */
+	private final long sharedGeneration;
+
+	/**
+	 * The values written by the setters of the proxies of the resource
+	 * resolver, null until a setter of one of them has been invoked.
+	 */
+	private PendingWrites writes;
+
+	/**
+	 * The number of resource resolvers with pending writes when the pending
+	 * writes were last looked up.
+	 */
+	private int writesCreated;
+
+	/**
+	 * The version of the pending writes when the property cache was last
+	 * known to be current.
+	 */
+	private int writesVersion;
+
+	/**
+	 * Create a new ResourceInvocationHandler allowing invocation of all Methods
+	 * that this InvocationHandler represents
+	 * 
+	 * @param r
+	 *            Resource - the
+	 * @param metadata
+	 *            the metadata of the proxy interface
+	 * @param defaultSlingProxyServiceImpl
+	 * @param sharedCache
+	 *            the cache shared by all proxies or null
+	 */
+	SlingInvocationHandler(final Resource r, final ProxyMetadata metadata,
+			final DefaultSlingProxyServiceImpl slingProxyService,
+			final SharedPropertyCache sharedCache) {
+		this(r.getResourceResolver(), r.getPath(), metadata,
+				slingProxyService, sharedCache);
+		this.r = r;
+	}
+
+	/**
+	 * Create a new ResourceInvocationHandler for the resource at the specified
+	 * path, which is only resolved when it is first needed.
+	 * 
+	 * @param resolver
+	 *            the resource resolver used to resolve the resource
+	 * @param path
+	 *            the normalized absolute path of the resource
+	 * @param metadata
+	 *            the metadata of the proxy interface
+	 * @param slingProxyService
+	 *            the service used to retrieve references and children
+	 * @param sharedCache
+	 *            the cache shared by all proxies or null
+	 */
+	SlingInvocationHandler(final ResourceResolver resolver,
+			final String path, final ProxyMetadata metadata,
+			final DefaultSlingProxyServiceImpl slingProxyService,
+			final SharedPropertyCache sharedCache) {
+		this.resolver = resolver;
+		this.path = path;
+		this.metadata = metadata;
+		this.proxyHashCode = Integer.valueOf(JDPHashCodeImpl.proxyHashCode(
+				metadata.getInterfacesHashCode(), path));
+		this.slingProxyService = slingProxyService;
+		this.sharedCache = sharedCache;
+		this.sharedGeneration = (sharedCache != null ? sharedCache
+				.getGeneration() : 0);
+	}
+
+	/**
+	 * Get the path of the resource backing this invocation handler.
+	 * 
+	 * @return the resource path
+	 */
+	public final String getResourcePath() {
+		return this.path;
+	}
+
+	/**
+	 * Get the interface of the proxies of this invocation handler, which is
+	 * the only interface they implement.
+	 * 
+	 * @return the proxy interface
+	 */
+	public final Class<?> getProxyInterface() {
+		return this.metadata.getType();
+	}
+
+	/**
+	 * Get the hash code of the proxies of this invocation handler.
+	 * 
+	 * @return the proxy hash code
+	 */
+	public final int getProxyHashCode() {
+		return this.proxyHashCode.intValue();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.generated.GeneratedProxyHandler#
+	 * getInvokedMethod(int)
+	 */
+	public final Method getInvokedMethod(final int slot) {
+		return this.metadata.getInvokedTO(slot).getMethod();
+	}
+
+	/**
+	 * Get the resource backing this invocation handler, resolving it if it
+	 * has not been resolved yet.
+	 * 
+	 * @return the backing resource
+	 * @throws ResourceNotFoundException
+	 *             if there is no resource at the path of this handler
+	 */
+	public final Resource getResource() {
+		final Resource rsrc = this.resolveResource();
+		if (rsrc == null) {
+			throw new ResourceNotFoundException(
+					"Unable to load resource at path: " + this.path);
+		}
+		return rsrc;
+	}
+
+	/**
+	 * Resolves the resource backing this invocation handler if it has not
+	 * been resolved yet.
+	 * 
+	 * @return the backing resource or null if there is no resource at the
+	 *         path of this handler
+	 */
+	private Resource resolveResource() {
+		if (this.r == null) {
+			log.debug("Resolving deferred resource {}", this.path);
+			this.r = this.resolver.getResource(this.path);
+		}
+		return this.r;
+	}
+
+	/**
+	 * Gets the memoized value map of the resource at the specified path.
+	 * 
+	 * @param path
+	 *            the path of the resource
+	 * @param pathSlot
+	 *            the slot of the path
+	 * @param required
+	 *            whether or not to throw an exception if there is no resource
+	 * @return the value map, an empty value map if there is no resource and
+	 *         it is not required
+	 * @throws ResourceNotFoundException
+	 *             if there is no required resource at the specified path
+	 */
+	private ValueMap getValueMap(final String path, final int pathSlot,
+			final boolean required) {
+		if (this.valueMaps == null) {
+			this.valueMaps = new ValueMap[this.metadata.getPathCount()];
+		}
+		ValueMap vm = this.valueMaps[pathSlot];
+		if (vm == null) {
+			final Resource rsrc = this.getResource(path, pathSlot, required);
+			if (rsrc == null) {
+				return ValueMap.EMPTY;
+			}
+			vm = rsrc.adaptTo(ValueMap.class);
+			this.valueMaps[pathSlot] = vm;
+		}
+		return vm;
+	}
+
+	/**
+	 * Gets the memoized resource at the specified path. Missing resources are
+	 * memoized as well, and are looked up in the shared property cache before
+	 * they are resolved.
+	 * 
+	 * @param path
+	 *            the path of the resource
+	 * @param pathSlot
+	 *            the slot of the path
+	 * @param required
+	 *            whether or not to throw an exception if there is no resource
+	 * @return the resource or null if there is none and it is not required
+	 * @throws ResourceNotFoundException
+	 *             if there is no required resource at the specified path
+	 */
+	private Resource getResource(final String path, final int pathSlot,
+			final boolean required) {
+		if (this.resources == null) {
+			this.resources = new Object[this.metadata.getPathCount()];
+		}
+		Object rsrc = this.resources[pathSlot];
+		if (rsrc == null) {
+			final CacheKey missingKey = this.getSharedCacheKey(path, MISSING);
+			Resource resolved = null;
+			if (!this.isKnownMissing(missingKey)) {
+				resolved = this.getResource(path, false);
+				if ((resolved == null) && (missingKey != null)) {
+					this.sharedCache.put(missingKey, null,
+							this.sharedGeneration);
+				}
+			}
+			rsrc = (resolved != null ? resolved : NULL);
+			this.resources[pathSlot] = rsrc;
+		}
+		if (rsrc == NULL) {
+			if (required) {
+				throw new ResourceNotFoundException(
+						"Unable to load resource at path: " + path);
+			}
+			return null;
+		}
+		return (Resource) rsrc;
+	}
+
+	/**
+	 * Resolves the resource at the specified path, relative to the backing
+	 * resource unless the path is absolute.
+	 * 
+	 * @param path
+	 *            the path of the resource, null or empty for the backing
+	 *            resource
+	 * @param required
+	 *            whether or not to throw an exception if there is no resource
+	 * @return the resource or null if there is none and it is not required
+	 * @throws ResourceNotFoundException
+	 *             if there is no required resource at the specified path
+	 */
+	private Resource getResource(final String path, final boolean required) {
+		Resource rsrc;
+		if (StringUtils.isEmpty(path)) {
+			rsrc = this.resolveResource();
+		} else if (path.startsWith("/")) {
+			rsrc = this.resolver.getResource(path);
+		} else {
+			final Resource base = this.resolveResource();
+			rsrc = (base != null ? this.resolver.getResource(base, path)
+					: null);
+		}
+		if ((rsrc == null) && required) {
+			throw new ResourceNotFoundException(
+					"Unable to load resource at path: " + path);
+		}
+		return rsrc;
+	}
+
+	/**
+	 * Gets the key of a value in the shared property cache.
+	 * 
+	 * @param path
+	 *            the path of the resource the value is read from, relative to
+	 *            the backing resource unless it is absolute
+	 * @param descriptor
+	 *            describes how the value is read
+	 * @return the key or null if the value must not be shared
+	 */
+	private CacheKey getSharedCacheKey(final String path,
+			final String descriptor) {
+		if (this.sharedCache == null) {
+			return null;
+		}
+		if (this.fingerprint == null) {
+			final String fp = this.sharedCache.getFingerprint(this.resolver);
+			this.fingerprint = (fp != null ? fp : NULL);
+		}
+		if (this.fingerprint == NULL) {
+			return null;
+		}
+		final String absolutePath = this.getAbsolutePath(path);
+		if (absolutePath == null) {
+			return null;
+		}
+		return new CacheKey((String) this.fingerprint, absolutePath,
+				descriptor);
+	}
+
+	/**
+	 * Gets the normalized absolute path of the specified path, without
+	 * resolving any resource.
+	 * 
+	 * @param path
+	 *            the path, relative to the backing resource unless it is
+	 *            absolute
+	 * @return the absolute path or null if the path is invalid
+	 */
+	private String getAbsolutePath(final String path) {
+		if (StringUtils.isEmpty(path)) {
+			return this.path;
+		} else if (path.startsWith("/")) {
+			return ResourceUtil.normalize(path);
+		}
+		return ResourceUtil.normalize(this.path + "/" + path);
+	}
+
+	/**
+	 * Checks whether the shared property cache knows the resource of the key
+	 * to be missing.
+	 * 
+	 * @param missingKey
+	 *            the key marking the resource as missing or null
+	 * @return true if the resource is known to be missing
+	 */
+	private boolean isKnownMissing(final CacheKey missingKey) {
+		return (missingKey != null)
+				&& (this.sharedCache.get(missingKey) == SharedPropertyCache.NULL);
+	}
+
+	/**
+	 * Handle get children invocations. The page of children is specified by
+	 * the annotation or the arguments of the method. The lists, arrays and
+	 * counts of methods without arguments are cached for the lifetime of the
+	 * proxy.
+	 * 
+	 * @param to
+	 *            the method invocation transfer object
+	 * @param args
+	 *            the method arguments
+	 * @return the returned object
+	 * @throws IllegalArgumentException
+	 *             if the offset is negative or the continuation token is
+	 *             invalid
+	 */
+	@SuppressWarnings("unchecked")
+	private Object handleGetChildren(final InvokedChildrenTO to,
+			final Object[] args) {
+		log.trace("handleGetChildren");
+
+		to.checkDeclaration();
+
+		final int childrenSlot = to.getChildrenSlot();
+		if ((childrenSlot >= 0) && (this.childrenCache != null)
+				&& (this.childrenCache[childrenSlot] != null)) {
+			return this.toContainer(to, this.childrenCache[childrenSlot]);
+		}
+
+		int offset = to.getOffset();
+		int limit = to.getLimit();
+		String token = null;
+		switch (to.getPaging()) {
+		case Offset:
+			offset = ((Integer) args[0]).intValue();
+			limit = ((Integer) args[1]).intValue();
+			break;
+		case ContinuationToken:
+			token = (String) args[0];
+			offset = 0;
+			limit = ((Integer) args[1]).intValue();
+			break;
+		default:
+			break;
+		}
+
+		log.debug("Loading child resources from: {}", to.getPath());
+		final Resource resource = this.getResource(to.getPath(),
+				to.getPathSlot(), false);
+
+		Class<?> returnType = Resource.class;
+		if (to.getReturnType() != null) {
+			returnType = to.getReturnType();
+		}
+
+		final ChildrenPage page = new ChildrenPage(
+				resource != null ? resource.getResourceResolver() : null,
+				resource, to.getFilter(), offset, limit, token);
+		if (to.getContainer() == Container.Count) {
+			long count = 0;
+			while (page.hasNext()) {
+				page.next();
+				count++;
+			}
+			return this.cacheChildren(to, Long.valueOf(count));
+		}
+		final ChildrenConverter<Object> converter = new ChildrenConverter<Object>(
+				(Class<Object>) returnType, this.slingProxyService);
+		switch (to.getContainer()) {
+		case Spliterator:
+			return new ChildrenSpliterator<Object>(page, converter);
+		case Stream:
+			return StreamSupport.stream(new ChildrenSpliterator<Object>(page,
+					converter), false);
+		case List:
+		case Array:
+			return this.cacheChildren(to, new ChildrenList<Object>(page,
+					converter));
+		default:
+			return new DeferredIterator<Object>(page, converter);
+		}
+	}
+
+	/**
+	 * Caches the list or the count of the children of a method without
+	 * arguments.
+	 * 
+	 * @param to
+	 *            the method invocation transfer object
+	 * @param children
+	 *            the list or the count of the children
+	 * @return the children in the container of the method
+	 */
+	private Object cacheChildren(final InvokedChildrenTO to,
+			final Object children) {
+		if (to.getChildrenSlot() >= 0) {
+			if (this.childrenCache == null) {
+				this.childrenCache = new Object[this.metadata
+						.getChildrenCount()];
+			}
+			this.childrenCache[to.getChildrenSlot()] = children;
+		}
+		return this.toContainer(to, children);
+	}
+
+	/**
+	 * Converts the list or the count of children to the return type of the
+	 * method. Arrays are copied from the list on every invocation, as they
+	 * cannot be made unmodifiable.
+	 * 
+	 * @param to
+	 *            the method invocation transfer object
+	 * @param children
+	 *            the list or the count of the children
+	 * @return the children in the container of the method
+	 */
+	private Object toContainer(final InvokedChildrenTO to,
+			final Object children) {
+		final Class<?> type = to.getMethod().getReturnType();
+		switch (to.getContainer()) {
+		case Array:
+			final List<?> list = (List<?>) children;
+			return list.toArray((Object[]) java.lang.reflect.Array
+					.newInstance(type.getComponentType(), list.size()));
+		case Count:
+			if (int.class.equals(type) || Integer.class.equals(type)) {
+				return Integer.valueOf(((Long) children).intValue());
+			}
+			return children;
+		default:
+			return children;
+		}
+	}
+
+	/**
+	 * Handles get requests against a proxy to a Sling Resource.
+	 * 
+	 * @param to
+	 *            the DTO for the invocation
+	 * @return the result of the get access
+	 * @throws Throwable
+	 */
+	private Object handleGetProperty(final InvokedPropertyTO to)
+			throws Throwable {
+		Object objReturn;
+
+		// handle properties
+		if (this.cache == null) {
+			this.cache = new Object[this.metadata.getPropertyCount()];
+			if (this.slingProxyService.isPropertyUsageEnabled()) {
+				this.used = new boolean[this.cache.length];
+				this.metadata.getPropertyUsage().recordProxy();
+			}
+			if (this.metadata.isPrefetch()) {
+				this.prefetchProperties();
+			}
+		}
+		final int slot = to.getCacheSlot();
+		if ((this.used != null) && !this.used[slot]) {
+			this.used[slot] = true;
+			this.metadata.getPropertyUsage().recordRead(slot);
+		}
+		final Object written = this.readPendingWrite(to);
+		if (written != UNWRITTEN) {
+			return written;
+		}
+		if (to.getConverter().isBinary()) {
+			// binaries are read again on every call, never cached
+			return this.readProperty(to);
+		}
+		final Object cached = this.cache[slot];
+		if (cached != null) {
+			objReturn = (cached != NULL ? cached : null);
+		} else {
+			objReturn = this.loadProperty(to);
+			this.cache[slot] = (objReturn != null ? objReturn : NULL);
+		}
+		return objReturn;
+	}
+
+	/**
+	 * Reads the pending value of a property, written by a setter of one of
+	 * the proxies of the resource resolver and not committed yet. Once pending
+	 * values have been committed the cached properties and value maps are
+	 * discarded, as they may have been replaced.
+	 * 
+	 * @param to
+	 *            the DTO for the invocation
+	 * @return the pending value converted to the return type of the method,
+	 *         or {@link #UNWRITTEN} if the property has no pending value
+	 */
+	private Object readPendingWrite(final InvokedPropertyTO to) {
+		final PendingWrites pw = this.findPendingWrites();
+		if (pw == null) {
+			return UNWRITTEN;
+		}
+		if (pw.getVersion() != this.writesVersion) {
+			this.writesVersion = pw.getVersion();
+			if (this.cache != null) {
+				Arrays.fill(this.cache, null);
+			}
+			this.valueMaps = null;
+		}
+		if (pw.isEmpty()) {
+			return UNWRITTEN;
+		}
+		final Map<String, Object> values = pw.get(this.getAbsolutePath(to
+				.getPath()));
+		if ((values == null) || !values.containsKey(to.getName())) {
+			return UNWRITTEN;
+		}
+		final Object value = values.get(to.getName());
+		final Map<String, Object> map = (value != null ? Collections
+				.singletonMap(to.getName(), value) : Collections
+				.<String, Object> emptyMap());
+		return to.getConverter().read(new ValueMapDecorator(map),
+				to.getName());
+	}
+
+	/**
+	 * Finds the values written by the setters of the proxies of the resource
+	 * resolver. Until a setter has been invoked they are only looked up again
+	 * when the proxies of another resource resolver have written values, so
+	 * reading properties neither locks nor creates pending writes.
+	 * 
+	 * @return the pending writes or null if no setter has been invoked
+	 */
+	private PendingWrites findPendingWrites() {
+		if (this.writes == null) {
+			final int created = this.slingProxyService
+					.getPendingWritesCreated();
+			if (created != this.writesCreated) {
+				this.writesCreated = created;
+				this.writes = this.slingProxyService
+						.findPendingWrites(this.resolver);
+			}
+		}
+		return this.writes;
+	}
+
+	/**
+	 * Handles a setter, writing the value as the pending value of the
+	 * property until it is committed.
+	 * 
+	 * @param to
+	 *            the DTO for the invocation
+	 * @param args
+	 *            the method arguments
+	 * @return null
+	 * @throws IllegalArgumentException
+	 *             if the path of the property is invalid
+	 */
+	private Object handleSet(final InvokedSetterTO to, final Object[] args) {
+		final String absolutePath = this.getAbsolutePath(to.getPath());
+		if (absolutePath == null) {
+			throw new IllegalArgumentException("Invalid path: " + to.getPath());
+		}
+		if (this.writes == null) {
+			this.writes = this.slingProxyService
+					.getPendingWrites(this.resolver);
+		}
+		this.writes.put(absolutePath, to.getName(),
+				PropertyConverter.toStoredValue(args[0]));
+		return null;
+	}
+
+	/**
+	 * Reads all properties of the proxy interface into the property cache,
+	 * resolving the resource of each distinct path once. Binary properties are
+	 * left to be read when they are invoked, as are the
+	 * properties of resources which do not exist, so that invoking them
+	 * reports the missing resource.
+	 */
+	private void prefetchProperties() {
+		log.trace("prefetchProperties");
+		final boolean[] missing = new boolean[this.metadata.getPathCount()];
+		for (int i = 0; i < this.cache.length; i++) {
+			final InvokedPropertyTO to = this.metadata.getProperty(i);
+			if (missing[to.getPathSlot()] || to.getConverter().isBinary()) {
+				continue;
+			}
+			try {
+				final Object value = this.loadProperty(to);
+				this.cache[i] = (value != null ? value : NULL);
+			} catch (final ResourceNotFoundException e) {
+				log.debug("Not prefetching properties of missing resource {}",
+						to.getPath());
+				missing[to.getPathSlot()] = true;
+			}
+		}
+	}
+
+	/**
+	 * Loads a property from the shared property cache, or reads it from the
+	 * value map of its resource if it is not cached.
+	 * 
+	 * @param to
+	 *            the DTO for the invocation
+	 * @return the property value
+	 */
+	private Object loadProperty(final InvokedPropertyTO to) {
+		final CacheKey key = this.getSharedCacheKey(to.getPath(),
+				to.getCacheDescriptor());
+		if (key == null) {
+			return this.readProperty(to);
+		}
+		final Object shared = this.sharedCache.get(key);
+		if (shared != null) {
+			return (shared != SharedPropertyCache.NULL ? shared : null);
+		}
+		final Object value = this.readProperty(to);
+		this.sharedCache.put(key, value, this.sharedGeneration);
+		return value;
+	}
+
+	/**
+	 * Reads a property from the value map of its resource.
+	 * 
+	 * @param to
+	 *            the DTO for the invocation
+	 * @return the property value
+	 */
+	private Object readProperty(final InvokedPropertyTO to) {
+		final ValueMap vm = this.getValueMap(to.getPath(),
+				to.getPathSlot(), to.isRequired());
+		return to.getConverter().read(vm, to.getName());
+	}
+
+	/**
+	 * Renders the proxy from the values of its properties. Pending and cached
+	 * values are used when they exist, other properties are read without caching them
+	 * nor counting them as used, and children and references are never
+	 * resolved.
+	 * 
+	 * @param proxy
+	 *            the proxy
+	 * @return the string representation of the proxy
+	 */
+	private String toProxyString(final Object proxy) {
+		final InvokedPropertyTO[] properties = this.metadata
+				.getToStringProperties();
+		final Object[] values = new Object[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			final Object written = this.readPendingWrite(properties[i]);
+			if (written != UNWRITTEN) {
+				values[i] = written;
+				continue;
+			}
+			final Object cached = (this.cache != null ? this.cache[properties[i]
+					.getCacheSlot()] : null);
+			if (cached != null) {
+				values[i] = (cached != NULL ? cached : null);
+				continue;
+			}
+			try {
+				values[i] = this.loadProperty(properties[i]);
+			} catch (final RuntimeException e) {
+				values[i] = e;
+			}
+		}
+		return new GetMethodToStringImpl().toString(proxy,
+				this.metadata.getType(), this.path, properties, values);
+	}
+
+	/**
+	 * Handles a call to get a reference to another resource. The reference,
+	 * including null, is cached for the lifetime of the proxy, so the same
+	 * proxy or adapted object is returned on every call.
+	 * 
+	 * @param to
+	 *            the method invocation transfer object
+	 * @return the resulting object
+	 */
+	private Object handleGetReference(final InvokedReferenceTO to) {
+		log.trace("handleGetReference");
+
+		if (this.referenceCache == null) {
+			this.referenceCache = new Object[this.metadata.getReferenceCount()];
+		}
+		final Object cached = this.referenceCache[to.getReferenceSlot()];
+		if (cached != null) {
+			return (cached != NULL ? cached : null);
+		}
+		final Object value = this.loadReference(to);
+		this.referenceCache[to.getReferenceSlot()] = (value != null ? value
+				: NULL);
+		return value;
+	}
+
+	/**
+	 * Loads the value of a reference, resolving the referenced resource and
+	 * adapting or proxying it to the return type.
+	 * 
+	 * @param to
+	 *            the method invocation transfer object
+	 * @return the reference or null
+	 */
+	private Object loadReference(final InvokedReferenceTO to) {
+		Object value = null;
+		log.debug("Referencing resource at path: {}", to.getPath());
+		if (to.isLazy()
+				&& !Resource.class.equals(to.getMethod().getReturnType())) {
+			return this.getLazyReference(to);
+		}
+		final Resource reference = this.getResource(to.getPath(),
+				to.getPathSlot(), false);
+		log.debug("Loaded resource: {}", reference);
+
+		if (reference != null) {
+			final Class<?> returnType = to.getMethod().getReturnType();
+
+			log.debug("Attempting to get instance of {}",
+					returnType.getCanonicalName());
+			if (Resource.class.equals(returnType)) {
+				log.debug("Returning resource as reference");
+				value = reference;
+			}
+
+			if (value == null) {
+				value = reference.adaptTo(returnType);
+				if (value != null) {
+					log.debug("Returning adapted object as reference");
+				}
+			}
+
+			if (value == null) {
+				value = this.slingProxyService.getProxyOrNull(reference,
+						returnType);
+				if (value != null) {
+					log.debug("Returning adapted object as reference");
+				}
+			}
+		} else {
+			log.debug("Referenced resource is null");
+		}
+		log.debug("Returning value: {}", value);
+
+		return value;
+	}
+
+	/**
+	 * Gets a proxy for the referenced path which defers resolving the
+	 * referenced resource.
+	 * 
+	 * @param to
+	 *            the method invocation transfer object
+	 * @return the proxy or null if the return type cannot be proxied
+	 */
+	private Object getLazyReference(final InvokedReferenceTO to) {
+		final String referencePath = this.getAbsolutePath(to.getPath());
+		if (referencePath == null) {
+			log.debug("Invalid reference path {}", to.getPath());
+			return null;
+		}
+		return this.slingProxyService.getProxyOrNull(this.resolver,
+				referencePath, to.getMethod().getReturnType());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int hashCode = (SlingInvocationHandler.class.hashCode() * PrimeNumbers
+				.getInstance().get(2)) + this.path.hashCode();
+		return hashCode;
+	}
+
+	/*
+	 * (non-Javadoc) @see
+	 * java.lang.reflect.InvocationHandler#invoke(java.lang.Object,
+	 * java.lang.reflect.Method, java.lang.Object[])
+	 */
+	public Object invoke(final Object proxy, final Method method,
+			final Object[] args) throws Throwable {
+
+		final InvokedTO to = this.metadata.getInvokedTO(method);
+		if (to == null) {
+			throw new NoSuchMethodException("Method " + method.getName()
+					+ " DNE");
+		}
+		return this.invoke(proxy, to, args);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.generated.GeneratedProxyHandler#invoke
+	 * (java.lang.Object, int, java.lang.Object[])
+	 */
+	public Object invoke(final Object proxy, final int slot,
+			final Object[] args) throws Throwable {
+		return this.invoke(proxy, this.metadata.getInvokedTO(slot), args);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.generated.GeneratedProxyHandler#getProperty
+	 * (int)
+	 */
+	public Object getProperty(final int slot) throws Throwable {
+		return this.handleGetProperty((InvokedPropertyTO) this.metadata
+				.getInvokedTO(slot));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.generated.GeneratedProxyHandler#
+	 * getReference(int)
+	 */
+	public Object getReference(final int slot) {
+		return this.handleGetReference((InvokedReferenceTO) this.metadata
+				.getInvokedTO(slot));
+	}
+
+	/**
+	 * Dispatches an invocation according to the kind of the invoked method.
+	 * 
+	 * @param proxy
+	 *            the proxy instance the method was invoked on
+	 * @param to
+	 *            the transfer object for the invoked method
+	 * @param args
+	 *            the method arguments
+	 * @return the result of the invocation
+	 * @throws Throwable
+	 */
+	private Object invoke(final Object proxy, final InvokedTO to,
+			final Object[] args) throws Throwable {
+		final Method method = to.getMethod();
+		switch (to.getKind()) {
+		case Property:
+			return (this.handleGetProperty((InvokedPropertyTO) to));
+		case Reference:
+			return (this.handleGetReference((InvokedReferenceTO) to));
+		case Children:
+			return (this.handleGetChildren((InvokedChildrenTO) to, args));
+		case Setter:
+			return this.handleSet((InvokedSetterTO) to, args);
+		case Commit:
+			this.slingProxyService.commit(this.resolver);
+			return null;
+		case ToString:
+			return this.toProxyString(proxy);
+		case HashCode:
+			return this.proxyHashCode;
+		case Equals:
+			if ((args == null) || (args.length != 1)) {
+				final String msg = "Method 'equals' requires exactly 1 argument.";
+				throw new IllegalArgumentException(msg);
+			}
+			return EQUALS.equals(proxy, args[0]);
+		case BackingResource:
+			return this.getResource();
+		case Unannotated:
+			throw new IllegalStateException("Method " + method.getName()
+					+ " on class "
+					+ method.getDeclaringClass().getCanonicalName()
+					+ " does not have required annotations");
+		default:
+			break;
+		}
+		throw new NoSuchMethodException("Method " + method.getName() + " DNE");
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.cache;
+
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Calculates the access control fingerprint of a resource resolver. Resource
+ * resolvers with the same fingerprint must be allowed to read exactly the same
+ * content, as they share the values in the shared cache.
+ */
+public interface AccessFingerprint {
+
+	/**
+	 * Gets the access control fingerprint of the resource resolver.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 * @return the fingerprint or null if it cannot be determined, in which
+	 *         case the shared cache is not used
+	 */
+	String getFingerprint(ResourceResolver resolver);
+}
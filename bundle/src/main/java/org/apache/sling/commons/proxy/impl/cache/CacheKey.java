@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.cache;
+
+/**
+ * The key of a value in the shared cache. Values are partitioned by the access
+ * control fingerprint of the resource resolver which read them, and stored by
+ * the path of the resource they were read from and a descriptor of how they
+ * were read.
+ */
+public final class CacheKey {
+
+	/**
+	 * The access control fingerprint of the resource resolver.
+	 */
+	private final String fingerprint;
+
+	/**
+	 * The normalized absolute path of the resource the value was read from.
+	 */
+	private final String path;
+
+	/**
+	 * Describes how the value was read from the resource.
+	 */
+	private final String descriptor;
+
+	/**
+	 * The hash code, calculated once.
+	 */
+	private final int hashCode;
+
+	/**
+	 * Constructs a new cache key.
+	 * 
+	 * @param fingerprint
+	 *            the access control fingerprint of the resource resolver
+	 * @param path
+	 *            the normalized absolute path of the resource
+	 * @param descriptor
+	 *            describes how the value was read
+	 */
+	public CacheKey(final String fingerprint, final String path,
+			final String descriptor) {
+		this.fingerprint = fingerprint;
+		this.path = path;
+		this.descriptor = descriptor;
+		this.hashCode = (((fingerprint.hashCode() * 31) + path.hashCode()) * 31)
+				+ descriptor.hashCode();
+	}
+
+	/**
+	 * Gets the normalized absolute path of the resource the value was read
+	 * from.
+	 * 
+	 * @return the path
+	 */
+	public String getPath() {
+		return this.path;
+	}
+
+	/**
+	 * Gets an estimate of the number of bytes used by the key.
+	 * 
+	 * @return the weight
+	 */
+	int getWeight() {
+		return 48 + 2 * (this.fingerprint.length() + this.path.length() + this.descriptor
+				.length());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CacheKey)) {
+			return false;
+		}
+		final CacheKey other = (CacheKey) obj;
+		return (this.hashCode == other.hashCode)
+				&& this.path.equals(other.path)
+				&& this.descriptor.equals(other.descriptor)
+				&& this.fingerprint.equals(other.fingerprint);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.fingerprint + ":" + this.path + ":" + this.descriptor;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.cache;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uses the ID of the user a resource resolver was opened for as its access
+ * control fingerprint, as resource resolvers of the same user can read the
+ * same content. The user ID is read from the resource resolver if it provides
+ * one, otherwise from the JCR session the resource resolver adapts to. Neither
+ * is referenced at compile time, as older Sling APIs do not define them and
+ * not every resource resolver is backed by a JCR repository.
+ * 
+ * The fingerprint is only determined once per resource resolver.
+ */
+public final class DefaultAccessFingerprint implements AccessFingerprint {
+
+	/**
+	 * The SLF4J Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(DefaultAccessFingerprint.class);
+
+	/**
+	 * The name of the JCR session interface.
+	 */
+	private static final String SESSION_CLASS = "javax.jcr.Session";
+
+	/**
+	 * The name of the method returning the user ID, on both the resource
+	 * resolver and the JCR session.
+	 */
+	private static final String GET_USER_ID = "getUserID";
+
+	/**
+	 * Marks a resource resolver without a fingerprint.
+	 */
+	private static final String NONE = new String();
+
+	/**
+	 * The fingerprints, by resource resolver.
+	 */
+	private final Map<ResourceResolver, String> fingerprints = new java.util.WeakHashMap<ResourceResolver, String>();
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.sling.commons.proxy.impl.cache.AccessFingerprint#getFingerprint
+	 * (org.apache.sling.api.resource.ResourceResolver)
+	 */
+	public String getFingerprint(final ResourceResolver resolver) {
+		synchronized (this.fingerprints) {
+			final String fingerprint = this.fingerprints.get(resolver);
+			if (fingerprint != null) {
+				return (fingerprint != NONE ? fingerprint : null);
+			}
+		}
+		final String userId = getUserId(resolver);
+		final String fingerprint = (userId != null ? "user:" + userId : null);
+		synchronized (this.fingerprints) {
+			this.fingerprints.put(resolver, (fingerprint != null ? fingerprint
+					: NONE));
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Gets the ID of the user the resource resolver was opened for.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 * @return the user ID or null if it cannot be determined
+	 */
+	private static String getUserId(final ResourceResolver resolver) {
+		try {
+			final Method m = resolver.getClass().getMethod(GET_USER_ID);
+			return (String) m.invoke(resolver);
+		} catch (final NoSuchMethodException e) {
+			// fall back to the JCR session
+		} catch (final Exception e) {
+			log.debug("Unable to get the user ID of the resource resolver", e);
+			return null;
+		}
+		try {
+			final ClassLoader cl = resolver.getClass().getClassLoader();
+			if (cl == null) {
+				return null;
+			}
+			final Class<?> sessionClass = cl.loadClass(SESSION_CLASS);
+			final Object session = resolver.adaptTo(sessionClass);
+			if (session == null) {
+				return null;
+			}
+			return (String) sessionClass.getMethod(GET_USER_ID).invoke(
+					session);
+		} catch (final ClassNotFoundException e) {
+			return null;
+		} catch (final Exception e) {
+			log.debug("Unable to get the user ID of the JCR session", e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.cache;
+
+/**
+ * A probabilistic estimate of how often the keys of a cache are accessed,
+ * used to decide whether a new entry is worth evicting an existing one. This
+ * is a Count-Min Sketch with four 4-bit counters per key.
+ * 
+ * The counters are halved once the number of increments reaches ten times the
+ * maximum size of the cache, so that keys which used to be popular do not
+ * stay in the cache forever.
+ */
+final class FrequencySketch {
+
+	/**
+	 * The seeds of the four hash functions.
+	 */
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L,
+			0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	/**
+	 * Mask clearing the highest bit of every counter after halving.
+	 */
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	/**
+	 * The counters, sixteen per long.
+	 */
+	private final long[] table;
+
+	/**
+	 * The mask selecting a long of the table.
+	 */
+	private final int tableMask;
+
+	/**
+	 * The number of increments after which the counters are halved.
+	 */
+	private final int sampleSize;
+
+	/**
+	 * The number of increments since the counters were last halved.
+	 */
+	private int size;
+
+	/**
+	 * Constructs a new frequency sketch.
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of entries of the cache
+	 */
+	FrequencySketch(final int maximumSize) {
+		int length = 16;
+		while (length < maximumSize && length < (1 << 30)) {
+			length <<= 1;
+		}
+		this.table = new long[length];
+		this.tableMask = length - 1;
+		this.sampleSize = Math.max(10 * maximumSize, 10);
+	}
+
+	/**
+	 * Gets the estimated number of times the key was accessed.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the estimated frequency, between 0 and 15
+	 */
+	int frequency(final Object key) {
+		final int hash = spread(key.hashCode());
+		int frequency = 15;
+		for (int i = 0; i < SEEDS.length; i++) {
+			final long count = (this.table[this.indexOf(hash, i)] >>> offsetOf(
+					hash, i)) & 15L;
+			frequency = Math.min(frequency, (int) count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records an access of the key.
+	 * 
+	 * @param key
+	 *            the key
+	 */
+	void increment(final Object key) {
+		final int hash = spread(key.hashCode());
+		boolean added = false;
+		for (int i = 0; i < SEEDS.length; i++) {
+			final int index = this.indexOf(hash, i);
+			final int offset = offsetOf(hash, i);
+			if (((this.table[index] >>> offset) & 15L) != 15L) {
+				this.table[index] += 1L << offset;
+				added = true;
+			}
+		}
+		if (added && (++this.size == this.sampleSize)) {
+			this.reset();
+		}
+	}
+
+	/**
+	 * Halves all of the counters.
+	 */
+	private void reset() {
+		for (int i = 0; i < this.table.length; i++) {
+			this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+		}
+		this.size = this.size / 2;
+	}
+
+	/**
+	 * Gets the index of the long holding the counter of the i-th hash
+	 * function.
+	 * 
+	 * @param hash
+	 *            the spread hash of the key
+	 * @param i
+	 *            the hash function
+	 * @return the index in the table
+	 */
+	private int indexOf(final int hash, final int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += (h >>> 32);
+		return ((int) h) & this.tableMask;
+	}
+
+	/**
+	 * Gets the bit offset of the counter of the i-th hash function in its
+	 * long.
+	 * 
+	 * @param hash
+	 *            the spread hash of the key
+	 * @param i
+	 *            the hash function
+	 * @return the bit offset
+	 */
+	private static int offsetOf(final int hash, final int i) {
+		return ((hash >>> (i << 3)) & 15) << 2;
+	}
+
+	/**
+	 * Spreads the bits of a hash code, to protect against poor hash codes.
+	 * 
+	 * @param h
+	 *            the hash code
+	 * @return the spread hash
+	 */
+	private static int spread(final int h) {
+		int x = h * 0x9E3779B9;
+		return x ^ (x >>> 16);
+	}
+}
@@ -0,0 +1,635 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.cache;
+
+import java.math.BigDecimal;
+import java.time.temporal.TemporalAccessor;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * A cache of property values shared by all proxies, so that values which are
+ * read again and again do not have to be read from the repository by every
+ * request.
+ * 
+ * The cache is bounded both by the number of entries and by their estimated
+ * weight. It is split into a small admission window and a main segment, the
+ * main segment is in turn split into a probation and a protected segment;
+ * entries are promoted to the protected segment when they are read again
+ * while on probation. An entry leaving the window only replaces the next
+ * victim of the main segment if it has been accessed more often, as estimated
+ * by a {@link FrequencySketch}, so one-off reads like a crawler sweeping the
+ * content do not flush the entries which are read all the time.
+ * 
+ * Values are partitioned by the access control fingerprint of the resource
+ * resolver which read them, so a value is only shared with resource resolvers
+ * which can read the same content. Entries expire after a time to live and
+ * are invalidated by path, together with the entries of all descendants of
+ * the path.
+ * 
+ * Only immutable values and values which are copied on every read are cached,
+ * see {@link #isCacheable(Object)}.
+ * 
+ * Values are read without locking. The accesses of reads only update the
+ * segments and the frequency sketch when the lock is free, so under
+ * contention some accesses are not recorded, which only makes the eviction
+ * less precise. Every invalidation increments a generation; a value read from
+ * the repository is only cached if no invalidation happened since the
+ * generation was taken before reading it, so a value read before an
+ * invalidation is never cached after it.
+ */
+public final class SharedPropertyCache {
+
+	/**
+	 * Marks a value which was cached as null.
+	 */
+	public static final Object NULL = new Object();
+
+	/**
+	 * The estimated weight of an entry, besides its key and value.
+	 */
+	private static final int ENTRY_WEIGHT = 96;
+
+	/**
+	 * Calculates the access control fingerprints of resource resolvers.
+	 */
+	private final AccessFingerprint accessFingerprint;
+
+	/**
+	 * The maximum number of entries.
+	 */
+	private final int maximumSize;
+
+	/**
+	 * The maximum estimated weight of all entries.
+	 */
+	private final long maximumWeight;
+
+	/**
+	 * The time to live of an entry in milliseconds, or 0 if entries do not
+	 * expire.
+	 */
+	private final long timeToLive;
+
+	/**
+	 * The maximum number of entries in the admission window.
+	 */
+	private final int maximumWindowSize;
+
+	/**
+	 * The maximum number of entries in the protected segment.
+	 */
+	private final int maximumProtectedSize;
+
+	/**
+	 * The entries of all segments, read without locking.
+	 */
+	private final ConcurrentHashMap<CacheKey, Entry> data = new ConcurrentHashMap<CacheKey, Entry>();
+
+	/**
+	 * Guards the segments, the path index, the sketch and the weight.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * The number of invalidations, incremented whenever values are
+	 * invalidated or cleared.
+	 */
+	private volatile long generation;
+
+	/**
+	 * The admission window, in access order.
+	 */
+	private final LinkedHashMap<CacheKey, Entry> window = new LinkedHashMap<CacheKey, Entry>(
+			16, 0.75f, true);
+
+	/**
+	 * The probation segment, in access order.
+	 */
+	private final LinkedHashMap<CacheKey, Entry> probation = new LinkedHashMap<CacheKey, Entry>(
+			16, 0.75f, true);
+
+	/**
+	 * The protected segment, in access order.
+	 */
+	private final LinkedHashMap<CacheKey, Entry> protectedSegment = new LinkedHashMap<CacheKey, Entry>(
+			16, 0.75f, true);
+
+	/**
+	 * The keys of the entries, by path.
+	 */
+	private final SortedMap<String, Set<CacheKey>> paths = new java.util.TreeMap<String, Set<CacheKey>>();
+
+	/**
+	 * The estimated access frequencies of the keys.
+	 */
+	private final FrequencySketch sketch;
+
+	/**
+	 * The estimated weight of all entries.
+	 */
+	private long weight;
+
+	/**
+	 * The number of reads which found a value.
+	 */
+	private final LongAdder hitCount = new LongAdder();
+
+	/**
+	 * The number of reads which did not find a value.
+	 */
+	private final LongAdder missCount = new LongAdder();
+
+	/**
+	 * Constructs a new shared property cache.
+	 * 
+	 * @param accessFingerprint
+	 *            calculates the access control fingerprints of resource
+	 *            resolvers
+	 * @param maximumSize
+	 *            the maximum number of entries
+	 * @param maximumWeight
+	 *            the maximum estimated weight of all entries, in bytes
+	 * @param timeToLive
+	 *            the time to live of an entry in milliseconds, 0 if entries
+	 *            do not expire
+	 */
+	public SharedPropertyCache(final AccessFingerprint accessFingerprint,
+			final int maximumSize, final long maximumWeight,
+			final long timeToLive) {
+		if (maximumSize < 2) {
+			throw new IllegalArgumentException(
+					"The maximum size must be at least 2: " + maximumSize);
+		}
+		this.accessFingerprint = accessFingerprint;
+		this.maximumSize = maximumSize;
+		this.maximumWeight = maximumWeight;
+		this.timeToLive = Math.max(timeToLive, 0);
+		this.maximumWindowSize = Math.max(maximumSize / 100, 1);
+		this.maximumProtectedSize = (maximumSize - this.maximumWindowSize) * 4 / 5;
+		this.sketch = new FrequencySketch(maximumSize);
+	}
+
+	/**
+	 * Gets the access control fingerprint of the resource resolver, which
+	 * partitions the values in this cache.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 * @return the fingerprint or null if the values read by the resource
+	 *         resolver must not be shared
+	 */
+	public String getFingerprint(final ResourceResolver resolver) {
+		return this.accessFingerprint.getFingerprint(resolver);
+	}
+
+	/**
+	 * Gets the current invalidation generation. Take the generation before
+	 * reading a value to cache, and pass it to
+	 * {@link #put(CacheKey, Object, long)}.
+	 * 
+	 * @return the generation
+	 */
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Gets a cached value.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return a copy of the value, {@link #NULL} if null was cached or null
+	 *         if no value is cached
+	 */
+	public Object get(final CacheKey key) {
+		final Entry entry = this.data.get(key);
+		final boolean expired = (entry != null) && this.isExpired(entry);
+		if ((entry == null) || expired) {
+			this.missCount.increment();
+		} else {
+			this.hitCount.increment();
+		}
+		if (this.lock.tryLock()) {
+			try {
+				this.sketch.increment(key);
+				if ((entry != null) && (entry.segment != null)) {
+					if (expired) {
+						this.remove(entry);
+					} else if (entry.segment == this.probation) {
+						this.promote(entry);
+					} else {
+						// moves the entry to the end of the access order
+						entry.segment.get(key);
+					}
+				}
+			} finally {
+				this.lock.unlock();
+			}
+		}
+		return ((entry != null) && !expired ? copy(entry.value) : null);
+	}
+
+	/**
+	 * Caches a value, unless it cannot be cached or values were invalidated
+	 * since the specified generation.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value, may be null
+	 * @param generation
+	 *            the generation taken before the value was read, see
+	 *            {@link #getGeneration()}
+	 */
+	public void put(final CacheKey key, final Object value,
+			final long generation) {
+		if (!isCacheable(value)) {
+			return;
+		}
+		final Object v = (value != null ? copy(value) : NULL);
+		final Entry entry = new Entry(key, v, ENTRY_WEIGHT + key.getWeight()
+				+ weigh(v), System.currentTimeMillis());
+		this.lock.lock();
+		try {
+			if (generation != this.generation) {
+				// the value may have been read before an invalidation
+				return;
+			}
+			this.sketch.increment(key);
+			final Entry existing = this.data.get(key);
+			if (existing != null) {
+				this.remove(existing);
+			}
+			this.add(entry, this.window);
+			Set<CacheKey> keys = this.paths.get(key.getPath());
+			if (keys == null) {
+				keys = new java.util.HashSet<CacheKey>();
+				this.paths.put(key.getPath(), keys);
+			}
+			keys.add(key);
+			this.evict();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Invalidates the values read from the resource at the specified path and
+	 * from all of its descendants.
+	 * 
+	 * @param path
+	 *            the normalized absolute path
+	 */
+	public void invalidate(final String path) {
+		if ("/".equals(path)) {
+			this.clear();
+			return;
+		}
+		this.lock.lock();
+		try {
+			this.generation++;
+			this.invalidateKeys(this.paths.get(path));
+			// all paths starting with the path and a slash
+			final Iterator<Set<CacheKey>> it = this.paths.subMap(path + "/",
+					path + "0").values().iterator();
+			while (it.hasNext()) {
+				final Set<CacheKey> keys = it.next();
+				it.remove();
+				this.invalidateKeys(keys);
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		this.lock.lock();
+		try {
+			this.generation++;
+			for (final Entry entry : this.data.values()) {
+				entry.segment = null;
+			}
+			this.data.clear();
+			this.window.clear();
+			this.probation.clear();
+			this.protectedSegment.clear();
+			this.paths.clear();
+			this.weight = 0;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of cached values.
+	 * 
+	 * @return the number of values
+	 */
+	public int size() {
+		return this.data.size();
+	}
+
+	/**
+	 * Gets the estimated weight of the cached values.
+	 * 
+	 * @return the weight in bytes
+	 */
+	public long getWeight() {
+		this.lock.lock();
+		try {
+			return this.weight;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of reads which found a value.
+	 * 
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Gets the number of reads which did not find a value.
+	 * 
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Checks whether a value can be shared. Only values which are immutable
+	 * or copied on every read can be shared, in particular streams and values
+	 * which are bound to a resource resolver cannot.
+	 * 
+	 * @param value
+	 *            the value
+	 * @return true if the value can be cached
+	 */
+	public static boolean isCacheable(final Object value) {
+		return (value == null) || (value instanceof String)
+				|| (value instanceof Boolean) || (value instanceof Long)
+				|| (value instanceof Integer) || (value instanceof Double)
+				|| (value instanceof Short) || (value instanceof Byte)
+				|| (value instanceof Float) || (value instanceof BigDecimal)
+				|| (value instanceof Enum<?>)
+				|| (value instanceof TemporalAccessor)
+				|| (value instanceof String[]) || (value instanceof Calendar)
+				|| (value instanceof Date);
+	}
+
+	/**
+	 * Copies a mutable value.
+	 * 
+	 * @param value
+	 *            the value
+	 * @return the copy, or the value itself if it is immutable
+	 */
+	private static Object copy(final Object value) {
+		if (value instanceof String[]) {
+			return ((String[]) value).clone();
+		} else if (value instanceof Calendar) {
+			return ((Calendar) value).clone();
+		} else if (value instanceof Date) {
+			return ((Date) value).clone();
+		}
+		return value;
+	}
+
+	/**
+	 * Estimates the number of bytes used by a value.
+	 * 
+	 * @param value
+	 *            the value
+	 * @return the weight
+	 */
+	private static int weigh(final Object value) {
+		if (value instanceof String) {
+			return 40 + 2 * ((String) value).length();
+		} else if (value instanceof String[]) {
+			int weight = 16;
+			for (final String s : (String[]) value) {
+				weight += 4 + (s != null ? 40 + 2 * s.length() : 0);
+			}
+			return weight;
+		} else if (value instanceof Calendar) {
+			return 400;
+		}
+		return 24;
+	}
+
+	/**
+	 * Checks to see if an entry has outlived the time to live.
+	 * 
+	 * @param entry
+	 *            the entry
+	 * @return whether or not the entry has expired
+	 */
+	private boolean isExpired(final Entry entry) {
+		return (this.timeToLive > 0)
+				&& (System.currentTimeMillis() - entry.created >= this.timeToLive);
+	}
+
+	/**
+	 * Moves an entry from the probation to the protected segment, demoting
+	 * the least recently used protected entry if the protected segment is
+	 * full.
+	 * 
+	 * @param entry
+	 *            the entry
+	 */
+	private void promote(final Entry entry) {
+		this.probation.remove(entry.key);
+		entry.segment = this.protectedSegment;
+		this.protectedSegment.put(entry.key, entry);
+		if (this.protectedSegment.size() > this.maximumProtectedSize) {
+			final Entry demoted = eldest(this.protectedSegment);
+			this.protectedSegment.remove(demoted.key);
+			demoted.segment = this.probation;
+			this.probation.put(demoted.key, demoted);
+		}
+	}
+
+	/**
+	 * Evicts entries until the cache is within its bounds. Entries leaving
+	 * the window are only admitted to the main segment if there is room or
+	 * they are accessed more often than the next victim of the main segment.
+	 */
+	private void evict() {
+		while (this.window.size() > this.maximumWindowSize) {
+			final Entry candidate = eldest(this.window);
+			this.window.remove(candidate.key);
+			candidate.segment = this.probation;
+			this.probation.put(candidate.key, candidate);
+			if (this.size() > this.maximumSize) {
+				final Entry victim = this.probation.size() > 1 ? eldest(this.probation)
+						: eldest(this.protectedSegment);
+				if (this.sketch.frequency(candidate.key) > this.sketch
+						.frequency(victim.key)) {
+					this.remove(victim);
+				} else {
+					this.remove(candidate);
+				}
+			}
+		}
+		while (this.weight > this.maximumWeight) {
+			if (!this.probation.isEmpty()) {
+				this.remove(eldest(this.probation));
+			} else if (!this.window.isEmpty()) {
+				this.remove(eldest(this.window));
+			} else {
+				this.remove(eldest(this.protectedSegment));
+			}
+		}
+	}
+
+	/**
+	 * Adds an entry to a segment.
+	 * 
+	 * @param entry
+	 *            the entry
+	 * @param segment
+	 *            the segment
+	 */
+	private void add(final Entry entry, final Map<CacheKey, Entry> segment) {
+		entry.segment = segment;
+		segment.put(entry.key, entry);
+		this.data.put(entry.key, entry);
+		this.weight += entry.weight;
+	}
+
+	/**
+	 * Removes an entry from its segment and from the path index.
+	 * 
+	 * @param entry
+	 *            the entry
+	 */
+	private void remove(final Entry entry) {
+		entry.segment.remove(entry.key);
+		entry.segment = null;
+		this.data.remove(entry.key, entry);
+		this.weight -= entry.weight;
+		final Set<CacheKey> keys = this.paths.get(entry.key.getPath());
+		if (keys != null) {
+			keys.remove(entry.key);
+			if (keys.isEmpty()) {
+				this.paths.remove(entry.key.getPath());
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries of the keys of a path, the keys have already been
+	 * removed from the path index.
+	 * 
+	 * @param keys
+	 *            the keys or null
+	 */
+	private void invalidateKeys(final Set<CacheKey> keys) {
+		if (keys == null) {
+			return;
+		}
+		for (final CacheKey key : keys.toArray(new CacheKey[keys.size()])) {
+			final Entry entry = this.data.get(key);
+			if (entry != null) {
+				this.remove(entry);
+			}
+		}
+	}
+
+	/**
+	 * Gets the least recently used entry of a segment.
+	 * 
+	 * @param segment
+	 *            the segment, must not be empty
+	 * @return the eldest entry
+	 */
+	private static Entry eldest(final Map<CacheKey, Entry> segment) {
+		return segment.values().iterator().next();
+	}
+
+	/**
+	 * A cached value.
+	 */
+	private static final class Entry {
+
+		/**
+		 * The key.
+		 */
+		private final CacheKey key;
+
+		/**
+		 * The value, {@link SharedPropertyCache#NULL} for null.
+		 */
+		private final Object value;
+
+		/**
+		 * The estimated weight of the entry.
+		 */
+		private final int weight;
+
+		/**
+		 * The time the entry was created.
+		 */
+		private final long created;
+
+		/**
+		 * The segment the entry is in, null once the entry is removed.
+		 */
+		private Map<CacheKey, Entry> segment;
+
+		/**
+		 * Constructs a new entry.
+		 * 
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the value
+		 * @param weight
+		 *            the estimated weight
+		 * @param created
+		 *            the creation time
+		 */
+		private Entry(final CacheKey key, final Object value,
+				final int weight, final long created) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.created = created;
+		}
+	}
+}
@@ -0,0 +1,646 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.commons.proxy.generated.GeneratedSlingProxy;
+import org.apache.sling.commons.proxy.impl.to.InvocationKind;
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+
+/**
+ * Generates the bytecode of a proxy class for a proxy interface. The
+ * generated class extends {@link GeneratedSlingProxy} and implements every
+ * method of the interface by passing the slot of the method in the
+ * {@link ProxyMetadata} straight to the invocation handler, so no method
+ * lookup is required when the method is invoked. The property and reference
+ * getters call the entry point of their kind, so they neither box arguments
+ * nor go through the dispatch on the kind of the invoked method.
+ * 
+ * The classes are generated in the class file format of the bundle itself.
+ * The generated methods contain no branches, so they need no stack map
+ * frames and are written directly rather than through a bytecode library.
+ */
+public final class ProxyClassGenerator {
+
+	/**
+	 * The class file format version, Java 8.
+	 */
+	private static final int CLASS_VERSION = 52;
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private static final int ACONST_NULL = 0x01;
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int ILOAD = 0x15;
+	private static final int LLOAD = 0x16;
+	private static final int FLOAD = 0x17;
+	private static final int DLOAD = 0x18;
+	private static final int ALOAD = 0x19;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int AASTORE = 0x53;
+	private static final int POP = 0x57;
+	private static final int DUP = 0x59;
+	private static final int IRETURN = 0xac;
+	private static final int LRETURN = 0xad;
+	private static final int FRETURN = 0xae;
+	private static final int DRETURN = 0xaf;
+	private static final int ARETURN = 0xb0;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int ANEWARRAY = 0xbd;
+	private static final int CHECKCAST = 0xc0;
+
+	/**
+	 * The internal name of the super class of the generated classes.
+	 */
+	private static final String SUPER_CLASS = internalName(GeneratedSlingProxy.class);
+
+	/**
+	 * The descriptor of the constructor of the generated classes.
+	 */
+	private static final String CONSTRUCTOR_DESCRIPTOR = "("
+			+ descriptor(InvocationHandler.class) + ")V";
+
+	/**
+	 * The constant pool entries, the key is the tag and value of the entry.
+	 */
+	private final Map<String, Integer> constants = new java.util.HashMap<String, Integer>();
+
+	/**
+	 * The constant pool.
+	 */
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+
+	/**
+	 * The output stream for the constant pool.
+	 */
+	private final DataOutputStream pool = new DataOutputStream(this.poolBytes);
+
+	/**
+	 * The number of the next constant pool entry.
+	 */
+	private int poolCount = 1;
+
+	/**
+	 * Creates a new generator, generators are only used for generating a
+	 * single class.
+	 */
+	private ProxyClassGenerator() {
+	}
+
+	/**
+	 * Generates a proxy class for the proxy interface described by the
+	 * specified metadata.
+	 * 
+	 * @param className
+	 *            the binary name of the class to generate
+	 * @param metadata
+	 *            the metadata of the proxy interface
+	 * @return the class file bytes
+	 * @throws IllegalArgumentException
+	 *             if a proxy class cannot be generated for the interface
+	 */
+	public static byte[] generate(final String className,
+			final ProxyMetadata metadata) throws IllegalArgumentException {
+		try {
+			return new ProxyClassGenerator().generateClass(
+					className.replace('.', '/'), metadata);
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Generates the class file.
+	 * 
+	 * @param className
+	 *            the internal name of the class to generate
+	 * @param metadata
+	 *            the metadata of the proxy interface
+	 * @return the class file bytes
+	 * @throws IOException
+	 */
+	private byte[] generateClass(final String className,
+			final ProxyMetadata metadata) throws IOException {
+		final int thisClass = this.classConstant(className);
+		final int superClass = this.classConstant(SUPER_CLASS);
+		final int iface = this.classConstant(internalName(metadata.getType()));
+		final int code = this.utf8Constant("Code");
+
+		final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+		final DataOutputStream methods = new DataOutputStream(methodBytes);
+		int methodCount = 1;
+		this.writeConstructor(methods, code);
+
+		final Set<String> signatures = new java.util.HashSet<String>();
+		for (final Method m : GeneratedSlingProxy.class.getMethods()) {
+			signatures.add(m.getName() + methodDescriptor(m));
+		}
+		for (final Method m : GeneratedSlingProxy.class.getDeclaredMethods()) {
+			signatures.add(m.getName() + methodDescriptor(m));
+		}
+		for (int slot = 0; slot < metadata.getSlotCount(); slot++) {
+			final Method m = metadata.getSlotMethod(slot);
+			if (Modifier.isStatic(m.getModifiers())
+					|| !signatures.add(m.getName() + methodDescriptor(m))) {
+				continue;
+			}
+			this.writeMethod(methods, code, m, slot, metadata
+					.getInvokedTO(slot).getKind());
+			methodCount++;
+		}
+
+		final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(classBytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(CLASS_VERSION);
+		out.writeShort(this.poolCount);
+		this.pool.flush();
+		this.poolBytes.writeTo(out);
+		out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(1);
+		out.writeShort(iface);
+		out.writeShort(0);
+		out.writeShort(methodCount);
+		methods.flush();
+		methodBytes.writeTo(out);
+		out.writeShort(0);
+		out.flush();
+		return classBytes.toByteArray();
+	}
+
+	/**
+	 * Writes the constructor, which passes the invocation handler to the super
+	 * class constructor.
+	 * 
+	 * @param out
+	 *            the output stream for the methods
+	 * @param code
+	 *            the constant of the Code attribute name
+	 * @throws IOException
+	 */
+	private void writeConstructor(final DataOutputStream out, final int code)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream body = new DataOutputStream(bytes);
+		body.writeByte(ALOAD_0);
+		body.writeByte(ALOAD_1);
+		body.writeByte(INVOKESPECIAL);
+		body.writeShort(this.methodConstant(SUPER_CLASS, "<init>",
+				CONSTRUCTOR_DESCRIPTOR));
+		body.writeByte(RETURN);
+		body.flush();
+
+		out.writeShort(ACC_PUBLIC);
+		out.writeShort(this.utf8Constant("<init>"));
+		out.writeShort(this.utf8Constant(CONSTRUCTOR_DESCRIPTOR));
+		this.writeCode(out, code, 2, 2, bytes.toByteArray());
+	}
+
+	/**
+	 * Writes an implementation of an interface method, which invokes the slot
+	 * and unboxes the result. Property and reference getters call the entry
+	 * point of their kind, all other methods box their arguments.
+	 * 
+	 * @param out
+	 *            the output stream for the methods
+	 * @param code
+	 *            the constant of the Code attribute name
+	 * @param m
+	 *            the interface method
+	 * @param slot
+	 *            the slot of the interface method
+	 * @param kind
+	 *            the kind of the interface method
+	 * @throws IOException
+	 */
+	private void writeMethod(final DataOutputStream out, final int code,
+			final Method m, final int slot, final InvocationKind kind)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream body = new DataOutputStream(bytes);
+		body.writeByte(ALOAD_0);
+		this.writePush(body, slot);
+
+		final Class<?>[] params = m.getParameterTypes();
+		int local = 1;
+		if ((params.length == 0) && (kind == InvocationKind.Property)) {
+			body.writeByte(INVOKEVIRTUAL);
+			body.writeShort(this.methodConstant(SUPER_CLASS, "invokeProperty",
+					"(I)Ljava/lang/Object;"));
+		} else if ((params.length == 0) && (kind == InvocationKind.Reference)) {
+			body.writeByte(INVOKEVIRTUAL);
+			body.writeShort(this.methodConstant(SUPER_CLASS,
+					"invokeReference", "(I)Ljava/lang/Object;"));
+		} else {
+			local = this.writeArguments(body, params);
+			body.writeByte(INVOKEVIRTUAL);
+			body.writeShort(this.methodConstant(SUPER_CLASS, "invokeSlot",
+					"(I[Ljava/lang/Object;)Ljava/lang/Object;"));
+		}
+		this.writeReturn(body, m.getReturnType());
+		body.flush();
+
+		out.writeShort(ACC_PUBLIC | ACC_FINAL);
+		out.writeShort(this.utf8Constant(m.getName()));
+		out.writeShort(this.utf8Constant(methodDescriptor(m)));
+		this.writeCode(out, code, 8, local, bytes.toByteArray());
+	}
+
+	/**
+	 * Writes the instructions boxing the method arguments into an array, or
+	 * pushing null if the method has no arguments.
+	 * 
+	 * @param body
+	 *            the method body
+	 * @param params
+	 *            the parameter types of the method
+	 * @return the number of local variable slots of the method
+	 * @throws IOException
+	 */
+	private int writeArguments(final DataOutputStream body,
+			final Class<?>[] params) throws IOException {
+		int local = 1;
+		if (params.length == 0) {
+			body.writeByte(ACONST_NULL);
+			return local;
+		}
+		this.writePush(body, params.length);
+		body.writeByte(ANEWARRAY);
+		body.writeShort(this.classConstant("java/lang/Object"));
+		for (int i = 0; i < params.length; i++) {
+			body.writeByte(DUP);
+			this.writePush(body, i);
+			local += this.writeLoad(body, params[i], local);
+			if (params[i].isPrimitive()) {
+				final String wrapper = internalName(wrapper(params[i]));
+				body.writeByte(INVOKESTATIC);
+				body.writeShort(this.methodConstant(wrapper, "valueOf", "("
+						+ descriptor(params[i]) + ")L" + wrapper + ";"));
+			}
+			body.writeByte(AASTORE);
+		}
+		return local;
+	}
+
+	/**
+	 * Writes the Code attribute of a method.
+	 * 
+	 * @param out
+	 *            the output stream for the methods
+	 * @param code
+	 *            the constant of the Code attribute name
+	 * @param maxStack
+	 *            the maximum depth of the operand stack
+	 * @param maxLocals
+	 *            the number of local variables
+	 * @param bytecode
+	 *            the instructions
+	 * @throws IOException
+	 */
+	private void writeCode(final DataOutputStream out, final int code,
+			final int maxStack, final int maxLocals, final byte[] bytecode)
+			throws IOException {
+		out.writeShort(1);
+		out.writeShort(code);
+		out.writeInt(12 + bytecode.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(bytecode.length);
+		out.write(bytecode);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	/**
+	 * Writes the instruction pushing an int constant onto the stack.
+	 * 
+	 * @param body
+	 *            the method body
+	 * @param value
+	 *            the constant
+	 * @throws IOException
+	 */
+	private void writePush(final DataOutputStream body, final int value)
+			throws IOException {
+		if (value <= 5) {
+			body.writeByte(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			body.writeByte(BIPUSH);
+			body.writeByte(value);
+		} else if (value <= Short.MAX_VALUE) {
+			body.writeByte(SIPUSH);
+			body.writeShort(value);
+		} else {
+			throw new IllegalArgumentException("Too many methods: " + value);
+		}
+	}
+
+	/**
+	 * Writes the instruction loading a method argument onto the stack.
+	 * 
+	 * @param body
+	 *            the method body
+	 * @param type
+	 *            the type of the argument
+	 * @param local
+	 *            the local variable index of the argument
+	 * @return the number of local variable slots the argument takes
+	 * @throws IOException
+	 */
+	private int writeLoad(final DataOutputStream body, final Class<?> type,
+			final int local) throws IOException {
+		if (local > 0xff) {
+			throw new IllegalArgumentException("Too many method arguments");
+		}
+		int size = 1;
+		if ((type == Long.TYPE) || (type == Double.TYPE)) {
+			body.writeByte(type == Long.TYPE ? LLOAD : DLOAD);
+			size = 2;
+		} else if (type == Float.TYPE) {
+			body.writeByte(FLOAD);
+		} else if (type.isPrimitive()) {
+			body.writeByte(ILOAD);
+		} else {
+			body.writeByte(ALOAD);
+		}
+		body.writeByte(local);
+		return size;
+	}
+
+	/**
+	 * Writes the instructions casting or unboxing the result of the invocation
+	 * and returning it.
+	 * 
+	 * @param body
+	 *            the method body
+	 * @param type
+	 *            the return type of the method
+	 * @throws IOException
+	 */
+	private void writeReturn(final DataOutputStream body, final Class<?> type)
+			throws IOException {
+		if (type == Void.TYPE) {
+			body.writeByte(POP);
+			body.writeByte(RETURN);
+		} else if (type.isPrimitive()) {
+			final String wrapper = internalName(wrapper(type));
+			body.writeByte(CHECKCAST);
+			body.writeShort(this.classConstant(wrapper));
+			body.writeByte(INVOKEVIRTUAL);
+			body.writeShort(this.methodConstant(wrapper, type.getName()
+					+ "Value", "()" + descriptor(type)));
+			if ((type == Long.TYPE)) {
+				body.writeByte(LRETURN);
+			} else if (type == Double.TYPE) {
+				body.writeByte(DRETURN);
+			} else if (type == Float.TYPE) {
+				body.writeByte(FRETURN);
+			} else {
+				body.writeByte(IRETURN);
+			}
+		} else {
+			if (type != Object.class) {
+				body.writeByte(CHECKCAST);
+				body.writeShort(this.classConstant(internalName(type)));
+			}
+			body.writeByte(ARETURN);
+		}
+	}
+
+	/**
+	 * Gets the constant pool index of a UTF8 constant, adding it if required.
+	 * 
+	 * @param value
+	 *            the string value
+	 * @return the constant pool index
+	 * @throws IOException
+	 */
+	private int utf8Constant(final String value) throws IOException {
+		final String key = CONSTANT_UTF8 + ":" + value;
+		Integer index = this.constants.get(key);
+		if (index == null) {
+			this.pool.writeByte(CONSTANT_UTF8);
+			this.pool.writeUTF(value);
+			index = this.addConstant(key);
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the constant pool index of a Class constant, adding it if required.
+	 * 
+	 * @param internalName
+	 *            the internal name of the class
+	 * @return the constant pool index
+	 * @throws IOException
+	 */
+	private int classConstant(final String internalName) throws IOException {
+		final String key = CONSTANT_CLASS + ":" + internalName;
+		Integer index = this.constants.get(key);
+		if (index == null) {
+			final int name = this.utf8Constant(internalName);
+			this.pool.writeByte(CONSTANT_CLASS);
+			this.pool.writeShort(name);
+			index = this.addConstant(key);
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the constant pool index of a Methodref constant, adding it if
+	 * required.
+	 * 
+	 * @param owner
+	 *            the internal name of the class declaring the method
+	 * @param name
+	 *            the method name
+	 * @param descriptor
+	 *            the method descriptor
+	 * @return the constant pool index
+	 * @throws IOException
+	 */
+	private int methodConstant(final String owner, final String name,
+			final String descriptor) throws IOException {
+		final String key = CONSTANT_METHODREF + ":" + owner + "." + name
+				+ descriptor;
+		Integer index = this.constants.get(key);
+		if (index == null) {
+			final int clazz = this.classConstant(owner);
+			final int nameAndType = this.nameAndTypeConstant(name, descriptor);
+			this.pool.writeByte(CONSTANT_METHODREF);
+			this.pool.writeShort(clazz);
+			this.pool.writeShort(nameAndType);
+			index = this.addConstant(key);
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the constant pool index of a NameAndType constant, adding it if
+	 * required.
+	 * 
+	 * @param name
+	 *            the member name
+	 * @param descriptor
+	 *            the member descriptor
+	 * @return the constant pool index
+	 * @throws IOException
+	 */
+	private int nameAndTypeConstant(final String name, final String descriptor)
+			throws IOException {
+		final String key = CONSTANT_NAME_AND_TYPE + ":" + name + descriptor;
+		Integer index = this.constants.get(key);
+		if (index == null) {
+			final int n = this.utf8Constant(name);
+			final int d = this.utf8Constant(descriptor);
+			this.pool.writeByte(CONSTANT_NAME_AND_TYPE);
+			this.pool.writeShort(n);
+			this.pool.writeShort(d);
+			index = this.addConstant(key);
+		}
+		return index;
+	}
+
+	/**
+	 * Records the constant pool entry which was just written.
+	 * 
+	 * @param key
+	 *            the key of the entry
+	 * @return the constant pool index of the entry
+	 */
+	private Integer addConstant(final String key) {
+		if (this.poolCount >= 0xffff) {
+			throw new IllegalArgumentException("Constant pool is too large");
+		}
+		final Integer index = this.poolCount++;
+		this.constants.put(key, index);
+		return index;
+	}
+
+	/**
+	 * Gets the internal name of a class, for arrays this is the descriptor.
+	 * 
+	 * @param c
+	 *            the class
+	 * @return the internal name
+	 */
+	private static String internalName(final Class<?> c) {
+		return c.getName().replace('.', '/');
+	}
+
+	/**
+	 * Gets the descriptor of a method.
+	 * 
+	 * @param m
+	 *            the method
+	 * @return the method descriptor
+	 */
+	private static String methodDescriptor(final Method m) {
+		final StringBuilder sb = new StringBuilder("(");
+		for (final Class<?> param : m.getParameterTypes()) {
+			sb.append(descriptor(param));
+		}
+		return sb.append(')').append(descriptor(m.getReturnType()))
+				.toString();
+	}
+
+	/**
+	 * Gets the field descriptor of a type.
+	 * 
+	 * @param c
+	 *            the type
+	 * @return the descriptor
+	 */
+	private static String descriptor(final Class<?> c) {
+		if (c.isArray()) {
+			return internalName(c);
+		} else if (!c.isPrimitive()) {
+			return "L" + internalName(c) + ";";
+		} else if (c == Void.TYPE) {
+			return "V";
+		} else if (c == Boolean.TYPE) {
+			return "Z";
+		} else if (c == Byte.TYPE) {
+			return "B";
+		} else if (c == Character.TYPE) {
+			return "C";
+		} else if (c == Short.TYPE) {
+			return "S";
+		} else if (c == Integer.TYPE) {
+			return "I";
+		} else if (c == Long.TYPE) {
+			return "J";
+		} else if (c == Float.TYPE) {
+			return "F";
+		} else {
+			return "D";
+		}
+	}
+
+	/**
+	 * Gets the wrapper class of a primitive type.
+	 * 
+	 * @param c
+	 *            the primitive type
+	 * @return the wrapper class
+	 */
+	private static Class<?> wrapper(final Class<?> c) {
+		if (c == Boolean.TYPE) {
+			return Boolean.class;
+		} else if (c == Byte.TYPE) {
+			return Byte.class;
+		} else if (c == Character.TYPE) {
+			return Character.class;
+		} else if (c == Short.TYPE) {
+			return Short.class;
+		} else if (c == Integer.TYPE) {
+			return Integer.class;
+		} else if (c == Long.TYPE) {
+			return Long.class;
+		} else if (c == Float.TYPE) {
+			return Float.class;
+		} else {
+			return Double.class;
+		}
+	}
+}
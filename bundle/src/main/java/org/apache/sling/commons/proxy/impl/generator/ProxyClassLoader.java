@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.generator;
+
+import org.apache.sling.commons.proxy.generated.GeneratedSlingProxy;
+
+/**
+ * Class loader for generated proxy classes. The generated classes need to see
+ * both the classes visible to the proxy interface and the implementation
+ * classes of this bundle, which are not exported, so this loader delegates
+ * the implementation classes to the bundle and everything else to the class
+ * loader of the proxy interface.
+ */
+public final class ProxyClassLoader extends ClassLoader {
+
+	/**
+	 * The package prefix of the implementation classes of this bundle.
+	 */
+	private static final String IMPL_PACKAGE = "org.apache.sling.commons.proxy.impl.";
+
+	/**
+	 * The package of the super class of the generated classes.
+	 */
+	private static final String GENERATED_PACKAGE = "org.apache.sling.commons.proxy.generated.";
+
+	/**
+	 * Constructs a new proxy class loader.
+	 * 
+	 * @param parent
+	 *            the class loader of the proxy interface
+	 */
+	public ProxyClassLoader(final ClassLoader parent) {
+		super(parent);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.ClassLoader#loadClass(java.lang.String, boolean)
+	 */
+	@Override
+	protected synchronized Class<?> loadClass(final String name,
+			final boolean resolve) throws ClassNotFoundException {
+		if (name.startsWith(IMPL_PACKAGE)
+				|| name.startsWith(GENERATED_PACKAGE)) {
+			return GeneratedSlingProxy.class.getClassLoader().loadClass(name);
+		}
+		return super.loadClass(name, resolve);
+	}
+
+	/**
+	 * Defines a generated proxy class.
+	 * 
+	 * @param name
+	 *            the binary name of the class
+	 * @param b
+	 *            the class file bytes
+	 * @return the defined class
+	 */
+	public Class<?> defineProxyClass(final String name, final byte[] b) {
+		return this.defineClass(name, b, 0, b.length);
+	}
+}
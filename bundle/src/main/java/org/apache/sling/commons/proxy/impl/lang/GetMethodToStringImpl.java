@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.lang;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.sling.commons.proxy.impl.reflection.Methods;
+import org.apache.sling.commons.proxy.impl.to.InvokedPropertyTO;
+
+/**
+ * Generates a String representation based on the return values for all of the
+ * 'get' methods on the provided Object.
+ * 
+ * Sling Proxies are rendered from the property values collected by their
+ * invocation handlers instead, see
+ * {@link #toString(Object, Class, String, InvokedPropertyTO[], Object[])}.
+ * Their representation is bounded, so that logging a proxy stays cheap
+ * whatever the size of its properties.
+ */
+public final class GetMethodToStringImpl {
+
+	/**
+	 * The maximum length of the string representation of a Sling Proxy.
+	 */
+	static final int MAX_LENGTH = 1024;
+
+	/**
+	 * The maximum length of a single rendered value.
+	 */
+	static final int MAX_VALUE_LENGTH = 128;
+
+	/**
+	 * The maximum number of rendered elements of arrays and collections.
+	 */
+	static final int MAX_ELEMENTS = 8;
+
+	/**
+	 * The maximum depth of nested arrays and collections which are rendered.
+	 */
+	static final int MAX_DEPTH = 2;
+
+	private final JDPToStringImpl tostring = new JDPToStringImpl();
+
+	/**
+	 * Adding the interface information to the string representation.
+	 * 
+	 * @param obj
+	 *            the object from which to cull the interfaces
+	 * @param sb
+	 *            the string builder to hold the string representation
+	 */
+	private void addInterfaceInfo(final Object obj, final StringBuilder sb) {
+		final Class<?>[] cla = obj.getClass().getInterfaces();
+		sb.append(obj.getClass().getName());
+		sb.append(", Proxy Of: [");
+
+		final int max = (cla != null ? cla.length : -1);
+		for (int ndx = 0; ndx < max; ndx++) {
+			sb.append(cla[ndx].getName());
+			if ((ndx + 1) < max) {
+				sb.append(" , ");
+			}
+		}
+
+		sb.append("]");
+	}
+
+	/**
+	 * Adds the get method return values.
+	 * 
+	 * @param obj
+	 *            the object upon which to invoke the getters
+	 * @param list
+	 *            the list of methods
+	 * @param sb
+	 *            the string builder to hold the string results
+	 */
+	private void addMethodReturnValues(final Object obj,
+			final List<Method> list, final StringBuilder sb) {
+		sb.append(", Values: {");
+
+		if ((list != null) && (list.size() > 0)) {
+			for (int i = 0; i < list.size(); i++) {
+				final Method m = list.get(i);
+				sb.append(m.getName()).append(": ");
+				try {
+					final Object rtnObj = m.invoke(obj, (Object[]) null);
+					sb.append(this.tostring.toString(rtnObj));
+					if (i < (list.size() - 1)) {
+						sb.append(", ");
+					}
+				} catch (final Exception ex) {
+					sb.append("caused ").append(ex.getClass().getName())
+							.append(" - Message = ").append(ex.getMessage());
+				}
+			}
+
+		}
+
+		sb.append("}");
+	}
+
+	/**
+	 * Generates a bounded String representation of a Sling Proxy from the
+	 * values of its properties. Values which are Throwables are rendered as
+	 * the failure to read the property.
+	 * 
+	 * @param proxy
+	 *            the proxy
+	 * @param type
+	 *            the proxy interface
+	 * @param path
+	 *            the path of the resource of the proxy
+	 * @param properties
+	 *            the transfer objects of the rendered property methods
+	 * @param values
+	 *            the values of the properties, by the index of their transfer
+	 *            object
+	 * @return the string representation
+	 */
+	public String toString(final Object proxy, final Class<?> type,
+			final String path, final InvokedPropertyTO[] properties,
+			final Object[] values) {
+		final StringBuilder sb = new StringBuilder(256);
+		sb.append(proxy.getClass().getName());
+		sb.append(", Proxy Of: [").append(type.getName());
+		sb.append("], Path: ").append(path);
+		sb.append(", Values: {");
+		for (int i = 0; i < properties.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(properties[i].getMethod().getName()).append(": ");
+			final int start = sb.length();
+			this.appendValue(values[i], sb, 0);
+			if (sb.length() - start > MAX_VALUE_LENGTH) {
+				sb.setLength(start + MAX_VALUE_LENGTH);
+				sb.append("...");
+			}
+			if (sb.length() > MAX_LENGTH) {
+				sb.setLength(MAX_LENGTH);
+				return sb.append("...").toString();
+			}
+		}
+		return sb.append("}").toString();
+	}
+
+	/**
+	 * Appends a property value, rendering at most {@link #MAX_ELEMENTS}
+	 * elements of arrays and collections nested at most {@link #MAX_DEPTH}
+	 * deep.
+	 * 
+	 * @param value
+	 *            the value
+	 * @param sb
+	 *            the string builder to hold the string representation
+	 * @param depth
+	 *            the depth of the value in arrays and collections
+	 */
+	private void appendValue(final Object value, final StringBuilder sb,
+			final int depth) {
+		if (value == null) {
+			sb.append("null");
+		} else if (value instanceof Throwable) {
+			final Throwable t = (Throwable) value;
+			sb.append("caused ").append(t.getClass().getName())
+					.append(" - Message = ").append(t.getMessage());
+		} else if (value instanceof Calendar) {
+			sb.append(((Calendar) value).getTime());
+		} else if (value.getClass().isArray()) {
+			final int length = Array.getLength(value);
+			if (depth >= MAX_DEPTH) {
+				sb.append("[ ").append(length).append(" elements ]");
+				return;
+			}
+			sb.append("[ ");
+			for (int ndx = 0; ndx < length; ndx++) {
+				if (ndx > 0) {
+					sb.append(" , ");
+				}
+				if (ndx == MAX_ELEMENTS) {
+					sb.append("...");
+					break;
+				}
+				this.appendValue(Array.get(value, ndx), sb, depth + 1);
+			}
+			sb.append(" ]");
+		} else if (value instanceof Collection<?>) {
+			final Collection<?> c = (Collection<?>) value;
+			if (depth >= MAX_DEPTH) {
+				sb.append("[ ").append(c.size()).append(" elements ]");
+				return;
+			}
+			sb.append("[ ");
+			int ndx = 0;
+			for (final Object e : c) {
+				if (ndx > 0) {
+					sb.append(" , ");
+				}
+				if (ndx++ == MAX_ELEMENTS) {
+					sb.append("...");
+					break;
+				}
+				this.appendValue(e, sb, depth + 1);
+			}
+			sb.append(" ]");
+		} else if (value instanceof CharSequence) {
+			final CharSequence cs = (CharSequence) value;
+			sb.append(cs, 0, Math.min(cs.length(), MAX_VALUE_LENGTH + 1));
+		} else {
+			sb.append(value);
+		}
+	}
+
+	/**
+	 * Generates a String representation of an object.
+	 * 
+	 * @param obj
+	 *            the object to generate a string of
+	 * @return the string representation
+	 */
+	public String toString(final Object obj) {
+		final StringBuilder sb = new StringBuilder();
+
+		if (obj != null) {
+			this.addInterfaceInfo(obj, sb);
+			this.addMethodReturnValues(obj, Methods.getterMethods(obj), sb);
+		} else {
+			sb.append("null");
+		}
+
+		return sb.toString();
+	}
+}
@@ -18,13 +18,21 @@
  */
 package org.apache.sling.commons.proxy.impl.lang;
 
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 
 import org.apache.sling.commons.proxy.impl.SlingInvocationHandler;
-import org.apache.sling.commons.proxy.impl.reflection.Classes;
+import org.apache.sling.commons.proxy.generated.GeneratedSlingProxy;
 
 /**
  * Allows for testing the equality of the Sling Proxy instance.
+ * 
+ * Two Sling Proxies are equal when they implement the same set of interfaces
+ * and are backed by the same resource path. As the proxies of a
+ * {@link SlingInvocationHandler} only implement the proxy interface, the
+ * comparison checks the cheapest discriminators first: the class of the
+ * invocation handlers, their cached hash codes, the proxy interfaces and
+ * finally the paths, without reflecting on the interfaces of the proxies.
  */
 public class JDPEqualsImpl {
 
@@ -44,22 +52,21 @@ public class JDPEqualsImpl {
 		if (o1 == null || o2 == null) {
 			return false;
 		}
-		if (!areProxies(o1, o2)) {
+		InvocationHandler ih1 = getInvocationHandler(o1);
+		InvocationHandler ih2 = getInvocationHandler(o2);
+		if (ih1 == null || ih2 == null || ih1.getClass() != ih2.getClass()
+				|| !(ih1 instanceof SlingInvocationHandler)) {
 			return false;
 		}
-
-		try {
-			SlingInvocationHandler rih1 = (SlingInvocationHandler) Proxy
-					.getInvocationHandler(o1);
-			SlingInvocationHandler rih2 = (SlingInvocationHandler) Proxy
-					.getInvocationHandler(o2);
-			if (Classes.haveSameInterfaces(o1, o2)) {
-				return stringEquals(rih1.getResourcePath(),
-						rih2.getResourcePath());
-			}
-		} catch (ClassCastException ex) {
+		SlingInvocationHandler rih1 = (SlingInvocationHandler) ih1;
+		SlingInvocationHandler rih2 = (SlingInvocationHandler) ih2;
+		if (rih1.getProxyHashCode() != rih2.getProxyHashCode()) {
+			return false;
 		}
-		return false;
+		if (rih1.getProxyInterface() != rih2.getProxyInterface()) {
+			return false;
+		}
+		return stringEquals(rih1.getResourcePath(), rih2.getResourcePath());
 	}
 
 	/**
@@ -83,16 +90,20 @@ public class JDPEqualsImpl {
 	}
 
 	/**
-	 * Checks to see if the two objects are both JDP proxies.
+	 * Gets the invocation handler of a JDP or generated proxy.
 	 * 
-	 * @param o1
-	 *            the first object
-	 * @param o2
-	 *            the second object
-	 * @return whether or not the objects are proxies
+	 * @param o
+	 *            the object
+	 * @return the invocation handler or null if the object is not a proxy
 	 */
-	private static boolean areProxies(Object o1, Object o2) {
-		return Proxy.isProxyClass(o1.getClass())
-				&& Proxy.isProxyClass(o2.getClass());
+	private static InvocationHandler getInvocationHandler(Object o) {
+		if (o instanceof GeneratedSlingProxy) {
+			return GeneratedSlingProxy
+					.getInvocationHandler((GeneratedSlingProxy) o);
+		}
+		if (Proxy.isProxyClass(o.getClass())) {
+			return Proxy.getInvocationHandler(o);
+		}
+		return null;
 	}
 }
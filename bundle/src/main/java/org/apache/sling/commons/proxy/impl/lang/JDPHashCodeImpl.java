@@ -27,6 +27,8 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.sling.commons.proxy.generated.GeneratedSlingProxy;
+import org.apache.sling.commons.proxy.impl.SlingInvocationHandler;
 import org.apache.sling.commons.proxy.impl.reflection.Classes;
 
 /**
@@ -37,9 +39,55 @@ import org.apache.sling.commons.proxy.impl.reflection.Classes;
  * 
  * Any exceptions thrown while accessing the Objects member values will result
  * in a IllegalStateException
+ * 
+ * The hash codes of Sling Proxies are computed once by their invocation
+ * handlers, see {@link #proxyHashCode(int, String)}.
  */
 public final class JDPHashCodeImpl {
 
+	/**
+	 * The prime multiplying the hash code of the interfaces and the path of
+	 * proxies.
+	 */
+	private static final int PROXY_PRIME = PrimeNumbers.getInstance().get(2);
+
+	/**
+	 * Computes the hash code of the set of interfaces of a proxy, independent
+	 * of the order of the interfaces, as proxies are equal when they
+	 * implement the same set of interfaces.
+	 * 
+	 * @param interfaces
+	 *            the interfaces of the proxy class
+	 * @return the hash code of the interfaces
+	 */
+	public static int interfacesHashCode(final Class<?>... interfaces) {
+		int hash = 0;
+		for (final Class<?> ifc : interfaces) {
+			hash += ifc.hashCode();
+		}
+		return hash;
+	}
+
+	/**
+	 * Computes the hash code of a Sling Proxy from the hash code of its set of
+	 * interfaces and the path of its resource, consistent with
+	 * {@link JDPEqualsImpl}, which considers proxies with the same interfaces
+	 * and path equal.
+	 * 
+	 * @param interfacesHashCode
+	 *            the hash code of the interfaces, see
+	 *            {@link #interfacesHashCode(Class...)}
+	 * @param path
+	 *            the path of the resource of the proxy
+	 * @return the hash code of the proxy
+	 */
+	public static int proxyHashCode(final int interfacesHashCode,
+			final String path) {
+		final int hash = Proxy.class.hashCode() * PROXY_PRIME
+				+ interfacesHashCode;
+		return hash * PROXY_PRIME + (path != null ? path.hashCode() : 0);
+	}
+
 	/**
 	 * Generates a hash code for the specified object.
 	 * 
@@ -49,15 +97,32 @@ public final class JDPHashCodeImpl {
 	 * @throws IllegalStateException
 	 */
 	public int hashCode(Object obj) throws IllegalStateException {
-		List<Integer> list = new java.util.ArrayList<Integer>();
-
 		Class<?> c = obj.getClass();
+		InvocationHandler sih = null;
+		if (Proxy.isProxyClass(c)) {
+			sih = Proxy.getInvocationHandler(obj);
+		} else if (GeneratedSlingProxy.isGeneratedProxyClass(c)) {
+			sih = GeneratedSlingProxy
+					.getInvocationHandler((GeneratedSlingProxy) obj);
+		}
+		if (sih instanceof SlingInvocationHandler) {
+			return ((SlingInvocationHandler) sih).getProxyHashCode();
+		}
+
+		List<Integer> list = new java.util.ArrayList<Integer>();
 
 		if (Proxy.isProxyClass(c)) {
 			list.add(Proxy.class.hashCode());
 			handleInterfaces(c, list);
 			InvocationHandler ih = Proxy.getInvocationHandler(obj);
 			list.add(ih.hashCode());
+		} else if (GeneratedSlingProxy.isGeneratedProxyClass(c)) {
+			// generated proxies hash the same as the equivalent JDP proxies
+			list.add(Proxy.class.hashCode());
+			handleInterfaces(c, list);
+			InvocationHandler ih = GeneratedSlingProxy
+					.getInvocationHandler((GeneratedSlingProxy) obj);
+			list.add(ih.hashCode());
 		} else {
 			list.add(c.hashCode());
 			handleInterfaces(c, list);
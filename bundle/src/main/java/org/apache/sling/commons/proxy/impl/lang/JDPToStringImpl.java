@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.lang;
+
+import java.lang.reflect.Array;
+import java.util.Calendar;
+import java.util.Date;
+
+
+/**
+ * Generates a String representation of an object.
+ * 
+ * Strings, numbers, dates and arrays are rendered directly. For other objects
+ * whether their class declares a toString method is looked up once per class.
+ */
+public final class JDPToStringImpl {
+
+	/**
+	 * Whether or not each class declares a toString method. The flags are
+	 * stored with the classes themselves, so they are read without locking and
+	 * released with the classes.
+	 */
+	private static final ClassValue<Boolean> DECLARES_TO_STRING = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> c) {
+			try {
+				c.getDeclaredMethod("toString", (Class[]) null);
+				return Boolean.TRUE;
+			} catch (SecurityException ex) {
+			} catch (NoSuchMethodException ex) {
+			}
+			return Boolean.FALSE;
+		}
+	};
+
+	/**
+	 * Generates a String representation of an object.
+	 * 
+	 * @param obj
+	 *            the object to generate a string of
+	 * @return the string representation
+	 */
+	public String toString(Object obj) {
+		StringBuilder sb = new StringBuilder(256);
+
+		append(obj, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the String representation of an object, rendering common types
+	 * without looking up their methods.
+	 * 
+	 * @param obj
+	 *            the object to generate a string of
+	 * @param sb
+	 *            the string builder to write to
+	 */
+	private void append(Object obj, StringBuilder sb) {
+		if (obj == null) {
+			sb.append("null");
+		} else if (obj instanceof String || obj instanceof Number
+				|| obj instanceof Boolean || obj instanceof Character
+				|| obj instanceof Date) {
+			sb.append(obj);
+		} else if (obj instanceof Calendar) {
+			sb.append(((Calendar) obj).getTime());
+		} else if (obj.getClass().isArray()) {
+			handleByType(obj, sb);
+		} else if (!supportsToString(obj, sb)) {
+			handleByType(obj, sb);
+		}
+	}
+
+	/**
+	 * Checks to see if the specified object contains a dedicated toString
+	 * method.
+	 * 
+	 * @param obj
+	 *            the object to check
+	 * @param sb
+	 *            container for the results
+	 * @return whether or not the object has a dedicated toString method
+	 */
+	private boolean supportsToString(Object obj, StringBuilder sb) {
+		if (!declaresToString(obj.getClass())) {
+			return false;
+		}
+		// the declared method is the most specific override, so it is
+		// called without reflection
+		try {
+			sb.append(obj.toString());
+		} catch (Exception ex) {
+			sb.append("caused - ").append(ex.getClass().getName())
+					.append(" - Message = ").append(ex.getMessage());
+		}
+		return true;
+	}
+
+	/**
+	 * Checks to see if the specified class declares a toString method,
+	 * looking it up once per class.
+	 * 
+	 * @param c
+	 *            the class to check
+	 * @return whether or not the class declares a toString method
+	 */
+	private static boolean declaresToString(Class<?> c) {
+		Boolean declares = DECLARES_TO_STRING.get(c);
+		return declares.booleanValue();
+	}
+
+	/**
+	 * Generates a toString based on the objects classes and methods.
+	 * 
+	 * @param obj
+	 *            the object to generate the string for
+	 * @param sb
+	 *            the string builder to write to
+	 */
+	private void handleByType(Object obj, StringBuilder sb) {
+		if (obj.getClass().isArray()) {
+			sb.append("[ ");
+			for (int ndx = 0, max = Array.getLength(obj); ndx < max; ndx++) {
+				append(Array.get(obj, ndx), sb);
+				if (ndx + 1 < max) {
+					sb.append(" , ");
+				}
+			}
+			sb.append(" ]");
+		} else {
+			sb.append(obj);
+		}
+	}
+}
@@ -28,9 +28,9 @@ import java.util.regex.Pattern;
 public enum MethodType {
 
 	ToString("^(toString)$"), HashCode("^(hashCode)$"), Equals("^(equals)$"), BackingResource(
-			"^(getBackingResource)$"), JavaBeanGet("^get([A-Z])(\\w+)$"), JavaBeanIs(
-			"^is([A-Z])(\\w+)$"), JavaBeanSet("^is([A-Z])(\\w+)$"), Unknown(
-			"^$");
+			"^(getBackingResource)$"), Commit("^(commit)$"), JavaBeanGet(
+			"^get([A-Z])(\\w+)$"), JavaBeanIs("^is([A-Z])(\\w+)$"), JavaBeanSet(
+			"^set([A-Z])(\\w+)$"), Unknown("^$");
 
 	private final String regex;
 
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.reflection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A cache of values calculated per Class, which may be read without locking.
+ * 
+ * The values are strongly referenced, so they are not discarded under memory
+ * pressure. As values such as Methods commonly reference the Class they are
+ * stored for, the Classes are strongly referenced as well: the owner of the
+ * cache must clear it when the bundles providing the Classes are unresolved,
+ * so that their ClassLoaders may be garbage collected.
+ * 
+ * @param <V>
+ *            the type of value stored for each Class
+ */
+public final class ClassCache<V> {
+
+	/**
+	 * The cached values by class.
+	 */
+	private final ConcurrentMap<Class<?>, V> cache = new ConcurrentHashMap<Class<?>, V>();
+
+	/**
+	 * Gets the value cached for the specified class.
+	 * 
+	 * @param clazz
+	 *            the class
+	 * @return the cached value or null if no value is cached
+	 */
+	public V get(final Class<?> clazz) {
+		return this.cache.get(clazz);
+	}
+
+	/**
+	 * Caches the value for the specified class.
+	 * 
+	 * @param clazz
+	 *            the class
+	 * @param value
+	 *            the value to cache
+	 */
+	public void put(final Class<?> clazz, final V value) {
+		this.cache.put(clazz, value);
+	}
+
+	/**
+	 * Gets the value cached for the specified class, calculating and caching
+	 * it if no value is cached. The value is calculated at most once per
+	 * class, concurrent calls for the same class wait for the calculation.
+	 * 
+	 * @param clazz
+	 *            the class
+	 * @param function
+	 *            the function calculating the value, which must not use this
+	 *            cache
+	 * @return the cached value
+	 */
+	public V computeIfAbsent(final Class<?> clazz,
+			final Function<Class<?>, V> function) {
+		final V value = this.cache.get(clazz);
+		return (value != null ? value : this.cache.computeIfAbsent(clazz,
+				function));
+	}
+
+	/**
+	 * Removes all of the cached values.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+}
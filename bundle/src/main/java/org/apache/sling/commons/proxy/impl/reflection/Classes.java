@@ -21,7 +21,6 @@ package org.apache.sling.commons.proxy.impl.reflection;
 import java.lang.reflect.Field;
 import java.lang.reflect.Proxy;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Methods for simplifying reflection class calls.
@@ -85,14 +84,32 @@ public final class Classes {
 			return false;
 		}
 
-		Set<Class<?>> set = new java.util.HashSet<Class<?>>(size1);
+		// the interfaces of a class are distinct, so it is enough to find
+		// every interface of the first class among those of the second
 		for (Class<?> c : ca1) {
-			set.add(c);
+			if (!contains(ca2, c)) {
+				return false;
+			}
 		}
-		for (Class<?> c : ca2) {
-			set.remove(c);
+		return true;
+	}
+
+	/**
+	 * Checks whether the array contains the class.
+	 * 
+	 * @param ca
+	 *            the classes
+	 * @param c
+	 *            the class to find
+	 * @return TRUE if the array contains the class, FALSE otherwise
+	 */
+	private static boolean contains(Class<?>[] ca, Class<?> c) {
+		for (Class<?> e : ca) {
+			if (e == c) {
+				return true;
+			}
 		}
-		return set.size() < 1;
+		return false;
 	}
 
 
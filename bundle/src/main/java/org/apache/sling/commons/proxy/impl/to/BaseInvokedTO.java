@@ -44,6 +44,28 @@ public class BaseInvokedTO implements InvokedTO {
 	 */
 	private final MethodType mt;
 
+	/**
+	 * The way the invocation handler should dispatch the method
+	 */
+	private final InvocationKind kind;
+
+	/**
+	 * Whether or not the path is absolute, calculated once from the path
+	 */
+	private final boolean absolute;
+
+	/**
+	 * Whether or not the method is a getter, calculated once from the method
+	 * type
+	 */
+	private final boolean getter;
+
+	/**
+	 * The slot of the path in the resource memo of the invocation handler,
+	 * shared by all methods of the proxy interface with the same path
+	 */
+	private int pathSlot = -1;
+
 	/**
 	 * Constructs a new Base Invoked Transfer Object.
 	 * 
@@ -53,12 +75,27 @@ public class BaseInvokedTO implements InvokedTO {
 	 *            the path from the annotations
 	 * @param mt
 	 *            the type of method being invoked
+	 * @param kind
+	 *            the way the method should be dispatched
 	 */
 	protected BaseInvokedTO(final Method method, final String path,
-			final MethodType mt) {
+			final MethodType mt, final InvocationKind kind) {
 		this.method = method;
 		this.path = path;
 		this.mt = mt;
+		this.kind = kind;
+		this.absolute = (path != null) && path.startsWith("/");
+		this.getter = (mt == MethodType.JavaBeanIs)
+				|| (mt == MethodType.JavaBeanGet);
+	}
+
+	/**
+	 * Gets the way the invocation handler should dispatch the method.
+	 * 
+	 * @return the invocation kind
+	 */
+	public final InvocationKind getKind() {
+		return this.kind;
 	}
 
 	/**
@@ -88,13 +125,34 @@ public class BaseInvokedTO implements InvokedTO {
 		return this.path;
 	}
 
+	/**
+	 * Gets the slot of the path in the resource memo of the invocation
+	 * handler.
+	 * 
+	 * @return the path slot or -1 if the path of the method is not memoized
+	 */
+	public final int getPathSlot() {
+		return this.pathSlot;
+	}
+
+	/**
+	 * Sets the slot of the path in the resource memo of the invocation
+	 * handler, called once when the proxy metadata is created.
+	 * 
+	 * @param pathSlot
+	 *            the path slot
+	 */
+	final void setPathSlot(final int pathSlot) {
+		this.pathSlot = pathSlot;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see org.apache.sling.commons.proxy.impl.InvokedTO#isAbsolute()
 	 */
 	public boolean isAbsolute() {
-		return (this.path != null) && this.path.startsWith("/");
+		return this.absolute;
 	}
 
 	/*
@@ -103,8 +161,7 @@ public class BaseInvokedTO implements InvokedTO {
 	 * @see org.apache.sling.commons.proxy.impl.InvokedTO#isGetter()
 	 */
 	public boolean isGetter() {
-		return MethodType.contains(new MethodType[] { MethodType.JavaBeanIs,
-				MethodType.JavaBeanGet }, this.mt);
+		return this.getter;
 	}
 
 	/*
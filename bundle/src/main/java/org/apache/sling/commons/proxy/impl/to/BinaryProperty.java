@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.proxy.SlingBinary;
+
+/**
+ * A binary property read from a value map. The property is read again every
+ * time the content is opened, and is never kept by the proxy.
+ * 
+ * Binaries stored as Files, or read as FileInputStreams, are local files,
+ * which are read through a FileChannel. Buffers of large ranges of them are
+ * memory-mapped, smaller ranges are read into memory, as a mapping is only
+ * released when its buffer is garbage collected. Byte arrays are wrapped
+ * without copying. Other streams are read as they are, only buffers of them
+ * are read into memory.
+ */
+final class BinaryProperty implements SlingBinary {
+
+	/**
+	 * The size of the chunks other streams are read in for buffers.
+	 */
+	private static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * The number of bytes from which the buffers of local files are
+	 * memory-mapped rather than read into memory.
+	 */
+	private static final int MAP_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * The value map of the property, or null for a default binary.
+	 */
+	private final ValueMap vm;
+
+	/**
+	 * The name of the property.
+	 */
+	private final String name;
+
+	/**
+	 * The content of a default binary.
+	 */
+	private final byte[] defaultBytes;
+
+	/**
+	 * Constructs a binary reading the property from the value map.
+	 * 
+	 * @param vm
+	 *            the value map
+	 * @param name
+	 *            the name of the property
+	 */
+	BinaryProperty(final ValueMap vm, final String name) {
+		this.vm = vm;
+		this.name = name;
+		this.defaultBytes = null;
+	}
+
+	/**
+	 * Constructs a binary of the default bytes of a property.
+	 * 
+	 * @param defaultBytes
+	 *            the default bytes, which are not copied
+	 */
+	BinaryProperty(final byte[] defaultBytes) {
+		this.vm = null;
+		this.name = null;
+		this.defaultBytes = defaultBytes;
+	}
+
+	/**
+	 * Reads the value of the property.
+	 * 
+	 * @return the value, a byte array, a File or an InputStream
+	 * @throws IOException
+	 *             if the property does not exist
+	 */
+	private Object read() throws IOException {
+		if (this.vm == null) {
+			return this.defaultBytes;
+		}
+		final Object raw = this.vm.get(this.name);
+		if (raw instanceof byte[] || raw instanceof File
+				|| raw instanceof InputStream) {
+			return raw;
+		}
+		final InputStream is = this.vm.get(this.name, InputStream.class);
+		if (is == null) {
+			throw new IOException("Binary property " + this.name
+					+ " does not exist");
+		}
+		return is;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.sling.commons.proxy.SlingBinary#getSize()
+	 */
+	public long getSize() {
+		try {
+			final Object raw = this.read();
+			if (raw instanceof byte[]) {
+				return ((byte[]) raw).length;
+			} else if (raw instanceof File) {
+				return ((File) raw).length();
+			} else if (raw instanceof FileInputStream) {
+				try {
+					return ((FileInputStream) raw).getChannel().size();
+				} finally {
+					((InputStream) raw).close();
+				}
+			}
+			((InputStream) raw).close();
+		} catch (final IOException e) {
+			// the size is unknown
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.sling.commons.proxy.SlingBinary#openStream()
+	 */
+	public InputStream openStream() throws IOException {
+		return openStream(this.read());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.sling.commons.proxy.SlingBinary#openStream(long, long)
+	 */
+	public InputStream openStream(final long position, final long length)
+			throws IOException {
+		checkRange(position, length);
+		return openStream(this.read(), position, length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.sling.commons.proxy.SlingBinary#openChannel()
+	 */
+	public ReadableByteChannel openChannel() throws IOException {
+		return openChannel(this.read());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.sling.commons.proxy.SlingBinary#openChannel(long, long)
+	 */
+	public ReadableByteChannel openChannel(final long position,
+			final long length) throws IOException {
+		checkRange(position, length);
+		return openChannel(this.read(), position, length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.sling.commons.proxy.SlingBinary#getBuffer()
+	 */
+	public ByteBuffer getBuffer() throws IOException {
+		return getBuffer(this.read(), 0, Long.MAX_VALUE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.sling.commons.proxy.SlingBinary#getBuffer(long, long)
+	 */
+	public ByteBuffer getBuffer(final long position, final long length)
+			throws IOException {
+		checkRange(position, length);
+		return getBuffer(this.read(), position, length);
+	}
+
+	/**
+	 * Checks the range of the content to read, before the content is opened.
+	 * 
+	 * @param position
+	 *            the position of the first byte to read
+	 * @param length
+	 *            the maximum number of bytes to read
+	 * @throws IllegalArgumentException
+	 *             if the position or the length is negative
+	 */
+	private static void checkRange(final long position, final long length) {
+		if ((position < 0) || (length < 0)) {
+			throw new IllegalArgumentException("Invalid binary range: "
+					+ position + ", " + length);
+		}
+	}
+
+	/**
+	 * Opens a binary value as a stream.
+	 * 
+	 * @param raw
+	 *            the value, a byte array, a File or an InputStream
+	 * @return the stream
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	static InputStream openStream(final Object raw) throws IOException {
+		if (raw instanceof byte[]) {
+			return new ByteArrayInputStream((byte[]) raw);
+		} else if (raw instanceof File) {
+			return new FileInputStream((File) raw);
+		}
+		return (InputStream) raw;
+	}
+
+	/**
+	 * Opens a range of a binary value as a stream.
+	 * 
+	 * @param raw
+	 *            the value, a byte array, a File or an InputStream
+	 * @param position
+	 *            the position of the first byte to read
+	 * @param length
+	 *            the maximum number of bytes to read
+	 * @return the stream
+	 * @throws IOException
+	 *             if the content cannot be read
+	 */
+	static InputStream openStream(final Object raw, final long position,
+			final long length) throws IOException {
+		if (raw instanceof byte[]) {
+			final byte[] bytes = (byte[]) raw;
+			final int offset = (int) Math.min(position, bytes.length);
+			return new ByteArrayInputStream(bytes, offset, (int) Math.min(
+					length, bytes.length - offset));
+		}
+		final InputStream is = openStream(raw);
+		try {
+			if (is instanceof FileInputStream) {
+				final FileChannel fc = ((FileInputStream) is).getChannel();
+				fc.position(position);
+			} else {
+				skipFully(is, position);
+			}
+		} catch (final IOException e) {
+			is.close();
+			throw e;
+		}
+		return new RangeInputStream(is, length);
+	}
+
+	/**
+	 * Opens a binary value as a channel, reading local files through their
+	 * FileChannel.
+	 * 
+	 * @param raw
+	 *            the value, a byte array, a File or an InputStream
+	 * @return the channel
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	static ReadableByteChannel openChannel(final Object raw)
+			throws IOException {
+		final InputStream is = openStream(raw);
+		if (is instanceof FileInputStream) {
+			return ((FileInputStream) is).getChannel();
+		}
+		return Channels.newChannel(is);
+	}
+
+	/**
+	 * Opens a range of a binary value as a channel.
+	 * 
+	 * @param raw
+	 *            the value, a byte array, a File or an InputStream
+	 * @param position
+	 *            the position of the first byte to read
+	 * @param length
+	 *            the maximum number of bytes to read
+	 * @return the channel
+	 * @throws IOException
+	 *             if the content cannot be read
+	 */
+	static ReadableByteChannel openChannel(final Object raw,
+			final long position, final long length) throws IOException {
+		return Channels.newChannel(openStream(raw, position, length));
+	}
+
+	/**
+	 * Gets a range of a binary value as a read-only buffer. Byte arrays are
+	 * wrapped and ranges of local files of at least {@link #MAP_THRESHOLD}
+	 * bytes memory-mapped, other ranges are read into memory.
+	 * 
+	 * @param raw
+	 *            the value, a byte array, a File or an InputStream
+	 * @param position
+	 *            the position of the first byte
+	 * @param length
+	 *            the maximum number of bytes
+	 * @return the buffer
+	 * @throws IOException
+	 *             if the content cannot be read or the range is larger than
+	 *             the largest buffer of Integer.MAX_VALUE bytes
+	 */
+	static ByteBuffer getBuffer(final Object raw, final long position,
+			final long length) throws IOException {
+		if (raw instanceof byte[]) {
+			final byte[] bytes = (byte[]) raw;
+			final int offset = (int) Math.min(position, bytes.length);
+			return ByteBuffer.wrap(bytes, offset,
+					(int) Math.min(length, bytes.length - offset)).slice()
+					.asReadOnlyBuffer();
+		}
+		final InputStream is = openStream(raw);
+		try {
+			if (is instanceof FileInputStream) {
+				final FileChannel fc = ((FileInputStream) is).getChannel();
+				final long size = fc.size();
+				final long offset = Math.min(position, size);
+				final long count = Math.min(length, size - offset);
+				if (count > Integer.MAX_VALUE) {
+					throw tooLarge(count);
+				} else if (count >= MAP_THRESHOLD) {
+					// the mapping stays valid after the channel is closed
+					return fc.map(FileChannel.MapMode.READ_ONLY, offset, count);
+				}
+				final ByteBuffer buffer = ByteBuffer.allocate((int) count);
+				while (buffer.hasRemaining()
+						&& fc.read(buffer, offset + buffer.position()) != -1) {
+					// read until the range is complete or the file ends
+				}
+				buffer.flip();
+				return buffer.asReadOnlyBuffer();
+			}
+			skipFully(is, position);
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] chunk = new byte[CHUNK_SIZE];
+			long remaining = Math.min(length, Integer.MAX_VALUE);
+			int read;
+			while (remaining > 0
+					&& (read = is.read(chunk, 0, (int) Math.min(chunk.length,
+							remaining))) != -1) {
+				out.write(chunk, 0, read);
+				remaining -= read;
+			}
+			if (length > Integer.MAX_VALUE && remaining == 0
+					&& is.read() != -1) {
+				throw tooLarge(length);
+			}
+			return ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer();
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Creates the exception thrown for ranges which do not fit in a buffer.
+	 * 
+	 * @param count
+	 *            the number of bytes of the range
+	 * @return the exception
+	 */
+	private static IOException tooLarge(final long count) {
+		return new IOException("Range of " + count
+				+ " bytes is too large for a buffer, open a channel instead");
+	}
+
+	/**
+	 * Skips the specified number of bytes of a stream, or to its end.
+	 * 
+	 * @param is
+	 *            the stream
+	 * @param n
+	 *            the number of bytes to skip
+	 * @throws IOException
+	 *             if the stream cannot be read
+	 */
+	private static void skipFully(final InputStream is, final long n)
+			throws IOException {
+		long remaining = n;
+		while (remaining > 0) {
+			final long skipped = is.skip(remaining);
+			if (skipped > 0) {
+				remaining -= skipped;
+			} else if (is.read() != -1) {
+				remaining--;
+			} else {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * A stream reading at most a number of bytes of another stream.
+	 */
+	private static final class RangeInputStream extends FilterInputStream {
+
+		/**
+		 * The number of bytes which may still be read.
+		 */
+		private long remaining;
+
+		/**
+		 * Constructs a new range stream.
+		 * 
+		 * @param in
+		 *            the stream to read
+		 * @param length
+		 *            the maximum number of bytes to read
+		 */
+		RangeInputStream(final InputStream in, final long length) {
+			super(in);
+			this.remaining = length;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.io.FilterInputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+			final int b = super.read();
+			if (b != -1) {
+				this.remaining--;
+			}
+			return b;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.io.FilterInputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(final byte[] b, final int off, final int len)
+				throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+			final int read = super.read(b, off, (int) Math.min(len,
+					this.remaining));
+			if (read > 0) {
+				this.remaining -= read;
+			}
+			return read;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.io.FilterInputStream#skip(long)
+		 */
+		@Override
+		public long skip(final long n) throws IOException {
+			final long skipped = super.skip(Math.min(n, this.remaining));
+			this.remaining -= skipped;
+			return skipped;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.io.FilterInputStream#available()
+		 */
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), this.remaining);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.io.FilterInputStream#markSupported()
+		 */
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
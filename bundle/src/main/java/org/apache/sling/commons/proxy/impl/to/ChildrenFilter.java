@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * Filters the children of a resource by resource type and name, as specified
+ * in the <code>@SlingChildren</code> annotation of a method. The filter is
+ * compiled once per method and applied to the child resources before they are
+ * converted, so rejecting a child costs a hash lookup of its resource type or
+ * a comparison of its name.
+ * 
+ * Names are matched against a glob, where '*' matches any number of
+ * characters and '?' matches a single character. Globs without wildcards or
+ * with a single '*' at the start or the end are matched by comparing the path
+ * of the resource in place, without building the name of the resource.
+ */
+public final class ChildrenFilter {
+
+	/**
+	 * The resource types to include or null to include all resource types.
+	 */
+	private final Set<String> includedTypes;
+
+	/**
+	 * The resource types to exclude or null to exclude none.
+	 */
+	private final Set<String> excludedTypes;
+
+	/**
+	 * The name the names must equal, for globs without wildcards, or null.
+	 */
+	private final String name;
+
+	/**
+	 * The start the names must match or null.
+	 */
+	private final String prefix;
+
+	/**
+	 * The end the names must match or null.
+	 */
+	private final String suffix;
+
+	/**
+	 * The pattern the names must match, for globs which are neither a prefix
+	 * nor a suffix, or null.
+	 */
+	private final Pattern pattern;
+
+	/**
+	 * Constructs a new children filter.
+	 * 
+	 * @param includedTypes
+	 *            the resource types to include, empty to include all
+	 * @param excludedTypes
+	 *            the resource types to exclude
+	 * @param glob
+	 *            the glob the names must match, empty to match all names
+	 */
+	private ChildrenFilter(final String[] includedTypes,
+			final String[] excludedTypes, final String glob) {
+		this.includedTypes = toSet(includedTypes);
+		this.excludedTypes = toSet(excludedTypes);
+
+		final int star = glob.indexOf('*');
+		final boolean single = glob.indexOf('?') < 0
+				&& (star < 0 || glob.indexOf('*', star + 1) < 0);
+		String name = null;
+		String prefix = null;
+		String suffix = null;
+		Pattern pattern = null;
+		if (glob.length() == 0 || "*".equals(glob)) {
+			// all names match
+		} else if (single && star < 0) {
+			name = glob;
+		} else if (single && star == glob.length() - 1) {
+			prefix = glob.substring(0, star);
+		} else if (single && star == 0) {
+			suffix = glob.substring(1);
+		} else {
+			pattern = compile(glob);
+		}
+		this.name = name;
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.pattern = pattern;
+	}
+
+	/**
+	 * Creates the filter for the attributes of a <code>@SlingChildren</code>
+	 * annotation.
+	 * 
+	 * @param includedTypes
+	 *            the resource types to include, empty to include all
+	 * @param excludedTypes
+	 *            the resource types to exclude
+	 * @param glob
+	 *            the glob the names must match, empty to match all names
+	 * @return the filter or null if all children are accepted
+	 */
+	public static ChildrenFilter newInstance(final String[] includedTypes,
+			final String[] excludedTypes, final String glob) {
+		if (includedTypes.length == 0 && excludedTypes.length == 0
+				&& (glob.length() == 0 || "*".equals(glob))) {
+			return null;
+		}
+		return new ChildrenFilter(includedTypes, excludedTypes, glob);
+	}
+
+	/**
+	 * Checks whether or not a child resource is accepted by the filter.
+	 * 
+	 * @param resource
+	 *            the child resource
+	 * @return true if the child is accepted
+	 */
+	public boolean accept(final Resource resource) {
+		if (this.includedTypes != null || this.excludedTypes != null) {
+			final String resourceType = resource.getResourceType();
+			if (this.includedTypes != null
+					&& !this.includedTypes.contains(resourceType)) {
+				return false;
+			}
+			if (this.excludedTypes != null
+					&& this.excludedTypes.contains(resourceType)) {
+				return false;
+			}
+		}
+		if (this.name == null && this.prefix == null && this.suffix == null
+				&& this.pattern == null) {
+			return true;
+		}
+
+		final String path = resource.getPath();
+		final int start = path.lastIndexOf('/') + 1;
+		if (this.name != null) {
+			return path.length() - start == this.name.length()
+					&& path.startsWith(this.name, start);
+		} else if (this.prefix != null) {
+			return path.startsWith(this.prefix, start);
+		} else if (this.suffix != null) {
+			return path.length() - start >= this.suffix.length()
+					&& path.endsWith(this.suffix);
+		}
+		return this.pattern.matcher(path.substring(start)).matches();
+	}
+
+	/**
+	 * Converts the resource types to a set.
+	 * 
+	 * @param types
+	 *            the resource types
+	 * @return the set or null if there are no resource types
+	 */
+	private static Set<String> toSet(final String[] types) {
+		if (types.length == 0) {
+			return null;
+		}
+		final Set<String> set = new java.util.HashSet<String>();
+		for (final String type : types) {
+			set.add(type.trim());
+		}
+		return set;
+	}
+
+	/**
+	 * Compiles a glob into a regular expression.
+	 * 
+	 * @param glob
+	 *            the glob
+	 * @return the pattern
+	 */
+	private static Pattern compile(final String glob) {
+		final StringBuilder regex = new StringBuilder();
+		int literal = 0;
+		for (int i = 0; i < glob.length(); i++) {
+			final char c = glob.charAt(i);
+			if (c == '*' || c == '?') {
+				if (i > literal) {
+					regex.append(Pattern.quote(glob.substring(literal, i)));
+				}
+				regex.append(c == '*' ? ".*" : ".");
+				literal = i + 1;
+			}
+		}
+		if (glob.length() > literal) {
+			regex.append(Pattern.quote(glob.substring(literal)));
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+/**
+ * The ways in which the invocation handler can dispatch a method call, this is
+ * resolved once per method from the method name and annotations.
+ */
+public enum InvocationKind {
+
+	/**
+	 * A getter annotated with, or defaulting to, <code>@SlingProperty</code>.
+	 */
+	Property,
+
+	/**
+	 * A getter annotated with <code>@SlingReference</code>.
+	 */
+	Reference,
+
+	/**
+	 * A getter annotated with <code>@SlingChildren</code>.
+	 */
+	Children,
+
+	/**
+	 * The SlingProxy <code>getBackingResource</code> method.
+	 */
+	BackingResource,
+
+	/**
+	 * The Object <code>toString</code> method.
+	 */
+	ToString,
+
+	/**
+	 * The Object <code>hashCode</code> method.
+	 */
+	HashCode,
+
+	/**
+	 * The Object <code>equals</code> method.
+	 */
+	Equals,
+
+	/**
+	 * The SlingProxy <code>commit</code> method.
+	 */
+	Commit,
+
+	/**
+	 * A JavaBean setter method, writing the property of the getter with the
+	 * same bean name.
+	 */
+	Setter,
+
+	/**
+	 * A getter without any of the required annotations.
+	 */
+	Unannotated,
+
+	/**
+	 * Any other method, which cannot be handled by the proxy.
+	 */
+	Unknown
+}
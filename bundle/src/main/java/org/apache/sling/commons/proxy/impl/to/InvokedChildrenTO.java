@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.lang.reflect.Method;
+
+import org.apache.sling.commons.proxy.PagedIterator;
+import org.apache.sling.commons.proxy.impl.lang.MethodType;
+
+/**
+ * Transfer object for SlingChildren method invocations.
+ */
+public final class InvokedChildrenTO extends BaseInvokedTO {
+
+	/**
+	 * The ways the page of children to return is specified.
+	 */
+	public enum Paging {
+		/** By the offset and the limit of the annotation. */
+		Annotation,
+		/** By the offset and limit arguments of the method. */
+		Offset,
+		/** By the continuation token and limit arguments of the method. */
+		ContinuationToken
+	}
+
+	/**
+	 * The types of containers the children are returned in.
+	 */
+	public enum Container {
+		/** An Iterator or PagedIterator. */
+		Iterator,
+		/** A Spliterator. */
+		Spliterator,
+		/** A Stream. */
+		Stream,
+		/** A List, also returned for Collections and Iterables. */
+		List,
+		/** An array. */
+		Array,
+		/** The number of children, as an int or a long. */
+		Count
+	}
+
+	/**
+	 * The generic type to return when constructing the Iterator of children.
+	 */
+	private final Class<?> returnType;
+
+	/**
+	 * The number of children to skip, specified in the annotation.
+	 */
+	private final int offset;
+
+	/**
+	 * The maximum number of children, specified in the annotation.
+	 */
+	private final int limit;
+
+	/**
+	 * How the page of children is specified.
+	 */
+	private final Paging paging;
+
+	/**
+	 * The container the children are returned in.
+	 */
+	private final Container container;
+
+	/**
+	 * Why the method cannot return children, or null if it is declared
+	 * correctly.
+	 */
+	private final String declarationError;
+
+	/**
+	 * The filter of the children or null.
+	 */
+	private final ChildrenFilter filter;
+
+	/**
+	 * The slot of the children in the children cache of the invocation
+	 * handlers, or -1 if the children are not cached.
+	 */
+	private int childrenSlot = -1;
+
+	/**
+	 * Constructs a new Invoked Children Transfer Object.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @param path
+	 *            the path specified in the annotation
+	 * @param returnType
+	 *            the return type specified in the annotation
+	 * @param offset
+	 *            the offset specified in the annotation
+	 * @param limit
+	 *            the limit specified in the annotation
+	 * @param filter
+	 *            the filter of the children or null
+	 * @param mt
+	 *            the method type
+	 */
+	protected InvokedChildrenTO(final Method method, final String path,
+			final Class<?> returnType, final int offset, final int limit,
+			final ChildrenFilter filter, final MethodType mt) {
+		super(method, path, mt, InvocationKind.Children);
+		this.returnType = returnType;
+		this.offset = offset;
+		this.limit = limit;
+		this.paging = getPaging(method);
+		this.container = getContainer(method, returnType);
+		this.filter = filter;
+		if (this.paging == null) {
+			this.declarationError = "Method " + method.getName()
+					+ " annotated with @SlingChildren must have either no "
+					+ "arguments, (int offset, int limit) or "
+					+ "(String continuationToken, int limit)";
+		} else if (this.container == null) {
+			this.declarationError = "Method " + method.getName()
+					+ " annotated with @SlingChildren must return an Iterator, "
+					+ "PagedIterator, Spliterator, Stream, Iterable, "
+					+ "Collection, List, an array of " + returnType.getName()
+					+ ", an int or a long";
+		} else {
+			this.declarationError = null;
+		}
+	}
+
+	/**
+	 * Gets the container the children are returned in, from the return type
+	 * of the method.
+	 * 
+	 * @param method
+	 *            the method
+	 * @param returnType
+	 *            the return type specified in the annotation
+	 * @return the container or null if the return type is not a container
+	 *         of children
+	 */
+	private static Container getContainer(final Method method,
+			final Class<?> returnType) {
+		final Class<?> type = method.getReturnType();
+		if (type.isAssignableFrom(PagedIterator.class)) {
+			return Container.Iterator;
+		} else if (java.util.Spliterator.class.equals(type)) {
+			return Container.Spliterator;
+		} else if (java.util.stream.Stream.class.equals(type)) {
+			return Container.Stream;
+		} else if (type.isAssignableFrom(java.util.List.class)) {
+			return Container.List;
+		} else if (type.isArray()
+				&& type.getComponentType().isAssignableFrom(returnType)) {
+			return Container.Array;
+		} else if (int.class.equals(type) || long.class.equals(type)
+				|| Integer.class.equals(type) || Long.class.equals(type)) {
+			return Container.Count;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets how the page of children is specified by the arguments of the
+	 * method.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return the paging or null if the arguments are neither (int, int)
+	 *         nor (String, int)
+	 */
+	private static Paging getPaging(final Method method) {
+		final Class<?>[] params = method.getParameterTypes();
+		if (params.length == 0) {
+			return Paging.Annotation;
+		} else if ((params.length == 2) && int.class.equals(params[1])) {
+			if (int.class.equals(params[0])) {
+				return Paging.Offset;
+			} else if (String.class.equals(params[0])) {
+				return Paging.ContinuationToken;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks that the method is declared to return children. A misdeclared
+	 * method only fails when it is invoked, so that the other methods of its
+	 * interface can still be proxied.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the arguments of the method do not specify a page or
+	 *             the return type is not a container of children
+	 */
+	public final void checkDeclaration() {
+		if (this.declarationError != null) {
+			throw new IllegalStateException(this.declarationError);
+		}
+	}
+
+	/**
+	 * Gets the generic type to return when constructing the Iterator of
+	 * children.
+	 * 
+	 * @return the returnType
+	 */
+	public final Class<?> getReturnType() {
+		return this.returnType;
+	}
+
+	/**
+	 * Gets the number of children to skip, specified in the annotation.
+	 * 
+	 * @return the offset
+	 */
+	public final int getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * Gets the maximum number of children, specified in the annotation.
+	 * Negative values mean all of the children.
+	 * 
+	 * @return the limit
+	 */
+	public final int getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * Gets how the page of children is specified.
+	 * 
+	 * @return the paging or null if the method is misdeclared
+	 */
+	public final Paging getPaging() {
+		return this.paging;
+	}
+
+	/**
+	 * Gets the container the children are returned in.
+	 * 
+	 * @return the container or null if the method is misdeclared
+	 */
+	public final Container getContainer() {
+		return this.container;
+	}
+
+	/**
+	 * Gets the filter of the children, compiled from the annotation.
+	 * 
+	 * @return the filter or null if all children are returned
+	 */
+	public final ChildrenFilter getFilter() {
+		return this.filter;
+	}
+
+	/**
+	 * Checks whether or not the children returned by the method can be
+	 * cached by the invocation handlers, which is the case for the
+	 * materialized containers of methods without arguments.
+	 * 
+	 * @return true if the children can be cached
+	 */
+	final boolean isCacheable() {
+		return this.declarationError == null
+				&& this.paging == Paging.Annotation
+				&& (this.container == Container.List
+						|| this.container == Container.Array
+						|| this.container == Container.Count);
+	}
+
+	/**
+	 * Gets the slot of the children in the children cache of the invocation
+	 * handlers.
+	 * 
+	 * @return the children slot or -1 if the children are not cached
+	 */
+	public int getChildrenSlot() {
+		return this.childrenSlot;
+	}
+
+	/**
+	 * Sets the slot of the children in the children cache of the invocation
+	 * handlers.
+	 * 
+	 * @param childrenSlot
+	 *            the children slot
+	 */
+	void setChildrenSlot(final int childrenSlot) {
+		this.childrenSlot = childrenSlot;
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+import org.apache.sling.commons.proxy.impl.lang.MethodType;
+
+/**
+ * InvokedPropertyTO - Transfer Object Meant as a convenient way to maintain and
+ * pass a method invocation around The members are not private because the class
+ * is package protected and they are final.
+ */
+public final class InvokedPropertyTO extends BaseInvokedTO {
+
+	/** The property name specified in the annotation. */
+	private final String name;
+
+	/**
+	 * The full property name, calculated from the path and name from the
+	 * annotation parameters.
+	 */
+	private final String propertyName;
+
+	/** The use default flag. */
+	private final boolean useDefault;
+
+	/** Whether or not the resource of the property must exist. */
+	private final boolean required;
+
+	/**
+	 * The slot of the property in the cache of the invocation handler, shared
+	 * by all methods of the proxy interface reading the same property.
+	 */
+	private int cacheSlot;
+
+	/**
+	 * Describes how the property is read, identifying the value of the
+	 * property in the shared property cache.
+	 */
+	private final String cacheDescriptor;
+
+	/**
+	 * Reads the property and converts it to the return type of the method.
+	 */
+	private final PropertyConverter converter;
+
+	/**
+	 * Constructs a new Invoked Transfer Object.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @param path
+	 *            the path annotation value
+	 * @param name
+	 *            the name annotation value, or the name derived from the
+	 *            method name if the annotation does not specify one
+	 * @param mt
+	 *            the type of method invoked
+	 */
+	protected InvokedPropertyTO(final Method method, final String path,
+			final String name, final MethodType mt) {
+		super(method, path, mt, InvocationKind.Property);
+		this.name = name;
+		this.propertyName = getPropertyName(path, name);
+
+		final SlingProperty sp = method.getAnnotation(SlingProperty.class);
+		this.useDefault = sp.useDefault();
+		this.required = sp.required();
+		this.converter = PropertyConverter.newInstance(method
+				.getReturnType(), sp);
+
+		final StringBuilder descriptor = new StringBuilder(name).append('|')
+				.append(method.getReturnType().getName());
+		if (this.useDefault) {
+			descriptor.append('|').append(sp.defaultBoolean()).append('|')
+					.append(sp.defaultDate()).append('|')
+					.append(sp.defaultDouble()).append('|')
+					.append(sp.defaultLong()).append('|')
+					.append(sp.defaultString()).append('|')
+					.append(Arrays.toString(sp.defaultStrings()));
+		}
+		this.cacheDescriptor = descriptor.toString();
+	}
+
+	/**
+	 * Constructs a new Invoked Transfer Object for a getter of a class
+	 * generated at compile time, from the annotation values listed in the
+	 * registry of the annotation processor. The generated getter returns the
+	 * default value itself, so the property is read as null when it is
+	 * missing, even for primitive return types, and its value is shared with
+	 * the getters returning the boxed type without default.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @param path
+	 *            the path annotation value
+	 * @param name
+	 *            the name annotation value, or the name derived from the
+	 *            method name if the annotation does not specify one
+	 * @param required
+	 *            the required annotation value
+	 * @param mt
+	 *            the type of method invoked
+	 */
+	protected InvokedPropertyTO(final Method method, final String path,
+			final String name, final boolean required, final MethodType mt) {
+		super(method, path, mt, InvocationKind.Property);
+		this.name = name;
+		this.propertyName = getPropertyName(path, name);
+		this.useDefault = false;
+		this.required = required;
+		this.converter = PropertyConverter.newInstance(method
+				.getReturnType(), null);
+		this.cacheDescriptor = name + '|'
+				+ this.converter.getType().getName();
+	}
+
+	/**
+	 * Gets the full property name, from the path and the name of the
+	 * annotation.
+	 * 
+	 * @param path
+	 *            the path annotation value
+	 * @param name
+	 *            the name of the property
+	 * @return the property name
+	 */
+	private static String getPropertyName(final String path, final String name) {
+		return ((path != null) && (path.length() > 0) ? path + "/" : "")
+				+ name;
+	}
+
+	/**
+	 * Gets the converter reading the property and converting it to the return
+	 * type of the method, chosen once for the method.
+	 * 
+	 * @return the converter
+	 */
+	public PropertyConverter getConverter() {
+		return this.converter;
+	}
+
+	/**
+	 * Get the name annotation value.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Get the property name to retrieve, this is calculated from the annotation
+	 * name and path.
+	 * 
+	 * @return the property name
+	 */
+	public String getPropertyName() {
+		return this.propertyName;
+	}
+
+	/**
+	 * Gets the slot of the property in the cache of the invocation handler.
+	 * 
+	 * @return the cache slot
+	 */
+	public int getCacheSlot() {
+		return this.cacheSlot;
+	}
+
+	/**
+	 * Sets the slot of the property in the cache of the invocation handler,
+	 * called once when the proxy metadata is created.
+	 * 
+	 * @param cacheSlot
+	 *            the cache slot
+	 */
+	void setCacheSlot(final int cacheSlot) {
+		this.cacheSlot = cacheSlot;
+	}
+
+	/**
+	 * Gets the descriptor of how the property is read, which identifies the
+	 * value of the property of a resource in the shared property cache.
+	 * 
+	 * @return the cache descriptor
+	 */
+	public String getCacheDescriptor() {
+		return this.cacheDescriptor;
+	}
+
+	/**
+	 * Checks whether the resource of the property must exist.
+	 * 
+	 * @return true if reading the property of a missing resource fails
+	 */
+	public boolean isRequired() {
+		return this.required;
+	}
+
+	/**
+	 * Checks if is use default.
+	 * 
+	 * @return true, if is use default
+	 */
+	public boolean isUseDefault() {
+		return this.useDefault;
+	}
+}
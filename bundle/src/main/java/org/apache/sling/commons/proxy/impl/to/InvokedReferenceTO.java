@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.lang.reflect.Method;
+
+import org.apache.sling.commons.proxy.impl.lang.MethodType;
+
+/**
+ * Transfer object for SlingReference method invocations.
+ */
+public final class InvokedReferenceTO extends BaseInvokedTO {
+
+	/**
+	 * Whether or not to defer resolving the referenced resource.
+	 */
+	private final boolean lazy;
+
+	/**
+	 * The slot of the reference in the reference cache of the invocation
+	 * handlers.
+	 */
+	private int referenceSlot;
+
+	/**
+	 * Constructs a new Invoked Reference Transfer Object.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @param path
+	 *            the path specified in the annotation
+	 * @param lazy
+	 *            the lazy flag specified in the annotation
+	 * @param mt
+	 *            the method type
+	 */
+	protected InvokedReferenceTO(final Method method, final String path,
+			final boolean lazy, final MethodType mt) {
+		super(method, path, mt, InvocationKind.Reference);
+		this.lazy = lazy;
+	}
+
+	/**
+	 * Checks whether the referenced resource is only resolved when the
+	 * returned proxy is first used.
+	 * 
+	 * @return the lazy flag
+	 */
+	public final boolean isLazy() {
+		return this.lazy;
+	}
+
+	/**
+	 * Gets the slot of the reference in the reference cache of the invocation
+	 * handlers.
+	 * 
+	 * @return the reference slot
+	 */
+	public int getReferenceSlot() {
+		return this.referenceSlot;
+	}
+
+	/**
+	 * Sets the slot of the reference in the reference cache of the invocation
+	 * handlers.
+	 * 
+	 * @param referenceSlot
+	 *            the reference slot
+	 */
+	void setReferenceSlot(final int referenceSlot) {
+		this.referenceSlot = referenceSlot;
+	}
+
+}
@@ -23,43 +23,40 @@ import java.lang.reflect.Method;
 import org.apache.sling.commons.proxy.impl.lang.MethodType;
 
 /**
- * Transfer object for SlingChildren method invocations.
+ * Transfer object for JavaBean setter invocations, which write the property
+ * read by the getter with the same bean name.
  */
-public final class InvokedChildrenTO extends BaseInvokedTO {
+public final class InvokedSetterTO extends BaseInvokedTO {
 
 	/**
-	 * The generic type to return when constructing the Iterator of children.
+	 * The name of the written property.
 	 */
-	private final Class<?> returnType;
+	private final String name;
 
 	/**
-	 * Constructs a new Invoked Children Transfer Object.
+	 * Constructs a new Invoked Setter Transfer Object.
 	 * 
 	 * @param method
 	 *            the invoked method
-	 * @param args
-	 *            the method arguments
 	 * @param path
-	 *            the path specified in the annotation
-	 * @param returnType
-	 *            the return type specified in the annotation
+	 *            the path of the resource of the property
+	 * @param name
+	 *            the name of the property
 	 * @param mt
 	 *            the method type
 	 */
-	protected InvokedChildrenTO(final Method method, final Object[] args,
-			final String path, final Class<?> returnType, final MethodType mt) {
-		super(method, path, mt);
-		this.returnType = returnType;
+	protected InvokedSetterTO(final Method method, final String path,
+			final String name, final MethodType mt) {
+		super(method, path, mt, InvocationKind.Setter);
+		this.name = name;
 	}
 
 	/**
-	 * Gets the generic type to return when constructing the Iterator of
-	 * children.
+	 * Get the name of the written property.
 	 * 
-	 * @return the returnType
+	 * @return the name
 	 */
-	public final Class<?> getReturnType() {
-		return this.returnType;
+	public String getName() {
+		return this.name;
 	}
-
 }
@@ -18,6 +18,8 @@
  */
 package org.apache.sling.commons.proxy.impl.to;
 
+import java.lang.reflect.Method;
+
 import org.apache.sling.commons.proxy.impl.lang.MethodType;
 
 /**
@@ -25,8 +27,22 @@ import org.apache.sling.commons.proxy.impl.lang.MethodType;
  */
 public interface InvokedTO {
 
-	public static final InvokedTO UNKNOWN = new InvokedPropertyTO(null, null,
-			null, null, MethodType.Unknown);
+	public static final InvokedTO UNKNOWN = new BaseInvokedTO(null, null,
+			MethodType.Unknown, InvocationKind.Unknown);
+
+	/**
+	 * Gets the way the invocation handler should dispatch the invocation.
+	 * 
+	 * @return the invocation kind
+	 */
+	public InvocationKind getKind();
+
+	/**
+	 * Gets the invoked method.
+	 * 
+	 * @return the method
+	 */
+	public Method getMethod();
 
 	/**
 	 * Determines if the item represented by this method Invocation is an
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.commons.proxy.ModifiableSlingProxy;
+import org.apache.sling.commons.proxy.annotations.SlingChildren;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+import org.apache.sling.commons.proxy.annotations.SlingReference;
+import org.apache.sling.commons.proxy.impl.lang.MethodType;
+import org.apache.sling.commons.proxy.impl.reflection.Annotations;
+
+/**
+ * Generates instances of InvokedTO's, based on the annotations available on the
+ * method, this will return the correct transfer object type.
+ */
+public class InvokedTOFactory {
+
+	/**
+	 * Instantiates a new InvokedTO Object. This object will contain the
+	 * relevant invocation properties for all invocations of the method, so
+	 * it only needs to be created once per method.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @return the invocation TO
+	 */
+	public static InvokedTO newInstance(final Method method) {
+
+		final MethodType mt = MethodType.getMethodType(method);
+		if (mt.equals(MethodType.BackingResource)) {
+			return new BaseInvokedTO(method, "", mt,
+					InvocationKind.BackingResource);
+		} else if (mt.equals(MethodType.Equals)) {
+			return new BaseInvokedTO(method, "", mt, InvocationKind.Equals);
+		} else if (mt.equals(MethodType.HashCode)) {
+			return new BaseInvokedTO(method, "", mt, InvocationKind.HashCode);
+		} else if (mt.equals(MethodType.ToString)) {
+			return new BaseInvokedTO(method, "", mt, InvocationKind.ToString);
+		} else if (mt.equals(MethodType.Commit)
+				&& (method.getParameterTypes().length == 0)
+				&& ModifiableSlingProxy.class.isAssignableFrom(method
+						.getDeclaringClass())) {
+			return new BaseInvokedTO(method, "", mt, InvocationKind.Commit);
+		} else if (mt.equals(MethodType.JavaBeanSet)) {
+			return newSetterInstance(method, mt);
+		} else if (!mt.equals(MethodType.JavaBeanGet)
+				&& !mt.equals(MethodType.JavaBeanIs)) {
+			return new BaseInvokedTO(method, "", mt, InvocationKind.Unknown);
+		} else if (Annotations
+				.methodHasAnnotation(method, SlingReference.class)) {
+			final SlingReference sr = method
+					.getAnnotation(SlingReference.class);
+
+			final String path = StringUtils.trim(sr.path());
+
+			return new InvokedReferenceTO(method, path, sr.lazy(), mt);
+		} else if (Annotations.methodHasAnnotation(method, SlingChildren.class)) {
+			final SlingChildren sc = method.getAnnotation(SlingChildren.class);
+			final String path = StringUtils.trim(sc.path());
+			final Class<?> returnType = sc.returnType();
+
+			final ChildrenFilter filter = ChildrenFilter.newInstance(sc
+					.resourceTypes(), sc.excludedResourceTypes(), StringUtils
+					.trimToEmpty(sc.name()));
+
+			return new InvokedChildrenTO(method, path, returnType, sc.offset(),
+					sc.limit(), filter, mt);
+		} else {
+			final SlingProperty sp = method.getAnnotation(SlingProperty.class);
+			if (sp == null) {
+				return new BaseInvokedTO(method, "", mt,
+						InvocationKind.Unannotated);
+			}
+
+			final String path = StringUtils.trim(sp.path());
+			String name = StringUtils.trim(sp.name());
+
+			if ((name == null) || (name.length() < 1)) {
+				name = MethodType.getBeanName(mt, method);
+				name = (name != null ? name.replace("_", ":") : null);
+			}
+			if ((name == null) || (name.length() < 1)) {
+				final String msg = "Could not determine Bean Property name either from @SlingProperty annotation or the JavaBean method name.";
+				throw new IllegalStateException(msg);
+			}
+
+			return new InvokedPropertyTO(method, path, name, mt);
+		}
+
+	}
+
+	/**
+	 * Instantiates the InvokedTO of a method of an interface implemented by a
+	 * class generated at compile time, from the kind of the method and the
+	 * annotation values the annotation processor listed in its registry,
+	 * without reading the annotations of the method. The properties read by
+	 * the getters of the generated class have no default value, as the
+	 * getters return the default themselves.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @param registry
+	 *            the registry entries
+	 * @param key
+	 *            the key of the method in the registry, which prefixes the
+	 *            keys of its kind and annotation values
+	 * @param cl
+	 *            the class loader of the proxy interface, loading the return
+	 *            types of the children methods
+	 * @return the invocation TO
+	 * @throws ClassNotFoundException
+	 *             if the return type of a children method cannot be loaded
+	 */
+	public static InvokedTO newInstance(final Method method,
+			final Properties registry, final String key, final ClassLoader cl)
+			throws ClassNotFoundException {
+		final MethodType mt = MethodType.getMethodType(method);
+		final InvocationKind kind = InvocationKind.valueOf(registry
+				.getProperty(key + ".kind"));
+		final String path = registry.getProperty(key + ".path", "");
+		switch (kind) {
+		case Property:
+			return new InvokedPropertyTO(method, path, registry
+					.getProperty(key + ".name"), Boolean.valueOf(
+					registry.getProperty(key + ".required")).booleanValue(),
+					mt);
+		case Reference:
+			return new InvokedReferenceTO(method, path, Boolean.valueOf(
+					registry.getProperty(key + ".lazy")).booleanValue(), mt);
+		case Children:
+			final ChildrenFilter filter = ChildrenFilter.newInstance(
+					split(registry.getProperty(key + ".resourceTypes")),
+					split(registry.getProperty(key + ".excludedResourceTypes")),
+					registry.getProperty(key + ".name", ""));
+			return new InvokedChildrenTO(method, path, Class.forName(registry
+					.getProperty(key + ".returnType"), false, cl), Integer
+					.parseInt(registry.getProperty(key + ".offset")), Integer
+					.parseInt(registry.getProperty(key + ".limit")), filter,
+					mt);
+		case Setter:
+			return new InvokedSetterTO(method, path, registry.getProperty(key
+					+ ".name"), mt);
+		default:
+			return new BaseInvokedTO(method, "", mt, kind);
+		}
+	}
+
+	/**
+	 * Splits a comma separated list of the registry.
+	 * 
+	 * @param list
+	 *            the list, may be null
+	 * @return the elements of the list
+	 */
+	private static String[] split(final String list) {
+		return StringUtils.split(StringUtils.defaultString(list), ',');
+	}
+
+	/**
+	 * Instantiates the transfer object of a setter, which writes the property
+	 * specified by its own <code>@SlingProperty</code> annotation or else by
+	 * the annotation of the getter with the same bean name.
+	 * 
+	 * @param method
+	 *            the setter
+	 * @param mt
+	 *            the method type
+	 * @return the invocation TO
+	 */
+	private static InvokedTO newSetterInstance(final Method method,
+			final MethodType mt) {
+		if ((method.getParameterTypes().length != 1)
+				|| (method.getReturnType() != void.class)) {
+			return new BaseInvokedTO(method, "", mt, InvocationKind.Unknown);
+		}
+		final String beanName = method.getName().substring(3);
+		SlingProperty sp = method.getAnnotation(SlingProperty.class);
+		MethodType getterType = mt;
+		Method getter = method;
+		if (sp == null) {
+			getter = getMethod(method.getDeclaringClass(), "get" + beanName);
+			getterType = MethodType.JavaBeanGet;
+			if (getter == null) {
+				getter = getMethod(method.getDeclaringClass(), "is" + beanName);
+				getterType = MethodType.JavaBeanIs;
+			}
+			sp = (getter != null ? getter.getAnnotation(SlingProperty.class)
+					: null);
+		}
+		if (sp == null) {
+			return new BaseInvokedTO(method, "", mt,
+					InvocationKind.Unannotated);
+		}
+
+		String name = StringUtils.trim(sp.name());
+		if ((name == null) || (name.length() < 1)) {
+			name = MethodType.getBeanName(getterType, getter);
+			name = (name != null ? name.replace("_", ":") : null);
+		}
+		return new InvokedSetterTO(method, StringUtils.trim(sp.path()), name,
+				mt);
+	}
+
+	/**
+	 * Gets a public method without parameters of the specified interface.
+	 * 
+	 * @param type
+	 *            the interface
+	 * @param name
+	 *            the name of the method
+	 * @return the method or null if there is none
+	 */
+	private static Method getMethod(final Class<?> type, final String name) {
+		try {
+			return type.getMethod(name);
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+}
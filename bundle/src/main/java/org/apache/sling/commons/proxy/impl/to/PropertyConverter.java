@@ -0,0 +1,724 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.proxy.SlingBinary;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a property from a value map and converts it to the return type of a
+ * property method.
+ * 
+ * How the property is read and converted is decided once per method, so
+ * reading a property is a single value map read followed by a single
+ * conversion. Types the value map converts to are read directly, other
+ * numbers are read as Long or Double and narrowed, and BigDecimals, enums and
+ * java.time types are converted from the value stored in the value map.
+ * Binary properties are opened as channels, buffers or binaries without
+ * copying them, see {@link BinaryProperty}.
+ * 
+ * The default values of the annotation are built once. Immutable defaults are
+ * returned as they are, mutable defaults are copied for every read. Methods
+ * returning primitives default to zero or false, as they cannot return null.
+ */
+public final class PropertyConverter {
+
+	/**
+	 * The ways of reading and converting a property.
+	 */
+	private enum Conversion {
+		/** Reads the property as the return type. */
+		Value,
+		/** Reads the property as a Long and narrows it to an Integer. */
+		Integer,
+		/** Reads the property as a Long and narrows it to a Short. */
+		Short,
+		/** Reads the property as a Long and narrows it to a Byte. */
+		Byte,
+		/** Reads the property as a Double and narrows it to a Float. */
+		Float,
+		/** Converts the stored value to a BigDecimal. */
+		BigDecimal,
+		/** Converts the stored value to a constant of the enum. */
+		Enum,
+		/** Converts the stored value to an Instant. */
+		Instant,
+		/** Converts the stored value to a LocalDate. */
+		LocalDate,
+		/** Converts the stored value to a LocalDateTime. */
+		LocalDateTime,
+		/** Converts the stored value to an OffsetDateTime. */
+		OffsetDateTime,
+		/** Converts the stored value to a ZonedDateTime. */
+		ZonedDateTime,
+		/** Reads the property as a byte array and boxes it. */
+		BoxedBytes,
+		/** Opens the binary property as a stream. */
+		Stream,
+		/** Opens the binary property as a channel. */
+		Channel,
+		/** Gets the binary property as a read-only buffer. */
+		Buffer,
+		/** Returns the binary property, to be opened by the caller. */
+		Binary
+	}
+
+	/**
+	 * The SLF4J Logger
+	 */
+	private static final Logger log = LoggerFactory
+			.getLogger(PropertyConverter.class);
+
+	/**
+	 * How the property is read and converted.
+	 */
+	private final Conversion conversion;
+
+	/**
+	 * The return type, boxed if the method returns a primitive.
+	 */
+	private final Class<?> type;
+
+	/**
+	 * The type the property is read as from the value map, or null if the
+	 * stored value is read and converted.
+	 */
+	private final Class<?> readType;
+
+	/**
+	 * The default value, copied before it is returned if it is mutable, or
+	 * null if there is none. The default of streams, channels and byte arrays
+	 * are the default bytes, the default of buffers and binaries are
+	 * read-only.
+	 */
+	private final Object defaultValue;
+
+	/**
+	 * Constructs a new property converter.
+	 * 
+	 * @param conversion
+	 *            how the property is read and converted
+	 * @param type
+	 *            the boxed return type
+	 * @param readType
+	 *            the type read from the value map or null
+	 * @param defaultValue
+	 *            the default value or null
+	 */
+	private PropertyConverter(final Conversion conversion,
+			final Class<?> type, final Class<?> readType,
+			final Object defaultValue) {
+		this.conversion = conversion;
+		this.type = type;
+		this.readType = readType;
+		this.defaultValue = defaultValue;
+	}
+
+	/**
+	 * Creates the converter for the return type of a property method.
+	 * 
+	 * @param returnType
+	 *            the return type of the method
+	 * @param sp
+	 *            the annotation of the method, or null for the getters of
+	 *            classes generated at compile time, which apply the default
+	 *            values themselves: their converters return null for missing
+	 *            properties, even for primitive return types
+	 * @return the converter
+	 */
+	static PropertyConverter newInstance(final Class<?> returnType,
+			final SlingProperty sp) {
+		final Class<?> type = box(returnType);
+		final Conversion conversion = getConversion(type);
+		Class<?> readType;
+		switch (conversion) {
+		case Integer:
+		case Short:
+		case Byte:
+			readType = Long.class;
+			break;
+		case Float:
+			readType = Double.class;
+			break;
+		case BoxedBytes:
+			readType = byte[].class;
+			break;
+		case Value:
+			readType = type;
+			break;
+		default:
+			readType = null;
+			break;
+		}
+		Object defaultValue = null;
+		if (sp == null) {
+			// the generated getter returns the default
+		} else if (sp.useDefault()) {
+			defaultValue = getDefault(conversion, type, sp);
+		} else if (returnType.isPrimitive()) {
+			defaultValue = getPrimitiveDefault(type);
+		}
+		return new PropertyConverter(conversion, type, readType,
+				defaultValue);
+	}
+
+	/**
+	 * Gets the wrapper of a primitive type.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return the wrapper type or the type itself if it is not primitive
+	 */
+	private static Class<?> box(final Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		} else if (type == boolean.class) {
+			return Boolean.class;
+		} else if (type == long.class) {
+			return Long.class;
+		} else if (type == int.class) {
+			return Integer.class;
+		} else if (type == short.class) {
+			return Short.class;
+		} else if (type == byte.class) {
+			return Byte.class;
+		} else if (type == double.class) {
+			return Double.class;
+		} else if (type == float.class) {
+			return Float.class;
+		} else if (type == char.class) {
+			return Character.class;
+		}
+		return type;
+	}
+
+	/**
+	 * Decides how properties of the specified type are read and converted.
+	 * 
+	 * @param type
+	 *            the boxed return type
+	 * @return the conversion
+	 */
+	private static Conversion getConversion(final Class<?> type) {
+		if (type == Integer.class) {
+			return Conversion.Integer;
+		} else if (type == Short.class) {
+			return Conversion.Short;
+		} else if (type == Byte.class) {
+			return Conversion.Byte;
+		} else if (type == Float.class) {
+			return Conversion.Float;
+		} else if (type == BigDecimal.class) {
+			return Conversion.BigDecimal;
+		} else if (type.isEnum()) {
+			return Conversion.Enum;
+		} else if (type == Instant.class) {
+			return Conversion.Instant;
+		} else if (type == LocalDate.class) {
+			return Conversion.LocalDate;
+		} else if (type == LocalDateTime.class) {
+			return Conversion.LocalDateTime;
+		} else if (type == OffsetDateTime.class) {
+			return Conversion.OffsetDateTime;
+		} else if (type == ZonedDateTime.class) {
+			return Conversion.ZonedDateTime;
+		} else if (type == Byte[].class) {
+			return Conversion.BoxedBytes;
+		} else if (type == InputStream.class) {
+			return Conversion.Stream;
+		} else if (type == ReadableByteChannel.class) {
+			return Conversion.Channel;
+		} else if (type == ByteBuffer.class) {
+			return Conversion.Buffer;
+		} else if (type == SlingBinary.class) {
+			return Conversion.Binary;
+		}
+		return Conversion.Value;
+	}
+
+	/**
+	 * Builds the default value of the annotation for the return type.
+	 * 
+	 * @param conversion
+	 *            the conversion of the return type
+	 * @param type
+	 *            the boxed return type
+	 * @param sp
+	 *            the annotation of the method
+	 * @return the default value or null if the return type has none
+	 */
+	private static Object getDefault(final Conversion conversion,
+			final Class<?> type, final SlingProperty sp) {
+		switch (conversion) {
+		case Integer:
+			return Integer.valueOf((int) sp.defaultLong());
+		case Short:
+			return Short.valueOf((short) sp.defaultLong());
+		case Byte:
+			return Byte.valueOf((byte) sp.defaultLong());
+		case Float:
+			return Float.valueOf((float) sp.defaultDouble());
+		case BigDecimal:
+			return BigDecimal.valueOf(sp.defaultDouble());
+		case Enum:
+			return toEnum(type, sp.defaultString());
+		case Instant:
+		case LocalDate:
+		case LocalDateTime:
+		case OffsetDateTime:
+		case ZonedDateTime:
+			return toDateTime(conversion, Instant.ofEpochMilli(sp
+					.defaultDate()), ZoneId.systemDefault());
+		case BoxedBytes:
+		case Stream:
+		case Channel:
+			return sp.defaultBytes();
+		case Buffer:
+			return ByteBuffer.wrap(sp.defaultBytes()).asReadOnlyBuffer();
+		case Binary:
+			return new BinaryProperty(sp.defaultBytes());
+		default:
+			break;
+		}
+		if (type == Boolean.class) {
+			return Boolean.valueOf(sp.defaultBoolean());
+		} else if (type == Long.class) {
+			return Long.valueOf(sp.defaultLong());
+		} else if (type == Double.class) {
+			return Double.valueOf(sp.defaultDouble());
+		} else if (type == String.class) {
+			return sp.defaultString();
+		} else if (type == String[].class) {
+			return sp.defaultStrings();
+		} else if (type == Calendar.class) {
+			final Calendar c = Calendar.getInstance();
+			c.setTimeInMillis(sp.defaultDate());
+			return c;
+		} else if (type == Date.class) {
+			return new Date(sp.defaultDate());
+		} else if (type == byte[].class) {
+			return sp.defaultBytes();
+		}
+		log.warn("Unmappable return type {} specified and default requested",
+				type);
+		return null;
+	}
+
+	/**
+	 * Gets the value returned for a missing property by a method returning a
+	 * primitive without a default.
+	 * 
+	 * @param type
+	 *            the boxed return type
+	 * @return zero or false
+	 */
+	private static Object getPrimitiveDefault(final Class<?> type) {
+		if (type == Boolean.class) {
+			return Boolean.FALSE;
+		} else if (type == Long.class) {
+			return Long.valueOf(0L);
+		} else if (type == Integer.class) {
+			return Integer.valueOf(0);
+		} else if (type == Short.class) {
+			return Short.valueOf((short) 0);
+		} else if (type == Byte.class) {
+			return Byte.valueOf((byte) 0);
+		} else if (type == Double.class) {
+			return Double.valueOf(0.0);
+		} else if (type == Float.class) {
+			return Float.valueOf(0.0f);
+		} else if (type == Character.class) {
+			return Character.valueOf((char) 0);
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the property from the value map and converts it to the return
+	 * type, returning the default value if the property is missing or cannot
+	 * be converted.
+	 * 
+	 * @param vm
+	 *            the value map
+	 * @param name
+	 *            the name of the property
+	 * @return the property value
+	 */
+	public Object read(final ValueMap vm, final String name) {
+		switch (this.conversion) {
+		case Stream:
+		case Channel:
+		case Buffer:
+		case Binary:
+			return this.readBinary(vm, name);
+		default:
+			break;
+		}
+		Object value;
+		if (this.readType != null) {
+			value = vm.get(name, this.readType);
+		} else {
+			value = vm.get(name);
+		}
+		if (value != null) {
+			value = this.convert(value);
+		}
+		return (value != null ? value : this.getDefault());
+	}
+
+	/**
+	 * Reads a binary property, opening streams, channels and buffers without
+	 * copying the content when it is a byte array or a local file.
+	 * 
+	 * @param vm
+	 *            the value map
+	 * @param name
+	 *            the name of the property
+	 * @return the stream, channel, buffer or binary, or the default value if
+	 *         the property is missing
+	 */
+	private Object readBinary(final ValueMap vm, final String name) {
+		if (!vm.containsKey(name)) {
+			return this.getDefault();
+		}
+		final BinaryProperty binary = new BinaryProperty(vm, name);
+		try {
+			switch (this.conversion) {
+			case Stream:
+				return binary.openStream();
+			case Channel:
+				return binary.openChannel();
+			case Buffer:
+				return binary.getBuffer();
+			default:
+				return binary;
+			}
+		} catch (final IOException e) {
+			throw new IllegalStateException("Unable to read binary property "
+					+ name, e);
+		}
+	}
+
+	/**
+	 * Gets the return type, boxed if the method returns a primitive.
+	 * 
+	 * @return the boxed return type
+	 */
+	Class<?> getType() {
+		return this.type;
+	}
+
+	/**
+	 * Gets whether the property is binary. Binary properties are read every
+	 * time they are invoked, as streams and channels can only be read once
+	 * and buffers and byte arrays would keep the content in memory.
+	 * 
+	 * @return true if the return type is a stream, channel, buffer, binary or
+	 *         byte array
+	 */
+	public boolean isBinary() {
+		switch (this.conversion) {
+		case BoxedBytes:
+		case Stream:
+		case Channel:
+		case Buffer:
+		case Binary:
+			return true;
+		default:
+			return this.type == byte[].class;
+		}
+	}
+
+	/**
+	 * Converts the value read from the value map to the return type.
+	 * 
+	 * @param value
+	 *            the value, not null
+	 * @return the converted value or null if it cannot be converted, which is
+	 *         the case for numbers out of the range of the return type
+	 */
+	private Object convert(final Object value) {
+		final long l;
+		switch (this.conversion) {
+		case Integer:
+			l = ((Long) value).longValue();
+			return ((l >= Integer.MIN_VALUE) && (l <= Integer.MAX_VALUE) ? Integer
+					.valueOf((int) l) : null);
+		case Short:
+			l = ((Long) value).longValue();
+			return ((l >= Short.MIN_VALUE) && (l <= Short.MAX_VALUE) ? Short
+					.valueOf((short) l) : null);
+		case Byte:
+			l = ((Long) value).longValue();
+			return ((l >= Byte.MIN_VALUE) && (l <= Byte.MAX_VALUE) ? Byte
+					.valueOf((byte) l) : null);
+		case Float:
+			final double d = ((Double) value).doubleValue();
+			final float f = (float) d;
+			return (!Float.isInfinite(f) || Double.isInfinite(d) ? Float
+					.valueOf(f) : null);
+		case BigDecimal:
+			return toBigDecimal(value);
+		case Enum:
+			return toEnum(this.type, value);
+		case Instant:
+		case LocalDate:
+		case LocalDateTime:
+		case OffsetDateTime:
+		case ZonedDateTime:
+			return this.toDateTime(value);
+		case BoxedBytes:
+			final byte[] bytes = (byte[]) value;
+			final Byte[] boxed = new Byte[bytes.length];
+			for (int i = 0; i < bytes.length; i++) {
+				boxed[i] = Byte.valueOf(bytes[i]);
+			}
+			return boxed;
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * Gets the default value, copying mutable defaults.
+	 * 
+	 * @return the default value or null
+	 */
+	private Object getDefault() {
+		final Object d = this.defaultValue;
+		if (d == null) {
+			return null;
+		} else if (this.conversion == Conversion.BoxedBytes) {
+			return this.convert(d);
+		} else if (this.conversion == Conversion.Stream) {
+			return new ByteArrayInputStream((byte[]) d);
+		} else if (this.conversion == Conversion.Channel) {
+			return Channels.newChannel(new ByteArrayInputStream((byte[]) d));
+		} else if (this.conversion == Conversion.Buffer) {
+			return ((ByteBuffer) d).duplicate();
+		} else if (this.type == Calendar.class) {
+			return ((Calendar) d).clone();
+		} else if (this.type == Date.class) {
+			return new Date(((Date) d).getTime());
+		} else if (this.type == String[].class) {
+			return ((String[]) d).clone();
+		} else if (this.type == byte[].class) {
+			return ((byte[]) d).clone();
+		}
+		return d;
+	}
+
+	/**
+	 * Creates a binary of the specified bytes, the default value of the
+	 * binary properties of the getters generated at compile time.
+	 * 
+	 * @param bytes
+	 *            the bytes, which are not copied
+	 * @return the binary
+	 */
+	public static SlingBinary toBinary(final byte[] bytes) {
+		return new BinaryProperty(bytes);
+	}
+
+	/**
+	 * Converts a value passed to a setter to the type it is stored as, which
+	 * the getters convert back to their return types. Narrowed numbers are
+	 * stored as Long or Double, BigDecimals as Strings, enums by name and
+	 * dates as Calendars. Mutable values are copied.
+	 * 
+	 * @param value
+	 *            the value passed to the setter, may be null
+	 * @return the value to store
+	 */
+	public static Object toStoredValue(final Object value) {
+		if ((value instanceof Integer) || (value instanceof Short)
+				|| (value instanceof Byte)) {
+			return Long.valueOf(((Number) value).longValue());
+		} else if (value instanceof Float) {
+			return Double.valueOf(((Float) value).doubleValue());
+		} else if ((value instanceof BigDecimal)
+				|| (value instanceof Character)) {
+			return value.toString();
+		} else if (value instanceof java.lang.Enum<?>) {
+			return ((java.lang.Enum<?>) value).name();
+		} else if (value instanceof Calendar) {
+			return ((Calendar) value).clone();
+		} else if (value instanceof Date) {
+			final Calendar c = Calendar.getInstance();
+			c.setTime((Date) value);
+			return c;
+		} else if (value instanceof ZonedDateTime) {
+			return GregorianCalendar.from((ZonedDateTime) value);
+		} else if (value instanceof OffsetDateTime) {
+			return GregorianCalendar.from(((OffsetDateTime) value)
+					.toZonedDateTime());
+		} else if (value instanceof Instant) {
+			return GregorianCalendar.from(ZonedDateTime.ofInstant(
+					(Instant) value, ZoneId.systemDefault()));
+		} else if (value instanceof LocalDateTime) {
+			return GregorianCalendar.from(((LocalDateTime) value)
+					.atZone(ZoneId.systemDefault()));
+		} else if (value instanceof LocalDate) {
+			return GregorianCalendar.from(((LocalDate) value)
+					.atStartOfDay(ZoneId.systemDefault()));
+		} else if (value instanceof String[]) {
+			return ((String[]) value).clone();
+		} else if (value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		} else if (value instanceof Byte[]) {
+			final Byte[] boxed = (Byte[]) value;
+			final byte[] bytes = new byte[boxed.length];
+			for (int i = 0; i < boxed.length; i++) {
+				bytes[i] = boxed[i].byteValue();
+			}
+			return bytes;
+		}
+		return value;
+	}
+
+	/**
+	 * Converts a stored value to a BigDecimal.
+	 * 
+	 * @param value
+	 *            the stored value
+	 * @return the BigDecimal or null if the value is not a number
+	 */
+	private static BigDecimal toBigDecimal(final Object value) {
+		if (value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		}
+		try {
+			return new BigDecimal(value.toString());
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Converts a stored value to a constant of an enum, by name.
+	 * 
+	 * @param type
+	 *            the enum
+	 * @param value
+	 *            the stored value
+	 * @return the constant or null if the enum has no constant of the name
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" })
+	private static Object toEnum(final Class<?> type, final Object value) {
+		if (type.isInstance(value)) {
+			return value;
+		}
+		final String name = value.toString();
+		if (name.length() == 0) {
+			return null;
+		}
+		try {
+			return java.lang.Enum.valueOf((Class) type, name);
+		} catch (final IllegalArgumentException e) {
+			log.debug("No constant {} in {}", name, type.getName());
+			return null;
+		}
+	}
+
+	/**
+	 * Converts a stored Calendar, Date or ISO-8601 String to the java.time
+	 * return type.
+	 * 
+	 * @param value
+	 *            the stored value
+	 * @return the converted value or null if it cannot be converted
+	 */
+	private Object toDateTime(final Object value) {
+		if (this.type.isInstance(value)) {
+			return value;
+		}
+		if (value instanceof Calendar) {
+			final Calendar c = (Calendar) value;
+			return toDateTime(this.conversion, c.toInstant(), c.getTimeZone()
+					.toZoneId());
+		} else if (value instanceof Date) {
+			return toDateTime(this.conversion, Instant.ofEpochMilli(((Date) value)
+					.getTime()), ZoneId.systemDefault());
+		}
+		try {
+			final String s = value.toString();
+			switch (this.conversion) {
+			case LocalDate:
+				return LocalDate.parse(s);
+			case LocalDateTime:
+				return LocalDateTime.parse(s);
+			default:
+				final ZonedDateTime zdt = ZonedDateTime.parse(s);
+				return toDateTime(this.conversion, zdt.toInstant(), zdt
+						.getZone());
+			}
+		} catch (final DateTimeParseException e) {
+			log.debug("Unable to parse {} as {}", value, this.type.getName());
+			return null;
+		}
+	}
+
+	/**
+	 * Converts an instant in a time zone to a java.time type.
+	 * 
+	 * @param conversion
+	 *            the conversion to the java.time type
+	 * @param instant
+	 *            the instant
+	 * @param zone
+	 *            the time zone
+	 * @return the converted value
+	 */
+	private static Object toDateTime(final Conversion conversion,
+			final Instant instant, final ZoneId zone) {
+		switch (conversion) {
+		case LocalDate:
+			return ZonedDateTime.ofInstant(instant, zone).toLocalDate();
+		case LocalDateTime:
+			return ZonedDateTime.ofInstant(instant, zone).toLocalDateTime();
+		case OffsetDateTime:
+			return OffsetDateTime.ofInstant(instant, zone);
+		case ZonedDateTime:
+			return ZonedDateTime.ofInstant(instant, zone);
+		default:
+			return instant;
+		}
+	}
+}
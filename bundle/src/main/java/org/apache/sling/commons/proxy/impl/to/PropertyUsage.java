@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how many of the properties of a proxy interface are read by its
+ * proxies, to tell whether prefetching the properties of the interface pays
+ * off. Only proxies which read at least one property are counted, and every
+ * property is counted once per proxy. The counters are striped, so proxies of
+ * the same interface read concurrently do not contend on them.
+ */
+public final class PropertyUsage {
+
+	/**
+	 * The names of the properties, by cache slot.
+	 */
+	private final String[] propertyNames;
+
+	/**
+	 * The number of proxies which read at least one property.
+	 */
+	private final LongAdder proxyCount = new LongAdder();
+
+	/**
+	 * The number of proxies which read each property, by cache slot.
+	 */
+	private final LongAdder[] readCounts;
+
+	/**
+	 * Constructs a new property usage.
+	 * 
+	 * @param propertyNames
+	 *            the names of the properties, by cache slot
+	 */
+	PropertyUsage(final String[] propertyNames) {
+		this.propertyNames = propertyNames;
+		this.readCounts = new LongAdder[propertyNames.length];
+		for (int i = 0; i < this.readCounts.length; i++) {
+			this.readCounts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a proxy reading its first property.
+	 */
+	public void recordProxy() {
+		this.proxyCount.increment();
+	}
+
+	/**
+	 * Records a proxy reading a property for the first time.
+	 * 
+	 * @param cacheSlot
+	 *            the cache slot of the property
+	 */
+	public void recordRead(final int cacheSlot) {
+		this.readCounts[cacheSlot].increment();
+	}
+
+	/**
+	 * Gets the number of proxies which read at least one property.
+	 * 
+	 * @return the proxy count
+	 */
+	public long getProxyCount() {
+		return this.proxyCount.sum();
+	}
+
+	/**
+	 * Gets the number of proxies which read the property.
+	 * 
+	 * @param cacheSlot
+	 *            the cache slot of the property
+	 * @return the read count
+	 */
+	public long getReadCount(final int cacheSlot) {
+		return this.readCounts[cacheSlot].sum();
+	}
+
+	/**
+	 * Gets the average number of distinct properties read by a proxy.
+	 * 
+	 * @return the average number of properties, 0 if no proxy read a
+	 *         property
+	 */
+	public double getAverageReadCount() {
+		final long proxies = this.proxyCount.sum();
+		if (proxies == 0) {
+			return 0;
+		}
+		long reads = 0;
+		for (int i = 0; i < this.readCounts.length; i++) {
+			reads += this.readCounts[i].sum();
+		}
+		return (double) reads / proxies;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(this.getProxyCount()).append(" proxies read ")
+				.append(String.format(Locale.ENGLISH, "%.1f",
+						this.getAverageReadCount()))
+				.append(" of ").append(this.propertyNames.length)
+				.append(" properties");
+		for (int i = 0; i < this.propertyNames.length; i++) {
+			sb.append(i == 0 ? " (" : ", ").append(this.propertyNames[i])
+					.append(": ").append(this.readCounts[i].sum());
+		}
+		if (this.propertyNames.length > 0) {
+			sb.append(')');
+		}
+		return sb.toString();
+	}
+}
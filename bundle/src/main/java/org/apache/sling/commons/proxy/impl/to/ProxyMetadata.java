@@ -0,0 +1,606 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.to;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.commons.proxy.annotations.SlingPrefetch;
+import org.apache.sling.commons.proxy.impl.lang.JDPHashCodeImpl;
+
+/**
+ * The metadata for a proxy interface. Maps every method which may be invoked
+ * on a proxy of the interface to the pre-resolved transfer object describing
+ * how to handle it, so that invocations only require a single lookup.
+ * 
+ * Instances are immutable, apart from the counts of the property usage, and
+ * are meant to be created once per interface.
+ */
+public final class ProxyMetadata {
+
+	/**
+	 * The Object methods which are dispatched to every invocation handler.
+	 */
+	private static final Method[] OBJECT_METHODS;
+	static {
+		try {
+			OBJECT_METHODS = new Method[] {
+					Object.class.getMethod("equals", Object.class),
+					Object.class.getMethod("hashCode"),
+					Object.class.getMethod("toString") };
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The primitive types, by name.
+	 */
+	private static final Map<String, Class<?>> PRIMITIVES = new java.util.HashMap<String, Class<?>>();
+	static {
+		for (final Class<?> c : new Class<?>[] { boolean.class, byte.class,
+				char.class, short.class, int.class, long.class, float.class,
+				double.class }) {
+			PRIMITIVES.put(c.getName(), c);
+		}
+	}
+
+	/**
+	 * The proxy interface this metadata describes.
+	 */
+	private final Class<?> type;
+
+	/**
+	 * The transfer objects, by method.
+	 */
+	private final Map<Method, InvokedTO> invokedTOs;
+
+	/**
+	 * The public methods of the proxy interface, the index of each method is
+	 * its slot.
+	 */
+	private final Method[] methods;
+
+	/**
+	 * The transfer objects, by slot.
+	 */
+	private final InvokedTO[] slots;
+
+	/**
+	 * The number of distinct properties read by the proxy interface, the size
+	 * of the property cache of the invocation handlers.
+	 */
+	private final int propertyCount;
+
+	/**
+	 * The number of children methods whose children are cached, the size of
+	 * the children cache of the invocation handlers.
+	 */
+	private final int childrenCount;
+
+	/**
+	 * The number of reference methods, the size of the reference cache of the
+	 * invocation handlers.
+	 */
+	private final int referenceCount;
+
+	/**
+	 * The slots of the distinct paths of the properties, children and
+	 * references read by the proxy interface, by path.
+	 */
+	private final Map<String, Integer> pathSlots;
+
+	/**
+	 * The first transfer object reading each distinct property, by cache
+	 * slot.
+	 */
+	private final InvokedPropertyTO[] properties;
+
+	/**
+	 * The transfer objects of the property methods rendered by toString,
+	 * sorted by method name.
+	 */
+	private final InvokedPropertyTO[] toStringProperties;
+
+	/**
+	 * The hash code of the set of interfaces of the proxies, which only
+	 * implement the proxy interface.
+	 */
+	private final int interfacesHashCode;
+
+	/**
+	 * Whether or not all properties are read when the first is read.
+	 */
+	private final boolean prefetch;
+
+	/**
+	 * Counts how many of the properties are read by the proxies.
+	 */
+	private final PropertyUsage propertyUsage;
+
+	/**
+	 * The class generated at compile time implementing the proxy interface,
+	 * whose methods the slots are assigned to, or null.
+	 */
+	private final Class<?> compiledClass;
+
+	/**
+	 * Constructs a new Proxy Metadata instance.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @param invokedTOs
+	 *            the transfer objects by method
+	 * @param methods
+	 *            the public methods of the proxy interface
+	 * @param slots
+	 *            the transfer objects by slot
+	 * @param properties
+	 *            the first transfer object of each distinct property
+	 * @param toStringProperties
+	 *            the transfer objects of the property methods rendered by
+	 *            toString
+	 * @param pathSlots
+	 *            the slots of the distinct paths
+	 * @param childrenCount
+	 *            the number of children methods whose children are cached
+	 * @param referenceCount
+	 *            the number of reference methods
+	 * @param prefetch
+	 *            whether or not all properties are read when the first is
+	 *            read
+	 * @param compiledClass
+	 *            the class generated at compile time or null
+	 */
+	private ProxyMetadata(final Class<?> type,
+			final Map<Method, InvokedTO> invokedTOs, final Method[] methods,
+			final InvokedTO[] slots, final InvokedPropertyTO[] properties,
+			final InvokedPropertyTO[] toStringProperties,
+			final Map<String, Integer> pathSlots, final int childrenCount,
+			final int referenceCount, final boolean prefetch,
+			final Class<?> compiledClass) {
+		this.type = type;
+		this.invokedTOs = invokedTOs;
+		this.methods = methods;
+		this.slots = slots;
+		this.propertyCount = properties.length;
+		this.properties = properties;
+		this.toStringProperties = toStringProperties;
+		this.pathSlots = pathSlots;
+		this.childrenCount = childrenCount;
+		this.referenceCount = referenceCount;
+		this.prefetch = prefetch;
+		this.compiledClass = compiledClass;
+		this.interfacesHashCode = JDPHashCodeImpl.interfacesHashCode(type);
+		final String[] propertyNames = new String[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			propertyNames[i] = properties[i].getPropertyName();
+		}
+		this.propertyUsage = new PropertyUsage(propertyNames);
+	}
+
+	/**
+	 * Creates the metadata for the specified proxy interface, resolving the
+	 * transfer objects for all of the public methods of the interface and
+	 * the Object methods handled by the proxy. Every distinct property, read
+	 * as a distinct type, is assigned a slot in the property cache of the
+	 * invocation handlers and
+	 * every distinct path of the properties, children and references a slot
+	 * in their resource memo. Children methods returning a List, an array or
+	 * a count without arguments are assigned a slot in the children cache
+	 * and every reference method a slot in the reference cache. The property
+	 * methods rendered by toString are collected once as well.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @return the metadata for the interface
+	 */
+	public static ProxyMetadata newInstance(final Class<?> type) {
+		final Method[] methods = type.getMethods();
+		final InvokedTO[] slots = new InvokedTO[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			slots[i] = InvokedTOFactory.newInstance(methods[i]);
+		}
+		return newInstance(type, methods, slots, isPrefetch(type), null);
+	}
+
+	/**
+	 * Creates the metadata for a proxy interface implemented by a class
+	 * generated at compile time, from the registry written by the annotation
+	 * processor instead of the annotations of the interface. The registry
+	 * lists the methods the generated class implements in the order of their
+	 * slots, which the generated methods pass to the invocation handler, as
+	 * <code>&lt;interface&gt;#&lt;slot&gt;=&lt;name&gt;(&lt;parameter
+	 * types&gt;)</code>, followed by the kind of each method and the values of
+	 * its annotation, and whether the interface is prefetched as
+	 * <code>&lt;interface&gt;#prefetch</code>. The methods are looked up by
+	 * their signature, which is all that is left to reflection. The interface
+	 * methods the class does not implement, default methods, have no slot.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @param compiledClass
+	 *            the class generated for the interface
+	 * @param registry
+	 *            the registry entries
+	 * @return the metadata for the interface
+	 * @throws IllegalStateException
+	 *             if a method listed in the registry does not exist, when the
+	 *             interface was changed without running the annotation
+	 *             processor
+	 */
+	public static ProxyMetadata newInstance(final Class<?> type,
+			final Class<?> compiledClass, final Properties registry) {
+		final ClassLoader cl = type.getClassLoader();
+		final List<Method> methods = new java.util.ArrayList<Method>();
+		final List<InvokedTO> slots = new java.util.ArrayList<InvokedTO>();
+		String key = type.getName() + "#0";
+		try {
+			String signature = registry.getProperty(key);
+			while (signature != null) {
+				final Method method = getMethod(type, signature, cl);
+				methods.add(method);
+				slots.add(InvokedTOFactory.newInstance(method, registry, key,
+						cl));
+				key = type.getName() + '#' + methods.size();
+				signature = registry.getProperty(key);
+			}
+		} catch (final ClassNotFoundException e) {
+			throw new IllegalStateException("Invalid registry entry " + key
+					+ " for " + compiledClass.getName(), e);
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalStateException("Invalid registry entry " + key
+					+ " for " + compiledClass.getName(), e);
+		}
+		return newInstance(type, methods.toArray(new Method[methods.size()]),
+				slots.toArray(new InvokedTO[slots.size()]), Boolean.valueOf(
+						registry.getProperty(type.getName() + "#prefetch"))
+						.booleanValue(), compiledClass);
+	}
+
+	/**
+	 * Looks up the method with the specified signature, as written to the
+	 * registry by the annotation processor.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @param signature
+	 *            the name of the method followed by the comma separated
+	 *            binary names of its parameter types in parentheses, with
+	 *            <code>[]</code> appended to array types
+	 * @param cl
+	 *            the class loader of the proxy interface
+	 * @return the method
+	 * @throws ClassNotFoundException
+	 *             if a parameter type cannot be loaded
+	 * @throws NoSuchMethodException
+	 *             if the interface has no such method
+	 */
+	private static Method getMethod(final Class<?> type,
+			final String signature, final ClassLoader cl)
+			throws ClassNotFoundException, NoSuchMethodException {
+		final int open = signature.indexOf('(');
+		final String[] names = StringUtils.split(signature.substring(
+				open + 1, signature.length() - 1), ',');
+		final Class<?>[] parameterTypes = new Class<?>[names.length];
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			int dimensions = 0;
+			while (name.endsWith("[]")) {
+				name = name.substring(0, name.length() - 2);
+				dimensions++;
+			}
+			Class<?> c = PRIMITIVES.get(name);
+			if (c == null) {
+				c = Class.forName(name, false, cl);
+			}
+			for (int d = 0; d < dimensions; d++) {
+				c = java.lang.reflect.Array.newInstance(c, 0).getClass();
+			}
+			parameterTypes[i] = c;
+		}
+		return type.getMethod(signature.substring(0, open), parameterTypes);
+	}
+
+	/**
+	 * Creates the metadata for the specified methods of a proxy interface and
+	 * their transfer objects, whose index is their slot.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 * @param methods
+	 *            the methods
+	 * @param slots
+	 *            the transfer objects of the methods
+	 * @param prefetch
+	 *            whether or not all properties are read when the first is
+	 *            read
+	 * @param compiledClass
+	 *            the class generated at compile time or null
+	 * @return the metadata for the interface
+	 */
+	private static ProxyMetadata newInstance(final Class<?> type,
+			final Method[] methods, final InvokedTO[] slots,
+			final boolean prefetch, final Class<?> compiledClass) {
+		final Map<Method, InvokedTO> invokedTOs = new java.util.HashMap<Method, InvokedTO>(
+				(methods.length + OBJECT_METHODS.length) * 2);
+		for (final Method m : OBJECT_METHODS) {
+			invokedTOs.put(m, InvokedTOFactory.newInstance(m));
+		}
+		final Map<String, Integer> cacheSlots = new java.util.HashMap<String, Integer>();
+		final Map<String, Integer> pathSlots = new java.util.HashMap<String, Integer>();
+		final List<InvokedPropertyTO> properties = new java.util.ArrayList<InvokedPropertyTO>();
+		final List<InvokedPropertyTO> toStringProperties = new java.util.ArrayList<InvokedPropertyTO>();
+		int childrenCount = 0;
+		int referenceCount = 0;
+		for (int i = 0; i < methods.length; i++) {
+			invokedTOs.put(methods[i], slots[i]);
+			if (slots[i] instanceof InvokedPropertyTO) {
+				final InvokedPropertyTO to = (InvokedPropertyTO) slots[i];
+				// methods converting the property differently need their own
+				// slot
+				final String cacheKey = to.getPropertyName() + '|'
+						+ to.getCacheDescriptor();
+				Integer cacheSlot = cacheSlots.get(cacheKey);
+				if (cacheSlot == null) {
+					cacheSlot = Integer.valueOf(cacheSlots.size());
+					cacheSlots.put(cacheKey, cacheSlot);
+					properties.add(to);
+				}
+				to.setCacheSlot(cacheSlot.intValue());
+				// binaries would be opened just to be rendered
+				if (!to.getConverter().isBinary()) {
+					toStringProperties.add(to);
+				}
+			}
+			if (slots[i] instanceof InvokedChildrenTO
+					&& ((InvokedChildrenTO) slots[i]).isCacheable()) {
+				((InvokedChildrenTO) slots[i]).setChildrenSlot(childrenCount++);
+			}
+			if (slots[i] instanceof InvokedReferenceTO) {
+				((InvokedReferenceTO) slots[i])
+						.setReferenceSlot(referenceCount++);
+			}
+			if (slots[i] instanceof InvokedPropertyTO
+					|| slots[i] instanceof InvokedChildrenTO
+					|| slots[i] instanceof InvokedReferenceTO) {
+				final BaseInvokedTO to = (BaseInvokedTO) slots[i];
+				final String path = (to.getPath() != null ? to.getPath() : "");
+				Integer pathSlot = pathSlots.get(path);
+				if (pathSlot == null) {
+					pathSlot = Integer.valueOf(pathSlots.size());
+					pathSlots.put(path, pathSlot);
+				}
+				to.setPathSlot(pathSlot.intValue());
+			}
+		}
+		Collections.sort(toStringProperties,
+				new Comparator<InvokedPropertyTO>() {
+					public int compare(final InvokedPropertyTO to1,
+							final InvokedPropertyTO to2) {
+						return to1.getMethod().getName().compareTo(
+								to2.getMethod().getName());
+					}
+				});
+		return new ProxyMetadata(type,
+				Collections.unmodifiableMap(invokedTOs), methods, slots,
+				properties.toArray(new InvokedPropertyTO[properties.size()]),
+				toStringProperties
+						.toArray(new InvokedPropertyTO[toStringProperties
+								.size()]), pathSlots, childrenCount,
+				referenceCount, prefetch, compiledClass);
+	}
+
+	/**
+	 * Checks whether the specified interface or one of the interfaces it
+	 * extends is annotated with {@link SlingPrefetch}.
+	 * 
+	 * @param type
+	 *            the interface
+	 * @return true if the properties of the interface are prefetched
+	 */
+	private static boolean isPrefetch(final Class<?> type) {
+		if (type.isAnnotationPresent(SlingPrefetch.class)) {
+			return true;
+		}
+		for (final Class<?> i : type.getInterfaces()) {
+			if (isPrefetch(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the transfer object for the specified method.
+	 * 
+	 * @param method
+	 *            the invoked method
+	 * @return the transfer object or null if the method is not a method of the
+	 *         proxy interface
+	 */
+	public InvokedTO getInvokedTO(final Method method) {
+		return this.invokedTOs.get(method);
+	}
+
+	/**
+	 * Gets the transfer object for the method in the specified slot.
+	 * 
+	 * @param slot
+	 *            the slot of the method, less than {@link #getSlotCount()}
+	 * @return the transfer object
+	 */
+	public InvokedTO getInvokedTO(final int slot) {
+		return this.slots[slot];
+	}
+
+	/**
+	 * Gets the number of slots, one for every public method of the proxy
+	 * interface.
+	 * 
+	 * @return the number of slots
+	 */
+	public int getSlotCount() {
+		return this.methods.length;
+	}
+
+	/**
+	 * Gets the method in the specified slot.
+	 * 
+	 * @param slot
+	 *            the slot
+	 * @return the method
+	 */
+	public Method getSlotMethod(final int slot) {
+		return this.methods[slot];
+	}
+
+	/**
+	 * Gets the number of distinct properties read by the proxy interface.
+	 * 
+	 * @return the number of properties
+	 */
+	public int getPropertyCount() {
+		return this.propertyCount;
+	}
+
+	/**
+	 * Gets the hash code of the set of interfaces implemented by the proxies
+	 * of the interface.
+	 * 
+	 * @return the hash code of the interfaces
+	 */
+	public int getInterfacesHashCode() {
+		return this.interfacesHashCode;
+	}
+
+	/**
+	 * Gets the number of children methods whose children are cached by the
+	 * invocation handlers.
+	 * 
+	 * @return the number of cached children methods
+	 */
+	public int getChildrenCount() {
+		return this.childrenCount;
+	}
+
+	/**
+	 * Gets the number of reference methods, whose references are cached by
+	 * the invocation handlers.
+	 * 
+	 * @return the number of reference methods
+	 */
+	public int getReferenceCount() {
+		return this.referenceCount;
+	}
+
+	/**
+	 * Gets the first transfer object reading the property in the specified
+	 * cache slot.
+	 * 
+	 * @param cacheSlot
+	 *            the cache slot, less than {@link #getPropertyCount()}
+	 * @return the transfer object
+	 */
+	public InvokedPropertyTO getProperty(final int cacheSlot) {
+		return this.properties[cacheSlot];
+	}
+
+	/**
+	 * Gets the transfer objects of the property methods rendered by the
+	 * toString method of the proxies, sorted by method name. Binary properties
+	 * are not rendered, nor are children and reference methods, which would
+	 * resolve further resources.
+	 * 
+	 * @return the transfer objects, not to be modified
+	 */
+	public InvokedPropertyTO[] getToStringProperties() {
+		return this.toStringProperties;
+	}
+
+	/**
+	 * Checks whether the proxies read all properties when the first property
+	 * is read, see {@link SlingPrefetch}.
+	 * 
+	 * @return true if the properties are prefetched
+	 */
+	public boolean isPrefetch() {
+		return this.prefetch;
+	}
+
+	/**
+	 * Gets the counts of how many of the properties are read by the proxies
+	 * of the interface.
+	 * 
+	 * @return the property usage
+	 */
+	public PropertyUsage getPropertyUsage() {
+		return this.propertyUsage;
+	}
+
+	/**
+	 * Gets the number of distinct paths of the properties, children and
+	 * references read by the proxy interface.
+	 * 
+	 * @return the number of paths
+	 */
+	public int getPathCount() {
+		return this.pathSlots.size();
+	}
+
+	/**
+	 * Gets the slot of the specified path of a property, children or
+	 * reference.
+	 * 
+	 * @param path
+	 *            the path, relative to the backing resource unless it is
+	 *            absolute
+	 * @return the path slot or -1 if no property, children or reference of
+	 *         the proxy interface are read from the path
+	 */
+	public int getPathSlot(final String path) {
+		final Integer pathSlot = this.pathSlots.get(path);
+		return (pathSlot != null ? pathSlot.intValue() : -1);
+	}
+
+	/**
+	 * Gets the class generated at compile time implementing the proxy
+	 * interface, whose methods the slots of this metadata are assigned to.
+	 * 
+	 * @return the generated class or null if the metadata was created from
+	 *         the annotations of the interface
+	 */
+	public Class<?> getCompiledClass() {
+		return this.compiledClass;
+	}
+
+	/**
+	 * Gets the proxy interface this metadata describes.
+	 * 
+	 * @return the proxy interface
+	 */
+	public Class<?> getType() {
+		return this.type;
+	}
+}
@@ -35,7 +35,16 @@ public class BaseSlingProxyTest {
 	private final static Logger log = LoggerFactory
 			.getLogger(TestSlingPropertyProxy.class);
 	protected final MockResourceResolver resolver = new MockResourceResolver();
-	protected final SlingProxyService slingProxyService = new DefaultSlingProxyServiceImpl();
+	protected final SlingProxyService slingProxyService = createSlingProxyService();
+
+	/**
+	 * Creates the Sling Proxy service under test.
+	 * 
+	 * @return the Sling Proxy service
+	 */
+	protected SlingProxyService createSlingProxyService() {
+		return new DefaultSlingProxyServiceImpl();
+	}
 
 	/**
 	 * Sets up the Sling mock objects
@@ -47,6 +56,18 @@ public class BaseSlingProxyTest {
 		log.info("init");
 
 		log.info("Creating Mock Resources");
+		createResources(resolver);
+
+		log.info("Initialization complete");
+	}
+
+	/**
+	 * Creates the mock page and content resources in a resource resolver.
+	 * 
+	 * @param resolver
+	 *            the resource resolver
+	 */
+	protected void createResources(final MockResourceResolver resolver) {
 		final MockResource pageResource = new MockResource(resolver,
 				"/content/test", PAGE_RESOURCE_TYPE) {
 			public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
@@ -74,7 +95,5 @@ public class BaseSlingProxyTest {
 				.addProperty("sling:resourceType", CONTENT_RESOURCE_TYPE);
 		contentResource.addProperty("active", false);
 		resolver.addResource(contentResource);
-
-		log.info("Initialization complete");
 	}
 }
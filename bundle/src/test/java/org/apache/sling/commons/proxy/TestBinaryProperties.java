@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.sling.commons.proxy.samples.BinarySlingProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for reading binary properties as streams, channels, buffers and
+ * binaries.
+ */
+public class TestBinaryProperties extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestBinaryProperties.class);
+
+	/**
+	 * All of the tests for binary properties.
+	 */
+	@Test
+	public void runTests() throws IOException {
+
+		log.info("runTests");
+
+		final byte[] data = new byte[] { 10, 11, 12, 13, 14, 15, 16, 17 };
+		final File file = File.createTempFile("binary", ".bin");
+		file.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+		MockResource resource = new MockResource(resolver, "/content/binary",
+				PAGE_RESOURCE_TYPE);
+		resource.addProperty("data", data);
+		resource.addProperty("file", file);
+		resolver.addResource(resource);
+
+		BinarySlingProxy proxy = slingProxyService.getProxy(resource,
+				BinarySlingProxy.class);
+
+		log.info("Testing byte arrays are wrapped without copying");
+		ByteBuffer buffer = proxy.getDataBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(data.length, buffer.remaining());
+		assertEquals(12, buffer.get(2));
+		try {
+			buffer.put(0, (byte) 0);
+			fail("Buffers must be read-only");
+		} catch (final ReadOnlyBufferException e) {
+			// expected
+		}
+		assertArrayEquals(data, read(proxy.getDataChannel()));
+
+		log.info("Testing small local files are read and large ones mapped");
+		ByteBuffer small = proxy.getFileBuffer();
+		assertFalse(small instanceof MappedByteBuffer);
+		assertTrue(small.isReadOnly());
+		assertEquals(data.length, small.remaining());
+		assertEquals(17, small.get(7));
+		final File large = File.createTempFile("large", ".bin");
+		large.deleteOnExit();
+		final RandomAccessFile raf = new RandomAccessFile(large, "rw");
+		try {
+			raf.setLength(2 * 1024 * 1024);
+			raf.seek(2 * 1024 * 1024 - 1);
+			raf.write(42);
+		} finally {
+			raf.close();
+		}
+		MockResource largeResource = new MockResource(resolver,
+				"/content/large", PAGE_RESOURCE_TYPE);
+		largeResource.addProperty("file", large);
+		resolver.addResource(largeResource);
+		BinarySlingProxy largeProxy = slingProxyService.getProxy(
+				largeResource, BinarySlingProxy.class);
+		ByteBuffer mapped = largeProxy.getFileBuffer();
+		assertTrue(mapped instanceof MappedByteBuffer);
+		assertEquals(large.length(), mapped.remaining());
+		assertEquals(42, mapped.get(mapped.limit() - 1));
+		ByteBuffer tail = largeProxy.getFile().getBuffer(large.length() - 10,
+				10);
+		assertFalse(tail instanceof MappedByteBuffer);
+		assertEquals(42, tail.get(9));
+
+		log.info("Testing local files are read through channels");
+		ReadableByteChannel channel = proxy.getFileChannel();
+		assertTrue(channel instanceof FileChannel);
+		assertArrayEquals(data, read(channel));
+
+		log.info("Testing ranges");
+		SlingBinary binary = proxy.getFile();
+		assertEquals(data.length, binary.getSize());
+		assertArrayEquals(new byte[] { 12, 13, 14 }, read(binary.openStream(2,
+				3)));
+		assertArrayEquals(new byte[] { 16, 17 }, read(binary.openChannel(6,
+				10)));
+		ByteBuffer range = binary.getBuffer(3, 2);
+		assertEquals(2, range.remaining());
+		assertEquals(13, range.get());
+		assertEquals(0, binary.getBuffer(20, 5).remaining());
+		binary = proxy.getData();
+		assertArrayEquals(new byte[] { 14, 15 }, read(binary.openStream(4, 2)));
+		range = binary.getBuffer(5, 10);
+		assertEquals(3, range.remaining());
+		assertEquals(15, range.get());
+
+		log.info("Testing invalid ranges");
+		for (SlingBinary b : new SlingBinary[] { binary, proxy.getFile() }) {
+			try {
+				b.getBuffer(-1, 2);
+				fail("Negative positions must be rejected");
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				b.openStream(0, -1);
+				fail("Negative lengths must be rejected");
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				b.openChannel(-1, -1);
+				fail("Negative ranges must be rejected");
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+		log.info("Testing binaries are read again on every call");
+		InputStream is = proxy.getDataStream();
+		assertArrayEquals(data, read(is));
+		InputStream again = proxy.getDataStream();
+		assertNotSame(is, again);
+		assertArrayEquals(data, read(again));
+		assertNotSame(proxy.getFileChannel(), proxy.getFileChannel());
+		assertArrayEquals(data, read(binary.openStream()));
+		assertArrayEquals(data, read(binary.openStream()));
+
+		log.info("Testing missing and default binaries");
+		assertNull(proxy.getMissing());
+		ByteBuffer defaultBuffer = proxy.getDefaultBuffer();
+		assertTrue(defaultBuffer.isReadOnly());
+		defaultBuffer.get();
+		assertEquals(3, proxy.getDefaultBuffer().remaining());
+		SlingBinary defaultBinary = proxy.getDefaultBinary();
+		assertEquals(3, defaultBinary.getSize());
+		assertArrayEquals(new byte[] { 2, 3 }, read(defaultBinary.openStream(
+				1, 5)));
+
+		log.info("Testing binaries are not rendered");
+		assertFalse(proxy.toString().contains("getData"));
+
+		log.info("Tests Successful");
+	}
+
+	/**
+	 * Reads and closes a stream.
+	 * 
+	 * @param is
+	 *            the stream
+	 * @return the bytes read
+	 * @throws IOException
+	 */
+	private static byte[] read(InputStream is) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[4];
+			int read;
+			while ((read = is.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Reads and closes a channel.
+	 * 
+	 * @param channel
+	 *            the channel
+	 * @return the bytes read
+	 * @throws IOException
+	 */
+	private static byte[] read(ReadableByteChannel channel) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteBuffer chunk = ByteBuffer.allocate(4);
+			while (channel.read(chunk) != -1) {
+				chunk.flip();
+				out.write(chunk.array(), 0, chunk.limit());
+				chunk.clear();
+			}
+			return out.toByteArray();
+		} finally {
+			channel.close();
+		}
+	}
+}
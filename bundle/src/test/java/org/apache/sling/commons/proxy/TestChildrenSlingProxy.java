@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.proxy.samples.ChildrenSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the children of proxies.
+ */
+public class TestChildrenSlingProxy extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestChildrenSlingProxy.class);
+
+	/**
+	 * All of the tests for children.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		Resource page = resolver.getResource("/content/test");
+		Resource content = resolver.getResource("/content/test/jcr:content");
+		ChildrenSlingProxy proxy = slingProxyService.getProxy(page,
+				ChildrenSlingProxy.class);
+
+		log.info("Testing resource children");
+		Iterator<Resource> resources = proxy.getChildResources();
+		assertTrue(resources.hasNext());
+		assertSame(content, resources.next());
+		assertFalse(resources.hasNext());
+
+		log.info("Testing proxy children");
+		Iterator<SlingPropertyProxy> proxies = proxy.getChildProxies();
+		assertTrue(proxies.hasNext());
+		SlingPropertyProxy child = proxies.next();
+		assertSame(content, child.getBackingResource());
+		assertFalse(proxies.hasNext());
+
+		log.info("Testing adapted children");
+		Iterator<ValueMap> properties = proxy.getChildProperties();
+		assertTrue(properties.hasNext());
+		assertEquals(TITLE, properties.next().get("jcr:title"));
+		assertFalse(properties.hasNext());
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.proxy.samples.FilteredChildrenSlingProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the filtering of the children of proxies.
+ */
+public class TestFilteredChildren extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestFilteredChildren.class);
+
+	/**
+	 * All of the tests for filtering children.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		final AtomicInteger adapted = new AtomicInteger();
+		resolver.addResource(new MockResource(resolver, "/content/mixed",
+				PAGE_RESOURCE_TYPE));
+		String[][] children = { { "image1", "myapp/image" },
+				{ "text1", "myapp/text" }, { "image2", "myapp/image" },
+				{ "text2", "myapp/text" }, { "list1", "myapp/list" },
+				{ "image3", "myapp/image" } };
+		for (String[] child : children) {
+			MockResource resource = new MockResource(resolver,
+					"/content/mixed/" + child[0], child[1]) {
+				public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+					adapted.incrementAndGet();
+					return super.adaptTo(type);
+				}
+			};
+			resource.addProperty("title", child[0]);
+			resolver.addResource(resource);
+		}
+		FilteredChildrenSlingProxy proxy = slingProxyService.getProxy(
+				resolver.getResource("/content/mixed"),
+				FilteredChildrenSlingProxy.class);
+
+		log.info("Testing included resource types");
+		Iterator<ValueMap> images = proxy.getImageProperties();
+		StringBuilder titles = new StringBuilder();
+		while (images.hasNext()) {
+			titles.append(images.next().get("title")).append(',');
+		}
+		assertEquals("image1,image2,image3,", titles.toString());
+		assertEquals(3, adapted.get());
+
+		log.info("Testing excluded resource types");
+		assertEquals("list1", names(proxy.getOtherChildren()));
+
+		log.info("Testing name globs");
+		assertEquals("text1,text2", names(proxy.getTextChildren()));
+		assertEquals("image1,text1,list1", names(proxy.getFirstChildren()));
+		assertEquals("image2", names(proxy.getSecondImage()));
+		assertEquals("text1,text2", names(proxy.getTextByPattern()));
+
+		log.info("Testing paging only counts the accepted children");
+		assertEquals("image2,image3", names(proxy.getImages(1, 5)));
+	}
+
+	/**
+	 * Joins the names of the resources.
+	 * 
+	 * @param resources
+	 *            the resources
+	 * @return the comma separated names
+	 */
+	private static String names(final Iterator<Resource> resources) {
+		StringBuilder sb = new StringBuilder();
+		while (resources.hasNext()) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(ResourceUtil.getName(resources.next()));
+		}
+		return sb.toString();
+	}
+}
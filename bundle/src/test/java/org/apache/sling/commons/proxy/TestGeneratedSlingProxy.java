@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+import org.apache.sling.commons.proxy.impl.ProxyEngine;
+import org.apache.sling.commons.proxy.samples.DuplicateSlingPropertyProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the Sling Proxies created with generated proxy classes.
+ */
+public class TestGeneratedSlingProxy extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestGeneratedSlingProxy.class);
+
+	@Test
+	public void runTests() {
+
+		log.info("runTests");
+
+		SlingProxyService generatedProxyService = new DefaultSlingProxyServiceImpl(
+				ProxyEngine.GeneratedClass);
+
+		Resource pageResource = resolver.getResource("/content/test");
+		SlingPropertyProxy pageProxy = generatedProxyService.getProxy(
+				pageResource, SlingPropertyProxy.class);
+		assertFalse(Proxy.isProxyClass(pageProxy.getClass()));
+
+		log.info("Testing backing resource");
+		assertEquals(pageProxy.getBackingResource(), pageResource);
+
+		log.info("Testing property retrieval");
+		assertEquals(TITLE, pageProxy.getTitle());
+		assertEquals(PAGE_RESOURCE_TYPE, pageProxy.getSlingResourceType());
+		assertEquals(null, pageProxy.getNonExistentProperty());
+		assertEquals(false, pageProxy.isActive());
+
+		log.info("Testing equals and hashCode against Java Dynamic Proxies");
+		SlingPropertyProxy jdpProxy = slingProxyService.getProxy(pageResource,
+				SlingPropertyProxy.class);
+		assertTrue(Proxy.isProxyClass(jdpProxy.getClass()));
+		assertTrue(pageProxy.equals(jdpProxy));
+		assertTrue(jdpProxy.equals(pageProxy));
+		assertEquals(jdpProxy.hashCode(), pageProxy.hashCode());
+
+		SlingPropertyProxy pageProxy2 = generatedProxyService.getProxy(
+				pageResource, SlingPropertyProxy.class);
+		assertEquals(pageProxy.getClass(), pageProxy2.getClass());
+		assertTrue(pageProxy.equals(pageProxy2));
+
+		DuplicateSlingPropertyProxy duplicateProxy = generatedProxyService
+				.getProxy(pageResource, DuplicateSlingPropertyProxy.class);
+		assertFalse(pageProxy.equals(duplicateProxy));
+		assertFalse(pageProxy.hashCode() == duplicateProxy.hashCode());
+
+		log.info("Testing toString");
+		assertNotNull(pageProxy.toString());
+		log.info(pageProxy.toString());
+
+		log.info("Testing non public interfaces with both engines");
+		PackageSlingProxy packageProxy = generatedProxyService.getProxy(
+				pageResource, PackageSlingProxy.class);
+		assertEquals(PAGE_RESOURCE_TYPE, packageProxy.getSlingResourceType());
+		packageProxy = slingProxyService.getProxy(pageResource,
+				PackageSlingProxy.class);
+		assertEquals(PAGE_RESOURCE_TYPE, packageProxy.getSlingResourceType());
+
+		log.info("Tests Successful");
+	}
+
+	/**
+	 * A proxy interface which is not public.
+	 */
+	interface PackageSlingProxy extends SlingProxy {
+
+		@SlingProperty(name = "sling:resourceType")
+		String getSlingResourceType();
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl;
+import org.apache.sling.commons.proxy.impl.ProxyEngine;
+import org.apache.sling.commons.proxy.samples.PrefetchSlingPropertyProxy;
+import org.apache.sling.commons.proxy.samples.ReferenceSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the identity of the proxies of a resource resolver.
+ */
+public class TestIdentitySlingProxy extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestIdentitySlingProxy.class);
+
+	/**
+	 * All of the tests for the identity of proxies.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		Resource page = resolver.getResource("/content/test");
+
+		log.info("Testing the identity map is disabled by default");
+		SlingProxyService defaultService = new DefaultSlingProxyServiceImpl();
+		assertNotSame(defaultService.getProxy(page, SlingPropertyProxy.class),
+				defaultService.getProxy(page, SlingPropertyProxy.class));
+
+		SlingPropertyProxy proxy = slingProxyService.getProxy(page,
+				SlingPropertyProxy.class);
+
+		log.info("Testing proxies of the same path and interface");
+		assertSame(proxy, slingProxyService.getProxy(page,
+				SlingPropertyProxy.class));
+		assertSame(proxy, slingProxyService.getProxy(resolver,
+				"/content/test", SlingPropertyProxy.class));
+		assertSame(proxy, slingProxyService.getProxy(resolver,
+				"/content/./test/", SlingPropertyProxy.class));
+
+		log.info("Testing proxies of other interfaces and paths");
+		assertNotSame(proxy, slingProxyService.getProxy(page,
+				PrefetchSlingPropertyProxy.class));
+		assertNotSame(proxy, slingProxyService.getProxy(resolver
+				.getResource("/content/test/jcr:content"),
+				SlingPropertyProxy.class));
+
+		log.info("Testing references share the proxies");
+		resolver.addResource(new MockResource(resolver, "/content/test/child",
+				CONTENT_RESOURCE_TYPE));
+		ReferenceSlingProxy child = slingProxyService.getProxy(resolver,
+				"/content/test/child", ReferenceSlingProxy.class);
+		assertSame(proxy, child.getParentPage());
+		assertSame(proxy, child.getLazyParentPage());
+
+		log.info("Testing proxies of other resource resolvers");
+		MockResourceResolver other = new MockResourceResolver();
+		createResources(other);
+		assertNotSame(proxy, slingProxyService.getProxy(other
+				.getResource("/content/test"), SlingPropertyProxy.class));
+
+		log.info("Testing proxies of closed resource resolvers");
+		ClosableResourceResolver closable = new ClosableResourceResolver();
+		createResources(closable);
+		SlingPropertyProxy open = slingProxyService.getProxy(closable,
+				"/content/test", SlingPropertyProxy.class);
+		assertSame(open, slingProxyService.getProxy(closable,
+				"/content/test", SlingPropertyProxy.class));
+		closable.live = false;
+		assertNotSame(open, slingProxyService.getProxy(closable,
+				"/content/test", SlingPropertyProxy.class));
+	}
+
+	/**
+	 * Creates a Sling Proxy service with the identity map enabled.
+	 */
+	@Override
+	protected SlingProxyService createSlingProxyService() {
+		return new DefaultSlingProxyServiceImpl(ProxyEngine.JavaDynamicProxy,
+				true);
+	}
+
+	/**
+	 * A resource resolver telling whether it is live, like the resource
+	 * resolvers of newer Sling APIs.
+	 */
+	public static class ClosableResourceResolver extends MockResourceResolver {
+		private boolean live = true;
+
+		public boolean isLive() {
+			return live;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceNotFoundException;
+import org.apache.sling.commons.proxy.samples.LazyReferenceSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for proxies which defer resolving their backing resource.
+ */
+public class TestLazySlingProxy extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestLazySlingProxy.class);
+
+	/**
+	 * All of the tests for lazy proxies.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		Resource resource = resolver.getResource("/content/test");
+		SlingPropertyProxy eager = slingProxyService.getProxy(resource,
+				SlingPropertyProxy.class);
+		SlingPropertyProxy lazy = slingProxyService.getProxy(resolver,
+				"/content/./test/", SlingPropertyProxy.class);
+
+		log.info("Testing equality by path");
+		assertTrue(lazy.equals(eager));
+		assertTrue(eager.equals(lazy));
+		assertEquals(eager.hashCode(), lazy.hashCode());
+
+		log.info("Testing deferred resolution");
+		assertEquals(TITLE, lazy.getTitle());
+		assertSame(resource, lazy.getBackingResource());
+
+		log.info("Testing proxies of missing resources");
+		SlingPropertyProxy missing = slingProxyService.getProxy(resolver,
+				"/content/missing", SlingPropertyProxy.class);
+		assertFalse(missing.equals(eager));
+		missing.hashCode();
+		try {
+			missing.getBackingResource();
+			fail("Expected a ResourceNotFoundException");
+		} catch (ResourceNotFoundException e) {
+			log.info("Caught expected exception");
+		}
+
+		log.info("Testing invalid paths");
+		try {
+			slingProxyService.getProxy(resolver, "content/test",
+					SlingPropertyProxy.class);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			log.info("Caught expected exception");
+		}
+
+		log.info("Testing lazy references");
+		LazyReferenceSlingProxy references = slingProxyService.getProxy(
+				resolver.getResource("/content/test/jcr:content"),
+				LazyReferenceSlingProxy.class);
+		assertTrue(references.getPage().equals(eager));
+		assertEquals(TITLE, references.getPage().getTitle());
+		SlingPropertyProxy missingPage = references.getMissingPage();
+		assertNotNull(missingPage);
+		assertTrue(missingPage.equals(missing));
+	}
+}
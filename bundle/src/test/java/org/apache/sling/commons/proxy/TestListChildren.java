@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.proxy.samples.ListChildrenSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the children of proxies returned as lists, arrays and counts.
+ */
+public class TestListChildren {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestListChildren.class);
+
+	/**
+	 * The number of children.
+	 */
+	private static final int CHILDREN = 12;
+
+	/**
+	 * All of the tests for lists of children.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		CountingResourceResolver resolver = new CountingResourceResolver();
+		resolver.addResource(new MockResource(resolver, "/content/list",
+				BaseSlingProxyTest.PAGE_RESOURCE_TYPE));
+		for (int i = 0; i < CHILDREN; i++) {
+			MockResource item = new MockResource(resolver,
+					"/content/list/item" + i,
+					BaseSlingProxyTest.CONTENT_RESOURCE_TYPE) {
+				public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+					resolver.adaptions++;
+					return super.adaptTo(type);
+				}
+			};
+			item.addProperty("sling:resourceType", "item/" + i);
+			resolver.addResource(item);
+		}
+		SlingProxyService slingProxyService = new org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl();
+		ListChildrenSlingProxy proxy = slingProxyService.getProxy(
+				resolver.getResource("/content/list"),
+				ListChildrenSlingProxy.class);
+
+		log.info("Testing the size of lists does not convert the children");
+		List<ValueMap> list = proxy.getChildList();
+		assertFalse(list.isEmpty());
+		assertEquals(CHILDREN, list.size());
+		assertEquals(0, resolver.adaptions);
+
+		log.info("Testing the elements of lists are converted once");
+		assertEquals("item/3", list.get(3).get("sling:resourceType"));
+		assertSame(list.get(3), list.get(3));
+		assertEquals(1, resolver.adaptions);
+		try {
+			list.get(CHILDREN);
+			fail("Expected an IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			log.info("Caught expected exception");
+		}
+		try {
+			list.remove(0);
+			fail("Expected an UnsupportedOperationException");
+		} catch (UnsupportedOperationException e) {
+			log.info("Caught expected exception");
+		}
+
+		log.info("Testing lists are cached by the proxy");
+		assertSame(list, proxy.getChildList());
+		assertEquals(1, resolver.listings);
+
+		log.info("Testing collections and iterables");
+		assertEquals(CHILDREN, proxy.getChildCollection().size());
+		Iterator<Resource> resources = proxy.getChildIterable().iterator();
+		assertEquals("/content/list/item0", resources.next().getPath());
+
+		log.info("Testing arrays");
+		SlingPropertyProxy[] array = proxy.getChildArray();
+		assertEquals(CHILDREN, array.length);
+		assertEquals("item/11", array[11].getSlingResourceType());
+		SlingPropertyProxy[] again = proxy.getChildArray();
+		assertNotSame(array, again);
+		assertSame(array[11], again[11]);
+
+		log.info("Testing counts");
+		int listings = resolver.listings;
+		assertEquals(CHILDREN, proxy.getChildCount());
+		assertEquals(CHILDREN, proxy.getChildCount());
+		assertEquals(3, proxy.getFilteredChildCount());
+		assertEquals(listings + 2, resolver.listings);
+
+		log.info("Testing paged lists are not cached");
+		List<Resource> page = proxy.getChildList(10, 5);
+		assertEquals(2, page.size());
+		assertNotSame(page, proxy.getChildList(10, 5));
+	}
+
+	/**
+	 * A resource resolver counting the listings of children and the
+	 * adaptions of the children.
+	 */
+	private static class CountingResourceResolver extends MockResourceResolver {
+		private int listings;
+		private int adaptions;
+
+		@Override
+		public Iterator<Resource> listChildren(Resource parent) {
+			listings++;
+			return super.listChildren(parent);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceNotFoundException;
+import org.apache.sling.commons.proxy.samples.MissingResourceSlingProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the handling of missing resources.
+ */
+public class TestMissingResources {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestMissingResources.class);
+
+	/**
+	 * All of the tests for missing resources.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		CountingResourceResolver resolver = new CountingResourceResolver();
+		resolver.addResource(new MockResource(resolver, "/content/test",
+				BaseSlingProxyTest.PAGE_RESOURCE_TYPE));
+		resolver.addResource(new MockResource(resolver,
+				"/content/test/jcr:content",
+				BaseSlingProxyTest.CONTENT_RESOURCE_TYPE) {
+			public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+				return null;
+			}
+		});
+		SlingProxyService slingProxyService = new org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl();
+		MissingResourceSlingProxy proxy = slingProxyService.getProxy(
+				resolver.getResource("/content/test"),
+				MissingResourceSlingProxy.class);
+
+		log.info("Testing properties which are not required");
+		assertNull(proxy.getOptionalDescription());
+		assertEquals("en", proxy.getOptionalLanguage());
+
+		log.info("Testing properties which are required");
+		try {
+			proxy.getRequiredTitle();
+			fail("Expected a ResourceNotFoundException");
+		} catch (ResourceNotFoundException e) {
+			log.info("Caught expected exception");
+		}
+
+		log.info("Testing missing and unadaptable references");
+		assertNull(proxy.getMissingResource());
+		assertNull(proxy.getUnadaptableContent());
+
+		log.info("Testing missing resources are only looked up once");
+		int lookups = resolver.lookups;
+		assertNull(proxy.getMissingResource());
+		assertNull(proxy.getUnadaptableContent());
+		try {
+			proxy.getRequiredTitle();
+			fail("Expected a ResourceNotFoundException");
+		} catch (ResourceNotFoundException e) {
+			log.info("Caught expected exception");
+		}
+		assertEquals(lookups, resolver.lookups);
+	}
+
+	/**
+	 * A resource resolver counting the resources it looks up.
+	 */
+	private static class CountingResourceResolver extends MockResourceResolver {
+		private int lookups;
+
+		@Override
+		public Resource getResource(String path) {
+			lookups++;
+			return super.getResource(path);
+		}
+
+		@Override
+		public Resource getResource(Resource base, String path) {
+			lookups++;
+			return super.getResource(base, path);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Map;
+
+import org.apache.sling.api.resource.PersistableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.commons.proxy.samples.CommittingSlingProxy;
+import org.apache.sling.commons.proxy.samples.ModifiableSlingPropertyProxy;
+import org.apache.sling.commons.proxy.samples.TypedSlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for writing properties through the setters of proxies.
+ */
+public class TestModifiableSlingProxy extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestModifiableSlingProxy.class);
+
+	/**
+	 * The number of modified resources.
+	 */
+	private static final int RESOURCES = 10;
+
+	/**
+	 * All of the tests for setters.
+	 */
+	@Test
+	public void runTests() throws PersistenceException {
+
+		log.info("runTests");
+
+		final PersistableMockResource[] pages = new PersistableMockResource[RESOURCES];
+		final PersistableMockResource[] contents = new PersistableMockResource[RESOURCES];
+		final ModifiableSlingPropertyProxy[] proxies = new ModifiableSlingPropertyProxy[RESOURCES];
+		for (int i = 0; i < RESOURCES; i++) {
+			pages[i] = new PersistableMockResource(resolver, "/content/page"
+					+ i);
+			pages[i].addProperty("count", 1L);
+			pages[i].addProperty("description", "Old description");
+			resolver.addResource(pages[i]);
+			contents[i] = new PersistableMockResource(resolver,
+					"/content/page" + i + "/jcr:content");
+			contents[i].addProperty("jcr:title", "Old title");
+			resolver.addResource(contents[i]);
+			proxies[i] = slingProxyService.getProxy(resolver, "/content/page"
+					+ i, ModifiableSlingPropertyProxy.class);
+		}
+		ModifiableSlingPropertyProxy proxy = proxies[0];
+
+		log.info("Testing reads see pending writes");
+		ModifiableSlingPropertyProxy other = slingProxyService.getProxy(
+				resolver, "/content/page0", ModifiableSlingPropertyProxy.class);
+		assertEquals("Old title", other.getTitle());
+		assertEquals("Old title", proxy.getTitle());
+		proxy.setTitle("New title");
+		assertEquals("New title", proxy.getTitle());
+		assertEquals("New title", other.getTitle());
+		assertEquals("Old title", contents[0].getProperties().get("jcr:title"));
+		proxy.setCount(2);
+		proxy.setCount(3);
+		assertEquals(3, proxy.getCount());
+		proxy.setState(TypedSlingPropertyProxy.State.PUBLISHED);
+		assertEquals(TypedSlingPropertyProxy.State.PUBLISHED, proxy.getState());
+		proxy.setPublished(LocalDate.of(2020, 5, 1));
+		assertEquals(LocalDate.of(2020, 5, 1), proxy.getPublished());
+		proxy.setKeywords(new String[] { "a", "b" });
+		assertArrayEquals(new String[] { "a", "b" }, proxy.getTags());
+		proxy.setDescription(null);
+		assertEquals("None", proxy.getDescription());
+		assertTrue(proxy.toString().contains("New title"));
+		assertEquals(0, pages[0].saves + contents[0].saves);
+
+		log.info("Testing commit methods of other proxies do not commit");
+		CommittingSlingProxy committing = slingProxyService.getProxy(
+				resolver, "/content/page0", CommittingSlingProxy.class);
+		assertEquals("New title", committing.getTitle());
+		try {
+			committing.commit();
+			fail("Only modifiable proxies commit");
+		} catch (final RuntimeException e) {
+			// expected
+		}
+		assertEquals(0, pages[0].saves + contents[0].saves);
+
+		log.info("Testing commit saves every modified resource once");
+		for (int i = 1; i < RESOURCES; i++) {
+			proxies[i].setTitle("Title " + i);
+			proxies[i].setCount(i);
+			proxies[i].setCount(i * 10);
+			proxies[i].setDescription("Description " + i);
+		}
+		slingProxyService.commit(resolver);
+		for (int i = 0; i < RESOURCES; i++) {
+			assertEquals(1, pages[i].saves);
+			assertEquals(1, contents[i].saves);
+		}
+		Map<String, Object> properties = pages[0].getProperties();
+		assertEquals(Long.valueOf(3), properties.get("count"));
+		assertEquals("PUBLISHED", properties.get("state"));
+		assertTrue(properties.get("published") instanceof Calendar);
+		assertTrue(!properties.containsKey("description"));
+		assertEquals("New title", contents[0].getProperties().get("jcr:title"));
+		assertEquals(Long.valueOf(90), pages[9].getProperties().get("count"));
+
+		log.info("Testing reads after the commit");
+		assertEquals("New title", proxy.getTitle());
+		assertEquals(LocalDate.of(2020, 5, 1), proxy.getPublished());
+		contents[1].getProperties().put("jcr:title", "Changed title");
+		assertEquals("Changed title", proxies[1].getTitle());
+		proxy.commit();
+		assertEquals(1, pages[0].saves);
+
+		log.info("Testing failed commits leave the writes pending");
+		MockResource readOnly = new MockResource(resolver, "/content/readonly",
+				PAGE_RESOURCE_TYPE) {
+			@Override
+			public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+				if (type == PersistableValueMap.class) {
+					return null;
+				}
+				return super.adaptTo(type);
+			}
+		};
+		resolver.addResource(readOnly);
+		ModifiableSlingPropertyProxy readOnlyProxy = slingProxyService
+				.getProxy(readOnly, ModifiableSlingPropertyProxy.class);
+		proxy.setCount(4);
+		readOnlyProxy.setCount(5);
+		try {
+			proxy.commit();
+			fail("Resources which cannot be modified must not be committed");
+		} catch (final PersistenceException e) {
+			// expected
+		}
+		assertEquals(1, pages[0].saves);
+		assertEquals(Long.valueOf(3), pages[0].getProperties().get("count"));
+		assertEquals(5, readOnlyProxy.getCount());
+		assertEquals(4, proxy.getCount());
+
+		log.info("Testing discarded writes are reported by the next commit");
+		writeWithoutCommit();
+		boolean reported = false;
+		for (int i = 0; (i < 50) && !reported; i++) {
+			System.gc();
+			try {
+				slingProxyService.commit(new MockResourceResolver());
+			} catch (final IllegalStateException e) {
+				assertTrue(e.getMessage().contains("/content/discarded"));
+				reported = true;
+			}
+		}
+		assertTrue(reported);
+		slingProxyService.commit(new MockResourceResolver());
+
+		log.info("Tests Successful");
+	}
+
+	/**
+	 * Writes a value through the proxy of a resource resolver which is
+	 * released without committing it.
+	 */
+	private void writeWithoutCommit() {
+		MockResourceResolver discarding = new MockResourceResolver();
+		discarding.addResource(new PersistableMockResource(discarding,
+				"/content/discarded"));
+		slingProxyService.getProxy(discarding, "/content/discarded",
+				ModifiableSlingPropertyProxy.class).setCount(1);
+	}
+
+	/**
+	 * A resource adapting to a persistable value map, counting how often it
+	 * is saved.
+	 */
+	private static final class PersistableMockResource extends MockResource {
+
+		private int saves;
+
+		PersistableMockResource(ResourceResolver resolver, String path) {
+			super(resolver, path, PAGE_RESOURCE_TYPE);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+			if (type == PersistableValueMap.class) {
+				return (AdapterType) new MockPersistableValueMap(this);
+			}
+			return super.adaptTo(type);
+		}
+	}
+
+	/**
+	 * A persistable value map writing the modified properties to the
+	 * resource when it is saved.
+	 */
+	private static final class MockPersistableValueMap extends
+			ValueMapDecorator implements PersistableValueMap {
+
+		private final PersistableMockResource resource;
+
+		MockPersistableValueMap(PersistableMockResource resource) {
+			super(new java.util.HashMap<String, Object>(resource
+					.getProperties()));
+			this.resource = resource;
+		}
+
+		public void save() {
+			resource.getProperties().clear();
+			resource.getProperties().putAll(this);
+			resource.saves++;
+		}
+
+		public void reset() {
+			clear();
+			putAll(resource.getProperties());
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.proxy.samples.PagedChildrenSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the paging of the children of proxies.
+ */
+public class TestPagedChildren extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestPagedChildren.class);
+
+	/**
+	 * All of the tests for paging children.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		resolver.addResource(new MockResource(resolver, "/content/list",
+				PAGE_RESOURCE_TYPE));
+		for (int i = 0; i < 7; i++) {
+			MockResource item = new MockResource(resolver,
+					"/content/list/item" + i, CONTENT_RESOURCE_TYPE);
+			item.addProperty("sling:resourceType", "item/" + i);
+			resolver.addResource(item);
+		}
+		PagedChildrenSlingProxy proxy = slingProxyService.getProxy(resolver
+				.getResource("/content/list"), PagedChildrenSlingProxy.class);
+
+		log.info("Testing the page of the annotation");
+		assertEquals("item2,item3,item4", names(proxy.getFixedPage()));
+
+		log.info("Testing offset and limit arguments");
+		assertEquals("item0,item1", names(proxy.getPage(0, 2)));
+		assertEquals("item5,item6", names(proxy.getPage(5, 10)));
+		assertEquals("", names(proxy.getPage(9, 2)));
+		assertEquals(7, names(proxy.getPage(0, -1)).split(",").length);
+		try {
+			proxy.getPage(-1, 2);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			log.info("Caught expected exception");
+		}
+
+		log.info("Testing continuation tokens");
+		List<String> types = new java.util.ArrayList<String>();
+		String token = null;
+		int pages = 0;
+		do {
+			PagedIterator<SlingPropertyProxy> page = proxy.getPage(token, 3);
+			while (page.hasNext()) {
+				types.add(page.next().getSlingResourceType());
+			}
+			token = page.getContinuationToken();
+			pages++;
+		} while (token != null);
+		assertEquals(3, pages);
+		assertEquals(7, types.size());
+		assertEquals("item/6", types.get(6));
+
+		log.info("Testing a continuation token after a removed child");
+		PagedIterator<SlingPropertyProxy> first = proxy.getPage(null, 2);
+		first.next();
+		first.next();
+		token = first.getContinuationToken();
+		assertEquals("item/2", proxy.getPage(token, 1).next().getSlingResourceType());
+		resolver.addResource(new MockResource(resolver, "/content/other",
+				PAGE_RESOURCE_TYPE));
+		for (int i = 0; i < 4; i++) {
+			MockResource item = new MockResource(resolver,
+					"/content/other/other" + i, CONTENT_RESOURCE_TYPE);
+			item.addProperty("sling:resourceType", "other/" + i);
+			resolver.addResource(item);
+		}
+		PagedChildrenSlingProxy other = slingProxyService.getProxy(resolver
+				.getResource("/content/other"), PagedChildrenSlingProxy.class);
+		assertEquals("other/2", other.getPage(token, 1).next().getSlingResourceType());
+
+		log.info("Testing invalid continuation tokens");
+		try {
+			proxy.getPage("not a token", 2);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			log.info("Caught expected exception");
+		}
+
+		log.info("Testing the children of a missing resource");
+		PagedIterator<Resource> missing = proxy.getMissingPage(null, 2);
+		assertFalse(missing.hasNext());
+		assertNull(missing.getContinuationToken());
+
+		log.info("Testing a misdeclared children method");
+		try {
+			proxy.getMisdeclaredPage(0L);
+			fail("Expected an IllegalStateException");
+		} catch (IllegalStateException e) {
+			log.info("Caught expected exception");
+		}
+	}
+
+	/**
+	 * Joins the names of the resources.
+	 * 
+	 * @param resources
+	 *            the resources
+	 * @return the comma separated names
+	 */
+	private static String names(final Iterator<Resource> resources) {
+		StringBuilder sb = new StringBuilder();
+		while (resources.hasNext()) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(ResourceUtil.getName(resources.next()));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceNotFoundException;
+import org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl;
+import org.apache.sling.commons.proxy.impl.to.PropertyUsage;
+import org.apache.sling.commons.proxy.samples.PrefetchSlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for proxies prefetching their properties.
+ */
+public class TestPrefetchSlingProxy extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestPrefetchSlingProxy.class);
+
+	/**
+	 * All of the tests for prefetching proxies.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		((DefaultSlingProxyServiceImpl) slingProxyService)
+				.setPropertyUsageEnabled(true);
+		Resource resource = resolver.getResource("/content/test");
+		PrefetchSlingPropertyProxy proxy = slingProxyService.getProxy(
+				resource, PrefetchSlingPropertyProxy.class);
+
+		log.info("Testing prefetched properties");
+		assertEquals(TITLE, proxy.getTitle());
+		assertFalse(proxy.isActive());
+		assertEquals("No Description", proxy.getDescription());
+
+		log.info("Testing properties of missing resources");
+		try {
+			proxy.getMissingTitle();
+			fail("Expected a ResourceNotFoundException");
+		} catch (ResourceNotFoundException e) {
+			log.info("Caught expected exception");
+		}
+
+		log.info("Testing property usage");
+		MockResourceResolver other = new MockResourceResolver();
+		createResources(other);
+		slingProxyService.getProxy(other.getResource("/content/test"),
+				PrefetchSlingPropertyProxy.class).getTitle();
+		PropertyUsage usage = ((DefaultSlingProxyServiceImpl) slingProxyService)
+				.getPropertyUsage(PrefetchSlingPropertyProxy.class);
+		log.info("Property usage: {}", usage);
+		assertEquals(2, usage.getProxyCount());
+		assertEquals(2.5, usage.getAverageReadCount(), 0.01);
+		assertTrue(usage.toString().startsWith("2 proxies read 2.5 of 4"));
+
+		log.info("Testing property usage is disabled by default");
+		DefaultSlingProxyServiceImpl uncounted = new DefaultSlingProxyServiceImpl();
+		uncounted.getProxy(resource, PrefetchSlingPropertyProxy.class)
+				.getTitle();
+		assertEquals(0, uncounted.getPropertyUsage(
+				PrefetchSlingPropertyProxy.class).getProxyCount());
+	}
+}
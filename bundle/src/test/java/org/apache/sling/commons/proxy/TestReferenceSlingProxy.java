@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.samples.ReferenceSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the references of proxies.
+ */
+public class TestReferenceSlingProxy extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestReferenceSlingProxy.class);
+
+	/**
+	 * The number of times the child resource was adapted.
+	 */
+	private int adaptions;
+
+	/**
+	 * All of the tests for references.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		final Resource page = resolver.getResource("/content/test");
+		resolver.addResource(new MockResource(resolver, "/content/test/child",
+				CONTENT_RESOURCE_TYPE));
+		ReferenceSlingProxy proxy = slingProxyService.getProxy(
+				resolver.getResource("/content/test/child"),
+				ReferenceSlingProxy.class);
+
+		log.info("Testing references to proxies are cached");
+		SlingPropertyProxy parent = proxy.getParentPage();
+		assertEquals(TITLE, parent.getTitle());
+		assertSame(parent, proxy.getParentPage());
+
+		log.info("Testing lazy references are cached");
+		assertSame(proxy.getLazyParentPage(), proxy.getLazyParentPage());
+
+		log.info("Testing references to resources");
+		assertSame(page, proxy.getParentResource());
+
+		log.info("Testing null references are cached");
+		resolver.addResource(new MockResource(resolver,
+				"/content/unadaptable", CONTENT_RESOURCE_TYPE) {
+			public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+				adaptions++;
+				return null;
+			}
+		});
+		assertNull(proxy.getUnadaptableReference());
+		assertNull(proxy.getUnadaptableReference());
+		assertEquals(1, adaptions);
+		assertNull(proxy.getMissingPage());
+		assertNull(proxy.getMissingPage());
+	}
+}
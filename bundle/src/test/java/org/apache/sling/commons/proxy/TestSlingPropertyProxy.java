@@ -19,6 +19,7 @@
 package org.apache.sling.commons.proxy;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.apache.sling.api.resource.Resource;
@@ -50,6 +51,15 @@ public class TestSlingPropertyProxy extends BaseSlingProxyTest {
 			log.debug("Passed initial test");
 		}
 
+		log.info("Testing cached validation failure");
+		try {
+			slingProxyService.getProxy(resource, NoAnnotationSlingProxy.class);
+			fail("Expected UnsupportedOperationException on second attempt");
+		} catch (UnsupportedOperationException uoe) {
+			assertTrue(uoe.getMessage().contains(
+					NoAnnotationSlingProxy.class.getName()));
+		}
+
 		Resource pageResource = resolver.getResource("/content/test");
 		SlingPropertyProxy pageProxy = pageResource
 				.adaptTo(SlingPropertyProxy.class);
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.samples.PagedChildrenSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the streams and spliterators of children.
+ */
+public class TestStreamChildren extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestStreamChildren.class);
+
+	/**
+	 * The number of children, enough for several batches.
+	 */
+	private static final int CHILDREN = 1000;
+
+	/**
+	 * All of the tests for streams of children.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		resolver.addResource(new MockResource(resolver, "/content/list",
+				PAGE_RESOURCE_TYPE));
+		for (int i = 0; i < CHILDREN; i++) {
+			MockResource item = new MockResource(resolver,
+					"/content/list/item" + i, CONTENT_RESOURCE_TYPE);
+			item.addProperty("sling:resourceType", "item/" + i);
+			resolver.addResource(item);
+		}
+		PagedChildrenSlingProxy proxy = slingProxyService.getProxy(resolver
+				.getResource("/content/list"), PagedChildrenSlingProxy.class);
+
+		log.info("Testing sequential streams");
+		List<String> types = proxy.getStream()
+				.map(SlingPropertyProxy::getSlingResourceType)
+				.collect(Collectors.toList());
+		assertEquals(CHILDREN, types.size());
+		assertEquals("item/0", types.get(0));
+		assertEquals("item/999", types.get(CHILDREN - 1));
+
+		log.info("Testing parallel streams keep the order of the children");
+		List<String> parallel = proxy.getStream().parallel()
+				.map(SlingPropertyProxy::getSlingResourceType)
+				.collect(Collectors.toList());
+		assertEquals(types, parallel);
+
+		log.info("Testing paged streams");
+		assertEquals(
+				"item/10,item/11,item/12",
+				proxy.getStream(10, 3)
+						.map(SlingPropertyProxy::getSlingResourceType)
+						.collect(Collectors.joining(",")));
+		assertEquals(5, proxy.getStream(995, 10).parallel().count());
+
+		log.info("Testing spliterators");
+		Spliterator<Resource> spliterator = proxy.getSpliterator();
+		assertEquals(5, spliterator.estimateSize());
+		assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+		assertTrue(spliterator.hasCharacteristics(Spliterator.NONNULL));
+		assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+		Spliterator<Resource> batch = spliterator.trySplit();
+		assertNotNull(batch);
+		assertTrue(batch.hasCharacteristics(Spliterator.SIZED));
+		assertEquals(5, batch.getExactSizeIfKnown());
+		assertEquals(0, spliterator.estimateSize());
+		assertFalse(spliterator.tryAdvance(r -> {
+		}));
+
+		log.info("Testing the children of a missing resource");
+		assertEquals(0, proxy.getMissingStream().parallel().count());
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Calendar;
+
+import org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl;
+import org.apache.sling.commons.proxy.samples.TypedSlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the conversion of properties to the return types of the property
+ * methods.
+ */
+public class TestTypedProperties extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestTypedProperties.class);
+
+	/**
+	 * All of the tests for the conversion of properties.
+	 */
+	@Test
+	public void runTests() {
+
+		log.info("runTests");
+
+		Calendar created = Calendar.getInstance();
+		created.setTimeInMillis(1234567890000L);
+		MockResource resource = new MockResource(resolver, "/content/typed",
+				PAGE_RESOURCE_TYPE);
+		resource.addProperty("count", 42L);
+		resource.addProperty("enabled", true);
+		resource.addProperty("ratio", 0.5);
+		resource.addProperty("price", "12.50");
+		resource.addProperty("state", "PUBLISHED");
+		resource.addProperty("unknownState", "ARCHIVED");
+		resource.addProperty("created", created);
+		resource.addProperty("published", "2020-05-01");
+		resolver.addResource(resource);
+
+		TypedSlingPropertyProxy proxy = slingProxyService.getProxy(resource,
+				TypedSlingPropertyProxy.class);
+
+		log.info("Testing primitives and narrowed numbers");
+		assertEquals(42, proxy.getCount());
+		assertEquals(42L, proxy.getCountAsLong());
+		assertEquals(Integer.valueOf(42), proxy.getBoxedCount());
+		assertTrue(proxy.isEnabled());
+		assertEquals(0.5f, proxy.getRatio(), 0.0f);
+
+		log.info("Testing numbers out of the range of the return type");
+		MockResource large = new MockResource(resolver, "/content/large",
+				PAGE_RESOURCE_TYPE);
+		large.addProperty("count", 4294967297L);
+		resolver.addResource(large);
+		TypedSlingPropertyProxy largeProxy = slingProxyService.getProxy(
+				large, TypedSlingPropertyProxy.class);
+		assertEquals(4294967297L, largeProxy.getCountAsLong());
+		assertNull(largeProxy.getBoxedCount());
+		assertEquals(0, largeProxy.getCount());
+
+		log.info("Testing primitives of missing properties");
+		assertEquals(0, proxy.getMissingCount());
+		assertFalse(proxy.isMissingFlag());
+		assertEquals(7, proxy.getDefaultCount());
+
+		log.info("Testing BigDecimals, enums and java.time types");
+		assertEquals(new BigDecimal("12.50"), proxy.getPrice());
+		assertEquals(TypedSlingPropertyProxy.State.PUBLISHED, proxy
+				.getState());
+		assertNull(proxy.getUnknownState());
+		assertEquals(created.toInstant(), proxy.getCreated());
+		assertEquals(LocalDate.of(2020, 5, 1), proxy.getPublished());
+
+		log.info("Testing mutable defaults are copied");
+		TypedSlingPropertyProxy other = new DefaultSlingProxyServiceImpl()
+				.getProxy(resource, TypedSlingPropertyProxy.class);
+		assertEquals(0L, proxy.getDefaultCalendar().getTimeInMillis());
+		assertNotSame(proxy.getDefaultCalendar(), other.getDefaultCalendar());
+		proxy.getDefaultTags()[0] = "changed";
+		assertArrayEquals(new String[] { "a", "b" }, other.getDefaultTags());
+
+		log.info("Tests Successful");
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.SlingProxyService;
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+
+/**
+ * Measures the proxy creation throughput for a list of children. This is not
+ * a unit test, run it with:
+ * 
+ * <pre>
+ * java -cp ... org.apache.sling.commons.proxy.impl.ProxyCreationBenchmark [children] [rounds]
+ * </pre>
+ */
+public class ProxyCreationBenchmark {
+
+	/**
+	 * The number of warm up rounds.
+	 */
+	private static final int WARM_UP_ROUNDS = 10;
+
+	/**
+	 * Creates a proxy for a resource.
+	 */
+	private interface Creator {
+		Object create(Resource resource);
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args
+	 *            the number of children and the number of measured rounds
+	 */
+	public static void main(String[] args) {
+		final int children = args.length > 0 ? Integer.parseInt(args[0])
+				: 10000;
+		final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		final MockResourceResolver resolver = new MockResourceResolver();
+		final Resource parent = new MockResource(resolver, "/content/list",
+				"myapp:List");
+		resolver.addResource(parent);
+		final List<Resource> list = new java.util.ArrayList<Resource>();
+		for (int i = 0; i < children; i++) {
+			list.add(new MockResource(resolver, "/content/list/child" + i,
+					"myapp:Page"));
+		}
+		resolver.addChildren(parent, list);
+
+		final DefaultSlingProxyServiceImpl jdpService = new DefaultSlingProxyServiceImpl(
+				ProxyEngine.JavaDynamicProxy);
+		final SlingProxyService generatedService = new DefaultSlingProxyServiceImpl(
+				ProxyEngine.GeneratedClass);
+		final ProxyMetadata metadata = ProxyMetadata
+				.newInstance(SlingPropertyProxy.class);
+
+		run("Proxy.newProxyInstance per child", resolver, parent, rounds,
+				new Creator() {
+					public Object create(Resource resource) {
+						return Proxy.newProxyInstance(
+								SlingPropertyProxy.class.getClassLoader(),
+								new Class<?>[] { SlingPropertyProxy.class },
+								new SlingInvocationHandler(resource, metadata,
+										jdpService, null));
+					}
+				});
+		final java.lang.reflect.Constructor<?> constructor = new JDPProxyFactory()
+				.getConstructor(metadata);
+		run("cached JDP constructor per child", resolver, parent, rounds,
+				new Creator() {
+					public Object create(Resource resource) {
+						try {
+							return constructor
+									.newInstance(new SlingInvocationHandler(
+											resource, metadata, jdpService,
+											null));
+						} catch (Exception e) {
+							throw new IllegalStateException(e);
+						}
+					}
+				});
+		run("getProxy, cached JDP constructor", resolver, parent, rounds,
+				new Creator() {
+					public Object create(Resource resource) {
+						return jdpService.getProxy(resource,
+								SlingPropertyProxy.class);
+					}
+				});
+		run("getProxy, cached generated constructor", resolver, parent,
+				rounds, new Creator() {
+					public Object create(Resource resource) {
+						return generatedService.getProxy(resource,
+								SlingPropertyProxy.class);
+					}
+				});
+	}
+
+	/**
+	 * Creates a proxy for every child of the parent resource, repeatedly, and
+	 * prints the throughput.
+	 * 
+	 * @param name
+	 *            the name of the measured variant
+	 * @param resolver
+	 *            the resource resolver
+	 * @param parent
+	 *            the parent resource
+	 * @param rounds
+	 *            the number of measured rounds
+	 * @param creator
+	 *            creates the proxies
+	 */
+	private static void run(String name, MockResourceResolver resolver,
+			Resource parent, int rounds, Creator creator) {
+		int sink = 0;
+		long count = 0;
+		long time = 0;
+		for (int i = 0; i < WARM_UP_ROUNDS + rounds; i++) {
+			final long start = System.nanoTime();
+			int created = 0;
+			for (final java.util.Iterator<Resource> it = resolver
+					.listChildren(parent); it.hasNext();) {
+				sink += System.identityHashCode(creator.create(it.next()));
+				created++;
+			}
+			if (i >= WARM_UP_ROUNDS) {
+				time += System.nanoTime() - start;
+				count += created;
+			}
+		}
+		System.out.println(String.format("%-40s %,12.0f proxies/s (%d)",
+				name, count / (time / 1e9), sink & 1));
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl;
+
+import java.lang.reflect.Proxy;
+import java.util.Set;
+
+import org.apache.sling.commons.proxy.SlingProxyService;
+import org.apache.sling.commons.proxy.impl.lang.JDPEqualsImpl;
+import org.apache.sling.commons.proxy.samples.DuplicateSlingPropertyProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+
+/**
+ * Measures the throughput of equals on pairs of proxies which are equal, of
+ * different resources and of different interfaces. This is not a unit test,
+ * run it with:
+ * 
+ * <pre>
+ * java -cp ... org.apache.sling.commons.proxy.impl.ProxyEqualsBenchmark [pairs] [rounds]
+ * </pre>
+ */
+public class ProxyEqualsBenchmark {
+
+	/**
+	 * The number of warm up rounds.
+	 */
+	private static final int WARM_UP_ROUNDS = 10;
+
+	/**
+	 * Compares two proxies.
+	 */
+	private interface Comparison {
+		boolean equals(Object o1, Object o2);
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args
+	 *            the number of pairs and the number of measured rounds
+	 */
+	public static void main(String[] args) {
+		final int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+		final MockResourceResolver resolver = new MockResourceResolver();
+		for (int i = 0; i < pairs; i++) {
+			resolver.addResource(new MockResource(resolver,
+					"/content/list/child" + i, "myapp:Page"));
+		}
+
+		// separate services, so equal proxies are distinct instances
+		final SlingProxyService service1 = new DefaultSlingProxyServiceImpl();
+		final SlingProxyService service2 = new DefaultSlingProxyServiceImpl();
+		final Object[] left = new Object[pairs];
+		final Object[] equal = new Object[pairs];
+		final Object[] otherPath = new Object[pairs];
+		final Object[] otherInterface = new Object[pairs];
+		for (int i = 0; i < pairs; i++) {
+			final String path = "/content/list/child" + i;
+			left[i] = service1.getProxy(resolver, path,
+					SlingPropertyProxy.class);
+			equal[i] = service2.getProxy(resolver, path,
+					SlingPropertyProxy.class);
+			otherPath[i] = service2.getProxy(resolver, "/content/list/child"
+					+ ((i + 1) % pairs), SlingPropertyProxy.class);
+			otherInterface[i] = service2.getProxy(resolver, path,
+					DuplicateSlingPropertyProxy.class);
+		}
+
+		final JDPEqualsImpl impl = new JDPEqualsImpl();
+		final Comparison jdpEquals = new Comparison() {
+			public boolean equals(Object o1, Object o2) {
+				return impl.equals(o1, o2);
+			}
+		};
+		final Comparison interfaceSetEquals = new Comparison() {
+			public boolean equals(Object o1, Object o2) {
+				return haveSameInterfaceSet(o1, o2)
+						&& getHandler(o1).getResourcePath().equals(
+								getHandler(o2).getResourcePath());
+			}
+		};
+		final Comparison proxyEquals = new Comparison() {
+			public boolean equals(Object o1, Object o2) {
+				return o1.equals(o2);
+			}
+		};
+
+		run("interface sets, equal pairs", left, equal, rounds,
+				interfaceSetEquals);
+		run("interface sets, other paths", left, otherPath, rounds,
+				interfaceSetEquals);
+		run("interface sets, other interfaces", left, otherInterface, rounds,
+				interfaceSetEquals);
+		run("JDPEqualsImpl, equal pairs", left, equal, rounds, jdpEquals);
+		run("JDPEqualsImpl, other paths", left, otherPath, rounds, jdpEquals);
+		run("JDPEqualsImpl, other interfaces", left, otherInterface, rounds,
+				jdpEquals);
+		run("proxy equals, equal pairs", left, equal, rounds, proxyEquals);
+		run("proxy equals, other paths", left, otherPath, rounds, proxyEquals);
+		run("proxy equals, other interfaces", left, otherInterface, rounds,
+				proxyEquals);
+	}
+
+	/**
+	 * Compares the interfaces of the proxies with a HashSet, like equals did
+	 * before comparing the cached discriminators of the handlers.
+	 * 
+	 * @param o1
+	 *            the first proxy
+	 * @param o2
+	 *            the second proxy
+	 * @return whether or not the proxies implement the same interfaces
+	 */
+	private static boolean haveSameInterfaceSet(Object o1, Object o2) {
+		Class<?>[] ca1 = o1.getClass().getInterfaces();
+		Class<?>[] ca2 = o2.getClass().getInterfaces();
+		if (ca1.length != ca2.length) {
+			return false;
+		}
+		Set<Class<?>> set = new java.util.HashSet<Class<?>>(ca1.length);
+		for (Class<?> c : ca1) {
+			set.add(c);
+		}
+		for (Class<?> c : ca2) {
+			set.remove(c);
+		}
+		return set.isEmpty();
+	}
+
+	/**
+	 * Gets the invocation handler of a Java Dynamic Proxy.
+	 * 
+	 * @param o
+	 *            the proxy
+	 * @return the invocation handler
+	 */
+	private static SlingInvocationHandler getHandler(Object o) {
+		return (SlingInvocationHandler) Proxy.getInvocationHandler(o);
+	}
+
+	/**
+	 * Compares every pair of proxies, repeatedly, and prints the throughput.
+	 * 
+	 * @param name
+	 *            the name of the measured variant
+	 * @param left
+	 *            the first proxies of the pairs
+	 * @param right
+	 *            the second proxies of the pairs
+	 * @param rounds
+	 *            the number of measured rounds
+	 * @param comparison
+	 *            compares the proxies
+	 */
+	private static void run(String name, Object[] left, Object[] right,
+			int rounds, Comparison comparison) {
+		int sink = 0;
+		long count = 0;
+		long time = 0;
+		for (int i = 0; i < WARM_UP_ROUNDS + rounds; i++) {
+			final long start = System.nanoTime();
+			for (int j = 0; j < left.length; j++) {
+				if (comparison.equals(left[j], right[j])) {
+					sink++;
+				}
+			}
+			if (i >= WARM_UP_ROUNDS) {
+				time += System.nanoTime() - start;
+				count += left.length;
+			}
+		}
+		System.out.println(String.format("%-40s %,12.0f equals/s (%d)", name,
+				count / (time / 1e9), sink & 1));
+	}
+}
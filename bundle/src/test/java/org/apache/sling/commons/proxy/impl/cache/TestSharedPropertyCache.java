@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.impl.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the property cache shared by all proxies.
+ */
+public class TestSharedPropertyCache {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestSharedPropertyCache.class);
+
+	private static final AccessFingerprint FINGERPRINT = new AccessFingerprint() {
+		public String getFingerprint(ResourceResolver resolver) {
+			return "user:admin";
+		}
+	};
+
+	/**
+	 * All of the tests for the shared property cache.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		SharedPropertyCache cache = new SharedPropertyCache(FINGERPRINT, 100,
+				Long.MAX_VALUE, 0);
+		CacheKey admin = new CacheKey("user:admin", "/content/a", "title");
+		CacheKey anonymous = new CacheKey("user:anonymous", "/content/a",
+				"title");
+
+		log.info("Testing partitioning by fingerprint");
+		cache.put(admin, "Admin Title", cache.getGeneration());
+		assertEquals("Admin Title", cache.get(admin));
+		assertNull(cache.get(anonymous));
+		cache.put(anonymous, null, cache.getGeneration());
+		assertSame(SharedPropertyCache.NULL, cache.get(anonymous));
+
+		log.info("Testing values are copied");
+		CacheKey tags = new CacheKey("user:admin", "/content/a/b", "tags");
+		String[] value = new String[] { "a", "b" };
+		cache.put(tags, value, cache.getGeneration());
+		value[0] = "c";
+		String[] cached = (String[]) cache.get(tags);
+		assertArrayEquals(new String[] { "a", "b" }, cached);
+		assertNotSame(cached, cache.get(tags));
+		cache.put(new CacheKey("user:admin", "/content/a", "stream"),
+				new java.io.ByteArrayInputStream(new byte[0]), cache.getGeneration());
+		assertEquals(3, cache.size());
+
+		log.info("Testing invalidation of descendants");
+		CacheKey sibling = new CacheKey("user:admin", "/content/ab", "title");
+		cache.put(sibling, "Sibling", cache.getGeneration());
+		cache.invalidate("/content/a");
+		assertNull(cache.get(admin));
+		assertNull(cache.get(anonymous));
+		assertNull(cache.get(tags));
+		assertEquals("Sibling", cache.get(sibling));
+		assertEquals(1, cache.size());
+
+		log.info("Testing values read before an invalidation are not cached");
+		long generation = cache.getGeneration();
+		cache.invalidate("/content/a");
+		cache.put(admin, "Stale Title", generation);
+		assertNull(cache.get(admin));
+		cache.put(admin, "Admin Title", cache.getGeneration());
+		assertEquals("Admin Title", cache.get(admin));
+		generation = cache.getGeneration();
+		cache.clear();
+		cache.put(admin, "Stale Title", generation);
+		assertEquals(0, cache.size());
+
+		log.info("Testing the size bound and frequency admission");
+		cache.clear();
+		for (int i = 0; i < 100; i++) {
+			CacheKey hot = new CacheKey("user:admin", "/hot/" + i, "title");
+			cache.put(hot, "hot" + i, cache.getGeneration());
+			for (int j = 0; j < 5; j++) {
+				cache.get(hot);
+			}
+		}
+		for (int i = 0; i < 1000; i++) {
+			CacheKey cold = new CacheKey("user:admin", "/cold/" + i, "title");
+			cache.get(cold);
+			cache.put(cold, "cold" + i, cache.getGeneration());
+			// the hot values are read through the cache
+			CacheKey hot = new CacheKey("user:admin", "/hot/" + (i % 100),
+					"title");
+			if (cache.get(hot) == null) {
+				cache.put(hot, "hot" + (i % 100), cache.getGeneration());
+			}
+		}
+		assertTrue(cache.size() <= 100);
+		int hot = 0;
+		for (int i = 0; i < 100; i++) {
+			if (cache.get(new CacheKey("user:admin", "/hot/" + i, "title")) != null) {
+				hot++;
+			}
+		}
+		assertTrue(hot >= 90);
+
+		log.info("Testing the weight bound");
+		SharedPropertyCache light = new SharedPropertyCache(FINGERPRINT, 100,
+				4096, 0);
+		for (int i = 0; i < 100; i++) {
+			light.put(new CacheKey("user:admin", "/light/" + i, "title"),
+					"value" + i, light.getGeneration());
+		}
+		assertTrue(light.getWeight() <= 4096);
+		assertTrue(light.size() < 100);
+
+		log.info("Testing expiry");
+		SharedPropertyCache expiring = new SharedPropertyCache(FINGERPRINT, 10,
+				Long.MAX_VALUE, 1);
+		expiring.put(admin, "Admin Title", expiring.getGeneration());
+		Thread.sleep(5);
+		assertNull(expiring.get(admin));
+		assertEquals(0, expiring.size());
+	}
+}
@@ -21,10 +21,15 @@ package org.apache.sling.commons.proxy.lang;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.commons.proxy.BaseSlingProxyTest;
 import org.apache.sling.commons.proxy.SlingProxyService;
 import org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl;
+import org.apache.sling.commons.proxy.impl.ProxyEngine;
 import org.apache.sling.commons.proxy.samples.DuplicateSlingPropertyProxy;
 import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
 import org.junit.Test;
@@ -75,6 +80,28 @@ public class TestJDPEquals extends BaseSlingProxyTest {
 				.adaptTo(SlingPropertyProxy.class);
 		assertFalse(pageProxy.equals(pageProxy5));
 
+		log.info("Ensuring generated proxies equal Java Dynamic Proxies");
+		SlingProxyService generatedProxyService = new DefaultSlingProxyServiceImpl(
+				ProxyEngine.GeneratedClass);
+		SlingPropertyProxy pageProxy6 = generatedProxyService.getProxy(
+				pageResource, SlingPropertyProxy.class);
+		assertTrue(pageProxy.equals(pageProxy6));
+		assertTrue(pageProxy6.equals(pageProxy));
+		assertFalse(pageProxy6.equals(pageProxy3));
+
+		log.info("Ensuring proxies are not equal to other objects");
+		assertFalse(pageProxy.equals(null));
+		assertFalse(pageProxy.equals("/content/test"));
+		Object other = Proxy.newProxyInstance(SlingPropertyProxy.class
+				.getClassLoader(), new Class<?>[] { SlingPropertyProxy.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						return null;
+					}
+				});
+		assertFalse(pageProxy.equals(other));
+
 		log.info("Tests Successful");
 	}
 }
@@ -21,13 +21,16 @@ package org.apache.sling.commons.proxy.lang;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.commons.proxy.BaseSlingProxyTest;
 import org.apache.sling.commons.proxy.SlingProxyService;
 import org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl;
+import org.apache.sling.commons.proxy.impl.lang.JDPHashCodeImpl;
 import org.apache.sling.commons.proxy.samples.DuplicateSlingPropertyProxy;
 import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +78,29 @@ public class TestJDPHashCode extends BaseSlingProxyTest {
 		log.info("HashCode1 {}, HashCode 2 {}", hashCode, pageProxy4.hashCode());
 		assertEquals(hashCode, pageProxy4.hashCode());
 
+		log.info("Ensuring the same proxy from different resource resolvers gets the same hash code");
+		MockResourceResolver resolver2 = new MockResourceResolver();
+		createResources(resolver2);
+		SlingPropertyProxy pageProxy5 = slingProxyService.getProxy(resolver2,
+				"/content/test", SlingPropertyProxy.class);
+		assertTrue(pageProxy.equals(pageProxy5));
+		assertEquals(hashCode, pageProxy5.hashCode());
+
+		log.info("Ensuring the proxies of different resources get different hash codes");
+		SlingPropertyProxy contentProxy = slingProxyService.getProxy(resolver,
+				"/content/test/jcr:content", SlingPropertyProxy.class);
+		assertFalse(contentProxy.hashCode() == hashCode);
+
+		log.info("Ensuring the hash code implementation agrees with the proxies");
+		assertEquals(hashCode, new JDPHashCodeImpl().hashCode(pageProxy));
+		assertEquals(pageProxy3.hashCode(), new JDPHashCodeImpl()
+				.hashCode(pageProxy3));
+		assertEquals(JDPHashCodeImpl.interfacesHashCode(
+				SlingPropertyProxy.class, DuplicateSlingPropertyProxy.class),
+				JDPHashCodeImpl.interfacesHashCode(
+						DuplicateSlingPropertyProxy.class,
+						SlingPropertyProxy.class));
+
 		log.info("Tests Successful");
 	}
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.Iterator;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.BaseSlingProxyTest;
+import org.apache.sling.commons.proxy.impl.lang.JDPToStringImpl;
+import org.apache.sling.commons.proxy.samples.ChildrenSlingProxy;
+import org.apache.sling.commons.proxy.samples.ReferenceSlingProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the SlingProxy toString method.
+ */
+public class TestJDPToString extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestJDPToString.class);
+
+	/**
+	 * Test the SlingProxy toString method.
+	 */
+	@Test
+	public void runTests() {
+
+		log.info("runTests");
+
+		Resource pageResource = resolver.getResource("/content/test");
+		SlingPropertyProxy pageProxy = pageResource
+				.adaptTo(SlingPropertyProxy.class);
+
+		log.info("Testing toString functionality");
+		String stringed = pageProxy.toString();
+		assertNotNull(stringed);
+		log.info(stringed);
+		assertTrue(stringed.contains("Path: /content/test"));
+		assertTrue(stringed.contains("getTitle: " + TITLE));
+		assertTrue(stringed.contains("isActive: false"));
+		assertTrue(stringed.contains("getNonExistentProperty: null"));
+
+		log.info("Testing toString does not resolve references or children");
+		TrackingResourceResolver tracking = new TrackingResourceResolver();
+		createResources(tracking);
+		ReferenceSlingProxy references = slingProxyService.getProxy(tracking,
+				"/content/test/jcr:content", ReferenceSlingProxy.class);
+		ChildrenSlingProxy children = slingProxyService.getProxy(tracking,
+				"/content/test", ChildrenSlingProxy.class);
+		log.info(references.toString());
+		log.info(children.toString());
+		assertFalse(references.toString().contains("getParentPage"));
+		assertFalse(children.toString().contains("getChildProxies"));
+		assertEquals(0, tracking.lookups);
+
+		log.info("Testing toString is bounded");
+		StringBuilder title = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			title.append('x');
+		}
+		MockResource longResource = new MockResource(resolver,
+				"/content/long", PAGE_RESOURCE_TYPE);
+		resolver.addResource(longResource);
+		MockResource longContent = new MockResource(resolver,
+				"/content/long/jcr:content", CONTENT_RESOURCE_TYPE);
+		longContent.addProperty("jcr:title", title.toString());
+		resolver.addResource(longContent);
+		String longStringed = slingProxyService.getProxy(longResource,
+				SlingPropertyProxy.class).toString();
+		log.info(longStringed);
+		assertTrue(longStringed.length() < 1024);
+		assertTrue(longStringed.contains("getSlingResourceType: "));
+
+		log.info("Testing the rendering of values");
+		JDPToStringImpl tostring = new JDPToStringImpl();
+		assertEquals("null", tostring.toString(null));
+		assertEquals("[ a , 1 , null ]", tostring.toString(new Object[] {
+				"a", 1L, null }));
+		assertEquals("[ 1 , 2 ]", tostring.toString(new int[] { 1, 2 }));
+		Calendar calendar = Calendar.getInstance();
+		assertEquals(calendar.getTime().toString(), tostring
+				.toString(calendar));
+		assertEquals("[ caused - java.lang.IllegalStateException - Message = failed ]",
+				tostring.toString(new Object[] { new Object() {
+					@Override
+					public String toString() {
+						throw new IllegalStateException("failed");
+					}
+				} }));
+
+		log.info("Tests Successful");
+	}
+
+	/**
+	 * A resource resolver counting the resources looked up through it.
+	 */
+	public static class TrackingResourceResolver extends MockResourceResolver {
+		private int lookups;
+
+		@Override
+		public Resource getResource(String path) {
+			lookups++;
+			return super.getResource(path);
+		}
+
+		@Override
+		public Iterator<Resource> listChildren(Resource parent) {
+			lookups++;
+			return super.listChildren(parent);
+		}
+	}
+}
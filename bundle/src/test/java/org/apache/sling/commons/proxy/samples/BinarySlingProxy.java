@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.samples;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.sling.commons.proxy.SlingBinary;
+import org.apache.sling.commons.proxy.SlingProxy;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+
+/**
+ * A proxy reading binary properties as streams, channels, buffers and
+ * binaries.
+ */
+public interface BinarySlingProxy extends SlingProxy {
+
+	@SlingProperty(name = "data")
+	public InputStream getDataStream();
+
+	@SlingProperty(name = "data")
+	public ReadableByteChannel getDataChannel();
+
+	@SlingProperty(name = "data")
+	public ByteBuffer getDataBuffer();
+
+	@SlingProperty(name = "data")
+	public SlingBinary getData();
+
+	@SlingProperty(name = "file")
+	public ReadableByteChannel getFileChannel();
+
+	@SlingProperty(name = "file")
+	public ByteBuffer getFileBuffer();
+
+	@SlingProperty(name = "file")
+	public SlingBinary getFile();
+
+	@SlingProperty(name = "missing")
+	public SlingBinary getMissing();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultBytes = { 1, 2, 3 })
+	public ByteBuffer getDefaultBuffer();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultBytes = { 1, 2, 3 })
+	public SlingBinary getDefaultBinary();
+}
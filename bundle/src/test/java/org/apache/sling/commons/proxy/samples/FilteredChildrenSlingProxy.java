@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.samples;
+
+import java.util.Iterator;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.proxy.SlingProxy;
+import org.apache.sling.commons.proxy.annotations.SlingChildren;
+
+/**
+ * A proxy with children filtered by resource type and name.
+ */
+public interface FilteredChildrenSlingProxy extends SlingProxy {
+
+	@SlingChildren(resourceTypes = "myapp/image", returnType = ValueMap.class)
+	public Iterator<ValueMap> getImageProperties();
+
+	@SlingChildren(excludedResourceTypes = { "myapp/image", "myapp/text" })
+	public Iterator<Resource> getOtherChildren();
+
+	@SlingChildren(name = "text*")
+	public Iterator<Resource> getTextChildren();
+
+	@SlingChildren(name = "*1")
+	public Iterator<Resource> getFirstChildren();
+
+	@SlingChildren(name = "image2")
+	public Iterator<Resource> getSecondImage();
+
+	@SlingChildren(name = "?ext?")
+	public Iterator<Resource> getTextByPattern();
+
+	@SlingChildren(resourceTypes = "myapp/image", name = "image*")
+	public Iterator<Resource> getImages(int offset, int limit);
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.samples;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.SlingProxy;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+import org.apache.sling.commons.proxy.annotations.SlingReference;
+
+/**
+ * A proxy reading from resources which do not exist.
+ */
+public interface MissingResourceSlingProxy extends SlingProxy {
+
+	@SlingProperty(path = "missing", name = "jcr:title")
+	public String getRequiredTitle();
+
+	@SlingProperty(path = "missing", name = "jcr:description", required = false)
+	public String getOptionalDescription();
+
+	@SlingProperty(path = "missing", name = "jcr:language", required = false, useDefault = true, defaultString = "en")
+	public String getOptionalLanguage();
+
+	@SlingReference(path = "missing")
+	public Resource getMissingResource();
+
+	@SlingReference(path = "jcr:content")
+	public StringBuilder getUnadaptableContent();
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.samples;
+
+import java.time.LocalDate;
+
+import org.apache.sling.commons.proxy.ModifiableSlingProxy;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+
+/**
+ * A proxy writing its properties through setters.
+ */
+public interface ModifiableSlingPropertyProxy extends ModifiableSlingProxy {
+
+	@SlingProperty(path = "jcr:content", name = "jcr:title")
+	public String getTitle();
+
+	public void setTitle(String title);
+
+	@SlingProperty(name = "count")
+	public int getCount();
+
+	public void setCount(int count);
+
+	@SlingProperty(name = "state")
+	public TypedSlingPropertyProxy.State getState();
+
+	public void setState(TypedSlingPropertyProxy.State state);
+
+	@SlingProperty(name = "published")
+	public LocalDate getPublished();
+
+	public void setPublished(LocalDate published);
+
+	@SlingProperty(name = "description", useDefault = true, defaultString = "None")
+	public String getDescription();
+
+	public void setDescription(String description);
+
+	@SlingProperty(name = "tags")
+	public String[] getTags();
+
+	@SlingProperty(name = "tags")
+	public void setKeywords(String[] keywords);
+}
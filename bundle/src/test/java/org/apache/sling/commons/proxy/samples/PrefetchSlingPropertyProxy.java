@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.samples;
+
+import org.apache.sling.commons.proxy.SlingProxy;
+import org.apache.sling.commons.proxy.annotations.SlingPrefetch;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+
+/**
+ * A proxy reading all of its properties at once.
+ */
+@SlingPrefetch
+public interface PrefetchSlingPropertyProxy extends SlingProxy {
+
+	@SlingProperty(name = "jcr:title", path = "jcr:content")
+	public String getTitle();
+
+	@SlingProperty(path = "jcr:content", name = "active")
+	public Boolean isActive();
+
+	@SlingProperty(path = "jcr:content", useDefault = true, defaultString = "No Description")
+	public String getDescription();
+
+	@SlingProperty(path = "jcr:content/missing", name = "jcr:title")
+	public String getMissingTitle();
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.samples;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Calendar;
+
+import org.apache.sling.commons.proxy.SlingProxy;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+
+/**
+ * A proxy reading properties as primitives, narrowed numbers, BigDecimals,
+ * enums and java.time types.
+ */
+public interface TypedSlingPropertyProxy extends SlingProxy {
+
+	public enum State {
+		DRAFT, PUBLISHED
+	}
+
+	@SlingProperty(name = "count")
+	public int getCount();
+
+	@SlingProperty(name = "count")
+	public long getCountAsLong();
+
+	@SlingProperty(name = "count")
+	public Integer getBoxedCount();
+
+	@SlingProperty(name = "missing")
+	public int getMissingCount();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultLong = 7)
+	public int getDefaultCount();
+
+	@SlingProperty(name = "enabled")
+	public boolean isEnabled();
+
+	@SlingProperty(name = "missing")
+	public boolean isMissingFlag();
+
+	@SlingProperty(name = "ratio")
+	public float getRatio();
+
+	@SlingProperty(name = "price")
+	public BigDecimal getPrice();
+
+	@SlingProperty(name = "state")
+	public State getState();
+
+	@SlingProperty(name = "unknownState")
+	public State getUnknownState();
+
+	@SlingProperty(name = "created")
+	public Instant getCreated();
+
+	@SlingProperty(name = "published")
+	public LocalDate getPublished();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultDate = 0)
+	public Calendar getDefaultCalendar();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultStrings = { "a", "b" })
+	public String[] getDefaultTags();
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.to;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.sling.commons.proxy.SlingProxy;
+import org.apache.sling.commons.proxy.impl.to.InvocationKind;
+import org.apache.sling.commons.proxy.impl.to.InvokedPropertyTO;
+import org.apache.sling.commons.proxy.impl.to.ProxyMetadata;
+import org.apache.sling.commons.proxy.samples.PrefetchSlingPropertyProxy;
+import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the pre-resolved proxy interface metadata.
+ */
+public class TestProxyMetadata {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestProxyMetadata.class);
+
+	/**
+	 * All of the tests for the proxy metadata.
+	 */
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		ProxyMetadata pm = ProxyMetadata.newInstance(SlingPropertyProxy.class);
+		assertSame(SlingPropertyProxy.class, pm.getType());
+		assertTrue(!pm.isPrefetch());
+		assertTrue(ProxyMetadata.newInstance(PrefetchSlingPropertyProxy.class)
+				.isPrefetch());
+
+		log.info("Testing method kinds");
+		assertEquals(InvocationKind.BackingResource,
+				pm.getInvokedTO(SlingProxy.class.getMethod("getBackingResource"))
+						.getKind());
+		assertEquals(InvocationKind.Equals,
+				pm.getInvokedTO(Object.class.getMethod("equals", Object.class))
+						.getKind());
+		assertEquals(InvocationKind.HashCode,
+				pm.getInvokedTO(Object.class.getMethod("hashCode")).getKind());
+		assertEquals(InvocationKind.ToString,
+				pm.getInvokedTO(Object.class.getMethod("toString")).getKind());
+		assertNull(pm.getInvokedTO(Object.class.getMethod("notify")));
+
+		log.info("Testing property resolution");
+		InvokedPropertyTO title = (InvokedPropertyTO) pm
+				.getInvokedTO(SlingPropertyProxy.class.getMethod("getTitle"));
+		assertEquals(InvocationKind.Property, title.getKind());
+		assertEquals("jcr:title", title.getName());
+		assertEquals("jcr:content/jcr:title", title.getPropertyName());
+		assertTrue(!title.isAbsolute());
+		assertTrue(title.isGetter());
+
+		InvokedPropertyTO active = (InvokedPropertyTO) pm
+				.getInvokedTO(SlingPropertyProxy.class.getMethod("isActive"));
+		assertEquals("active", active.getName());
+		assertTrue(active.isGetter());
+
+		log.info("Testing property name derived from the method name");
+		InvokedPropertyTO nonExistent = (InvokedPropertyTO) pm
+				.getInvokedTO(SlingPropertyProxy.class
+						.getMethod("getNonExistentProperty"));
+		assertEquals("nonExistentProperty", nonExistent.getName());
+		assertEquals("jcr:content/nonExistentProperty",
+				nonExistent.getPropertyName());
+
+		log.info("Testing property cache slots");
+		assertEquals(4, pm.getPropertyCount());
+		final java.util.Set<Integer> cacheSlots = new java.util.HashSet<Integer>();
+		for (int i = 0; i < pm.getSlotCount(); i++) {
+			if (pm.getInvokedTO(i) instanceof InvokedPropertyTO) {
+				final int cacheSlot = ((InvokedPropertyTO) pm.getInvokedTO(i))
+						.getCacheSlot();
+				assertTrue(cacheSlot >= 0 && cacheSlot < pm.getPropertyCount());
+				assertTrue(cacheSlots.add(cacheSlot));
+			}
+		}
+
+		log.info("Testing path slots");
+		assertEquals(2, pm.getPathCount());
+		assertEquals(title.getPathSlot(), active.getPathSlot());
+		assertEquals(title.getPathSlot(), pm.getPathSlot("jcr:content"));
+		assertTrue(pm.getPathSlot("") >= 0);
+		assertEquals(-1, pm.getPathSlot("/content"));
+
+		log.info("Tests Successful");
+	}
+}
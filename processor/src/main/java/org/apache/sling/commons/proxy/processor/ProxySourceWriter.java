@@ -0,0 +1,978 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.processor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Writes the source of the class implementing a proxy interface, and the
+ * registry entries describing its methods.
+ * 
+ * Every method is assigned a slot, which the generated method passes to the
+ * invocation handler of the proxy. Property getters read the converted
+ * property from the handler, so they share the property cache, the property
+ * usage statistics and the pending values of setters with all other proxies,
+ * and unbox it or return the default value of their annotation themselves.
+ * Reference getters get the referenced object from the handler, all other
+ * methods are invoked by slot.
+ * 
+ * The registry lists the methods in the order of their slots, with their
+ * kind and the values of their annotation, so that the proxy service builds
+ * the metadata of the interface without reading its annotations, see
+ * {@link #getRegistryEntries()}. The kinds are decided as the proxy service
+ * decides them for dynamic proxies.
+ */
+final class ProxySourceWriter {
+
+	/**
+	 * The name of the SlingProperty annotation.
+	 */
+	static final String SLING_PROPERTY = "org.apache.sling.commons.proxy.annotations.SlingProperty";
+
+	/**
+	 * The name of the SlingReference annotation.
+	 */
+	static final String SLING_REFERENCE = "org.apache.sling.commons.proxy.annotations.SlingReference";
+
+	/**
+	 * The name of the SlingChildren annotation.
+	 */
+	static final String SLING_CHILDREN = "org.apache.sling.commons.proxy.annotations.SlingChildren";
+
+	/**
+	 * The name of the SlingPrefetch annotation.
+	 */
+	static final String SLING_PREFETCH = "org.apache.sling.commons.proxy.annotations.SlingPrefetch";
+
+	/**
+	 * The name of the interface whose commit method commits the pending
+	 * values.
+	 */
+	private static final String MODIFIABLE_SLING_PROXY = "org.apache.sling.commons.proxy.ModifiableSlingProxy";
+
+	/**
+	 * The super class of the generated classes.
+	 */
+	private static final String SUPER_CLASS = "org.apache.sling.commons.proxy.generated.GeneratedSlingProxy";
+
+	/**
+	 * The signatures of the final methods of the super class, which cannot be
+	 * implemented by the generated classes.
+	 */
+	private static final Set<String> FINAL_METHODS = new java.util.HashSet<String>(
+			java.util.Arrays.asList("equals(java.lang.Object)", "hashCode()",
+					"toString()"));
+
+	/**
+	 * The JavaBean getter names.
+	 */
+	private static final Pattern GETTER = Pattern.compile("^get([A-Z])(\\w+)$");
+
+	/**
+	 * The JavaBean boolean getter names.
+	 */
+	private static final Pattern BOOLEAN_GETTER = Pattern
+			.compile("^is([A-Z])(\\w+)$");
+
+	/**
+	 * The JavaBean setter names.
+	 */
+	private static final Pattern SETTER = Pattern.compile("^set([A-Z])(\\w+)$");
+
+	/**
+	 * The processing environment.
+	 */
+	private final ProcessingEnvironment env;
+
+	/**
+	 * The proxy interface.
+	 */
+	private final TypeElement type;
+
+	/**
+	 * The package of the proxy interface.
+	 */
+	private final PackageElement pkg;
+
+	/**
+	 * The simple name of the generated class.
+	 */
+	private final String simpleName;
+
+	/**
+	 * The methods of the generated class.
+	 */
+	private final StringBuilder methods = new StringBuilder();
+
+	/**
+	 * The registry entries of the methods of the generated class.
+	 */
+	private final Map<String, String> registryEntries = new java.util.LinkedHashMap<String, String>();
+
+	/**
+	 * Constructs a new source writer.
+	 * 
+	 * @param env
+	 *            the processing environment
+	 * @param type
+	 *            the proxy interface
+	 * @param pkg
+	 *            the package of the proxy interface
+	 * @param simpleName
+	 *            the simple name of the generated class
+	 */
+	ProxySourceWriter(final ProcessingEnvironment env, final TypeElement type,
+			final PackageElement pkg, final String simpleName) {
+		this.env = env;
+		this.type = type;
+		this.pkg = pkg;
+		this.simpleName = simpleName;
+	}
+
+	/**
+	 * Checks to see if the specified interface declares or inherits a method
+	 * annotated with one of the Sling Proxy annotations.
+	 * 
+	 * @param elements
+	 *            the element utilities
+	 * @param type
+	 *            the interface to check
+	 * @return whether or not the interface is a proxy interface
+	 */
+	static boolean isProxyInterface(final Elements elements,
+			final TypeElement type) {
+		for (final Element e : elements.getAllMembers(type)) {
+			if (e.getKind() == ElementKind.METHOD
+					&& (getAnnotation(e, SLING_PROPERTY) != null
+							|| getAnnotation(e, SLING_REFERENCE) != null || getAnnotation(
+							e, SLING_CHILDREN) != null)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the mirror of the annotation with the specified name.
+	 * 
+	 * @param e
+	 *            the annotated element
+	 * @param name
+	 *            the qualified name of the annotation type
+	 * @return the annotation mirror or null if the element does not have the
+	 *         annotation
+	 */
+	private static AnnotationMirror getAnnotation(final Element e,
+			final String name) {
+		for (final AnnotationMirror am : e.getAnnotationMirrors()) {
+			if (((TypeElement) am.getAnnotationType().asElement())
+					.getQualifiedName().contentEquals(name)) {
+				return am;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the value of an annotation element, or its default value.
+	 * 
+	 * @param am
+	 *            the annotation mirror
+	 * @param name
+	 *            the name of the annotation element
+	 * @return the value: a String, a boxed primitive, a TypeMirror or a List
+	 *         of AnnotationValues
+	 */
+	private Object getValue(final AnnotationMirror am, final String name) {
+		for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : this.env
+				.getElementUtils().getElementValuesWithDefaults(am).entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+		throw new IllegalArgumentException("No element " + name + " in "
+				+ am);
+	}
+
+	/**
+	 * Gets the value of an annotation element of type String, trimmed.
+	 * 
+	 * @param am
+	 *            the annotation mirror
+	 * @param name
+	 *            the name of the annotation element
+	 * @return the trimmed value
+	 */
+	private String getString(final AnnotationMirror am, final String name) {
+		return ((String) this.getValue(am, name)).trim();
+	}
+
+	/**
+	 * Gets the values of an annotation element of an array type.
+	 * 
+	 * @param am
+	 *            the annotation mirror
+	 * @param name
+	 *            the name of the annotation element
+	 * @return the values
+	 */
+	private List<Object> getValues(final AnnotationMirror am, final String name) {
+		final List<Object> values = new java.util.ArrayList<Object>();
+		for (final Object value : (List<?>) this.getValue(am, name)) {
+			values.add(((AnnotationValue) value).getValue());
+		}
+		return values;
+	}
+
+	/**
+	 * Writes the source of the generated class.
+	 * 
+	 * @return the source
+	 */
+	String write() {
+		final Elements elements = this.env.getElementUtils();
+		final Types types = this.env.getTypeUtils();
+		final DeclaredType declared = (DeclaredType) this.type.asType();
+		final String binaryName = elements.getBinaryName(this.type)
+				.toString();
+
+		final Set<String> signatures = new java.util.HashSet<String>(
+				FINAL_METHODS);
+		int slot = 0;
+		for (final Element e : elements.getAllMembers(this.type)) {
+			if (e.getKind() != ElementKind.METHOD
+					|| !e.getModifiers().contains(Modifier.ABSTRACT)
+					|| ((TypeElement) e.getEnclosingElement())
+							.getQualifiedName().contentEquals("java.lang.Object")) {
+				continue;
+			}
+			final ExecutableElement method = (ExecutableElement) e;
+			final ExecutableType et = (ExecutableType) types.asMemberOf(
+					declared, method);
+			final String signature = this.getSignature(method, et);
+			if (!signatures.add(signature)) {
+				continue;
+			}
+			final String key = binaryName + '#' + slot;
+			this.registryEntries.put(key, signature);
+			this.writeMethod(method, et, slot, key);
+			slot++;
+		}
+		if (this.isPrefetch(this.type)) {
+			this.registryEntries.put(binaryName + "#prefetch", "true");
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		if (!this.pkg.isUnnamed()) {
+			sb.append("package ").append(this.pkg.getQualifiedName())
+					.append(";\n\n");
+		}
+		sb.append("/**\n * Sling Proxy implementation of {@link ")
+				.append(this.type.getQualifiedName())
+				.append("},\n * generated by the Sling Proxy annotation processor.\n */\n");
+		sb.append("@SuppressWarnings(\"unchecked\")\n");
+		sb.append("public final class ").append(this.simpleName)
+				.append(this.getTypeParameters(this.type.getTypeParameters()))
+				.append("\n\t\textends ").append(SUPER_CLASS)
+				.append("\n\t\timplements ").append(declared).append(" {\n");
+		sb.append("\n\tpublic ").append(this.simpleName)
+				.append("(final java.lang.reflect.InvocationHandler handler) {\n");
+		sb.append("\t\tsuper(handler);\n\t}\n");
+		sb.append(this.methods);
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the registry entries describing the methods of the generated
+	 * class, available once the source has been written. The key of each
+	 * method is the binary name of the interface followed by <code>#</code>
+	 * and the slot of the method, its value the signature of the method. The
+	 * key followed by <code>.kind</code> holds the kind of the method, further
+	 * suffixes the values of its annotation. The key
+	 * <code>&lt;interface&gt;#prefetch</code> is set for prefetched
+	 * interfaces.
+	 * 
+	 * @return the registry entries
+	 */
+	Map<String, String> getRegistryEntries() {
+		return this.registryEntries;
+	}
+
+	/**
+	 * Writes a method of the generated class and its registry entries.
+	 * 
+	 * @param method
+	 *            the method
+	 * @param et
+	 *            the type of the method as member of the proxy interface
+	 * @param slot
+	 *            the slot of the method
+	 * @param key
+	 *            the registry key of the method
+	 */
+	private void writeMethod(final ExecutableElement method,
+			final ExecutableType et, final int slot, final String key) {
+		final Types types = this.env.getTypeUtils();
+		final String methodName = method.getSimpleName().toString();
+		final List<? extends TypeMirror> params = et.getParameterTypes();
+
+		this.methods.append("\n\tpublic ")
+				.append(this.getTypeParameters(method.getTypeParameters()));
+		if (!method.getTypeParameters().isEmpty()) {
+			this.methods.append(' ');
+		}
+		this.methods.append(et.getReturnType()).append(' ').append(methodName)
+				.append('(');
+		final StringBuilder args = new StringBuilder();
+		for (int i = 0; i < params.size(); i++) {
+			if (i > 0) {
+				this.methods.append(", ");
+				args.append(", ");
+			}
+			this.methods.append("final ").append(params.get(i)).append(" arg")
+					.append(i);
+			args.append("arg").append(i);
+		}
+		this.methods.append(')');
+		final List<? extends TypeMirror> thrown = et.getThrownTypes();
+		for (int i = 0; i < thrown.size(); i++) {
+			this.methods.append(i == 0 ? " throws " : ", ")
+					.append(thrown.get(i));
+		}
+		this.methods.append(" {\n\t\t");
+
+		final String kind = this.getKind(method, key);
+		this.registryEntries.put(key + ".kind", kind);
+		final TypeMirror rt = et.getReturnType();
+		if ("Property".equals(kind)) {
+			this.writeProperty(method, rt, slot);
+		} else if ("Reference".equals(kind)) {
+			this.methods.append("return (").append(rt)
+					.append(") invokeReference(").append(slot).append(");\n");
+		} else {
+			final String invoke = "invokeSlot("
+					+ slot
+					+ ", "
+					+ (params.isEmpty() ? "null" : "new Object[] { " + args
+							+ " }") + ")";
+			if (rt.getKind() == TypeKind.VOID) {
+				this.methods.append(invoke).append(";\n");
+			} else if (rt.getKind().isPrimitive()) {
+				this.methods.append("return ((")
+						.append(types.boxedClass((PrimitiveType) rt)
+								.getQualifiedName()).append(") ")
+						.append(invoke).append(").").append(rt)
+						.append("Value();\n");
+			} else {
+				this.methods.append("return (").append(rt).append(") ")
+						.append(invoke).append(";\n");
+			}
+		}
+		this.methods.append("\t}\n");
+	}
+
+	/**
+	 * Writes the body of a property getter, which reads the converted
+	 * property by slot and returns it, unboxed for primitive return types, or
+	 * returns the default value if the property is missing.
+	 * 
+	 * @param method
+	 *            the getter
+	 * @param rt
+	 *            the return type of the getter
+	 * @param slot
+	 *            the slot of the getter
+	 */
+	private void writeProperty(final ExecutableElement method,
+			final TypeMirror rt, final int slot) {
+		final String boxed = rt.getKind().isPrimitive() ? this.env
+				.getTypeUtils().boxedClass((PrimitiveType) rt)
+				.getQualifiedName().toString() : rt.toString();
+		final List<String> defaultValue = this.getDefault(method, rt);
+		if (defaultValue == null) {
+			this.methods.append("return (").append(boxed)
+					.append(") invokeProperty(").append(slot).append(");\n");
+			return;
+		}
+		this.methods.append("final ").append(boxed).append(" value = (")
+				.append(boxed).append(") invokeProperty(").append(slot)
+				.append(");\n");
+		this.methods.append("\t\tif (value != null) {\n\t\t\treturn value");
+		if (rt.getKind().isPrimitive()) {
+			this.methods.append('.').append(rt).append("Value()");
+		}
+		this.methods.append(";\n\t\t}\n");
+		for (final String statement : defaultValue) {
+			this.methods.append("\t\t").append(statement).append('\n');
+		}
+	}
+
+	/**
+	 * Gets the statements returning the default value of a property getter,
+	 * the default of its annotation if it uses one, or else zero or false for
+	 * primitive return types, built as the proxy service builds them for
+	 * dynamic proxies.
+	 * 
+	 * @param method
+	 *            the getter
+	 * @param rt
+	 *            the return type of the getter
+	 * @return the statements or null if the getter returns null for missing
+	 *         properties
+	 */
+	private List<String> getDefault(final ExecutableElement method,
+			final TypeMirror rt) {
+		final AnnotationMirror sp = getAnnotation(method, SLING_PROPERTY);
+		if (!((Boolean) this.getValue(sp, "useDefault")).booleanValue()) {
+			return (rt.getKind().isPrimitive() ? java.util.Collections
+					.singletonList("return " + this.getPrimitiveDefault(rt)
+							+ ";") : null);
+		}
+		final long defaultLong = ((Long) this.getValue(sp, "defaultLong"))
+				.longValue();
+		final double defaultDouble = ((Double) this.getValue(sp,
+				"defaultDouble")).doubleValue();
+		final String defaultDate = this.literal(this.getValue(sp,
+				"defaultDate"));
+		final String instant = "java.time.Instant.ofEpochMilli(" + defaultDate
+				+ ")";
+		final String zone = "java.time.ZoneId.systemDefault()";
+
+		String expression = null;
+		switch (rt.getKind()) {
+		case BOOLEAN:
+			expression = this.literal(this.getValue(sp, "defaultBoolean"));
+			break;
+		case LONG:
+			expression = this.literal(Long.valueOf(defaultLong));
+			break;
+		case INT:
+			expression = this.literal(Integer.valueOf((int) defaultLong));
+			break;
+		case SHORT:
+			expression = this.literal(Short.valueOf((short) defaultLong));
+			break;
+		case BYTE:
+			expression = this.literal(Byte.valueOf((byte) defaultLong));
+			break;
+		case DOUBLE:
+			expression = this.literal(Double.valueOf(defaultDouble));
+			break;
+		case FLOAT:
+			expression = this.literal(Float.valueOf((float) defaultDouble));
+			break;
+		case ARRAY:
+			final TypeMirror component = ((ArrayType) rt).getComponentType();
+			if ("java.lang.String".equals(component.toString())) {
+				expression = "new java.lang.String[] { "
+						+ this.join(this.getValues(sp, "defaultStrings"))
+						+ " }";
+			} else if (component.getKind() == TypeKind.BYTE) {
+				expression = this.getBytes(sp);
+			} else if ("java.lang.Byte".equals(component.toString())) {
+				expression = "new java.lang.Byte[] { "
+						+ this.join(this.getValues(sp, "defaultBytes")) + " }";
+			}
+			break;
+		case DECLARED:
+			final TypeElement te = (TypeElement) ((DeclaredType) rt)
+					.asElement();
+			final String name = te.getQualifiedName().toString();
+			if (te.getKind() == ElementKind.ENUM) {
+				return this.getEnumDefault(te, (String) this.getValue(sp,
+						"defaultString"));
+			} else if ("java.lang.Boolean".equals(name)) {
+				expression = this.literal(this.getValue(sp, "defaultBoolean"));
+			} else if ("java.lang.Long".equals(name)) {
+				expression = this.literal(Long.valueOf(defaultLong));
+			} else if ("java.lang.Integer".equals(name)) {
+				expression = this.literal(Integer.valueOf((int) defaultLong));
+			} else if ("java.lang.Short".equals(name)) {
+				expression = this.literal(Short.valueOf((short) defaultLong));
+			} else if ("java.lang.Byte".equals(name)) {
+				expression = this.literal(Byte.valueOf((byte) defaultLong));
+			} else if ("java.lang.Double".equals(name)) {
+				expression = this.literal(Double.valueOf(defaultDouble));
+			} else if ("java.lang.Float".equals(name)) {
+				expression = this.literal(Float.valueOf((float) defaultDouble));
+			} else if ("java.lang.String".equals(name)) {
+				expression = this.literal(this.getValue(sp, "defaultString"));
+			} else if ("java.math.BigDecimal".equals(name)) {
+				expression = "java.math.BigDecimal.valueOf("
+						+ this.literal(Double.valueOf(defaultDouble)) + ")";
+			} else if ("java.util.Calendar".equals(name)) {
+				return java.util.Arrays.asList(
+						"final java.util.Calendar calendar = java.util.Calendar.getInstance();",
+						"calendar.setTimeInMillis(" + defaultDate + ");",
+						"return calendar;");
+			} else if ("java.util.Date".equals(name)) {
+				expression = "new java.util.Date(" + defaultDate + ")";
+			} else if ("java.time.Instant".equals(name)) {
+				expression = instant;
+			} else if ("java.time.LocalDate".equals(name)) {
+				expression = "java.time.ZonedDateTime.ofInstant(" + instant
+						+ ", " + zone + ").toLocalDate()";
+			} else if ("java.time.LocalDateTime".equals(name)) {
+				expression = "java.time.ZonedDateTime.ofInstant(" + instant
+						+ ", " + zone + ").toLocalDateTime()";
+			} else if ("java.time.OffsetDateTime".equals(name)) {
+				expression = "java.time.OffsetDateTime.ofInstant(" + instant
+						+ ", " + zone + ")";
+			} else if ("java.time.ZonedDateTime".equals(name)) {
+				expression = "java.time.ZonedDateTime.ofInstant(" + instant
+						+ ", " + zone + ")";
+			} else if ("java.io.InputStream".equals(name)) {
+				expression = "new java.io.ByteArrayInputStream("
+						+ this.getBytes(sp) + ")";
+			} else if ("java.nio.channels.ReadableByteChannel".equals(name)) {
+				expression = "java.nio.channels.Channels.newChannel(new java.io.ByteArrayInputStream("
+						+ this.getBytes(sp) + "))";
+			} else if ("java.nio.ByteBuffer".equals(name)) {
+				expression = "java.nio.ByteBuffer.wrap(" + this.getBytes(sp)
+						+ ").asReadOnlyBuffer()";
+			} else if ("org.apache.sling.commons.proxy.SlingBinary"
+					.equals(name)) {
+				expression = "toBinary(" + this.getBytes(sp) + ")";
+			}
+			break;
+		default:
+			break;
+		}
+		if (expression == null) {
+			this.env.getMessager().printMessage(
+					Diagnostic.Kind.WARNING,
+					"Unmappable return type " + rt
+							+ " specified and default requested", method);
+			return (rt.getKind().isPrimitive() ? java.util.Collections
+					.singletonList("return " + this.getPrimitiveDefault(rt)
+							+ ";") : null);
+		}
+		return java.util.Collections.singletonList("return " + expression
+				+ ";");
+	}
+
+	/**
+	 * Gets the statement returning the constant of an enum named by the
+	 * default string.
+	 * 
+	 * @param type
+	 *            the enum
+	 * @param name
+	 *            the name of the constant
+	 * @return the statement or null if the enum has no such constant
+	 */
+	private List<String> getEnumDefault(final TypeElement type,
+			final String name) {
+		for (final Element e : type.getEnclosedElements()) {
+			if (e.getKind() == ElementKind.ENUM_CONSTANT
+					&& e.getSimpleName().contentEquals(name)) {
+				return java.util.Collections.singletonList("return "
+						+ type.getQualifiedName() + "." + name + ";");
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the expression creating an array of the default bytes.
+	 * 
+	 * @param sp
+	 *            the SlingProperty annotation
+	 * @return the expression
+	 */
+	private String getBytes(final AnnotationMirror sp) {
+		return "new byte[] { " + this.join(this.getValues(sp, "defaultBytes"))
+				+ " }";
+	}
+
+	/**
+	 * Gets the literal of the value returned for a missing property by a
+	 * getter of a primitive without default.
+	 * 
+	 * @param rt
+	 *            the primitive return type
+	 * @return the literal
+	 */
+	private String getPrimitiveDefault(final TypeMirror rt) {
+		switch (rt.getKind()) {
+		case BOOLEAN:
+			return "false";
+		case LONG:
+			return "0L";
+		case DOUBLE:
+			return "0.0";
+		case FLOAT:
+			return "0.0f";
+		default:
+			return "0";
+		}
+	}
+
+	/**
+	 * Gets the kind of a method, as the proxy service determines it, and adds
+	 * the annotation values the proxy service needs for the kind to the
+	 * registry.
+	 * 
+	 * @param method
+	 *            the method
+	 * @param key
+	 *            the registry key of the method
+	 * @return the name of the kind
+	 */
+	private String getKind(final ExecutableElement method, final String key) {
+		final String name = method.getSimpleName().toString();
+		if ("toString".equals(name)) {
+			return "ToString";
+		} else if ("hashCode".equals(name)) {
+			return "HashCode";
+		} else if ("equals".equals(name)) {
+			return "Equals";
+		} else if ("getBackingResource".equals(name)) {
+			return "BackingResource";
+		} else if ("commit".equals(name)) {
+			return (method.getParameters().isEmpty()
+					&& this.isModifiable((TypeElement) method
+							.getEnclosingElement()) ? "Commit" : "Unknown");
+		} else if (SETTER.matcher(name).matches()) {
+			return this.getSetterKind(method, key);
+		} else if (!GETTER.matcher(name).matches()
+				&& !BOOLEAN_GETTER.matcher(name).matches()) {
+			return "Unknown";
+		}
+
+		AnnotationMirror am = getAnnotation(method, SLING_REFERENCE);
+		if (am != null) {
+			this.registryEntries.put(key + ".path", this.getString(am, "path"));
+			this.registryEntries.put(key + ".lazy", this.getValue(am, "lazy")
+					.toString());
+			return "Reference";
+		}
+		am = getAnnotation(method, SLING_CHILDREN);
+		if (am != null) {
+			final TypeMirror returnType = (TypeMirror) this.getValue(am,
+					"returnType");
+			this.registryEntries.put(key + ".path", this.getString(am, "path"));
+			this.registryEntries.put(key + ".returnType", this
+					.getRuntimeName(returnType));
+			this.registryEntries.put(key + ".offset", this.getValue(am,
+					"offset").toString());
+			this.registryEntries.put(key + ".limit", this.getValue(am,
+					"limit").toString());
+			this.registryEntries.put(key + ".resourceTypes", this.join(this
+					.getValues(am, "resourceTypes"), ","));
+			this.registryEntries.put(key + ".excludedResourceTypes", this
+					.join(this.getValues(am, "excludedResourceTypes"), ","));
+			this.registryEntries.put(key + ".name", this.getString(am, "name"));
+			return "Children";
+		}
+		am = getAnnotation(method, SLING_PROPERTY);
+		if (am == null) {
+			return "Unannotated";
+		}
+		this.registryEntries.put(key + ".path", this.getString(am, "path"));
+		this.registryEntries.put(key + ".name", this.getPropertyName(am,
+				name));
+		this.registryEntries.put(key + ".required", this.getValue(am,
+				"required").toString());
+		return "Property";
+	}
+
+	/**
+	 * Gets the kind of a setter, which writes the property specified by its
+	 * own <code>@SlingProperty</code> annotation or else by the annotation of
+	 * the getter with the same bean name.
+	 * 
+	 * @param method
+	 *            the setter
+	 * @param key
+	 *            the registry key of the method
+	 * @return the name of the kind
+	 */
+	private String getSetterKind(final ExecutableElement method,
+			final String key) {
+		if (method.getParameters().size() != 1
+				|| method.getReturnType().getKind() != TypeKind.VOID) {
+			return "Unknown";
+		}
+		final String beanName = method.getSimpleName().toString().substring(3);
+		AnnotationMirror sp = getAnnotation(method, SLING_PROPERTY);
+		String getterName = method.getSimpleName().toString();
+		if (sp == null) {
+			final TypeElement declaring = (TypeElement) method
+					.getEnclosingElement();
+			ExecutableElement getter = this.getMethod(declaring, "get"
+					+ beanName);
+			if (getter == null) {
+				getter = this.getMethod(declaring, "is" + beanName);
+			}
+			if (getter != null) {
+				sp = getAnnotation(getter, SLING_PROPERTY);
+				getterName = getter.getSimpleName().toString();
+			}
+		}
+		if (sp == null) {
+			return "Unannotated";
+		}
+		this.registryEntries.put(key + ".path", this.getString(sp, "path"));
+		this.registryEntries.put(key + ".name", this.getPropertyName(sp,
+				getterName));
+		return "Setter";
+	}
+
+	/**
+	 * Gets the name of the property of a <code>@SlingProperty</code>
+	 * annotation, derived from the name of the annotated method if the
+	 * annotation does not specify one.
+	 * 
+	 * @param sp
+	 *            the annotation
+	 * @param methodName
+	 *            the name of the annotated method
+	 * @return the property name
+	 */
+	private String getPropertyName(final AnnotationMirror sp,
+			final String methodName) {
+		final String name = this.getString(sp, "name");
+		if (name.length() > 0) {
+			return name;
+		}
+		for (final Pattern p : new Pattern[] { GETTER, BOOLEAN_GETTER, SETTER }) {
+			final Matcher m = p.matcher(methodName);
+			if (m.find()) {
+				return (m.group(1).toLowerCase() + m.group(2)).replace("_",
+						":");
+			}
+		}
+		return methodName;
+	}
+
+	/**
+	 * Gets a method without parameters of an interface, declared or
+	 * inherited.
+	 * 
+	 * @param type
+	 *            the interface
+	 * @param name
+	 *            the name of the method
+	 * @return the method or null if there is none
+	 */
+	private ExecutableElement getMethod(final TypeElement type,
+			final String name) {
+		for (final Element e : this.env.getElementUtils().getAllMembers(type)) {
+			if (e.getKind() == ElementKind.METHOD
+					&& e.getSimpleName().contentEquals(name)
+					&& ((ExecutableElement) e).getParameters().isEmpty()) {
+				return (ExecutableElement) e;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the specified interface is or extends
+	 * ModifiableSlingProxy.
+	 * 
+	 * @param type
+	 *            the interface
+	 * @return true if the interface is modifiable
+	 */
+	private boolean isModifiable(final TypeElement type) {
+		final TypeElement modifiable = this.env.getElementUtils()
+				.getTypeElement(MODIFIABLE_SLING_PROXY);
+		final Types types = this.env.getTypeUtils();
+		return (modifiable != null && types.isSubtype(types.erasure(type
+				.asType()), types.erasure(modifiable.asType())));
+	}
+
+	/**
+	 * Checks whether the specified interface or one of the interfaces it
+	 * extends is annotated with <code>@SlingPrefetch</code>.
+	 * 
+	 * @param type
+	 *            the interface
+	 * @return true if the properties of the interface are prefetched
+	 */
+	private boolean isPrefetch(final TypeElement type) {
+		if (getAnnotation(type, SLING_PREFETCH) != null) {
+			return true;
+		}
+		for (final TypeMirror i : type.getInterfaces()) {
+			if (this.isPrefetch((TypeElement) ((DeclaredType) i).asElement())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the signature of a method, its name followed by the names of the
+	 * erasures of its parameter types, as the proxy service looks it up.
+	 * Methods inherited from several interfaces have the same signature.
+	 * 
+	 * @param method
+	 *            the method
+	 * @param et
+	 *            the type of the method as member of the proxy interface
+	 * @return the signature
+	 */
+	private String getSignature(final ExecutableElement method,
+			final ExecutableType et) {
+		final StringBuilder sb = new StringBuilder(method.getSimpleName());
+		sb.append('(');
+		final List<? extends TypeMirror> params = et.getParameterTypes();
+		for (int i = 0; i < params.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(this.getRuntimeName(params.get(i)));
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Gets the name of the class of the erasure of a type: the binary name of
+	 * declared types, the name of primitives and the name of the component
+	 * type followed by <code>[]</code> for arrays.
+	 * 
+	 * @param t
+	 *            the type
+	 * @return the name
+	 */
+	private String getRuntimeName(final TypeMirror t) {
+		final TypeMirror erasure = this.env.getTypeUtils().erasure(t);
+		if (erasure.getKind() == TypeKind.ARRAY) {
+			return this.getRuntimeName(((ArrayType) erasure)
+					.getComponentType())
+					+ "[]";
+		} else if (erasure.getKind() == TypeKind.DECLARED) {
+			return this.env.getElementUtils().getBinaryName(
+					(TypeElement) ((DeclaredType) erasure).asElement())
+					.toString();
+		}
+		return erasure.toString();
+	}
+
+	/**
+	 * Gets the declaration of the specified type parameters.
+	 * 
+	 * @param parameters
+	 *            the type parameters
+	 * @return the declaration or an empty string if there are no parameters
+	 */
+	private String getTypeParameters(
+			final List<? extends TypeParameterElement> parameters) {
+		if (parameters.isEmpty()) {
+			return "";
+		}
+		final StringBuilder sb = new StringBuilder("<");
+		for (int i = 0; i < parameters.size(); i++) {
+			final TypeParameterElement tp = parameters.get(i);
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(tp.getSimpleName());
+			String separator = " extends ";
+			for (final TypeMirror bound : tp.getBounds()) {
+				if (!"java.lang.Object".equals(bound.toString())) {
+					sb.append(separator).append(bound);
+					separator = " & ";
+				}
+			}
+		}
+		return sb.append('>').toString();
+	}
+
+	/**
+	 * Joins the literals of the specified constant values, separated by
+	 * commas.
+	 * 
+	 * @param values
+	 *            the values
+	 * @return the literals
+	 */
+	private String join(final List<Object> values) {
+		final StringBuilder sb = new StringBuilder();
+		for (final Object value : values) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(this.literal(value));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Joins the specified Strings, trimmed, with a separator.
+	 * 
+	 * @param values
+	 *            the Strings
+	 * @param separator
+	 *            the separator
+	 * @return the joined Strings
+	 */
+	private String join(final List<Object> values, final String separator) {
+		final StringBuilder sb = new StringBuilder();
+		for (final Object value : values) {
+			if (sb.length() > 0) {
+				sb.append(separator);
+			}
+			sb.append(value.toString().trim());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the Java literal of a constant value.
+	 * 
+	 * @param value
+	 *            the value
+	 * @return the literal
+	 */
+	private String literal(final Object value) {
+		if (value instanceof Byte) {
+			return "(byte) " + value;
+		}
+		return this.env.getElementUtils().getConstantExpression(value);
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generating the implementations of Sling Proxy
+ * interfaces at compile time.
+ * 
+ * For every interface with methods annotated with <code>@SlingProperty</code>,
+ * <code>@SlingReference</code> or <code>@SlingChildren</code> a class named
+ * after the interface with the suffix <code>SlingProxyImpl</code> is generated
+ * in the package of the interface, see {@link ProxySourceWriter}. The
+ * generated classes are listed in the registry resource
+ * <code>META-INF/org.apache.sling.commons.proxy/proxies.properties</code>,
+ * together with their methods and the annotation values of the methods,
+ * which the Sling Proxy Service reads to use the generated classes instead of
+ * creating dynamic proxies and to build the metadata of the interfaces
+ * without reading their annotations.
+ * 
+ * The registry is written once per compilation and merged with the registry
+ * of previous compilations found in the class output, so incremental builds
+ * which only recompile some of the proxy interfaces keep the entries of the
+ * other interfaces. Entries of interfaces which were recompiled and are no
+ * longer proxy interfaces are removed.
+ * 
+ * The processor looks at every compiled type, as interfaces which only
+ * inherit the annotated methods carry no annotation themselves, but never
+ * claims any annotation.
+ */
+@SupportedAnnotationTypes("*")
+public class SlingProxyProcessor extends AbstractProcessor {
+
+	/**
+	 * The name of the registry resource, mapping the binary name of each proxy
+	 * interface to the binary name of the generated class, and the binary
+	 * name of each proxy interface followed by <code>#</code> to the entries
+	 * describing the methods of the generated class.
+	 */
+	static final String REGISTRY = "META-INF/org.apache.sling.commons.proxy/proxies.properties";
+
+	/**
+	 * The suffix appended to the name of the interface to name the generated
+	 * class.
+	 */
+	static final String CLASS_NAME_SUFFIX = "SlingProxyImpl";
+
+	/**
+	 * The registry entries of the classes generated in this compilation.
+	 */
+	private final Map<String, String> registry = new java.util.TreeMap<String, String>();
+
+	/**
+	 * The binary names of all types compiled in this compilation.
+	 */
+	private final Set<String> compiled = new java.util.HashSet<String>();
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+	 * javax.annotation.processing.RoundEnvironment)
+	 */
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations,
+			final RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			this.writeRegistry();
+			return false;
+		}
+
+		final Set<TypeElement> interfaces = new java.util.LinkedHashSet<TypeElement>();
+		this.collectInterfaces(roundEnv.getRootElements(), interfaces);
+
+		for (final TypeElement type : interfaces) {
+			this.generate(type);
+		}
+		return false;
+	}
+
+	/**
+	 * Collects the proxy interfaces among the specified elements and the types
+	 * nested in them.
+	 * 
+	 * @param elements
+	 *            the elements to check
+	 * @param interfaces
+	 *            the proxy interfaces found
+	 */
+	private void collectInterfaces(final Iterable<? extends Element> elements,
+			final Set<TypeElement> interfaces) {
+		for (final Element e : elements) {
+			if (e.getKind().isClass() || e.getKind().isInterface()) {
+				this.compiled.add(this.processingEnv.getElementUtils()
+						.getBinaryName((TypeElement) e).toString());
+			}
+			if (e.getKind() == ElementKind.INTERFACE
+					&& ProxySourceWriter.isProxyInterface(
+							this.processingEnv.getElementUtils(),
+							(TypeElement) e)) {
+				interfaces.add((TypeElement) e);
+			}
+			if (e.getKind().isClass() || e.getKind().isInterface()) {
+				this.collectInterfaces(e.getEnclosedElements(), interfaces);
+			}
+		}
+	}
+
+	/**
+	 * Generates the implementation of the specified proxy interface.
+	 * 
+	 * @param type
+	 *            the proxy interface
+	 */
+	private void generate(final TypeElement type) {
+		final String binaryName = this.processingEnv.getElementUtils()
+				.getBinaryName(type).toString();
+		if (this.registry.containsKey(binaryName)) {
+			return;
+		}
+		for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e
+				.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE)) {
+				this.processingEnv.getMessager().printMessage(
+						Diagnostic.Kind.NOTE,
+						"Not generating a Sling Proxy for private interface "
+								+ type.getQualifiedName(), type);
+				return;
+			}
+		}
+
+		final PackageElement pkg = this.processingEnv.getElementUtils()
+				.getPackageOf(type);
+		final String simpleName = this.getFlatName(type) + CLASS_NAME_SUFFIX;
+		final String name = pkg.isUnnamed() ? simpleName : pkg
+				.getQualifiedName() + "." + simpleName;
+
+		final ProxySourceWriter writer = new ProxySourceWriter(
+				this.processingEnv, type, pkg, simpleName);
+		try {
+			final JavaFileObject source = this.processingEnv.getFiler()
+					.createSourceFile(name, type);
+			final Writer w = source.openWriter();
+			try {
+				w.write(writer.write());
+			} finally {
+				w.close();
+			}
+			this.registry.put(binaryName, name);
+			this.registry.putAll(writer.getRegistryEntries());
+		} catch (final IOException e) {
+			this.processingEnv.getMessager().printMessage(
+					Diagnostic.Kind.ERROR,
+					"Unable to generate Sling Proxy " + name + ": "
+							+ e.getMessage(), type);
+		}
+	}
+
+	/**
+	 * Gets the name of the specified type relative to its package, with the
+	 * names of the enclosing types separated by underscores.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return the flat name
+	 */
+	private String getFlatName(final TypeElement type) {
+		final List<String> names = new java.util.LinkedList<String>();
+		for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e
+				.getEnclosingElement()) {
+			names.add(0, e.getSimpleName().toString());
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (final String n : names) {
+			if (sb.length() > 0) {
+				sb.append('_');
+			}
+			sb.append(n);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the registry of the classes generated in this compilation,
+	 * merged with the registry of previous compilations. The registry is not
+	 * written if it would not change.
+	 */
+	private void writeRegistry() {
+		final Map<String, String> entries = new java.util.TreeMap<String, String>();
+		boolean removed = false;
+		for (final Map.Entry<Object, Object> entry : this.readRegistry()
+				.entrySet()) {
+			final String key = (String) entry.getKey();
+			final int hash = key.indexOf('#');
+			final String name = (hash < 0 ? key : key.substring(0, hash));
+			if (!this.compiled.contains(name)) {
+				entries.put(key, (String) entry.getValue());
+			} else if (!this.registry.containsKey(name)) {
+				removed = true;
+			}
+		}
+		if (this.registry.isEmpty() && !removed) {
+			return;
+		}
+		entries.putAll(this.registry);
+		try {
+			final FileObject resource = this.processingEnv.getFiler()
+					.createResource(StandardLocation.CLASS_OUTPUT, "",
+							REGISTRY);
+			final Writer w = resource.openWriter();
+			try {
+				w.write("# Generated by " + SlingProxyProcessor.class.getName()
+						+ "\n");
+				for (final Map.Entry<String, String> entry : entries
+						.entrySet()) {
+					w.write(entry.getKey() + "=" + entry.getValue() + "\n");
+				}
+			} finally {
+				w.close();
+			}
+		} catch (final IOException e) {
+			this.processingEnv.getMessager().printMessage(
+					Diagnostic.Kind.ERROR,
+					"Unable to write the Sling Proxy registry: "
+							+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the registry written to the class output by a previous
+	 * compilation.
+	 * 
+	 * @return the registry entries, empty if there is no registry
+	 */
+	private Properties readRegistry() {
+		final Properties previous = new Properties();
+		try {
+			final FileObject resource = this.processingEnv.getFiler()
+					.getResource(StandardLocation.CLASS_OUTPUT, "", REGISTRY);
+			final InputStream is = resource.openInputStream();
+			try {
+				previous.load(is);
+			} finally {
+				is.close();
+			}
+		} catch (final IOException e) {
+			// there is no previous registry
+		}
+		return previous;
+	}
+}
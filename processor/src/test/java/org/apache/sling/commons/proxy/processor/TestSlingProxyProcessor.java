@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.commons.proxy.processor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.BaseSlingProxyTest;
+import org.apache.sling.commons.proxy.SlingProxyService;
+import org.apache.sling.commons.proxy.generated.GeneratedSlingProxy;
+import org.apache.sling.commons.proxy.impl.DefaultSlingProxyServiceImpl;
+import org.apache.sling.commons.proxy.impl.ProxyEngine;
+import org.apache.sling.commons.proxy.processor.samples.CompiledSlingPropertyProxy;
+import org.apache.sling.commons.proxy.samples.ModifiableSlingPropertyProxy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the Sling Proxies created with proxy classes generated at compile time,
+ * compiling the proxy interfaces with the Sling Proxy annotation processor.
+ */
+public class TestSlingProxyProcessor extends BaseSlingProxyTest {
+	private static final Logger log = LoggerFactory
+			.getLogger(TestSlingProxyProcessor.class);
+
+	/**
+	 * The package of the compiled proxy interfaces.
+	 */
+	private static final String PACKAGE = "org.apache.sling.commons.proxy.compiled";
+
+	/**
+	 * The registry written by the annotation processor.
+	 */
+	private static final String REGISTRY = "META-INF/org.apache.sling.commons.proxy/proxies.properties";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void runTests() throws Exception {
+
+		log.info("runTests");
+
+		final File classes = folder.newFolder("classes");
+		compile(classes, "CompiledPage", "");
+		URLClassLoader loader = new URLClassLoader(new URL[] { classes
+				.toURI().toURL() }, getClass().getClassLoader());
+		Class<? extends CompiledSlingPropertyProxy> type = loader.loadClass(
+				PACKAGE + ".CompiledPage").asSubclass(
+				CompiledSlingPropertyProxy.class);
+
+		Resource pageResource = resolver.getResource("/content/test");
+		CompiledSlingPropertyProxy pageProxy = slingProxyService.getProxy(
+				pageResource, type);
+		assertEquals(PACKAGE + ".CompiledPageSlingProxyImpl", pageProxy
+				.getClass().getName());
+		assertTrue(pageProxy instanceof GeneratedSlingProxy);
+
+		log.info("Testing the compiled class is preferred by every engine");
+		SlingProxyService generatedProxyService = new DefaultSlingProxyServiceImpl(
+				ProxyEngine.GeneratedClass);
+		CompiledSlingPropertyProxy pageProxy2 = generatedProxyService
+				.getProxy(pageResource, type);
+		assertEquals(pageProxy.getClass(), pageProxy2.getClass());
+
+		log.info("Testing backing resource");
+		assertEquals(pageProxy.getBackingResource(), pageResource);
+
+		log.info("Testing property retrieval");
+		assertEquals(TITLE, pageProxy.getTitle());
+		assertEquals(false, pageProxy.isActive());
+
+		log.info("Testing default values");
+		assertEquals("No Description", pageProxy.getDescription());
+		assertEquals(Long.valueOf(42), pageProxy.getRevision());
+
+		log.info("Testing the values match the dynamic proxy");
+		CompiledSlingPropertyProxy dynamicProxy = slingProxyService.getProxy(
+				pageResource, CompiledSlingPropertyProxy.class);
+		assertFalse(dynamicProxy instanceof GeneratedSlingProxy);
+		assertEquals(dynamicProxy.getTitle(), pageProxy.getTitle());
+		assertEquals(dynamicProxy.isActive(), pageProxy.isActive());
+		assertEquals(dynamicProxy.getDescription(), pageProxy.getDescription());
+		assertEquals(dynamicProxy.getRevision(), pageProxy.getRevision());
+		assertEquals(dynamicProxy.getMissingCount(), pageProxy
+				.getMissingCount());
+		assertEquals(dynamicProxy.getDefaultCount(), pageProxy
+				.getDefaultCount());
+		assertEquals(dynamicProxy.isDefaultFlag(), pageProxy.isDefaultFlag());
+		assertEquals(dynamicProxy.getDefaultRatio(), pageProxy
+				.getDefaultRatio(), 0f);
+		assertEquals(dynamicProxy.getDefaultPrice(), pageProxy
+				.getDefaultPrice());
+		assertEquals(dynamicProxy.getDefaultState(), pageProxy
+				.getDefaultState());
+		assertEquals(dynamicProxy.getDefaultCalendar().getTimeInMillis(),
+				pageProxy.getDefaultCalendar().getTimeInMillis());
+		assertEquals(dynamicProxy.getDefaultDate(), pageProxy.getDefaultDate());
+		assertArrayEquals(dynamicProxy.getDefaultTags(), pageProxy
+				.getDefaultTags());
+		assertArrayEquals(read(dynamicProxy.getDefaultBinary().openStream()),
+				read(pageProxy.getDefaultBinary().openStream()));
+		assertEquals(dynamicProxy.getContentResource().getPath(), pageProxy
+				.getContentResource().getPath());
+		assertEquals(dynamicProxy.getChildCount(), pageProxy.getChildCount());
+
+		log.info("Testing the generated getters do not use reflection");
+		String generated = readSource(classes, "CompiledPage");
+		assertFalse(generated.contains("invokeMethod"));
+		assertTrue(generated.contains("invokeProperty("));
+		assertTrue(generated.contains("return 7;"));
+
+		log.info("Testing the metadata is read from the registry");
+		Properties registry = readRegistry(classes);
+		String key = PACKAGE + ".CompiledPage#0";
+		assertNotNull(registry.getProperty(key));
+		assertNotNull(registry.getProperty(key + ".kind"));
+		assertNull(registry.getProperty(PACKAGE + ".CompiledPage#prefetch"));
+
+		log.info("Testing setters");
+		CompiledSlingPropertyProxy writeProxy = slingProxyService.getProxy(
+				resolver, "/content/test", type);
+		writeProxy.setTitle("Compiled Title");
+		assertEquals("Compiled Title", writeProxy.getTitle());
+		assertEquals("Compiled Title", slingProxyService.getProxy(resolver,
+				"/content/test", CompiledSlingPropertyProxy.class).getTitle());
+
+		log.info("Testing pending writes are read");
+		CompiledSlingPropertyProxy freshProxy = slingProxyService.getProxy(
+				resolver, "/content/test", type);
+		slingProxyService.getProxy(pageResource,
+				ModifiableSlingPropertyProxy.class).setTitle("Pending Title");
+		assertEquals("Pending Title", freshProxy.getTitle());
+
+		log.info("Testing equals and hashCode");
+		assertTrue(pageProxy.equals(pageProxy2));
+		assertEquals(pageProxy.hashCode(), pageProxy2.hashCode());
+		CompiledSlingPropertyProxy contentProxy = slingProxyService.getProxy(
+				resolver.getResource("/content/test/jcr:content"), type);
+		assertFalse(pageProxy.equals(contentProxy));
+
+		log.info("Testing toString");
+		assertNotNull(pageProxy.toString());
+		log.info(pageProxy.toString());
+
+		log.info("Testing incremental compilation keeps the registry entries");
+		compile(classes, "CompiledContent",
+				"@org.apache.sling.commons.proxy.annotations.SlingPrefetch");
+		registry = readRegistry(classes);
+		assertEquals(PACKAGE + ".CompiledPageSlingProxyImpl", registry
+				.getProperty(PACKAGE + ".CompiledPage"));
+		assertEquals(PACKAGE + ".CompiledContentSlingProxyImpl", registry
+				.getProperty(PACKAGE + ".CompiledContent"));
+		assertNotNull(registry.getProperty(key));
+		assertEquals("true", registry.getProperty(PACKAGE
+				+ ".CompiledContent#prefetch"));
+		loader.close();
+
+		log.info("Tests Successful");
+	}
+
+	/**
+	 * Compiles a proxy interface extending {@link CompiledSlingPropertyProxy}
+	 * with the Sling Proxy annotation processor.
+	 * 
+	 * @param classes
+	 *            the output directory, also on the class path
+	 * @param name
+	 *            the simple name of the interface
+	 * @param annotations
+	 *            the annotations of the interface
+	 */
+	private static void compile(File classes, String name,
+			String annotations) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("No Java compiler available", compiler);
+		final String source = "package " + PACKAGE + ";\n" + annotations
+				+ "\npublic interface " + name + " extends "
+				+ CompiledSlingPropertyProxy.class.getName() + " {\n}\n";
+		URI uri = URI.create("string:///" + PACKAGE.replace('.', '/') + "/"
+				+ name + ".java");
+		JavaFileObject file = new SimpleJavaFileObject(uri,
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		String classpath = System.getProperty("java.class.path")
+				+ File.pathSeparator + classes.getPath();
+		JavaCompiler.CompilationTask task = compiler.getTask(null, null,
+				null, Arrays.asList("-d", classes.getPath(), "-s", classes
+						.getPath(), "-classpath", classpath), null,
+				Collections.singletonList(file));
+		task.setProcessors(Collections.singletonList(new SlingProxyProcessor()));
+		assertTrue("Compilation of " + name + " failed", task.call());
+	}
+
+	/**
+	 * Reads the source generated for a proxy interface.
+	 * 
+	 * @param classes
+	 *            the output directory
+	 * @param name
+	 *            the simple name of the interface
+	 * @return the generated source
+	 * @throws IOException
+	 */
+	private static String readSource(File classes, String name)
+			throws IOException {
+		return new String(read(new FileInputStream(new File(classes, PACKAGE
+				.replace('.', '/')
+				+ "/" + name + "SlingProxyImpl.java"))), "UTF-8");
+	}
+
+	/**
+	 * Reads and closes a stream.
+	 * 
+	 * @param is
+	 *            the stream
+	 * @return the bytes read
+	 * @throws IOException
+	 */
+	private static byte[] read(InputStream is) throws IOException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int n;
+			while ((n = is.read(buffer)) != -1) {
+				bytes.write(buffer, 0, n);
+			}
+			return bytes.toByteArray();
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Reads the registry written by the annotation processor.
+	 * 
+	 * @param classes
+	 *            the output directory
+	 * @return the registry entries
+	 * @throws IOException
+	 */
+	private static Properties readRegistry(File classes) throws IOException {
+		Properties registry = new Properties();
+		InputStream is = new FileInputStream(new File(classes, REGISTRY));
+		try {
+			registry.load(is);
+		} finally {
+			is.close();
+		}
+		return registry;
+	}
+}
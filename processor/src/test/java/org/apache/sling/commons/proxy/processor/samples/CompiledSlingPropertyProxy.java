@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.commons.proxy.processor.samples;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Calendar;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.proxy.ModifiableSlingProxy;
+import org.apache.sling.commons.proxy.SlingBinary;
+import org.apache.sling.commons.proxy.annotations.SlingChildren;
+import org.apache.sling.commons.proxy.annotations.SlingProperty;
+import org.apache.sling.commons.proxy.annotations.SlingReference;
+
+/**
+ * A proxy extended by the interfaces which are compiled with the Sling Proxy
+ * annotation processor, see
+ * {@link org.apache.sling.commons.proxy.processor.TestSlingProxyProcessor}.
+ */
+public interface CompiledSlingPropertyProxy extends ModifiableSlingProxy {
+
+	public enum State {
+		DRAFT, PUBLISHED
+	}
+
+	@SlingProperty(name = "jcr:title", path = "jcr:content")
+	public String getTitle();
+
+	public void setTitle(String title);
+
+	@SlingProperty(path = "jcr:content", name = "active")
+	public Boolean isActive();
+
+	@SlingProperty(path = "jcr:content", useDefault = true, defaultString = "No Description")
+	public String getDescription();
+
+	@SlingProperty(path = "jcr:content", useDefault = true, defaultLong = 42)
+	public Long getRevision();
+
+	@SlingProperty(name = "missing")
+	public int getMissingCount();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultLong = 7)
+	public int getDefaultCount();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultBoolean = true)
+	public boolean isDefaultFlag();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultDouble = 0.5)
+	public float getDefaultRatio();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultDouble = 12.5)
+	public BigDecimal getDefaultPrice();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultString = "PUBLISHED")
+	public State getDefaultState();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultDate = 0)
+	public Calendar getDefaultCalendar();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultDate = 0)
+	public LocalDate getDefaultDate();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultStrings = {
+			"a", "b" })
+	public String[] getDefaultTags();
+
+	@SlingProperty(name = "missing", useDefault = true, defaultBytes = { 1, 2 })
+	public SlingBinary getDefaultBinary();
+
+	@SlingReference(path = "jcr:content")
+	public Resource getContentResource();
+
+	@SlingChildren
+	public long getChildCount();
+}
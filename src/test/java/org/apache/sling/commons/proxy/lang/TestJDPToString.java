@@ -1,56 +0,0 @@
-/*
- * Licensed to the Apache Software Foundation (ASF) under one
- * or more contributor license agreements.  See the NOTICE file
- * distributed with this work for additional information
- * regarding copyright ownership.  The ASF licenses this file
- * to you under the Apache License, Version 2.0 (the
- * "License"); you may not use this file except in compliance
- * with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing,
- * software distributed under the License is distributed on an
- * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- * KIND, either express or implied.  See the License for the
- * specific language governing permissions and limitations
- * under the License.
- */
-package org.apache.sling.commons.proxy.lang;
-
-import static org.junit.Assert.assertNotNull;
-
-import org.apache.sling.api.resource.Resource;
-import org.apache.sling.commons.proxy.BaseSlingProxyTest;
-import org.apache.sling.commons.proxy.samples.SlingPropertyProxy;
-import org.junit.Test;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-/**
- * Tests for the SlingProxy toString method.
- */
-public class TestJDPToString extends BaseSlingProxyTest {
-	private static final Logger log = LoggerFactory
-			.getLogger(TestJDPToString.class);
-
-	/**
-	 * Test the SlingProxy toString method.
-	 */
-	@Test
-	public void runTests() {
-
-		log.info("runTests");
-
-		Resource pageResource = resolver.getResource("/content/test");
-		SlingPropertyProxy pageProxy = pageResource
-				.adaptTo(SlingPropertyProxy.class);
-
-		log.info("Testing toString functionality");
-		String stringed = pageProxy.toString();
-		assertNotNull(stringed);
-		log.info(stringed);
-
-		log.info("Tests Successful");
-	}
-}